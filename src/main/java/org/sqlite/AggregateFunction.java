@@ -0,0 +1,132 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import com.sun.jna.Pointer;
+import org.sqlite.SQLite.XFinal;
+import org.sqlite.SQLite.XFunc;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.sqlite.SQLite.RAW_HANDLES;
+import static org.sqlite.SQLite.sqlite3_aggregate_context;
+import static org.sqlite.SQLite.sqlite3_result_error_nomem;
+
+/**
+ * Aggregate function whose per-group state is a Java object.
+ * <p>
+ * States live in a slot table: the <code>sqlite3_aggregate_context</code> of each group only stores its slot index
+ * (no map keyed by pointer, no serialization into native memory). The slot is released by <code>xFinal</code>,
+ * which SQLite also calls when a statement is reset before the end of the aggregation.
+ * @param <S> state type
+ * @see <a href="http://sqlite.org/c3ref/aggregate_context.html">sqlite3_aggregate_context</a>
+ */
+final class AggregateFunction<S> {
+	// slot index + 1 (0 when the group has no state yet)
+	private static final int CONTEXT_SIZE = 4;
+
+	private final Supplier<S> init;
+	private final BiConsumer<S, Values> step;
+	// null if not a window function
+	private final BiConsumer<S, Values> inverse;
+	private final Function<S, ?> finish;
+
+	private final Values values = new Values();
+	// aggregate context of the current call
+	private final Pointer context = new Pointer(0L);
+	private final SlotTable<S> states = new SlotTable<>();
+
+	final XFunc xStep = this::step;
+	final XFinal xFinal = this::finalStep;
+	final XFinal xValue = this::value;
+	final XFunc xInverse = this::inverse;
+
+	AggregateFunction(Supplier<S> init, BiConsumer<S, Values> step, Function<S, ?> finish) {
+		this(init, step, null, finish);
+	}
+	/**
+	 * Window function: <code>finish</code> is also used by <code>xValue</code> (and must not alter the state).
+	 */
+	AggregateFunction(Supplier<S> init, BiConsumer<S, Values> step, BiConsumer<S, Values> inverse, Function<S, ?> finish) {
+		this.init = init;
+		this.step = step;
+		this.inverse = inverse;
+		this.finish = finish;
+	}
+
+	private void step(Pointer pCtx, int nArg, Pointer args) {
+		accumulate(pCtx, nArg, args, step);
+	}
+
+	private void inverse(Pointer pCtx, int nArg, Pointer args) {
+		accumulate(pCtx, nArg, args, inverse);
+	}
+
+	private void accumulate(Pointer pCtx, int nArg, Pointer args, BiConsumer<S, Values> f) {
+		if (!context(pCtx, CONTEXT_SIZE)) {
+			sqlite3_result_error_nomem(pCtx);
+			return;
+		}
+		final Values v = values.inUse ? new Values() : values;
+		v.inUse = true;
+		try {
+			int slot = context.getInt(0L) - 1;
+			if (slot < 0) {
+				slot = states.add(init.get());
+				context.setInt(0L, slot + 1);
+			}
+			f.accept(states.get(slot), v.reset(nArg, args));
+		} catch (RuntimeException e) {
+			ScalarFunction.resultError(pCtx, e);
+		} finally {
+			v.inUse = false;
+		}
+	}
+
+	private void finalStep(Pointer pCtx) {
+		try {
+			final S state;
+			// no allocation in xFinal (null when no rows match)
+			final int slot = context(pCtx, 0) ? context.getInt(0L) - 1 : -1;
+			if (slot < 0) {
+				state = init.get();
+			} else {
+				state = states.remove(slot);
+			}
+			ScalarFunction.result(pCtx, finish.apply(state));
+		} catch (RuntimeException e) {
+			ScalarFunction.resultError(pCtx, e);
+		}
+	}
+
+	// current value of a window: the slot is kept
+	private void value(Pointer pCtx) {
+		try {
+			final int slot = context(pCtx, 0) ? context.getInt(0L) - 1 : -1;
+			ScalarFunction.result(pCtx, finish.apply(slot < 0 ? init.get() : states.get(slot)));
+		} catch (RuntimeException e) {
+			ScalarFunction.resultError(pCtx, e);
+		}
+	}
+
+	// false when sqlite3_aggregate_context returns NULL
+	private boolean context(Pointer pCtx, int nBytes) {
+		final long p;
+		if (RAW_HANDLES) {
+			p = sqlite3_aggregate_context(Pointer.nativeValue(pCtx), nBytes);
+		} else {
+			final Pointer ptr = sqlite3_aggregate_context(pCtx, nBytes);
+			p = ptr == null ? 0L : Pointer.nativeValue(ptr);
+		}
+		Pointer.nativeValue(context, p);
+		return p != 0L;
+	}
+}
@@ -0,0 +1,58 @@
+package org.sqlite;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Pointer;
+import org.sqlite.SQLite.SQLite3Context;
+import org.sqlite.SQLite.SQLite3Values;
+
+import static org.sqlite.SQLite.sqlite3_aggregate_context;
+import static org.sqlite.SQLite.sqlite3_result_error_nomem;
+
+/**
+ * User defined SQL window function: removes the oldest row of the frame from the aggregate
+ * (so that a sliding frame costs O(1) per row instead of an aggregation of the whole frame).
+ * <pre>{@code
+ * new AggregateInverseCallback() {
+ *   \@Override
+ *   public void inverse(SQLite3Context pCtx, Pointer aggrCtx, SQLite3Values args) {
+ *     args.getX(...);
+ *     ...
+ *     aggrCtx.setX(...);
+ *   }
+ * }
+ * }</pre>
+ *
+ * @see Conn#createWindowFunction(String, int, int, AggregateStepCallback, AggregateFinalCallback, AggregateValueCallback, AggregateInverseCallback)
+ * @see <a href="http://sqlite.org/windowfunctions.html#udfwinfunc">User-Defined Aggregate Window Functions</a>
+ */
+public abstract class AggregateInverseCallback implements Callback {
+	//void (*)(sqlite3_context*,int,sqlite3_value**),
+	/**
+	 * @param pCtx <code>sqlite3_context*</code>
+	 * @param nArg number of arguments
+	 * @param args function arguments
+	 */
+	@SuppressWarnings("unused")
+	public void callback(SQLite3Context pCtx, int nArg, Pointer args) {
+		final int nBytes = numberOfBytes();
+		final Pointer p = sqlite3_aggregate_context(pCtx, nBytes);
+		if (p == null && nBytes > 0) {
+			sqlite3_result_error_nomem(pCtx);
+			return;
+		}
+		inverse(pCtx, p, SQLite3Values.build(nArg, args));
+	}
+
+	/**
+	 * @return number of bytes to allocate (same as {@link AggregateStepCallback#numberOfBytes()}).
+	 * @see <a href="http://sqlite.org/c3ref/aggregate_context.html">sqlite3_aggregate_context</a>
+	 */
+	protected abstract int numberOfBytes();
+
+	/**
+	 * @param pCtx <code>sqlite3_context*</code>
+	 * @param aggrCtx aggregate context
+	 * @param args function arguments (of the row leaving the frame)
+	 */
+	protected abstract void inverse(SQLite3Context pCtx, Pointer aggrCtx, SQLite3Values args);
+}
@@ -0,0 +1,43 @@
+package org.sqlite;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Pointer;
+import org.sqlite.SQLite.SQLite3Context;
+
+import static org.sqlite.SQLite.sqlite3_aggregate_context;
+
+/**
+ * User defined SQL window function: current value of the aggregate (the aggregate context is not released).
+ * <pre>{@code
+ * new AggregateValueCallback() {
+ *   \@Override
+ *   public void value(SQLite3Context pCtx, Pointer aggrCtx) {
+ *     if (aggrCtx == null) {
+ *       pCtx.setResultNull();
+ *       return;
+ *     }
+ *     ...
+ *     pCtx.setResultX(...);
+ *   }
+ * }
+ * }</pre>
+ *
+ * @see Conn#createWindowFunction(String, int, int, AggregateStepCallback, AggregateFinalCallback, AggregateValueCallback, AggregateInverseCallback)
+ * @see <a href="http://sqlite.org/windowfunctions.html#udfwinfunc">User-Defined Aggregate Window Functions</a>
+ */
+public abstract class AggregateValueCallback implements Callback {
+	/**
+	 * @param pCtx <code>sqlite3_context*</code>
+	 */
+	@SuppressWarnings("unused")
+	public void callback(SQLite3Context pCtx) {
+		// no allocation: null when the frame is empty
+		value(pCtx, sqlite3_aggregate_context(pCtx, 0));
+	}
+
+	/**
+	 * @param pCtx <code>sqlite3_context*</code>
+	 * @param aggrCtx aggregate context (<code>null</code> when no row has been added)
+	 */
+	protected abstract void value(SQLite3Context pCtx, Pointer aggrCtx);
+}
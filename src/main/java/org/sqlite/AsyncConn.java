@@ -0,0 +1,204 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous facade over a connection confined to one dedicated platform thread.
+ * <p>
+ * Work is queued to that thread and results are returned as {@link CompletableFuture}s, so that callers
+ * (including virtual threads) never block inside native code nor on the connection monitor.
+ * Cancelling a running future interrupts the current statement ({@link Conn#interrupt()});
+ * cancelling a queued future prevents it from running.
+ * Futures are completed on the connection thread: use the <code>*Async</code> methods of
+ * {@link CompletableFuture} for expensive continuations.
+ */
+public final class AsyncConn implements AutoCloseable {
+	/**
+	 * Work run on the connection thread.
+	 */
+	public interface Work<T> {
+		T run(Conn conn) throws SQLiteException;
+	}
+
+	private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+	private final ExecutorService executor;
+	private final Conn conn;
+	// task being run (guarded by this)
+	private Task<?> current;
+
+	private AsyncConn(ExecutorService executor, Conn conn) {
+		this.executor = executor;
+		this.conn = conn;
+	}
+
+	/**
+	 * Open a connection on a new dedicated thread.
+	 * @see Conn#open(String, int, String)
+	 */
+	public static AsyncConn open(String filename, int flags, String vfs) throws SQLiteException {
+		final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+			final Thread t = new Thread(r, "sqlite-async-" + THREAD_ID.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		try {
+			return new AsyncConn(executor, executor.submit(() -> Conn.open(filename, flags, vfs)).get());
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new ConnException(null, "interrupted while opening connection", ErrCodes.SQLITE_INTERRUPT);
+		} catch (ExecutionException e) {
+			executor.shutdownNow();
+			if (e.getCause() instanceof SQLiteException) {
+				throw (SQLiteException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * @param work run on the connection thread
+	 * @return work result
+	 */
+	public <T> CompletableFuture<T> submit(Work<T> work) {
+		final Task<T> task = new Task<>(work);
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.completeExceptionally(new ConnException(null, "connection closed", ErrCodes.WRAPPER_SPECIFIC));
+		}
+		return task;
+	}
+
+	/**
+	 * Execute a query and map all the resulting rows.
+	 * @param sql SELECT statement (prepared statement cached)
+	 * @param params Statement parameters
+	 * @param mapper Row mapper
+	 * @return mapped rows
+	 * @see Stmt#queryMap(RowMapper, Object...)
+	 */
+	public <T> CompletableFuture<List<T>> query(String sql, Object[] params, RowMapper<T> mapper) {
+		return submit(c -> {
+			try (Stmt s = c.prepare(sql, true)) {
+				final List<T> rows = new ArrayList<>();
+				final Iterator<T> it = s.queryMap(mapper, params);
+				while (it.hasNext()) {
+					rows.add(it.next());
+				}
+				return rows;
+			}
+		});
+	}
+	/**
+	 * @see Conn#execDml(String, boolean, Object...)
+	 */
+	public CompletableFuture<Integer> execDml(String sql, Object... params) {
+		return submit(c -> c.execDml(sql, true, params));
+	}
+	/**
+	 * @see Conn#insert(String, boolean, Object...)
+	 */
+	public CompletableFuture<Long> insert(String sql, Object... params) {
+		return submit(c -> c.insert(sql, true, params));
+	}
+	/**
+	 * @see Conn#exec(String)
+	 */
+	public CompletableFuture<Void> exec(String sql) {
+		return submit(c -> {
+			c.exec(sql);
+			return null;
+		});
+	}
+
+	/**
+	 * Close the connection once the queued work is done and stop the connection thread.
+	 */
+	@Override
+	public void close() throws ConnException {
+		if (executor.isShutdown()) {
+			return;
+		}
+		final CompletableFuture<Void> closed = submit(c -> {
+			c.close();
+			return null;
+		});
+		executor.shutdown();
+		try {
+			closed.join();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			if (e.getCause() instanceof ConnException) {
+				throw (ConnException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private synchronized void interrupt(Task<?> task) {
+		if (current == task) {
+			try {
+				conn.interrupt(); // thread-safe
+			} catch (ConnException e) {
+				// connection closed by the task
+			}
+		}
+	}
+
+	private final class Task<T> extends CompletableFuture<T> implements Runnable {
+		private final Work<T> work;
+
+		private Task(Work<T> work) {
+			this.work = work;
+		}
+
+		@Override
+		public void run() {
+			if (isDone()) { // cancelled while queued
+				return;
+			}
+			synchronized (AsyncConn.this) {
+				current = this;
+			}
+			try {
+				complete(work.run(conn));
+			} catch (Throwable t) {
+				completeExceptionally(t);
+			} finally {
+				synchronized (AsyncConn.this) {
+					current = null;
+				}
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			final boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				interrupt(this);
+			}
+			return cancelled;
+		}
+	}
+}
@@ -8,10 +8,18 @@
  */
 package org.sqlite;
 
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import static org.sqlite.SQLite.*;
 
@@ -56,12 +64,41 @@ public class Blob implements AutoCloseable {
 		}
 		checkOpen();
 		final int n = b.remaining();
-		final int res = sqlite3_blob_read(pBlob, b, n, readOffset);
+		read(b, n, readOffset);
+		readOffset += n;
+		return n;
+	}
+
+	// into b, from its position (unchanged): direct buffers are filled in place, heap ones through pooled chunks
+	private void read(ByteBuffer b, int n, int offset) throws SQLiteException {
+		if (n == 0) {
+			return;
+		}
+		final int pos = b.position();
+		if (b.isDirect()) {
+			blobRead(Native.getDirectBufferPointer(b).share(pos), n, offset);
+			return;
+		}
+		final BufferPool.Chunk chunk = BufferPool.acquire();
+		try {
+			for (int done = 0; done < n; ) {
+				final int k = Math.min(n - done, BufferPool.CHUNK_SIZE);
+				blobRead(chunk.memory, k, offset + done);
+				chunk.buffer.clear().limit(k);
+				b.put(chunk.buffer);
+				done += k;
+			}
+		} finally {
+			b.position(pos);
+			BufferPool.release(chunk);
+		}
+	}
+
+	private void blobRead(Pointer z, int n, int offset) throws SQLiteException {
+		final int res = sqlite3_blob_read(pBlob, z, n, offset);
 		if (res != SQLITE_OK) {
 			throw new SQLiteException(c, "error while reading blob", res);
 		}
-		readOffset += n;
-		return n;
 	}
 
 	/**
@@ -76,12 +113,100 @@ public class Blob implements AutoCloseable {
 		}
 		checkOpen();
 		final int n = b.remaining();
-		final int res = sqlite3_blob_write(pBlob, b, n, writeOffset);
+		write(b, n, writeOffset);
+		writeOffset += n;
+		return n;
+	}
+
+	// from b, from its position (unchanged)
+	private void write(ByteBuffer b, int n, int offset) throws SQLiteException {
+		if (n == 0) {
+			return;
+		}
+		final int pos = b.position();
+		if (b.isDirect()) {
+			blobWrite(Native.getDirectBufferPointer(b).share(pos), n, offset);
+			return;
+		}
+		final int limit = b.limit();
+		final BufferPool.Chunk chunk = BufferPool.acquire();
+		try {
+			for (int done = 0; done < n; ) {
+				final int k = Math.min(n - done, BufferPool.CHUNK_SIZE);
+				b.limit(pos + done + k);
+				chunk.buffer.clear();
+				chunk.buffer.put(b);
+				blobWrite(chunk.memory, k, offset + done);
+				done += k;
+			}
+		} finally {
+			b.limit(limit).position(pos);
+			BufferPool.release(chunk);
+		}
+	}
+
+	private void blobWrite(Pointer z, int n, int offset) throws SQLiteException {
+		final int res = sqlite3_blob_write(pBlob, z, n, offset);
 		if (res != SQLITE_OK) {
 			throw new SQLiteException(c, "error while writing blob", res);
 		}
-		writeOffset += n;
-		return n;
+	}
+
+	/**
+	 * Copy this BLOB content, from the current read offset to its end, into <code>target</code>
+	 * (in chunks of native memory: no intermediate heap array).
+	 * @param target blocking channel (a socket or a file for example)
+	 * @return number of bytes transferred
+	 */
+	public long transferTo(WritableByteChannel target) throws IOException {
+		long count = 0L;
+		final BufferPool.Chunk chunk = BufferPool.acquire();
+		try {
+			int n;
+			while ((n = Math.min(getBytes() - readOffset, BufferPool.CHUNK_SIZE)) > 0) {
+				blobRead(chunk.memory, n, readOffset);
+				chunk.buffer.clear().limit(n);
+				while (chunk.buffer.hasRemaining()) {
+					target.write(chunk.buffer);
+				}
+				readOffset += n;
+				count += n;
+			}
+		} catch (SQLiteException e) {
+			throw new IOException(e);
+		} finally {
+			BufferPool.release(chunk);
+		}
+		return count;
+	}
+
+	/**
+	 * Copy bytes from <code>src</code> into this BLOB, from the current write offset,
+	 * until its end is reached (a BLOB cannot be resized) or <code>src</code> is exhausted.
+	 * @param src blocking channel (a socket or a file for example)
+	 * @return number of bytes transferred
+	 */
+	public long transferFrom(ReadableByteChannel src) throws IOException {
+		long count = 0L;
+		final BufferPool.Chunk chunk = BufferPool.acquire();
+		try {
+			int n;
+			while ((n = Math.min(getBytes() - writeOffset, BufferPool.CHUNK_SIZE)) > 0) {
+				chunk.buffer.clear().limit(n);
+				if (src.read(chunk.buffer) <= 0) {
+					break;
+				}
+				n = chunk.buffer.position();
+				blobWrite(chunk.memory, n, writeOffset);
+				writeOffset += n;
+				count += n;
+			}
+		} catch (SQLiteException e) {
+			throw new IOException(e);
+		} finally {
+			BufferPool.release(chunk);
+		}
+		return count;
 	}
 
 	/**
@@ -163,6 +288,15 @@ public class Blob implements AutoCloseable {
 		return new BlobInputStream();
 	}
 
+	/**
+	 * @return a channel over this BLOB, with its own position (independent of the read and write offsets).
+	 * Its size is fixed: writing past the end fails and it can only be truncated to its actual size.
+	 * Closing the channel closes this BLOB.
+	 */
+	public SeekableByteChannel getChannel() {
+		return new BlobChannel();
+	}
+
 	public void setReadOffset(int readOffset) throws SQLiteException {
 		if (readOffset < 0) {
 			throw new SQLiteException(String.format("invalid read offset: %d < 0", readOffset), ErrCodes.WRAPPER_SPECIFIC);
@@ -173,6 +307,7 @@ public class Blob implements AutoCloseable {
 	}
 
 	private class BlobInputStream extends InputStream {
+		private final Memory one = new Memory(1L);
 		private int mark;
 
 		@Override
@@ -180,12 +315,13 @@ public class Blob implements AutoCloseable {
 			if (isEOF()) {
 				return -1;
 			}
-			final byte[] b = new byte[1];
-			final int i = read(b);
-			if (i < 0) {
-				return i;
+			try {
+				blobRead(one, 1, readOffset);
+			} catch (SQLiteException e) {
+				throw new IOException(e);
 			}
-			return b[0];
+			readOffset++;
+			return one.getByte(0L) & 0xFF;
 		}
 
 		@Override
@@ -270,9 +406,18 @@ public class Blob implements AutoCloseable {
 	}
 
 	private class BlobOutputStream extends OutputStream {
+		private final Memory one = new Memory(1L);
+
 		@Override
 		public void write(int b) throws IOException {
-			write(new byte[]{(byte) b});
+			one.setByte(0L, (byte) b);
+			try {
+				checkOpen();
+				blobWrite(one, 1, writeOffset);
+			} catch (SQLiteException e) {
+				throw new IOException(e);
+			}
+			writeOffset++;
 		}
 
 		@Override
@@ -294,6 +439,102 @@ public class Blob implements AutoCloseable {
 		}
 	}
 
+	private class BlobChannel implements SeekableByteChannel {
+		private long position;
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			final long avail = size() - position;
+			if (avail <= 0) {
+				return -1;
+			}
+			final int n = (int) Math.min(dst.remaining(), avail);
+			try {
+				Blob.this.read(dst, n, (int) position);
+			} catch (SQLiteException e) {
+				throw new IOException(e);
+			}
+			dst.position(dst.position() + n);
+			position += n;
+			return n;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			final int n = (int) Math.min(src.remaining(), Math.max(size() - position, 0L));
+			if (n == 0 && src.hasRemaining()) {
+				throw new IOException(String.format("blob size cannot be changed: %d", size()));
+			}
+			try {
+				Blob.this.write(src, n, (int) position);
+			} catch (SQLiteException e) {
+				throw new IOException(e);
+			}
+			src.position(src.position() + n);
+			position += n;
+			return n;
+		}
+
+		@Override
+		public long position() throws IOException {
+			checkChannelOpen();
+			return position;
+		}
+
+		@Override
+		public SeekableByteChannel position(long newPosition) throws IOException {
+			if (newPosition < 0) {
+				throw new IllegalArgumentException(String.format("invalid position: %d < 0", newPosition));
+			}
+			checkChannelOpen();
+			position = newPosition;
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			checkChannelOpen();
+			try {
+				return getBytes();
+			} catch (SQLiteException e) {
+				throw new IOException(e);
+			}
+		}
+
+		@Override
+		public SeekableByteChannel truncate(long size) throws IOException {
+			if (size < 0) {
+				throw new IllegalArgumentException(String.format("invalid size: %d < 0", size));
+			} else if (size < size()) {
+				throw new IOException(String.format("blob size cannot be changed: %d", size()));
+			}
+			if (position > size) {
+				position = size;
+			}
+			return this;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return !isClosed();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				Blob.this.close();
+			} catch (SQLiteException e) {
+				throw new IOException(e);
+			}
+		}
+
+		private void checkChannelOpen() throws ClosedChannelException {
+			if (isClosed()) {
+				throw new ClosedChannelException();
+			}
+		}
+	}
+
 	private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
 	public static int copy(InputStream input, OutputStream output, int length) throws IOException {
 		final byte[] buffer = new byte[Math.min(length, DEFAULT_BUFFER_SIZE)];
@@ -0,0 +1,56 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import com.sun.jna.Memory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Small pool of native chunks (viewed as direct buffers) shared by all blobs:
+ * heap arrays are never handed to JNA (which would copy the whole array in and out on each call)
+ * and no direct buffer is allocated per transfer.
+ */
+final class BufferPool {
+	static final int CHUNK_SIZE = 64 * 1024;
+	// chunks kept when released
+	private static final int MAX_POOLED = 8;
+	private static final ArrayDeque<Chunk> POOL = new ArrayDeque<>(MAX_POOLED);
+
+	static final class Chunk {
+		final Memory memory = new Memory(CHUNK_SIZE);
+		final ByteBuffer buffer = memory.getByteBuffer(0L, CHUNK_SIZE);
+
+		private Chunk() {
+		}
+	}
+
+	private BufferPool() {
+	}
+
+	static Chunk acquire() {
+		final Chunk chunk;
+		synchronized (POOL) {
+			chunk = POOL.pollFirst();
+		}
+		return chunk == null ? new Chunk() : chunk;
+	}
+
+	static void release(Chunk chunk) {
+		chunk.buffer.clear();
+		synchronized (POOL) {
+			if (POOL.size() < MAX_POOLED) {
+				POOL.addFirst(chunk);
+				return;
+			}
+		}
+		chunk.memory.close();
+	}
+}
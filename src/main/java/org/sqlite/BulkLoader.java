@@ -0,0 +1,462 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.sqlite.SQLite.escapeIdentifier;
+
+/**
+ * Bulk import of records or CSV into one table.
+ * <p>
+ * Rows are inserted with one prepared statement whose parameters are bound with typed <code>bind*</code> calls,
+ * and committed every {@link #setCommitInterval(int) n} rows.
+ * Optionally, the secondary indexes of the table are dropped during the load and rebuilt afterwards,
+ * and <code>synchronous</code>/<code>journal_mode</code> are set to <code>OFF</code> for the duration
+ * (a crash during the load may then corrupt the database).
+ * The connection must be in auto-commit mode and must not be used by other threads during a load.
+ */
+public final class BulkLoader {
+	/**
+	 * Binds one record to the INSERT statement parameters (leftmost column has an index of 1).
+	 */
+	public interface RecordBinder<T> {
+		void bind(Stmt insert, T record) throws SQLiteException;
+	}
+
+	private final Conn conn;
+	private final String table;
+	private final String[] columns;
+	private int commitInterval = 100_000;
+	private boolean dropIndexes;
+	private boolean unsafePragmas;
+
+	private long rows;
+	private long elapsedNanos;
+
+	/**
+	 * @param conn    connection
+	 * @param table   table name (in the main database)
+	 * @param columns column names (all the table columns when empty)
+	 */
+	public BulkLoader(Conn conn, String table, String... columns) {
+		this.conn = conn;
+		this.table = table;
+		this.columns = columns;
+	}
+
+	/**
+	 * @param commitInterval number of rows per transaction
+	 */
+	public void setCommitInterval(int commitInterval) {
+		if (commitInterval <= 0) {
+			throw new IllegalArgumentException(String.format("invalid commit interval: %d", commitInterval));
+		}
+		this.commitInterval = commitInterval;
+	}
+	/**
+	 * @param dropIndexes <code>true</code> to drop the secondary indexes of the table during the load
+	 *                    (indexes backing UNIQUE or PRIMARY KEY constraints are kept)
+	 */
+	public void setDropIndexes(boolean dropIndexes) {
+		this.dropIndexes = dropIndexes;
+	}
+	/**
+	 * @param unsafePragmas <code>true</code> to set <code>synchronous</code> and <code>journal_mode</code>
+	 *                      to <code>OFF</code> during the load (a failed load cannot be rolled back)
+	 * @see <a href="https://sqlite.org/pragma.html#pragma_synchronous">pragma synchronous</a>
+	 * @see <a href="https://sqlite.org/pragma.html#pragma_journal_mode">pragma journal_mode</a>
+	 */
+	public void setUnsafePragmas(boolean unsafePragmas) {
+		this.unsafePragmas = unsafePragmas;
+	}
+
+	/**
+	 * @param records records to insert
+	 * @param binder  binds each record
+	 * @return number of rows inserted
+	 */
+	public <T> long load(Iterator<? extends T> records, RecordBinder<? super T> binder) throws SQLiteException {
+		return run(loader -> {
+			while (records.hasNext()) {
+				binder.bind(loader.insert, records.next());
+				loader.insertRow();
+			}
+		});
+	}
+	/**
+	 * @see #load(Iterator, RecordBinder)
+	 */
+	public <T> long load(Stream<? extends T> records, RecordBinder<? super T> binder) throws SQLiteException {
+		return load(records.iterator(), binder);
+	}
+
+	/**
+	 * Import <a href="https://www.rfc-editor.org/rfc/rfc4180">RFC 4180</a> CSV encoded in UTF-8.
+	 * <p>
+	 * Fields are bound as text (column affinity applies) without being decoded, except
+	 * empty unquoted fields which are bound as NULL.
+	 * Each record must have exactly one field per column.
+	 * @param in        CSV content (not closed)
+	 * @param separator field separator (usually <code>,</code>)
+	 * @param header    <code>true</code> to skip the first record
+	 * @return number of rows inserted
+	 */
+	public long loadCsv(ReadableByteChannel in, char separator, boolean header) throws SQLiteException, IOException {
+		if (separator == '"' || separator == '\r' || separator == '\n' || separator > 0x7F) {
+			throw new IllegalArgumentException(String.format("invalid separator: '%c'", separator));
+		}
+		try {
+			return run(loader -> {
+				try {
+					new CsvReader(loader, (byte) separator, header).read(in);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e); // current transaction rolled back
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private interface Body {
+		void run(Loader loader) throws SQLiteException;
+	}
+
+	private long run(Body body) throws SQLiteException {
+		final long start = System.nanoTime();
+		String[] pragmas = null;
+		final List<String> indexes = new ArrayList<>();
+		long n = 0;
+		try {
+			pragmas = unsafePragmas ? relaxPragmas() : null;
+			if (dropIndexes) {
+				dropIndexes(indexes);
+			}
+			try (Stmt insert = conn.prepare(insertSql(), false)) {
+				final Loader loader = new Loader(insert);
+				conn.fastExec("BEGIN");
+				try {
+					body.run(loader);
+					conn.fastExec("COMMIT");
+					loader.committed = loader.rows;
+				} catch (SQLiteException | RuntimeException e) {
+					rollback(e);
+					throw e;
+				} finally {
+					n = loader.committed;
+				}
+			}
+		} finally {
+			try {
+				createIndexes(indexes);
+			} finally {
+				if (pragmas != null) {
+					restorePragmas(pragmas);
+				}
+				rows += n;
+				elapsedNanos += System.nanoTime() - start;
+			}
+		}
+		return n;
+	}
+
+	private void rollback(Exception e) {
+		try {
+			if (!conn.getAutoCommit()) {
+				conn.fastExec("ROLLBACK");
+			}
+		} catch (SQLiteException x) {
+			e.addSuppressed(x);
+		}
+	}
+
+	private String insertSql() throws SQLiteException {
+		final StringBuilder sql = new StringBuilder("INSERT INTO \"").append(escapeIdentifier(table)).append('"');
+		int n = columns.length;
+		if (n == 0) {
+			try (Stmt s = conn.prepare("SELECT * FROM \"" + escapeIdentifier(table) + '"', false)) {
+				n = s.getColumnCount();
+			}
+		} else {
+			sql.append(" (");
+			for (int i = 0; i < n; i++) {
+				if (i > 0) {
+					sql.append(", ");
+				}
+				sql.append('"').append(escapeIdentifier(columns[i])).append('"');
+			}
+			sql.append(')');
+		}
+		sql.append(" VALUES (");
+		for (int i = 0; i < n; i++) {
+			sql.append(i == 0 ? "?" : ", ?");
+		}
+		return sql.append(')').toString();
+	}
+
+	// Adds the SQL of each index as soon as it is dropped (UNIQUE indexes are kept)
+	private void dropIndexes(List<String> dropped) throws SQLiteException {
+		final List<String> names = new ArrayList<>();
+		final List<String> sqls = new ArrayList<>();
+		try (Stmt s = conn.prepare("SELECT m.name, m.sql FROM sqlite_master m JOIN pragma_index_list(?) l ON l.name = m.name " +
+				"WHERE m.type = 'index' AND l.\"unique\" = 0 AND m.sql IS NOT NULL", false)) {
+			s.bind(table);
+			while (s.step(0)) {
+				names.add(s.getColumnText(0));
+				sqls.add(s.getColumnText(1));
+			}
+		}
+		for (int i = 0; i < names.size(); i++) {
+			conn.fastExec("DROP INDEX \"" + escapeIdentifier(names.get(i)) + '"');
+			dropped.add(sqls.get(i));
+		}
+	}
+
+	// Each index is rebuilt on its own: one failure does not discard the others
+	private void createIndexes(List<String> sqls) throws SQLiteException {
+		SQLiteException error = null;
+		for (String sql : sqls) {
+			try {
+				conn.fastExec(sql);
+			} catch (SQLiteException e) {
+				if (error == null) {
+					error = e;
+				} else {
+					error.addSuppressed(e);
+				}
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	private String[] relaxPragmas() throws SQLiteException {
+		final String[] pragmas = {pragma("synchronous"), pragma("journal_mode")};
+		conn.fastExec("PRAGMA synchronous=OFF");
+		conn.fastExec("PRAGMA journal_mode=OFF");
+		return pragmas;
+	}
+
+	private void restorePragmas(String[] pragmas) throws SQLiteException {
+		conn.fastExec("PRAGMA synchronous=" + pragmas[0]);
+		conn.fastExec("PRAGMA journal_mode=" + pragmas[1]);
+	}
+
+	private String pragma(String name) throws SQLiteException {
+		try (Stmt s = conn.prepare("PRAGMA " + name, false)) {
+			if (!s.step(0)) {
+				throw new ConnException(conn, String.format("no value for pragma %s", name), ErrCodes.WRAPPER_SPECIFIC);
+			}
+			return s.getColumnText(0);
+		}
+	}
+
+	/**
+	 * @return number of rows inserted (and committed) by all the loads
+	 */
+	public long getRowCount() {
+		return rows;
+	}
+	/**
+	 * @return time spent by all the loads (including index rebuilds)
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+	/**
+	 * @return rows inserted per second
+	 */
+	public double getRowsPerSecond() {
+		return elapsedNanos == 0 ? 0.0 : rows * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d rows in %d ms (%.0f rows/s)", rows, elapsedNanos / 1_000_000, getRowsPerSecond());
+	}
+
+	private final class Loader {
+		private final Stmt insert;
+		private final int columnCount;
+		private long rows;
+		private long committed;
+		private int pending;
+
+		private Loader(Stmt insert) {
+			this.insert = insert;
+			columnCount = insert.getBindParameterCount();
+		}
+
+		private void insertRow() throws SQLiteException {
+			insert.exec();
+			rows++;
+			if (++pending == commitInterval) {
+				conn.fastExec("COMMIT");
+				committed = rows;
+				conn.fastExec("BEGIN");
+				pending = 0;
+			}
+		}
+	}
+
+	// Byte-level RFC 4180 state machine (no decoding: fields are bound as UTF-8 bytes)
+	private final class CsvReader {
+		private static final int FIELD_START = 0;
+		private static final int UNQUOTED = 1;
+		private static final int QUOTED = 2;
+		private static final int QUOTE_IN_QUOTED = 3;
+
+		private final Loader loader;
+		private final byte separator;
+		private boolean skip;
+		private byte[] field = new byte[256];
+		private int len;
+		private boolean quoted;
+		private int state = FIELD_START;
+		private int column;
+		private long line = 1;
+
+		private CsvReader(Loader loader, byte separator, boolean header) {
+			this.loader = loader;
+			this.separator = separator;
+			skip = header;
+		}
+
+		private void read(ReadableByteChannel in) throws IOException, SQLiteException {
+			final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+			final byte[] bytes = buffer.array();
+			boolean bom = true;
+			while (in.read(buffer) >= 0) {
+				int i = 0;
+				final int n = buffer.position();
+				if (bom && n >= 3) {
+					if ((bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF) {
+						i = 3;
+					}
+					bom = false;
+				} else if (bom) {
+					continue; // wait for the first three bytes
+				}
+				for (; i < n; i++) {
+					accept(bytes[i]);
+				}
+				buffer.clear();
+			}
+			for (int i = 0; bom && i < buffer.position(); i++) { // less than three bytes
+				accept(bytes[i]);
+			}
+			if (state == QUOTED) {
+				throw error("unterminated quoted field");
+			}
+			if (state != FIELD_START || column > 0) { // no final line break
+				endRecord();
+			}
+		}
+
+		private void accept(byte b) throws SQLiteException {
+			switch (state) {
+				case FIELD_START:
+					if (b == '"') {
+						quoted = true;
+						state = QUOTED;
+						return;
+					}
+					if (b == '\n' && column == 0 && loader.columnCount > 1) { // blank line (an empty record with one column)
+						line++;
+						return;
+					}
+					unquoted(b);
+					return;
+				case UNQUOTED:
+				case QUOTE_IN_QUOTED:
+					unquoted(b);
+					return;
+				case QUOTED:
+					if (b == '"') {
+						state = QUOTE_IN_QUOTED;
+					} else {
+						if (b == '\n') {
+							line++;
+						}
+						append(b);
+					}
+					return;
+				default:
+					throw new AssertionError(state);
+			}
+		}
+
+		private void unquoted(byte b) throws SQLiteException {
+			if (b == separator) {
+				endField();
+			} else if (b == '\n') {
+				endRecord();
+				line++;
+			} else if (b != '\r') {
+				if (state == QUOTE_IN_QUOTED && b == '"') { // escaped quote
+					append(b);
+					state = QUOTED;
+					return;
+				}
+				append(b); // lenient: characters after a closing quote are kept
+				state = UNQUOTED;
+			}
+		}
+
+		private void append(byte b) {
+			if (len == field.length) {
+				field = Arrays.copyOf(field, len << 1);
+			}
+			field[len++] = b;
+		}
+
+		private void endField() throws SQLiteException {
+			if (!skip) {
+				if (column >= loader.columnCount) {
+					throw error(String.format("more than %d fields", loader.columnCount));
+				}
+				if (len == 0 && !quoted) {
+					loader.insert.bindNull(column + 1);
+				} else {
+					loader.insert.bindText(column + 1, field, len);
+				}
+			}
+			column++;
+			len = 0;
+			quoted = false;
+			state = FIELD_START;
+		}
+
+		private void endRecord() throws SQLiteException {
+			endField();
+			if (skip) {
+				skip = false;
+			} else if (column != loader.columnCount) {
+				throw error(String.format("%d fields instead of %d", column, loader.columnCount));
+			} else {
+				loader.insertRow();
+			}
+			column = 0;
+		}
+
+		private ConnException error(String msg) {
+			return new ConnException(conn, String.format("CSV line %d: %s", line, msg), ErrCodes.WRAPPER_SPECIFIC);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import com.sun.jna.StringArray;
+import org.sqlite.SQLite.SQLite3Stmt;
+
+import static org.sqlite.SQLite.sqlite3_bind_pointer;
+import static org.sqlite.SQLite.sqlite3_carray_bind;
+
+/**
+ * Binding of <code>long[]</code>, <code>double[]</code> and <code>String[]</code> to a single parameter
+ * used with the <code>carray</code> table-valued function: <code>WHERE id IN carray(?)</code>.
+ * <p>
+ * With <code>sqlite3_carray_bind</code> (carray extension built in the library), the array is copied by SQLite.
+ * Otherwise, a Java <code>carray</code> module is registered on demand (see {@link Conn#prepare(String, boolean)})
+ * and the Java array is passed by reference with <code>sqlite3_bind_pointer</code>
+ * (its slot is released by the binding destructor).
+ * Such a pointer is seen as NULL by any other <code>carray</code> module (a loaded extension whose
+ * <code>sqlite3_carray_bind</code> is not resolved, or a module of the same name): binding is then rejected
+ * (see {@link Conn#isJavaCArray()}) instead of silently matching no row.
+ * @see <a href="http://sqlite.org/carray.html">The Carray() Table-Valued Function</a>
+ */
+final class CArray implements VirtualTableModule {
+	static final String MODULE = "carray";
+	// pointer type: distinct from the native carray ones (an unknown pointer is seen as NULL)
+	private static final Pointer TYPE = SQLite.nativeString("java-carray");
+	// https://sqlite.org/carray.html#c_interface
+	private static final int CARRAY_INT64 = 1, CARRAY_DOUBLE = 2, CARRAY_TEXT = 3;
+	private static final Pointer SQLITE_TRANSIENT = Pointer.createConstant(SQLite.SQLITE_TRANSIENT);
+
+	private final SlotTable<Object> arrays = new SlotTable<>();
+	private final Destructor release = p -> {
+		synchronized (arrays) {
+			arrays.remove((int) Pointer.nativeValue(p) - 1);
+		}
+	};
+
+	static boolean isArray(Object o) {
+		return o instanceof long[] || o instanceof double[] || o instanceof String[];
+	}
+
+	static int length(Object array) {
+		if (array instanceof long[]) {
+			return ((long[]) array).length;
+		} else if (array instanceof double[]) {
+			return ((double[]) array).length;
+		}
+		return ((String[]) array).length;
+	}
+
+	/**
+	 * @param array non-empty <code>long[]</code>, <code>double[]</code> or <code>String[]</code>
+	 * @return result code
+	 */
+	int bind(SQLite3Stmt pStmt, int i, Object array) {
+		if (sqlite3_carray_bind != null) {
+			final int n = length(array);
+			final Pointer data;
+			final int flags;
+			if (array instanceof long[]) {
+				data = new Memory(8L * n);
+				data.write(0L, (long[]) array, 0, n);
+				flags = CARRAY_INT64;
+			} else if (array instanceof double[]) {
+				data = new Memory(8L * n);
+				data.write(0L, (double[]) array, 0, n);
+				flags = CARRAY_DOUBLE;
+			} else {
+				data = new StringArray((String[]) array, SQLite.UTF_8_ECONDING);
+				flags = CARRAY_TEXT;
+			}
+			return sqlite3_carray_bind.invokeInt(new Object[]{pStmt, i, data, n, flags, SQLITE_TRANSIENT});
+		}
+		final int slot;
+		synchronized (arrays) {
+			slot = arrays.add(array);
+		}
+		// the destructor is also called when the binding fails
+		return sqlite3_bind_pointer(pStmt, i, new Pointer(slot + 1L), TYPE, release);
+	}
+
+	private Object get(Pointer p) {
+		if (p == null) {
+			return null;
+		}
+		synchronized (arrays) {
+			return arrays.get((int) Pointer.nativeValue(p) - 1);
+		}
+	}
+
+	// number of arrays bound by reference
+	int size() {
+		synchronized (arrays) {
+			return arrays.size();
+		}
+	}
+
+	static boolean isMissing(String errMsg) {
+		return ("no such table: " + MODULE).equals(errMsg);
+	}
+
+	@Override
+	public VirtualTable connect(String[] args) {
+		return new VirtualTable() {
+			@Override
+			public String getDeclaration() {
+				return "CREATE TABLE x(value, pointer HIDDEN)";
+			}
+
+			@Override
+			public void bestIndex(IndexInfo info) {
+				for (int i = 0; i < info.getConstraintCount(); i++) {
+					if (info.isUsable(i) && info.getColumn(i) == 1 && info.getOp(i) == IndexInfo.SQLITE_INDEX_CONSTRAINT_EQ) {
+						info.use(i, 1, true);
+						info.setIdxNum(1);
+						info.setEstimatedCost(1);
+						info.setEstimatedRows(100);
+						return;
+					}
+				}
+				// no array
+				info.setEstimatedCost(Integer.MAX_VALUE);
+				info.setEstimatedRows(Integer.MAX_VALUE);
+			}
+
+			@Override
+			public VirtualCursor open() {
+				return new Cursor();
+			}
+		};
+	}
+
+	private final class Cursor implements VirtualCursor {
+		private Object array;
+		private int length;
+		private int index;
+
+		@Override
+		public void filter(int idxNum, String idxStr, Values args) {
+			array = idxNum == 1 ? get(args.getPointer(0, TYPE)) : null;
+			length = array == null ? 0 : length(array);
+			index = 0;
+		}
+
+		@Override
+		public void next() {
+			index++;
+		}
+
+		@Override
+		public boolean eof() {
+			return index >= length;
+		}
+
+		@Override
+		public void column(Result result, int i) {
+			if (i != 0) {
+				result.setNull();
+			} else if (array instanceof long[]) {
+				result.setLong(((long[]) array)[index]);
+			} else if (array instanceof double[]) {
+				result.setDouble(((double[]) array)[index]);
+			} else {
+				result.setText(((String[]) array)[index]);
+			}
+		}
+
+		@Override
+		public long rowid() {
+			return index + 1L;
+		}
+
+		@Override
+		public void close() {
+			array = null;
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import java.util.Arrays;
+
+import static org.sqlite.SQLite.UTF_8;
+
+/**
+ * Reusable columnar buffer filled by {@link Stmt#fetchBatch(int, ColumnBatch)}.
+ * <p>
+ * For each column:
+ * <ul>
+ *   <li>{@link #longs(int)} holds INTEGER values (REAL values truncated),</li>
+ *   <li>{@link #doubles(int)} holds REAL values (INTEGER values converted),</li>
+ *   <li>{@link #bytes(int)} / {@link #offsets(int)} hold TEXT (UTF-8) and BLOB values:
+ *   the value of row <code>r</code> is in <code>bytes[offsets[r]..offsets[r + 1]]</code>,</li>
+ *   <li>{@link #nulls(int)} is a bitmap of NULL values (bit <code>r</code> set when row <code>r</code> is NULL).</li>
+ * </ul>
+ * Arrays are reused (and only grown) between fetches: their length may be greater than {@link #getRowCount()}.
+ */
+public final class ColumnBatch {
+	private int columnCount;
+	private int rowCount;
+	private int capacity;
+	private byte[][] types = new byte[0][];
+	private long[][] longs = new long[0][];
+	private double[][] doubles = new double[0][];
+	private long[][] nulls = new long[0][];
+	private byte[][] bytes = new byte[0][];
+	private int[][] offsets = new int[0][];
+
+	/**
+	 * @return number of columns of the last fetch
+	 */
+	public int getColumnCount() {
+		return columnCount;
+	}
+	/**
+	 * @return number of rows of the last fetch
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @param row   0-based row index
+	 * @param iCol  The leftmost column is number 0.
+	 * @return {@link org.sqlite.ColTypes}.*
+	 */
+	public int getType(int row, int iCol) {
+		checkIndex(row, iCol);
+		return types[iCol][row];
+	}
+	public boolean isNull(int row, int iCol) {
+		checkIndex(row, iCol);
+		return (nulls[iCol][row >>> 6] & (1L << row)) != 0;
+	}
+	public long getLong(int row, int iCol) {
+		checkIndex(row, iCol);
+		return longs[iCol][row];
+	}
+	public double getDouble(int row, int iCol) {
+		checkIndex(row, iCol);
+		return doubles[iCol][row];
+	}
+	/**
+	 * @return TEXT value (or BLOB decoded as UTF-8), <code>null</code> for NULL, string representation for numbers.
+	 */
+	public String getText(int row, int iCol) {
+		checkIndex(row, iCol);
+		switch (types[iCol][row]) {
+			case ColTypes.SQLITE_NULL:
+				return null;
+			case ColTypes.SQLITE_INTEGER:
+				return Long.toString(longs[iCol][row]);
+			case ColTypes.SQLITE_FLOAT:
+				return Double.toString(doubles[iCol][row]);
+			default:
+				final int[] offs = offsets[iCol];
+				return new String(bytes[iCol], offs[row], offs[row + 1] - offs[row], UTF_8);
+		}
+	}
+	/**
+	 * @return BLOB value (or TEXT as UTF-8 bytes), <code>null</code> otherwise.
+	 */
+	public byte[] getBlob(int row, int iCol) {
+		checkIndex(row, iCol);
+		final byte type = types[iCol][row];
+		if (type != ColTypes.SQLITE_TEXT && type != ColTypes.SQLITE_BLOB) {
+			return null;
+		}
+		final int[] offs = offsets[iCol];
+		return Arrays.copyOfRange(bytes[iCol], offs[row], offs[row + 1]);
+	}
+
+	/**
+	 * @param iCol The leftmost column is number 0.
+	 * @return storage classes ({@link org.sqlite.ColTypes}.*) indexed by row
+	 */
+	public byte[] types(int iCol) {
+		return types[checkColumnIndex(iCol)];
+	}
+	/**
+	 * @param iCol The leftmost column is number 0.
+	 * @return integer values indexed by row (0 for NULL, TEXT or BLOB)
+	 */
+	public long[] longs(int iCol) {
+		return longs[checkColumnIndex(iCol)];
+	}
+	/**
+	 * @param iCol The leftmost column is number 0.
+	 * @return floating point values indexed by row (0 for NULL, TEXT or BLOB)
+	 */
+	public double[] doubles(int iCol) {
+		return doubles[checkColumnIndex(iCol)];
+	}
+	/**
+	 * @param iCol The leftmost column is number 0.
+	 * @return NULL bitmap: bit <code>r % 64</code> of word <code>r / 64</code> is set when row <code>r</code> is NULL
+	 */
+	public long[] nulls(int iCol) {
+		return nulls[checkColumnIndex(iCol)];
+	}
+	/**
+	 * @param iCol The leftmost column is number 0.
+	 * @return TEXT (UTF-8) and BLOB contents concatenated
+	 */
+	public byte[] bytes(int iCol) {
+		return bytes[checkColumnIndex(iCol)];
+	}
+	/**
+	 * @param iCol The leftmost column is number 0.
+	 * @return start offset of each row in {@link #bytes(int)} (<code>getRowCount() + 1</code> entries used)
+	 */
+	public int[] offsets(int iCol) {
+		return offsets[checkColumnIndex(iCol)];
+	}
+
+	/**
+	 * Empty the batch (arrays are kept).
+	 */
+	public void clear() {
+		rowCount = 0;
+	}
+
+	// To be called by Stmt.fetchBatch before filling
+	void clear(int columnCount, int maxRows) {
+		if (types.length < columnCount) {
+			types = Arrays.copyOf(types, columnCount);
+			longs = Arrays.copyOf(longs, columnCount);
+			doubles = Arrays.copyOf(doubles, columnCount);
+			nulls = Arrays.copyOf(nulls, columnCount);
+			bytes = Arrays.copyOf(bytes, columnCount);
+			offsets = Arrays.copyOf(offsets, columnCount);
+		}
+		if (maxRows > capacity) {
+			capacity = maxRows;
+		}
+		final int words = (capacity + 63) >>> 6;
+		for (int i = 0; i < columnCount; i++) {
+			if (types[i] == null || types[i].length < capacity) {
+				types[i] = new byte[capacity];
+				longs[i] = new long[capacity];
+				doubles[i] = new double[capacity];
+				nulls[i] = new long[words];
+				offsets[i] = new int[capacity + 1];
+				if (bytes[i] == null) {
+					bytes[i] = new byte[0];
+				}
+			} else {
+				Arrays.fill(nulls[i], 0L);
+			}
+		}
+		this.columnCount = columnCount;
+		this.rowCount = 0;
+	}
+
+	void setNull(int row, int iCol) {
+		types[iCol][row] = ColTypes.SQLITE_NULL;
+		longs[iCol][row] = 0L;
+		doubles[iCol][row] = 0.0;
+		nulls[iCol][row >>> 6] |= 1L << row;
+		offsets[iCol][row + 1] = offsets[iCol][row];
+	}
+	void setLong(int row, int iCol, long value) {
+		types[iCol][row] = ColTypes.SQLITE_INTEGER;
+		longs[iCol][row] = value;
+		doubles[iCol][row] = value;
+		offsets[iCol][row + 1] = offsets[iCol][row];
+	}
+	void setDouble(int row, int iCol, double value) {
+		types[iCol][row] = ColTypes.SQLITE_FLOAT;
+		longs[iCol][row] = (long) value;
+		doubles[iCol][row] = value;
+		offsets[iCol][row + 1] = offsets[iCol][row];
+	}
+	// returns the buffer where <code>n</code> bytes must be copied at offsets[iCol][row]
+	byte[] reserve(int row, int iCol, int type, int n) {
+		types[iCol][row] = (byte) type;
+		longs[iCol][row] = 0L;
+		doubles[iCol][row] = 0.0;
+		final int start = offsets[iCol][row];
+		final int end = start + n;
+		byte[] buf = bytes[iCol];
+		if (end > buf.length) {
+			buf = bytes[iCol] = Arrays.copyOf(buf, Math.max(end, Math.max(64, buf.length * 2)));
+		}
+		offsets[iCol][row + 1] = end;
+		return buf;
+	}
+	void setRowCount(int rowCount) {
+		this.rowCount = rowCount;
+	}
+
+	private void checkIndex(int row, int iCol) {
+		checkColumnIndex(iCol);
+		if (row < 0 || row >= rowCount) {
+			throw new IndexOutOfBoundsException(String.format("row index %d out of range [0,%d[.", row, rowCount));
+		}
+	}
+	private int checkColumnIndex(int iCol) {
+		if (iCol < 0 || iCol >= columnCount) {
+			throw new IndexOutOfBoundsException(String.format("column index %d out of range [0,%d[.", iCol, columnCount));
+		}
+		return iCol;
+	}
+}
@@ -16,9 +16,20 @@ import org.sqlite.parser.ast.Pragma;
 import org.sqlite.parser.ast.QualifiedName;
 
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 
 import static org.sqlite.SQLite.*;
 
@@ -34,30 +45,29 @@ public final class Conn implements AutoCloseable {
 
 	private SQLite3 pDb;
 	private final boolean sharedCacheMode;
-	private TimeoutProgressCallback timeoutProgressCallback;
+	// deadline of the current step in System.nanoTime() units (0 when disarmed, EXPIRED once interrupted), checked by the Watchdog
+	private volatile long deadline;
+	private static final AtomicLongFieldUpdater<Conn> DEADLINE = AtomicLongFieldUpdater.newUpdater(Conn.class, "deadline");
+	// deadlines are odd
+	private static final long EXPIRED = 2L;
+	// true when deadline comes from networkTimeout
+	private volatile boolean networkDeadline;
+	private volatile boolean networkTimeoutExpired;
+	private int networkTimeout; // in millis
+	private boolean watched;
 
-	private final Map<String, Stmt> cache = new LinkedHashMap<String, Stmt>() {
-		@Override
-		protected boolean removeEldestEntry(Map.Entry eldest) {
-			if (size() <= maxCacheSize) {
-				return false;
-			}
-
-			Iterator<Stmt> it = values().iterator();
-			while (it.hasNext()) {
-				if (size() <= maxCacheSize) {
-					return false;
-				}
-				it.next().close(true);
-				it.remove();
-			}
-			return false;
-		}
-	};
-	private int maxCacheSize = 100; // TODO parameterize
+	private final StmtCache cache = new StmtCache();
+	// user defined functions by name/nArg and virtual table modules by name
+	private final Map<String, Object> functions = new HashMap<>();
+	// arrays bound with Stmt#bindArray
+	private CArray carray;
+	// the Java carray module once registered (see prepare)
+	private Object javaCArray;
 
 	// Make sure a stmt is not finalized while current conn is being closed
 	final Object lock = new Object();
+	// Scratch native memory used by prepare (SQL text and out-parameters)
+	private final ScratchArena arena = new ScratchArena(1024);
 
 	/**
 	 * Open a new database connection.
@@ -126,6 +136,9 @@ public final class Conn implements AutoCloseable {
 			return SQLITE_OK;
 		}
 
+		if (watched) {
+			Watchdog.unwatch(this);
+		}
 		synchronized (lock) {
 			flush();
 
@@ -141,6 +154,9 @@ public final class Conn implements AutoCloseable {
 			}
 			final int res = sqlite3_close_v2(pDb); // must be called only once...
 			pDb = null;
+			synchronized (arena) {
+				arena.close();
+			}
 			return res;
 		}
 	}
@@ -251,21 +267,44 @@ public final class Conn implements AutoCloseable {
 				return stmt;
 			}
 		}
-		final Pointer pSql = nativeString(sql);
-		final PointerByReference ppStmt = new PointerByReference();
-		final PointerByReference ppTail = new PointerByReference();
-		final int res = blockingPrepare(null, pSql, cacheable ? SQLITE_PREPARE_PERSISTENT : 0, ppStmt, ppTail);
-		check(res, "error while preparing statement '%s'", sql);
-		final Pointer pStmt = ppStmt.getValue();
-		final SQLite3Stmt stmt = pStmt == null ? null: new SQLite3Stmt(pStmt);
-		return new Stmt(this, sql, stmt, ppTail.getValue(), cacheable);
+		synchronized (arena) {
+			checkOpen(); // arena is released on close
+			try {
+				final Pointer pSql;
+				final int nByte;
+				if (sql == null) {
+					pSql = Pointer.NULL; // => SQLITE_MISUSE
+					nByte = -1;
+				} else {
+					final ScratchArena.NativeString s = arena.string(sql);
+					pSql = s.pointer;
+					nByte = s.length + 1; // including the nul-terminator avoids a copy
+				}
+				final Pointer ppStmt = arena.allocatePointer();
+				final Pointer ppTail = arena.allocatePointer();
+				int res = blockingPrepare(null, pSql, nByte, cacheable ? SQLITE_PREPARE_PERSISTENT : 0, ppStmt, ppTail);
+				if (res == ErrCodes.SQLITE_ERROR && sqlite3_carray_bind == null && !functions.containsKey(CArray.MODULE) &&
+						CArray.isMissing(getErrMsg())) { // register the Java carray module on first use
+					createModule(CArray.MODULE, carray());
+					javaCArray = functions.get(CArray.MODULE);
+					res = blockingPrepare(null, pSql, nByte, cacheable ? SQLITE_PREPARE_PERSISTENT : 0, ppStmt, ppTail);
+				}
+				check(res, "error while preparing statement '%s'", sql);
+				final Pointer pStmt = ppStmt.getPointer(0L);
+				final SQLite3Stmt stmt = pStmt == null ? null: new SQLite3Stmt(pStmt);
+				// tail is copied before the arena is reset
+				return new Stmt(this, sql, stmt, ppTail.getPointer(0L), cacheable);
+			} finally {
+				arena.reset();
+			}
+		}
 	}
 
 	// http://sqlite.org/unlock_notify.html
 	//#if mvn.project.property.sqlite.enable.unlock.notify == "true"
-	private int blockingPrepare(Conn unused, Pointer pSql, int flags, PointerByReference ppStmt, PointerByReference ppTail) throws ConnException {
+	private int blockingPrepare(Conn unused, Pointer pSql, int nByte, int flags, Pointer ppStmt, Pointer ppTail) throws ConnException {
 		int rc;
-		while (ErrCodes.SQLITE_LOCKED == (rc = sqlite3_prepare_v3(pDb, pSql, -1, flags, ppStmt, ppTail))) {
+		while (ErrCodes.SQLITE_LOCKED == (rc = sqlite3_prepare_v3(pDb, pSql, nByte, flags, ppStmt, ppTail))) {
 			rc = waitForUnlockNotify(null);
 			if (rc != SQLITE_OK) {
 				break;
@@ -274,8 +313,8 @@ public final class Conn implements AutoCloseable {
 		return rc;
 	}
 	//#else
-	private int blockingPrepare(Object unused, Pointer pSql, int flags, PointerByReference ppStmt, PointerByReference ppTail) {
-		return sqlite3_prepare_v3(pDb, pSql, -1, flags, ppStmt, ppTail); // FIXME nbytes + 1
+	private int blockingPrepare(Object unused, Pointer pSql, int nByte, int flags, Pointer ppStmt, Pointer ppTail) {
+		return sqlite3_prepare_v3(pDb, pSql, nByte, flags, ppStmt, ppTail);
 	}
 	//#endif
 
@@ -402,10 +441,18 @@ public final class Conn implements AutoCloseable {
 	 */
 	public Blob open(String dbName, String tblName, String colName, long iRow, boolean rw) throws SQLiteException {
 		checkOpen();
-		final PointerByReference ppBlob = new PointerByReference();
-		final int res = sqlite3_blob_open(pDb, dbName, tblName, colName, iRow, rw, ppBlob); // ko if pDb is null
-		final Pointer pBlob = ppBlob.getValue();
-		final SQLite3Blob blob = pBlob == null ? null : new SQLite3Blob(pBlob);
+		final int res;
+		final SQLite3Blob blob;
+		synchronized (arena) {
+			try {
+				final Pointer ppBlob = arena.allocatePointer();
+				res = sqlite3_blob_open(pDb, dbName, tblName, colName, iRow, rw, ppBlob); // ko if pDb is null
+				final Pointer pBlob = ppBlob.getPointer(0L);
+				blob = pBlob == null ? null : new SQLite3Blob(pBlob);
+			} finally {
+				arena.reset();
+			}
+		}
 		if (res != SQLITE_OK) {
 			sqlite3_blob_close(blob);
 			throw new SQLiteException(this, String.format("error while opening a blob to (db: '%s', table: '%s', col: '%s', row: %d)",
@@ -476,6 +523,29 @@ public final class Conn implements AutoCloseable {
 		sqlite3_interrupt(pDb);
 	}
 
+	/**
+	 * Reset all the prepared statements of this connection which have not been reset.
+	 * @return number of statements reset
+	 * @throws ConnException if current connection is closed
+	 * @see <a href="https://www.sqlite.org/c3ref/next_stmt.html">sqlite3_next_stmt</a>
+	 * @see <a href="https://www.sqlite.org/c3ref/stmt_busy.html">sqlite3_stmt_busy</a>
+	 */
+	public int resetStatements() throws ConnException {
+		checkOpen();
+		int n = 0;
+		synchronized (lock) {
+			SQLite3Stmt stmt = sqlite3_next_stmt(pDb, null);
+			while (stmt != null) {
+				if (sqlite3_stmt_busy(stmt)) {
+					sqlite3_reset(stmt); // error code from the last step is ignored
+					n++;
+				}
+				stmt = sqlite3_next_stmt(pDb, stmt);
+			}
+		}
+		return n;
+	}
+
 	/**
 	 * Set a busy timeout
 	 * @param ms timeout in millis
@@ -630,23 +700,32 @@ public final class Conn implements AutoCloseable {
 
 	boolean[] getTableColumnMetadata(String dbName, String tblName, String colName) throws ConnException {
 		checkOpen();
-		final IntByReference pNotNull = new IntByReference();
-		final IntByReference pPrimaryKey = new IntByReference();
-		final IntByReference pAutoinc = new IntByReference();
+		synchronized (arena) {
+			try {
+				final Pointer pNotNull = arena.allocateInt();
+				final Pointer pPrimaryKey = arena.allocateInt();
+				final Pointer pAutoinc = arena.allocateInt();
 
-		check(sqlite3_table_column_metadata(pDb,
-				dbName,
-				tblName,
-				colName,
-				null, null,
-				pNotNull, pPrimaryKey, pAutoinc), "error while accessing table column metatada of '%s'", tblName);
+				check(sqlite3_table_column_metadata(pDb,
+						dbName,
+						tblName,
+						colName,
+						null, null,
+						pNotNull, pPrimaryKey, pAutoinc), "error while accessing table column metatada of '%s'", tblName);
 
-		return new boolean[]{toBool(pNotNull), toBool(pPrimaryKey), toBool(pAutoinc)};
+				return new boolean[]{toBool(pNotNull), toBool(pPrimaryKey), toBool(pAutoinc)};
+			} finally {
+				arena.reset();
+			}
+		}
 	}
 
 	private static boolean toBool(IntByReference p) {
 		return p.getValue() != 0;
 	}
+	private static boolean toBool(Pointer p) {
+		return p.getInt(0L) != 0;
+	}
 
 	/**
 	 * Initialize the backup.
@@ -670,20 +749,88 @@ public final class Conn implements AutoCloseable {
 
 	/**
 	 * Sets the number of seconds the driver will wait for a statement to execute to the given number of seconds.
-	 * @param timeout in seconds
+	 * The deadline applies to the statements stepped until the next call and is enforced by a shared watchdog thread
+	 * calling {@link #interrupt()}.
+	 * Like <code>sqlite3_interrupt</code>, an expired deadline interrupts all the statements in progress on this connection.
+	 * A step which returns a row while its deadline is expiring is reported as interrupted
+	 * (otherwise the interrupt would hit its next step, even without timeout).
+	 * @param timeout in seconds (0 means no query timeout, only the network timeout if any)
 	 */
 	public void setQueryTimeout(int timeout) throws ConnException {
-		if (timeout == 0) {
-			if (timeoutProgressCallback == null) {
-				return; // nothing to do
-			}
+		if (networkTimeoutExpired) { // reported by the previous step only
+			networkTimeoutExpired = false;
+		}
+		long millis = timeout * 1000L;
+		final boolean network = networkTimeout > 0 && (millis == 0L || networkTimeout < millis);
+		if (network) {
+			millis = networkTimeout;
 		}
-		if (timeoutProgressCallback == null) {
+		if (millis == 0L) {
+			clearDeadline();
+			return;
+		}
+		if (!watched) {
 			checkOpen();
-			timeoutProgressCallback = new TimeoutProgressCallback();
-			sqlite3_progress_handler(pDb, 100, timeoutProgressCallback, null);
+			Watchdog.watch(this);
+			watched = true;
 		}
-		timeoutProgressCallback.setTimeout(timeout * 1000L);
+		networkDeadline = network;
+		deadline = (System.nanoTime() + millis * 1000000L) | 1L; // never 0
+	}
+
+	// called when a step is done: true when the watchdog has interrupted this connection during (or just after) the step
+	boolean clearDeadline() {
+		final long d = deadline;
+		if (d == 0L || d != EXPIRED && DEADLINE.compareAndSet(this, d, 0L)) {
+			return false;
+		}
+		synchronized (lock) { // sqlite3_interrupt has been called
+			deadline = 0L;
+		}
+		return true;
+	}
+
+	// called by the watchdog thread
+	void expire(long now) {
+		final long d = deadline;
+		if (d == 0L || d == EXPIRED || now - d < 0L) {
+			return;
+		}
+		synchronized (lock) {
+			if (pDb == null || !DEADLINE.compareAndSet(this, d, EXPIRED)) { // closed or step done
+				return;
+			}
+			if (networkDeadline) {
+				networkTimeoutExpired = true;
+			}
+			sqlite3_interrupt(pDb);
+		}
+	}
+
+	/**
+	 * Sets the maximum period each statement step may take, even without query timeout.
+	 * When it expires, the statement is interrupted and {@link #isNetworkTimeoutExpired()} returns <code>true</code>.
+	 * @param millis 0 means no limit
+	 * @see java.sql.Connection#setNetworkTimeout(java.util.concurrent.Executor, int)
+	 */
+	public void setNetworkTimeout(int millis) throws ConnException {
+		if (millis < 0) {
+			throw new ConnException(this, String.format("invalid network timeout: %d", millis), ErrCodes.WRAPPER_SPECIFIC);
+		}
+		checkOpen();
+		networkTimeout = millis;
+	}
+	/**
+	 * @return in millis
+	 */
+	public int getNetworkTimeout() {
+		return networkTimeout;
+	}
+	/**
+	 * @return <code>true</code> when a statement has been interrupted because of the network timeout.
+	 */
+	public boolean isNetworkTimeoutExpired() {
+		return networkTimeoutExpired;
 	}
 
 	/**
@@ -735,6 +882,7 @@ public final class Conn implements AutoCloseable {
 		checkOpen();
 		check(sqlite3_create_function_v2(pDb, name, nArg, flags, null, xFunc, null, null, null),
 				"error while registering function %s", name);
+		keepAlive(name, nArg, xFunc);
 	}
 	/**
 	 * Create a user defined SQL aggregate function.
@@ -750,6 +898,187 @@ public final class Conn implements AutoCloseable {
 		checkOpen();
 		check(sqlite3_create_function_v2(pDb, name, nArg, flags, null, null, xStep, xFinal, null),
 				"error while registering function %s", name);
+		keepAlive(name, nArg, xStep == null ? null : new Object[]{xStep, xFinal});
+	}
+	/**
+	 * Create a user defined SQL aggregate window function.
+	 * @param name function name
+	 * @param nArg number of arguments expected
+	 * @param flags {@link org.sqlite.FunctionFlags}.*
+	 * @param xStep function implementation
+	 * @param xFinal function implementation
+	 * @param xValue function implementation
+	 * @param xInverse function implementation
+	 * @see <a href="http://sqlite.org/windowfunctions.html#udfwinfunc">User-Defined Aggregate Window Functions</a>
+	 */
+	public void createWindowFunction(String name, int nArg, int flags, AggregateStepCallback xStep,
+			AggregateFinalCallback xFinal, AggregateValueCallback xValue, AggregateInverseCallback xInverse) throws ConnException {
+		checkOpen();
+		check(sqlite3_create_window_function(pDb, name, nArg, flags, null, xStep, xFinal, xValue, xInverse, null),
+				"error while registering function %s", name);
+		keepAlive(name, nArg, xStep == null ? null : new Object[]{xStep, xFinal, xValue, xInverse});
+	}
+
+	/**
+	 * Create a user defined SQL scalar function of one integer argument (NULL when the argument is NULL).
+	 * @param name function name
+	 * @param flags {@link org.sqlite.FunctionFlags}.*
+	 * @param xFunc function implementation
+	 * @see <a href="http://sqlite.org/c3ref/create_function.html">sqlite3_create_function_v2</a>
+	 */
+	public void createLongFunction(String name, int flags, LongUnaryOperator xFunc) throws ConnException {
+		createFunction(name, 1, flags, ScalarFunction.ofLongUnary(xFunc));
+	}
+	/**
+	 * Create a user defined SQL scalar function of two integer arguments (NULL when one argument is NULL).
+	 * @see #createLongFunction(String, int, LongUnaryOperator)
+	 */
+	public void createLongFunction(String name, int flags, LongBinaryOperator xFunc) throws ConnException {
+		createFunction(name, 2, flags, ScalarFunction.ofLongBinary(xFunc));
+	}
+	/**
+	 * Create a user defined SQL scalar function returning an integer.
+	 * @param name function name
+	 * @param nArg number of arguments expected
+	 * @param flags {@link org.sqlite.FunctionFlags}.*
+	 * @param xFunc function implementation (the {@link Values} view must not escape the call)
+	 * @see <a href="http://sqlite.org/c3ref/create_function.html">sqlite3_create_function_v2</a>
+	 */
+	public void createLongFunction(String name, int nArg, int flags, ToLongFunction<Values> xFunc) throws ConnException {
+		createFunction(name, nArg, flags, ScalarFunction.ofLong(xFunc));
+	}
+	/**
+	 * Create a user defined SQL scalar function of one real argument (NULL when the argument is NULL).
+	 * @see #createLongFunction(String, int, LongUnaryOperator)
+	 */
+	public void createDoubleFunction(String name, int flags, DoubleUnaryOperator xFunc) throws ConnException {
+		createFunction(name, 1, flags, ScalarFunction.ofDoubleUnary(xFunc));
+	}
+	/**
+	 * Create a user defined SQL scalar function of two real arguments (NULL when one argument is NULL).
+	 * @see #createLongFunction(String, int, LongUnaryOperator)
+	 */
+	public void createDoubleFunction(String name, int flags, DoubleBinaryOperator xFunc) throws ConnException {
+		createFunction(name, 2, flags, ScalarFunction.ofDoubleBinary(xFunc));
+	}
+	/**
+	 * Create a user defined SQL scalar function returning a real.
+	 * @see #createLongFunction(String, int, int, ToLongFunction)
+	 */
+	public void createDoubleFunction(String name, int nArg, int flags, ToDoubleFunction<Values> xFunc) throws ConnException {
+		createFunction(name, nArg, flags, ScalarFunction.ofDouble(xFunc));
+	}
+	/**
+	 * Create a user defined SQL scalar function.
+	 * @param name function name
+	 * @param nArg number of arguments expected
+	 * @param flags {@link org.sqlite.FunctionFlags}.*
+	 * @param xFunc function implementation returning <code>null</code>, a {@link Number}, a {@link Boolean},
+	 * a {@link String} or a <code>byte[]</code> (the {@link Values} view must not escape the call)
+	 * @see <a href="http://sqlite.org/c3ref/create_function.html">sqlite3_create_function_v2</a>
+	 */
+	public void createFunction(String name, int nArg, int flags, Function<Values, ?> xFunc) throws ConnException {
+		createFunction(name, nArg, flags, ScalarFunction.of(xFunc));
+	}
+	/**
+	 * Create a user defined SQL aggregate function whose per-group state is a Java object.
+	 * @param name function name
+	 * @param nArg number of arguments expected
+	 * @param flags {@link org.sqlite.FunctionFlags}.*
+	 * @param init creates the state of a group (also used when no rows match)
+	 * @param step accumulates one row into the state (the {@link Values} view must not escape the call)
+	 * @param finish computes the result from the state: <code>null</code>, a {@link Number}, a {@link Boolean},
+	 * a {@link String} or a <code>byte[]</code>
+	 * @param <S> state type
+	 * @see <a href="http://sqlite.org/c3ref/create_function.html">sqlite3_create_function_v2</a>
+	 */
+	public <S> void createAggregateFunction(String name, int nArg, int flags, Supplier<S> init, BiConsumer<S, Values> step,
+			Function<S, ?> finish) throws ConnException {
+		checkOpen();
+		final AggregateFunction<S> f = new AggregateFunction<>(init, step, finish);
+		check(sqlite3_create_function_v2(pDb, name, nArg, flags, null, null, f.xStep, f.xFinal, null),
+				"error while registering function %s", name);
+		keepAlive(name, nArg, f);
+	}
+	/**
+	 * Create a user defined SQL aggregate function (any number of arguments, UTF-8)
+	 * whose per-group state is a Java object.
+	 * @see #createAggregateFunction(String, int, int, Supplier, BiConsumer, Function)
+	 */
+	public <S> void createAggregateFunction(String name, Supplier<S> init, BiConsumer<S, Values> step,
+			Function<S, ?> finish) throws ConnException {
+		createAggregateFunction(name, -1, FunctionFlags.SQLITE_UTF8, init, step, finish);
+	}
+	/**
+	 * Create a user defined SQL aggregate window function whose per-group state is a Java object.
+	 * Thanks to <code>inverse</code>, a sliding frame costs O(1) per row (instead of the aggregation of the whole frame).
+	 * @param name function name
+	 * @param nArg number of arguments expected
+	 * @param flags {@link org.sqlite.FunctionFlags}.*
+	 * @param init creates the state of a partition (also used when the frame is empty)
+	 * @param step adds one row to the state
+	 * @param inverse removes the oldest row of the frame from the state (required by SQLite, like <code>value</code>)
+	 * @param value computes the current result from the state (without altering it)
+	 * @param <S> state type
+	 * @throws NullPointerException if <code>init</code>, <code>step</code>, <code>inverse</code> or <code>value</code> is null
+	 * @see <a href="http://sqlite.org/windowfunctions.html#udfwinfunc">User-Defined Aggregate Window Functions</a>
+	 */
+	public <S> void createWindowFunction(String name, int nArg, int flags, Supplier<S> init, BiConsumer<S, Values> step,
+			BiConsumer<S, Values> inverse, Function<S, ?> value) throws ConnException {
+		Objects.requireNonNull(init, "init");
+		Objects.requireNonNull(step, "step");
+		Objects.requireNonNull(inverse, "inverse");
+		Objects.requireNonNull(value, "value");
+		checkOpen();
+		final AggregateFunction<S> f = new AggregateFunction<>(init, step, inverse, value);
+		check(sqlite3_create_window_function(pDb, name, nArg, flags, null, f.xStep, f.xFinal, f.xValue, f.xInverse, null),
+				"error while registering function %s", name);
+		keepAlive(name, nArg, f);
+	}
+	/**
+	 * Register a virtual table module (also usable as an eponymous virtual table).
+	 * @param name module name
+	 * @param module Java tables factory
+	 * @see <a href="http://sqlite.org/c3ref/create_module.html">sqlite3_create_module_v2</a>
+	 */
+	public void createModule(String name, VirtualTableModule module) throws ConnException {
+		checkOpen();
+		final VirtualTables m = new VirtualTables(module);
+		check(sqlite3_create_module_v2(pDb, name, m.module, null, null), "error while registering module %s", name);
+		functions.put(name.toLowerCase(Locale.ENGLISH), m);
+	}
+	synchronized CArray carray() {
+		if (carray == null) {
+			carray = new CArray();
+		}
+		return carray;
+	}
+	// whether carray resolves to the Java module (registered on demand): a native carray extension
+	// loaded without sqlite3_carray_bind, or another module of the same name, reads our pointers as NULL
+	boolean isJavaCArray() {
+		if (!functions.containsKey(CArray.MODULE)) {
+			try { // registers the Java module unless another one resolves
+				prepare("SELECT 1 FROM " + CArray.MODULE, false).close();
+			} catch (SQLiteException e) {
+				return false;
+			}
+		}
+		return javaCArray != null && javaCArray == functions.get(CArray.MODULE);
+	}
+	private void createFunction(String name, int nArg, int flags, ScalarFunction xFunc) throws ConnException {
+		checkOpen();
+		check(sqlite3_create_function_v2(pDb, name, nArg, flags, null, xFunc, null, null, null),
+				"error while registering function %s", name);
+		keepAlive(name, nArg, xFunc);
+	}
+	// callbacks must stay reachable while registered
+	private void keepAlive(String name, int nArg, Object callbacks) {
+		final String key = name.toLowerCase(Locale.ENGLISH) + '/' + nArg;
+		if (callbacks == null) { // function deleted
+			functions.remove(key);
+		} else {
+			functions.put(key, callbacks);
+		}
 	}
 
 	/**
@@ -805,30 +1134,25 @@ public final class Conn implements AutoCloseable {
 
 	// To be called in Conn.prepare
 	Stmt find(String sql) {
-		if (maxCacheSize <= 0) {
-			return null;
-		}
-		synchronized (cache) {
-			return cache.remove(sql);
-		}
+		return cache.find(sql);
 	}
 
 	// To be called in Stmt.close
 	boolean release(Stmt stmt) {
-		if (maxCacheSize <= 0) {
-			return false;
-		}
-		synchronized (cache) {
-			cache.put(stmt.sql,stmt);
-		}
-		return true;
+		return cache.release(stmt);
 	}
 
+	/**
+	 * @return prepared statements cache (settings and statistics)
+	 */
+	public StmtCache getStmtCache() {
+		return cache;
+	}
 	/**
 	 * Prepared statements cache is turned off when max size is 0
 	 */
 	public int getMaxCacheSize() {
-		return maxCacheSize;
+		return cache.getMaxSize();
 	}
 	/**
 	 * Prepared statements cache size
@@ -842,26 +1166,13 @@ public final class Conn implements AutoCloseable {
 	 * Cache is turned off (and flushed) when size &lt;= 0
 	 */
 	public void setMaxCacheSize(int maxCacheSize) {
-		if (maxCacheSize <= 0) {
-			flush();
-		}
-		this.maxCacheSize = maxCacheSize;
+		cache.setMaxSize(maxCacheSize);
 	}
 	/**
 	 * Finalize and free the cached prepared statements
 	 * To be called in Conn.close
 	 */
 	private void flush() {
-		if (maxCacheSize <= 0) {
-			return;
-		}
-		synchronized (cache) {
-			final Iterator<Stmt> it = cache.values().iterator();
-			while (it.hasNext()) {
-				final Stmt stmt = it.next();
-				stmt.close(true);
-				it.remove();
-			}
-		}
+		cache.flush();
 	}
 }
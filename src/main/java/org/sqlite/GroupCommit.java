@@ -0,0 +1,287 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-coalescing executor: write units submitted by many threads are run by a single committer thread
+ * inside one <code>BEGIN IMMEDIATE ... COMMIT</code>, so that they share the write lock and the fsync.
+ * <p>
+ * Each unit runs inside its own savepoint: a failing unit is rolled back without affecting the others.
+ * But an {@link Error} thrown by a unit rolls back the whole batch, fails the pending units and closes this executor.
+ * The future of a unit completes (on the committer thread) only after the shared commit.
+ * Units must not begin, commit or roll back transactions themselves.
+ * The connection must not be used by other threads until this executor is closed.
+ */
+public final class GroupCommit implements AutoCloseable {
+	/**
+	 * A write unit, run on the committer thread.
+	 */
+	public interface Unit<T> {
+		T run(Conn conn) throws SQLiteException;
+	}
+
+	private static final String SAVEPOINT = "SAVEPOINT group_commit";
+	private static final String RELEASE = "RELEASE group_commit";
+	private static final String ROLLBACK_TO = "ROLLBACK TO group_commit";
+
+	private final Conn conn;
+	private final int maxBatchSize;
+	private final long lingerNanos;
+	private final ArrayDeque<Task<?>> queue = new ArrayDeque<>();
+	private final Thread committer;
+	private boolean closed;
+
+	private long batches;
+	private long units;
+	private long failedUnits;
+	private long failedCommits;
+
+	/**
+	 * @param conn         connection dedicated to this executor
+	 * @param maxBatchSize maximum number of units per transaction
+	 * @param linger       maximum time to wait for more units once the first one of a batch has been submitted.
+	 *                     With 0, units submitted while the previous batch is being committed are still grouped.
+	 * @param unit         <code>linger</code> unit
+	 */
+	public GroupCommit(Conn conn, int maxBatchSize, long linger, TimeUnit unit) {
+		if (maxBatchSize <= 0) {
+			throw new IllegalArgumentException(String.format("invalid batch size: %d", maxBatchSize));
+		}
+		this.conn = conn;
+		this.maxBatchSize = maxBatchSize;
+		this.lingerNanos = unit.toNanos(linger);
+		committer = new Thread(this::loop, "sqlite-group-commit");
+		committer.setDaemon(true);
+		committer.start();
+	}
+
+	/**
+	 * @param unit write unit
+	 * @return a future completed with the unit result after the commit,
+	 * or exceptionally if the unit or the commit fails.
+	 */
+	public <T> CompletableFuture<T> submit(Unit<T> unit) {
+		final Task<T> task = new Task<>(unit);
+		synchronized (queue) {
+			if (closed) {
+				throw new RejectedExecutionException("group commit closed");
+			}
+			queue.addLast(task);
+			if (queue.size() == 1 || queue.size() >= maxBatchSize) {
+				queue.notifyAll();
+			}
+		}
+		return task.future;
+	}
+
+	/**
+	 * Submit a DML.
+	 * @param sql DML statement (prepared statement cached)
+	 * @param params SQL statement parameters
+	 * @return a future completed with the number of rows changed after the commit.
+	 * @see Conn#execDml(String, boolean, Object...)
+	 */
+	public CompletableFuture<Integer> execDml(String sql, Object... params) {
+		return submit(c -> c.execDml(sql, true, params));
+	}
+
+	private void loop() {
+		final List<Task<?>> batch = new ArrayList<>(maxBatchSize);
+		try {
+			while (true) {
+				synchronized (queue) {
+					try {
+						while (queue.isEmpty() && !closed) {
+							queue.wait();
+						}
+						if (queue.isEmpty()) {
+							return; // closed
+						}
+						// linger
+						final long deadline = System.nanoTime() + lingerNanos;
+						long remaining = lingerNanos;
+						while (queue.size() < maxBatchSize && !closed && remaining > 0) {
+							TimeUnit.NANOSECONDS.timedWait(queue, remaining);
+							remaining = deadline - System.nanoTime();
+						}
+					} catch (InterruptedException e) {
+						closed = true;
+					}
+					while (batch.size() < maxBatchSize && !queue.isEmpty()) {
+						batch.add(queue.pollFirst());
+					}
+				}
+				if (!batch.isEmpty()) {
+					commit(batch);
+					batch.clear();
+				}
+			}
+		} catch (RuntimeException | Error e) { // fatal: the batch has been rolled back, no more units are accepted
+			final List<Task<?>> pending;
+			synchronized (queue) {
+				closed = true;
+				pending = new ArrayList<>(queue);
+				queue.clear();
+			}
+			for (Task<?> task : batch) {
+				task.future.completeExceptionally(e);
+			}
+			for (Task<?> task : pending) {
+				task.future.completeExceptionally(e);
+			}
+			throw e;
+		}
+	}
+
+	private void commit(List<Task<?>> batch) {
+		int failed = 0;
+		SQLiteException commitError = null;
+		try {
+			conn.fastExec("BEGIN IMMEDIATE");
+			for (Task<?> task : batch) {
+				if (!task.run(conn)) {
+					failed++;
+				}
+			}
+			conn.fastExec("COMMIT");
+		} catch (SQLiteException e) {
+			commitError = e;
+			rollback(e);
+		} catch (RuntimeException | Error e) { // thrown by a unit as an Error or while committing
+			rollback(e);
+			throw e;
+		}
+		synchronized (queue) {
+			batches++;
+			units += batch.size();
+			failedUnits += failed;
+			if (commitError != null) {
+				failedCommits++;
+			}
+		}
+		for (Task<?> task : batch) {
+			task.complete(commitError);
+		}
+	}
+
+	private void rollback(Throwable e) {
+		try {
+			if (!conn.isClosed() && !conn.getAutoCommit()) {
+				conn.fastExec("ROLLBACK");
+			}
+		} catch (SQLiteException x) {
+			e.addSuppressed(x);
+		}
+	}
+
+	/**
+	 * Stop accepting units, commit the pending ones and wait for the committer thread to stop.
+	 * The connection is not closed.
+	 */
+	@Override
+	public void close() {
+		synchronized (queue) {
+			closed = true;
+			queue.notifyAll();
+		}
+		boolean interrupted = false;
+		while (committer.isAlive()) {
+			try {
+				committer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return number of transactions committed (or attempted)
+	 */
+	public long getBatchCount() {
+		synchronized (queue) {
+			return batches;
+		}
+	}
+	/**
+	 * @return number of units run
+	 */
+	public long getUnitCount() {
+		synchronized (queue) {
+			return units;
+		}
+	}
+	/**
+	 * @return number of units rolled back to their savepoint
+	 */
+	public long getFailedUnitCount() {
+		synchronized (queue) {
+			return failedUnits;
+		}
+	}
+	/**
+	 * @return number of transactions which could not be started or committed
+	 */
+	public long getFailedCommitCount() {
+		synchronized (queue) {
+			return failedCommits;
+		}
+	}
+
+	private static final class Task<T> {
+		private final Unit<T> unit;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		private T result;
+		private Throwable error;
+
+		private Task(Unit<T> unit) {
+			this.unit = unit;
+		}
+
+		// Must be called inside the transaction
+		private boolean run(Conn conn) throws SQLiteException {
+			exec(conn, SAVEPOINT);
+			try {
+				result = unit.run(conn);
+			} catch (SQLiteException | RuntimeException e) {
+				error = e;
+				exec(conn, ROLLBACK_TO);
+				exec(conn, RELEASE);
+				return false;
+			}
+			exec(conn, RELEASE);
+			return true;
+		}
+
+		private void complete(SQLiteException commitError) {
+			if (error != null) {
+				future.completeExceptionally(error);
+			} else if (commitError != null) {
+				future.completeExceptionally(commitError);
+			} else {
+				future.complete(result);
+			}
+		}
+
+		private static void exec(Conn conn, String sql) throws SQLiteException {
+			try (Stmt s = conn.prepare(sql, true)) {
+				s.exec();
+			}
+		}
+	}
+}
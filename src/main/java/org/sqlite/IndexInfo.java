@@ -0,0 +1,201 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import com.sun.jna.Pointer;
+import org.sqlite.SQLite.SQLite3IndexConstraint;
+import org.sqlite.SQLite.SQLite3IndexConstraintUsage;
+import org.sqlite.SQLite.SQLite3IndexInfo;
+import org.sqlite.SQLite.SQLite3IndexOrderBy;
+
+import static org.sqlite.SQLite.SQLITE_OK;
+
+/**
+ * Query plan of a {@link VirtualTable}: constraints and ORDER BY of the query (inputs),
+ * constraints consumed by {@link VirtualCursor#filter(int, String, Values)} and cost (outputs).
+ * <pre>{@code
+ * for (int i = 0; i < info.getConstraintCount(); i++) {
+ *   if (info.isUsable(i) && info.getColumn(i) == 0 && info.getOp(i) == IndexInfo.SQLITE_INDEX_CONSTRAINT_EQ) {
+ *     info.use(i, 1, true); // args.getX(0) in filter
+ *     info.setIdxNum(1);
+ *     info.setEstimatedCost(1);
+ *   }
+ * }
+ * }</pre>
+ * Only valid during {@link VirtualTable#bestIndex(IndexInfo)}.
+ * @see <a href="http://sqlite.org/c3ref/index_info.html">sqlite3_index_info</a>
+ */
+public final class IndexInfo {
+	// https://sqlite.org/c3ref/c_index_constraint_eq.html
+	public static final int SQLITE_INDEX_CONSTRAINT_EQ = 2,
+			SQLITE_INDEX_CONSTRAINT_GT = 4,
+			SQLITE_INDEX_CONSTRAINT_LE = 8,
+			SQLITE_INDEX_CONSTRAINT_LT = 16,
+			SQLITE_INDEX_CONSTRAINT_GE = 32,
+			SQLITE_INDEX_CONSTRAINT_MATCH = 64,
+			SQLITE_INDEX_CONSTRAINT_LIKE = 65,
+			SQLITE_INDEX_CONSTRAINT_GLOB = 66,
+			SQLITE_INDEX_CONSTRAINT_REGEXP = 67,
+			SQLITE_INDEX_CONSTRAINT_NE = 68,
+			SQLITE_INDEX_CONSTRAINT_ISNOT = 69,
+			SQLITE_INDEX_CONSTRAINT_ISNOTNULL = 70,
+			SQLITE_INDEX_CONSTRAINT_ISNULL = 71,
+			SQLITE_INDEX_CONSTRAINT_IS = 72,
+			SQLITE_INDEX_CONSTRAINT_LIMIT = 73,
+			SQLITE_INDEX_CONSTRAINT_OFFSET = 74,
+			SQLITE_INDEX_CONSTRAINT_FUNCTION = 150;
+	private static final int SQLITE_INDEX_SCAN_UNIQUE = 1;
+
+	private final SQLite3IndexInfo info;
+	private final SQLite3IndexConstraint[] constraints;
+	private final SQLite3IndexOrderBy[] orderBys;
+	private final SQLite3IndexConstraintUsage[] usages;
+	private String idxStr;
+
+	IndexInfo(Pointer p) {
+		info = new SQLite3IndexInfo(p);
+		final int nConstraint = info.nConstraint;
+		if (nConstraint == 0) {
+			constraints = new SQLite3IndexConstraint[0];
+			usages = new SQLite3IndexConstraintUsage[0];
+		} else {
+			constraints = new SQLite3IndexConstraint[nConstraint];
+			new SQLite3IndexConstraint(info.aConstraint).toArray(constraints);
+			constraints[0].read();
+			usages = new SQLite3IndexConstraintUsage[nConstraint];
+			new SQLite3IndexConstraintUsage(info.aConstraintUsage).toArray(usages);
+			usages[0].read();
+		}
+		if (info.nOrderBy == 0) {
+			orderBys = new SQLite3IndexOrderBy[0];
+		} else {
+			orderBys = new SQLite3IndexOrderBy[info.nOrderBy];
+			new SQLite3IndexOrderBy(info.aOrderBy).toArray(orderBys);
+			orderBys[0].read();
+		}
+	}
+
+	/**
+	 * @return number of WHERE clause constraints
+	 */
+	public int getConstraintCount() {
+		return constraints.length;
+	}
+	/**
+	 * @param i constraint index (0...)
+	 * @return column constrained (-1 for rowid)
+	 */
+	public int getColumn(int i) {
+		return constraints[i].iColumn;
+	}
+	/**
+	 * @param i constraint index (0...)
+	 * @return constraint operator: SQLITE_INDEX_CONSTRAINT_*
+	 */
+	public int getOp(int i) {
+		return constraints[i].op & 0xFF;
+	}
+	/**
+	 * @param i constraint index (0...)
+	 * @return <code>false</code> when the constraint cannot be used by this plan (it depends on a table not yet scanned)
+	 */
+	public boolean isUsable(int i) {
+		return constraints[i].usable != 0;
+	}
+	/**
+	 * Pass the right-hand side value of a constraint to {@link VirtualCursor#filter(int, String, Values)}.
+	 * @param i constraint index (0...)
+	 * @param argvIndex position of the value in <code>filter</code> arguments (1...)
+	 * @param omit <code>true</code> if the cursor fully checks the constraint (SQLite does not double check it)
+	 */
+	public void use(int i, int argvIndex, boolean omit) {
+		usages[i].argvIndex = argvIndex;
+		usages[i].omit = (byte) (omit ? 1 : 0);
+	}
+
+	/**
+	 * @return number of ORDER BY terms
+	 */
+	public int getOrderByCount() {
+		return orderBys.length;
+	}
+	/**
+	 * @param i ORDER BY term index (0...)
+	 * @return column (-1 for rowid)
+	 */
+	public int getOrderByColumn(int i) {
+		return orderBys[i].iColumn;
+	}
+	/**
+	 * @param i ORDER BY term index (0...)
+	 */
+	public boolean isOrderByDesc(int i) {
+		return orderBys[i].desc != 0;
+	}
+	/**
+	 * @param consumed <code>true</code> if the cursor returns rows in the ORDER BY order (no sort is needed)
+	 */
+	public void setOrderByConsumed(boolean consumed) {
+		info.orderByConsumed = consumed ? 1 : 0;
+	}
+
+	/**
+	 * @return mask of the columns used by the statement (bit 63 for all columns after the 63rd)
+	 */
+	public long getColumnsUsed() {
+		return info.colUsed;
+	}
+	/**
+	 * @param idxNum plan number given to {@link VirtualCursor#filter(int, String, Values)}
+	 */
+	public void setIdxNum(int idxNum) {
+		info.idxNum = idxNum;
+	}
+	/**
+	 * @param idxStr plan description given to {@link VirtualCursor#filter(int, String, Values)}
+	 */
+	public void setIdxStr(String idxStr) {
+		this.idxStr = idxStr;
+	}
+	public void setEstimatedCost(double estimatedCost) {
+		info.estimatedCost = estimatedCost;
+	}
+	public void setEstimatedRows(long estimatedRows) {
+		info.estimatedRows = estimatedRows;
+	}
+	/**
+	 * @param unique <code>true</code> if the plan returns at most one row
+	 */
+	public void setUniqueScan(boolean unique) {
+		info.idxFlags = unique ? info.idxFlags | SQLITE_INDEX_SCAN_UNIQUE : info.idxFlags & ~SQLITE_INDEX_SCAN_UNIQUE;
+	}
+
+	// copy outputs to native memory
+	int write() {
+		for (SQLite3IndexConstraintUsage usage : usages) {
+			usage.write();
+		}
+		info.writeField("idxNum");
+		if (idxStr != null) {
+			final Pointer p = VirtualTables.sqlite3String(idxStr);
+			if (p == null) {
+				return ErrCodes.SQLITE_NOMEM;
+			}
+			info.idxStr = p;
+			info.needToFreeIdxStr = 1;
+			info.writeField("idxStr");
+			info.writeField("needToFreeIdxStr");
+		}
+		info.writeField("orderByConsumed");
+		info.writeField("estimatedCost");
+		info.writeField("estimatedRows");
+		info.writeField("idxFlags");
+		return SQLITE_OK;
+	}
+}
@@ -186,6 +186,28 @@ public enum OpenQueryParameter {
 			}
 		}
 	},
+	/** Maximum number of idle prepared statements kept in cache (0 to disable the cache). */
+	STMT_CACHE_SIZE("stmt_cache_size") {
+		@Override
+		public void config(Map<String, String> params, Conn conn) throws SQLiteException {
+			final String value = params.get(this.name);
+			if (value == null) {
+				return;
+			}
+			conn.getStmtCache().setMaxSize(uri_int(conn, this.name, value));
+		}
+	},
+	/** Maximum memory (in bytes) used by idle prepared statements kept in cache (0 for no limit). */
+	STMT_CACHE_MEMORY("stmt_cache_memory") {
+		@Override
+		public void config(Map<String, String> params, Conn conn) throws SQLiteException {
+			final String value = params.get(this.name);
+			if (value == null) {
+				return;
+			}
+			conn.getStmtCache().setMaxMemory(uri_int(conn, this.name, value));
+		}
+	},
 	/** @see <a href="https://www.sqlite.org/pragma.html#pragma_synchronous">pragma synchronous</a> */
 	SYNCHRONOUS("synchronous") {
 		private final String[] FLAGS = {"0", "1", "2", "FULL", "NORMAL", "OFF"};
@@ -230,6 +252,18 @@ public enum OpenQueryParameter {
 		return defaultB;
 	}
 
+	private static int uri_int(Conn conn, String param, String value) throws ConnException {
+		try {
+			final int i = Integer.parseInt(value);
+			if (i >= 0) {
+				return i;
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new ConnException(conn, String.format("Invalid %s: '%s'", param, value), ErrCodes.WRAPPER_SPECIFIC);
+	}
+
 	public static Map<String, String> getQueryParams(String url) {
 		final String[] urlParts = url.split("\\?");
 		if (urlParts.length < 2) {
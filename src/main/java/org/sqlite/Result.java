@@ -0,0 +1,70 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import com.sun.jna.Pointer;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.sqlite.SQLite.SQLITE_TRANSIENT;
+import static org.sqlite.SQLite.sqlite3_result_blob;
+import static org.sqlite.SQLite.sqlite3_result_double;
+import static org.sqlite.SQLite.sqlite3_result_int64;
+import static org.sqlite.SQLite.sqlite3_result_null;
+import static org.sqlite.SQLite.sqlite3_result_text;
+
+/**
+ * Reusable view over a <code>sqlite3_context</code> (no {@link SQLite.SQLite3Context} instantiation):
+ * only valid during the call it is given to.
+ * @see <a href="http://sqlite.org/c3ref/result_blob.html">sqlite3_result_*</a>
+ */
+public final class Result {
+	private final Pointer pCtx = new Pointer(0L);
+	// true while a cursor is using this view (reentrant calls get their own view)
+	boolean inUse;
+
+	Result() {
+	}
+
+	Result reset(Pointer ctx) {
+		Pointer.nativeValue(pCtx, Pointer.nativeValue(ctx));
+		return this;
+	}
+
+	public void setNull() {
+		sqlite3_result_null(pCtx);
+	}
+	public void setLong(long l) {
+		sqlite3_result_int64(pCtx, l);
+	}
+	public void setDouble(double d) {
+		sqlite3_result_double(pCtx, d);
+	}
+	public void setText(String s) {
+		if (s == null) {
+			setNull();
+			return;
+		}
+		final byte[] text = s.getBytes(StandardCharsets.UTF_8);
+		sqlite3_result_text(pCtx, text, text.length, SQLITE_TRANSIENT);
+	}
+	public void setBlob(byte[] blob) {
+		if (blob == null) {
+			setNull();
+			return;
+		}
+		sqlite3_result_blob(pCtx, blob, blob.length, SQLITE_TRANSIENT);
+	}
+	/**
+	 * @param o <code>null</code>, {@link Number}, {@link Boolean}, {@link String} or <code>byte[]</code>
+	 */
+	public void setObject(Object o) {
+		ScalarFunction.result(pCtx, o);
+	}
+}
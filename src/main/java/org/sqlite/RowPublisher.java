@@ -0,0 +1,206 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Push-based stream of the rows of a query with backpressure:
+ * the statement is stepped only when the subscriber has requested more rows.
+ * <p>
+ * The interfaces mirror <code>java.util.concurrent.Flow</code> (Java 9+) / Reactive Streams
+ * so that adapting them is a one-liner.
+ * The statement is closed (which resets it and ends the implicit read transaction)
+ * as soon as the stream completes, fails or is cancelled.
+ * Only one subscriber is allowed.
+ */
+public final class RowPublisher<T> {
+	/**
+	 * @see <a href="https://docs.oracle.com/javase/9/docs/api/java/util/concurrent/Flow.Subscriber.html">Flow.Subscriber</a>
+	 */
+	public interface Subscriber<T> {
+		void onSubscribe(Subscription subscription);
+		void onNext(T item);
+		void onError(Throwable throwable);
+		void onComplete();
+	}
+	/**
+	 * @see <a href="https://docs.oracle.com/javase/9/docs/api/java/util/concurrent/Flow.Subscription.html">Flow.Subscription</a>
+	 */
+	public interface Subscription {
+		void request(long n);
+		void cancel();
+	}
+
+	private final Stmt stmt;
+	private final RowMapper<T> mapper;
+	private final Executor executor;
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	/**
+	 * @param stmt     a bound query, owned (and closed) by this publisher
+	 * @param mapper   row mapper
+	 * @param executor where the statement is stepped and the subscriber signaled
+	 *                 (must run tasks sequentially, e.g. the connection thread)
+	 */
+	public RowPublisher(Stmt stmt, RowMapper<T> mapper, Executor executor) {
+		this.stmt = stmt;
+		this.mapper = mapper;
+		this.executor = executor;
+	}
+	/**
+	 * The statement is stepped on the thread calling {@link Subscription#request(long)}.
+	 * @param stmt   a bound query, owned (and closed) by this publisher
+	 * @param mapper row mapper
+	 */
+	public RowPublisher(Stmt stmt, RowMapper<T> mapper) {
+		this(stmt, mapper, Runnable::run);
+	}
+
+	public void subscribe(Subscriber<? super T> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("subscriber");
+		}
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Subscription() {
+				@Override
+				public void request(long n) {
+				}
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("only one subscriber allowed"));
+			return;
+		}
+		new RowSubscription(subscriber).start();
+	}
+
+	private final class RowSubscription implements Subscription, Runnable {
+		private final Subscriber<? super T> subscriber;
+		private final AtomicLong requested = new AtomicLong();
+		// number of pending signals: the drain loop runs only when it goes from 0 to 1
+		private final AtomicInteger wip = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile Throwable invalidRequest;
+		private boolean done;
+
+		private RowSubscription(Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		private void start() {
+			try {
+				subscriber.onSubscribe(this);
+			} catch (RuntimeException e) {
+				cancelled = true;
+				signal();
+				throw e;
+			}
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException(String.format("non-positive request: %d", n));
+			} else {
+				long r, u;
+				do {
+					r = requested.get();
+					u = r + n;
+					if (u < 0) {
+						u = Long.MAX_VALUE;
+					}
+				} while (!requested.compareAndSet(r, u));
+			}
+			signal();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			signal();
+		}
+
+		private void signal() {
+			if (wip.getAndIncrement() == 0) {
+				executor.execute(this);
+			}
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			do {
+				drain();
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void drain() {
+			if (done) {
+				return;
+			}
+			if (cancelled) {
+				terminate();
+				return;
+			}
+			if (invalidRequest != null) {
+				terminate();
+				subscriber.onError(invalidRequest);
+				return;
+			}
+			long emitted = 0;
+			long r = requested.get();
+			while (!cancelled) {
+				if (emitted == r) {
+					r = requested.addAndGet(-emitted);
+					emitted = 0;
+					if (r == 0) {
+						return;
+					}
+				}
+				final T item;
+				try {
+					if (!stmt.step(0)) {
+						terminate();
+						subscriber.onComplete();
+						return;
+					}
+					item = mapper.map(stmt);
+				} catch (SQLiteException | RuntimeException e) {
+					terminate();
+					subscriber.onError(e);
+					return;
+				}
+				subscriber.onNext(item);
+				emitted++;
+				if (invalidRequest != null) {
+					terminate();
+					subscriber.onError(invalidRequest);
+					return;
+				}
+			}
+			terminate();
+		}
+
+		private void terminate() {
+			done = true;
+			try {
+				stmt.reset(); // so that a cacheable statement goes back to the cache
+			} catch (StmtException e) {
+				// error already reported by step
+			}
+			stmt.closeNoCheck();
+		}
+	}
+}
@@ -9,16 +9,17 @@
 package org.sqlite;
 
 import com.sun.jna.Callback;
+import com.sun.jna.Function;
 import com.sun.jna.Library;
 import com.sun.jna.Memory;
 import com.sun.jna.Native;
 import com.sun.jna.NativeLibrary;
 import com.sun.jna.Pointer;
 import com.sun.jna.PointerType;
+import com.sun.jna.Structure;
 import com.sun.jna.ptr.IntByReference;
 import com.sun.jna.ptr.PointerByReference;
 
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
@@ -27,13 +28,24 @@ import java.util.Collections;
 public final class SQLite implements Library {
 	private static final String JNA_LIBRARY_NAME = "sqlite3";
 
+	// https://sqlite.org/carray.html (null when the carray extension is not built in the library)
+	static final Function sqlite3_carray_bind;
+
 	// public static final NativeLibrary JNA_NATIVE_LIB = NativeLibrary.getInstance(SQLite.JNA_LIBRARY_NAME);
 	static {
 		String libraryName = System.getProperty("sqlite3.library.name", JNA_LIBRARY_NAME);
 		if (libraryName.isEmpty()) {
 			libraryName = JNA_LIBRARY_NAME;
 		}
-		Native.register(NativeLibrary.getInstance(libraryName, Collections.singletonMap(OPTION_STRING_ENCODING, "UTF-8")));
+		final NativeLibrary library = NativeLibrary.getInstance(libraryName, Collections.singletonMap(OPTION_STRING_ENCODING, "UTF-8"));
+		Native.register(library);
+		Function carrayBind;
+		try {
+			carrayBind = library.getFunction("sqlite3_carray_bind");
+		} catch (UnsatisfiedLinkError e) {
+			carrayBind = null;
+		}
+		sqlite3_carray_bind = carrayBind;
 	}
 
 	public static final int SQLITE_OK = 0;
@@ -123,14 +135,14 @@ public final class SQLite implements Library {
 	static native SQLite3Stmt sqlite3_next_stmt(SQLite3 pDb, SQLite3Stmt pStmt);
 
 	static native int sqlite3_table_column_metadata(SQLite3 pDb, String dbName, String tableName, String columnName,
-			PointerByReference pzDataType, PointerByReference pzCollSeq,
-			IntByReference pNotNull, IntByReference pPrimaryKey, IntByReference pAutoinc); // no copy needed
+			Pointer pzDataType, Pointer pzCollSeq,
+			Pointer pNotNull, Pointer pPrimaryKey, Pointer pAutoinc); // no copy needed
 
 	static native int sqlite3_exec(SQLite3 pDb, String cmd, Callback c, Pointer udp, PointerByReference errMsg);
 	// https://sqlite.org/c3ref/c_prepare_normalize.html
 	public static final int SQLITE_PREPARE_PERSISTENT = 0x01/*, SQLITE_PREPARE_NORMALIZE = 0x02*/, SQLITE_PREPARE_NO_VTAB = 0x04;
-	static native int sqlite3_prepare_v3(SQLite3 pDb, Pointer sql, int nByte, int prepFlags, PointerByReference ppStmt,
-			PointerByReference pTail);
+	static native int sqlite3_prepare_v3(SQLite3 pDb, Pointer sql, int nByte, int prepFlags, Pointer ppStmt,
+			Pointer pTail);
 	static native String sqlite3_sql(SQLite3Stmt pStmt); // no copy needed
 	static native Pointer sqlite3_expanded_sql(SQLite3Stmt pStmt); // sqlite3_free
 	static native int sqlite3_finalize(SQLite3Stmt pStmt);
@@ -169,7 +181,7 @@ public final class SQLite implements Library {
 	static native double sqlite3_column_double(SQLite3Stmt pStmt, int iCol);
 	static native int sqlite3_column_int(SQLite3Stmt pStmt, int iCol);
 	static native long sqlite3_column_int64(SQLite3Stmt pStmt, int iCol);
-	static native String sqlite3_column_text(SQLite3Stmt pStmt, int iCol); // copy needed: The pointers returned are valid until a type conversion occurs as described above, or until sqlite3_step() or sqlite3_reset() or sqlite3_finalize() is called.
+	static native Pointer sqlite3_column_text(SQLite3Stmt pStmt, int iCol); // copy needed: The pointers returned are valid until a type conversion occurs as described above, or until sqlite3_step() or sqlite3_reset() or sqlite3_finalize() is called.
 	//const void *sqlite3_column_text16(SQLite3Stmt pStmt, int iCol);
 	//sqlite3_value *sqlite3_column_value(SQLite3Stmt pStmt, int iCol);
 
@@ -183,10 +195,37 @@ public final class SQLite implements Library {
 	static native int sqlite3_bind_int64(SQLite3Stmt pStmt, int i, long value);
 	static native int sqlite3_bind_null(SQLite3Stmt pStmt, int i);
 	static native int sqlite3_bind_text(SQLite3Stmt pStmt, int i, String value, int n, long xDel); // no copy needed when xDel == SQLITE_TRANSIENT == -1
+	static native int sqlite3_bind_text(SQLite3Stmt pStmt, int i, byte[] value, int n, long xDel); // UTF-8 encoded, no copy needed when xDel == SQLITE_TRANSIENT == -1
 	//static native int sqlite3_bind_text16(SQLite3Stmt pStmt, int i, const void*, int, void(*)(void*));
 	//static native int sqlite3_bind_value(SQLite3Stmt pStmt, int i, const sqlite3_value*);
 	static native int sqlite3_bind_zeroblob(SQLite3Stmt pStmt, int i, int n);
 	static native int sqlite3_stmt_status(SQLite3Stmt pStmt, int op, boolean reset);
+
+	/**
+	 * When <code>true</code>, statement hot paths (step, reset, column_*, bind_*) pass the statement handle as its
+	 * address so that only primitives are marshalled (fastest JNA direct-mapping path, no {@link PointerType} conversion).
+	 * Chosen at class-init time: only on 64-bit JVMs and unless <code>-Dsqlite3.pointer.types=true</code>.
+	 */
+	static final boolean RAW_HANDLES = Native.POINTER_SIZE == 8 && !Boolean.getBoolean("sqlite3.pointer.types");
+	static long handle(PointerType p) {
+		return p == null ? 0L : Pointer.nativeValue(p.getPointer());
+	}
+	static native int sqlite3_step(long pStmt);
+	static native int sqlite3_reset(long pStmt);
+	static native int sqlite3_column_type(long pStmt, int iCol);
+	static native long sqlite3_column_blob(long pStmt, int iCol); // address
+	static native int sqlite3_column_bytes(long pStmt, int iCol);
+	static native double sqlite3_column_double(long pStmt, int iCol);
+	static native int sqlite3_column_int(long pStmt, int iCol);
+	static native long sqlite3_column_int64(long pStmt, int iCol);
+	static native long sqlite3_column_text(long pStmt, int iCol); // address
+	static native int sqlite3_bind_blob(long pStmt, int i, byte[] value, int n, long xDel);
+	static native int sqlite3_bind_double(long pStmt, int i, double value);
+	static native int sqlite3_bind_int(long pStmt, int i, int value);
+	static native int sqlite3_bind_int64(long pStmt, int i, long value);
+	static native int sqlite3_bind_null(long pStmt, int i);
+	static native int sqlite3_bind_text(long pStmt, int i, String value, int n, long xDel);
+	static native int sqlite3_bind_text(long pStmt, int i, byte[] value, int n, long xDel);
 	//#if mvn.project.property.sqlite.enable.stmt.scanstatus == "true"
 	// TODO https://sqlite.org/c3ref/c_scanstat_est.html constants
 	static native int sqlite3_stmt_scanstatus(SQLite3Stmt pStmt, int idx, int iScanStatusOp, PointerByReference pOut);
@@ -196,11 +235,11 @@ public final class SQLite implements Library {
 	static native void sqlite3_free(Pointer p);
 
 	static native int sqlite3_blob_open(SQLite3 pDb, String dbName, String tableName, String columnName,
-			long iRow, boolean flags, PointerByReference ppBlob); // no copy needed
+			long iRow, boolean flags, Pointer ppBlob); // no copy needed
 	static native int sqlite3_blob_reopen(SQLite3Blob pBlob, long iRow);
 	static native int sqlite3_blob_bytes(SQLite3Blob pBlob);
-	static native int sqlite3_blob_read(SQLite3Blob pBlob, ByteBuffer z, int n, int iOffset);
-	static native int sqlite3_blob_write(SQLite3Blob pBlob, ByteBuffer z, int n, int iOffset);
+	static native int sqlite3_blob_read(SQLite3Blob pBlob, Pointer z, int n, int iOffset);
+	static native int sqlite3_blob_write(SQLite3Blob pBlob, Pointer z, int n, int iOffset);
 	static native int sqlite3_blob_close(SQLite3Blob pBlob);
 
 	static native SQLite3Backup sqlite3_backup_init(SQLite3 pDst, String dstName, SQLite3 pSrc, String srcName);
@@ -209,8 +248,7 @@ public final class SQLite implements Library {
 	static native int sqlite3_backup_pagecount(SQLite3Backup pBackup);
 	static native int sqlite3_backup_finish(SQLite3Backup pBackup);
 
-	// As there is only one ProgressCallback by connection, and it is used to implement query timeout,
-	// the method visibility is restricted.
+	// As there is only one ProgressCallback by connection, the method visibility is restricted.
 	static native void sqlite3_progress_handler(SQLite3 pDb, int nOps, ProgressCallback xProgress, Pointer pArg);
 	static native void sqlite3_trace(SQLite3 pDb, TraceCallback xTrace, Pointer pArg);
 	static native void sqlite3_profile(SQLite3 pDb, ProfileCallback xProfile, Pointer pArg);
@@ -233,6 +271,16 @@ public final class SQLite implements Library {
 	static native int sqlite3_create_function_v2(SQLite3 pDb, String functionName, int nArg, int eTextRep,
 			Pointer pApp, ScalarCallback xFunc, AggregateStepCallback xStep, AggregateFinalCallback xFinal, Destructor xDestroy);
 
+	static native int sqlite3_create_function_v2(SQLite3 pDb, String functionName, int nArg, int eTextRep,
+			Pointer pApp, XFunc xFunc, XFunc xStep, XFinal xFinal, Destructor xDestroy);
+
+	// https://sqlite.org/c3ref/create_function.html (3.25.0)
+	static native int sqlite3_create_window_function(SQLite3 pDb, String functionName, int nArg, int eTextRep,
+			Pointer pApp, AggregateStepCallback xStep, AggregateFinalCallback xFinal, AggregateValueCallback xValue,
+			AggregateInverseCallback xInverse, Destructor xDestroy);
+	static native int sqlite3_create_window_function(SQLite3 pDb, String functionName, int nArg, int eTextRep,
+			Pointer pApp, XFunc xStep, XFinal xFinal, XFinal xValue, XFunc xInverse, Destructor xDestroy);
+
 	static native void sqlite3_result_null(SQLite3Context pCtx);
 	static native void sqlite3_result_int(SQLite3Context pCtx, int i);
 	static native void sqlite3_result_double(SQLite3Context pCtx, double d);
@@ -256,6 +304,30 @@ public final class SQLite implements Library {
 	static native int sqlite3_value_type(Pointer pValue);
 	static native int sqlite3_value_numeric_type(Pointer pValue);
 
+	// Typed functions (see Values): the context and values are passed as (reused) pointers, not PointerType
+	static native void sqlite3_result_null(Pointer pCtx);
+	static native void sqlite3_result_double(Pointer pCtx, double d);
+	static native void sqlite3_result_int64(Pointer pCtx, long l);
+	static native void sqlite3_result_text(Pointer pCtx, byte[] text, int n, long xDel); // UTF-8 encoded
+	static native void sqlite3_result_blob(Pointer pCtx, byte[] blob, int n, long xDel);
+	static native void sqlite3_result_error(Pointer pCtx, String err, int length);
+	static native void sqlite3_result_error_nomem(Pointer pCtx);
+	static native Pointer sqlite3_aggregate_context(Pointer pCtx, int nBytes);
+	static native long sqlite3_aggregate_context(long pCtx, int nBytes); // address
+	static native long sqlite3_value_blob(long pValue); // address
+	static native int sqlite3_value_bytes(long pValue);
+	static native long sqlite3_value_text(long pValue); // address
+
+	static native Pointer sqlite3_malloc(int n); // sqlite3_free
+
+	// https://sqlite.org/bindptr.html: type is compared with strcmp and must outlive the binding
+	static native int sqlite3_bind_pointer(SQLite3Stmt pStmt, int i, Pointer p, Pointer type, Destructor xDestructor);
+	static native Pointer sqlite3_value_pointer(Pointer pValue, Pointer type);
+
+	// https://sqlite.org/vtab.html
+	static native int sqlite3_create_module_v2(SQLite3 pDb, String zName, SQLite3Module p, Pointer pClientData, Destructor xDestroy);
+	static native int sqlite3_declare_vtab(Pointer pDb, String zSQL);
+
 	static native Pointer sqlite3_get_auxdata(SQLite3Context pCtx, int n);
 	static native void sqlite3_set_auxdata(SQLite3Context pCtx, int n, Pointer p, Destructor free);
 	static native Pointer sqlite3_aggregate_context(SQLite3Context pCtx, int nBytes);
@@ -344,6 +416,202 @@ public final class SQLite implements Library {
 		boolean progress();
 	}
 
+	/**
+	 * <code>void (*)(sqlite3_context*,int,sqlite3_value**)</code> without {@link PointerType} instantiation.
+	 * @see <a href="http://sqlite.org/c3ref/create_function.html">sqlite3_create_function_v2</a>
+	 */
+	public interface XFunc extends Callback {
+		@SuppressWarnings("unused")
+		void callback(Pointer pCtx, int nArg, Pointer args);
+	}
+	/**
+	 * <code>void (*)(sqlite3_context*)</code> without {@link PointerType} instantiation.
+	 * @see <a href="http://sqlite.org/c3ref/create_function.html">sqlite3_create_function_v2</a>
+	 */
+	public interface XFinal extends Callback {
+		@SuppressWarnings("unused")
+		void callback(Pointer pCtx);
+	}
+
+	/**
+	 * <code>int (*xCreate|xConnect)(sqlite3*, void *pAux, int argc, const char *const*argv, sqlite3_vtab **ppVTab, char **pzErr)</code>
+	 * @see <a href="http://sqlite.org/vtab.html#the_xconnect_method">xConnect</a>
+	 */
+	public interface XConnect extends Callback {
+		@SuppressWarnings("unused")
+		int callback(Pointer db, Pointer pAux, int argc, Pointer argv, Pointer ppVTab, Pointer pzErr);
+	}
+	/**
+	 * <code>int (*xBestIndex)(sqlite3_vtab *pVTab, sqlite3_index_info*)</code>
+	 * @see <a href="http://sqlite.org/vtab.html#the_xbestindex_method">xBestIndex</a>
+	 */
+	public interface XBestIndex extends Callback {
+		@SuppressWarnings("unused")
+		int callback(Pointer pVTab, Pointer pIndexInfo);
+	}
+	/**
+	 * <code>int (*xDisconnect|xDestroy)(sqlite3_vtab *pVTab)</code>
+	 * @see <a href="http://sqlite.org/vtab.html#the_xdisconnect_method">xDisconnect</a>
+	 */
+	public interface XDisconnect extends Callback {
+		@SuppressWarnings("unused")
+		int callback(Pointer pVTab);
+	}
+	/**
+	 * <code>int (*xOpen)(sqlite3_vtab *pVTab, sqlite3_vtab_cursor **ppCursor)</code>
+	 * @see <a href="http://sqlite.org/vtab.html#the_xopen_method">xOpen</a>
+	 */
+	public interface XOpen extends Callback {
+		@SuppressWarnings("unused")
+		int callback(Pointer pVTab, Pointer ppCursor);
+	}
+	/**
+	 * <code>int (*xClose|xNext|xEof)(sqlite3_vtab_cursor*)</code>
+	 * @see <a href="http://sqlite.org/vtab.html#the_xnext_method">xNext</a>
+	 */
+	public interface XCursor extends Callback {
+		@SuppressWarnings("unused")
+		int callback(Pointer pCursor);
+	}
+	/**
+	 * <code>int (*xFilter)(sqlite3_vtab_cursor*, int idxNum, const char *idxStr, int argc, sqlite3_value **argv)</code>
+	 * @see <a href="http://sqlite.org/vtab.html#the_xfilter_method">xFilter</a>
+	 */
+	public interface XFilter extends Callback {
+		@SuppressWarnings("unused")
+		int callback(Pointer pCursor, int idxNum, Pointer idxStr, int argc, Pointer argv);
+	}
+	/**
+	 * <code>int (*xColumn)(sqlite3_vtab_cursor*, sqlite3_context*, int)</code>
+	 * @see <a href="http://sqlite.org/vtab.html#the_xcolumn_method">xColumn</a>
+	 */
+	public interface XColumn extends Callback {
+		@SuppressWarnings("unused")
+		int callback(Pointer pCursor, Pointer pCtx, int i);
+	}
+	/**
+	 * <code>int (*xRowid)(sqlite3_vtab_cursor*, sqlite3_int64 *pRowid)</code>
+	 * @see <a href="http://sqlite.org/vtab.html#the_xrowid_method">xRowid</a>
+	 */
+	public interface XRowid extends Callback {
+		@SuppressWarnings("unused")
+		int callback(Pointer pCursor, Pointer pRowid);
+	}
+
+	/**
+	 * Virtual table methods (version 1, read-only: no xUpdate nor transaction methods).
+	 * @see <a href="http://sqlite.org/c3ref/module.html">sqlite3_module</a>
+	 */
+	@Structure.FieldOrder({"iVersion", "xCreate", "xConnect", "xBestIndex", "xDisconnect", "xDestroy", "xOpen", "xClose",
+			"xFilter", "xNext", "xEof", "xColumn", "xRowid", "xUpdate", "xBegin", "xSync", "xCommit", "xRollback",
+			"xFindFunction", "xRename"})
+	public static class SQLite3Module extends Structure {
+		public int iVersion = 1;
+		public XConnect xCreate;
+		public XConnect xConnect;
+		public XBestIndex xBestIndex;
+		public XDisconnect xDisconnect;
+		public XDisconnect xDestroy;
+		public XOpen xOpen;
+		public XCursor xClose;
+		public XFilter xFilter;
+		public XCursor xNext;
+		public XCursor xEof;
+		public XColumn xColumn;
+		public XRowid xRowid;
+		public Pointer xUpdate;
+		public Pointer xBegin;
+		public Pointer xSync;
+		public Pointer xCommit;
+		public Pointer xRollback;
+		public Pointer xFindFunction;
+		public Pointer xRename;
+	}
+	/**
+	 * <code>sqlite3_vtab</code> followed by the slot of the Java table.
+	 * @see <a href="http://sqlite.org/c3ref/vtab.html">sqlite3_vtab</a>
+	 */
+	@Structure.FieldOrder({"pModule", "nRef", "zErrMsg", "slot"})
+	public static class SQLite3VTab extends Structure {
+		static final long ERR_MSG_OFFSET = 2L * Native.POINTER_SIZE;
+		static final long SLOT_OFFSET = 3L * Native.POINTER_SIZE;
+		public Pointer pModule;
+		public int nRef;
+		public Pointer zErrMsg; // sqlite3_malloc
+		public int slot;
+	}
+	/**
+	 * <code>sqlite3_vtab_cursor</code> followed by the slot of the Java cursor.
+	 * @see <a href="http://sqlite.org/c3ref/vtab_cursor.html">sqlite3_vtab_cursor</a>
+	 */
+	@Structure.FieldOrder({"pVtab", "slot"})
+	public static class SQLite3VTabCursor extends Structure {
+		static final long SLOT_OFFSET = Native.POINTER_SIZE;
+		public Pointer pVtab;
+		public int slot;
+	}
+	/**
+	 * Inputs and outputs of <code>xBestIndex</code> (SQLite 3.10.0 or later).
+	 * @see <a href="http://sqlite.org/c3ref/index_info.html">sqlite3_index_info</a>
+	 */
+	@Structure.FieldOrder({"nConstraint", "aConstraint", "nOrderBy", "aOrderBy", "aConstraintUsage", "idxNum", "idxStr",
+			"needToFreeIdxStr", "orderByConsumed", "estimatedCost", "estimatedRows", "idxFlags", "colUsed"})
+	public static class SQLite3IndexInfo extends Structure {
+		public int nConstraint;
+		public Pointer aConstraint;
+		public int nOrderBy;
+		public Pointer aOrderBy;
+		public Pointer aConstraintUsage;
+		public int idxNum;
+		public Pointer idxStr; // sqlite3_malloc
+		public int needToFreeIdxStr;
+		public int orderByConsumed;
+		public double estimatedCost;
+		public long estimatedRows;
+		public int idxFlags;
+		public long colUsed;
+
+		public SQLite3IndexInfo(Pointer p) {
+			super(p);
+			read();
+		}
+	}
+	@Structure.FieldOrder({"iColumn", "op", "usable", "iTermOffset"})
+	public static class SQLite3IndexConstraint extends Structure {
+		public int iColumn;
+		public byte op;
+		public byte usable;
+		public int iTermOffset;
+
+		public SQLite3IndexConstraint() {
+		}
+		public SQLite3IndexConstraint(Pointer p) {
+			super(p);
+		}
+	}
+	@Structure.FieldOrder({"iColumn", "desc"})
+	public static class SQLite3IndexOrderBy extends Structure {
+		public int iColumn;
+		public byte desc;
+
+		public SQLite3IndexOrderBy() {
+		}
+		public SQLite3IndexOrderBy(Pointer p) {
+			super(p);
+		}
+	}
+	@Structure.FieldOrder({"argvIndex", "omit"})
+	public static class SQLite3IndexConstraintUsage extends Structure {
+		public int argvIndex;
+		public byte omit;
+
+		public SQLite3IndexConstraintUsage() {
+		}
+		public SQLite3IndexConstraintUsage(Pointer p) {
+			super(p);
+		}
+	}
+
 	/**
 	 * Database connection handle
 	 * @see <a href="http://sqlite.org/c3ref/sqlite3.html">sqlite3</a>
@@ -0,0 +1,161 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import com.sun.jna.Pointer;
+import org.sqlite.SQLite.XFunc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+import static org.sqlite.SQLite.SQLITE_TRANSIENT;
+import static org.sqlite.SQLite.sqlite3_result_blob;
+import static org.sqlite.SQLite.sqlite3_result_double;
+import static org.sqlite.SQLite.sqlite3_result_error;
+import static org.sqlite.SQLite.sqlite3_result_int64;
+import static org.sqlite.SQLite.sqlite3_result_null;
+import static org.sqlite.SQLite.sqlite3_result_text;
+
+/**
+ * Typed scalar function: arguments are read through a reused {@link Values} view
+ * (no <code>sqlite3_value*</code> array copy, no {@link SQLite.SQLite3Context} instantiation).
+ * Exceptions are reported with <code>sqlite3_result_error</code>.
+ * @see <a href="http://sqlite.org/c3ref/create_function.html">sqlite3_create_function_v2</a>
+ */
+abstract class ScalarFunction implements XFunc {
+	private final Values values = new Values();
+
+	@Override
+	public void callback(Pointer pCtx, int nArg, Pointer args) {
+		final Values v = values.inUse ? new Values() : values;
+		v.inUse = true;
+		try {
+			apply(pCtx, v.reset(nArg, args));
+		} catch (RuntimeException e) {
+			resultError(pCtx, e);
+		} finally {
+			v.inUse = false;
+		}
+	}
+
+	abstract void apply(Pointer pCtx, Values args);
+
+	static void resultError(Pointer pCtx, Throwable e) {
+		sqlite3_result_error(pCtx, String.valueOf(e.getMessage() == null ? e : e.getMessage()), -1);
+	}
+
+	/**
+	 * @param result <code>null</code>, {@link Number}, {@link Boolean}, {@link String} or <code>byte[]</code>
+	 * ({@link BigDecimal} and {@link BigInteger} out of the 64-bit range are returned as text, without loss)
+	 */
+	static void result(Pointer pCtx, Object result) {
+		if (result == null) {
+			sqlite3_result_null(pCtx);
+		} else if (result instanceof BigDecimal || result instanceof BigInteger && ((BigInteger) result).bitLength() > 63) {
+			final byte[] text = result.toString().getBytes(StandardCharsets.UTF_8);
+			sqlite3_result_text(pCtx, text, text.length, SQLITE_TRANSIENT);
+		} else if (result instanceof Double || result instanceof Float) {
+			sqlite3_result_double(pCtx, ((Number) result).doubleValue());
+		} else if (result instanceof Number) {
+			sqlite3_result_int64(pCtx, ((Number) result).longValue());
+		} else if (result instanceof Boolean) {
+			sqlite3_result_int64(pCtx, (Boolean) result ? 1L : 0L);
+		} else if (result instanceof String) {
+			final byte[] text = ((String) result).getBytes(StandardCharsets.UTF_8);
+			sqlite3_result_text(pCtx, text, text.length, SQLITE_TRANSIENT);
+		} else if (result instanceof byte[]) {
+			final byte[] blob = (byte[]) result;
+			sqlite3_result_blob(pCtx, blob, blob.length, SQLITE_TRANSIENT);
+		} else {
+			sqlite3_result_error(pCtx, String.format("unsupported result type: %s", result.getClass().getName()), -1);
+		}
+	}
+
+	// SQL NULL in, SQL NULL out
+	static ScalarFunction ofLongUnary(LongUnaryOperator f) {
+		return new ScalarFunction() {
+			@Override
+			void apply(Pointer pCtx, Values args) {
+				if (args.isNull(0)) {
+					sqlite3_result_null(pCtx);
+				} else {
+					sqlite3_result_int64(pCtx, f.applyAsLong(args.getLong(0)));
+				}
+			}
+		};
+	}
+	static ScalarFunction ofLongBinary(LongBinaryOperator f) {
+		return new ScalarFunction() {
+			@Override
+			void apply(Pointer pCtx, Values args) {
+				if (args.isNull(0) || args.isNull(1)) {
+					sqlite3_result_null(pCtx);
+				} else {
+					sqlite3_result_int64(pCtx, f.applyAsLong(args.getLong(0), args.getLong(1)));
+				}
+			}
+		};
+	}
+	static ScalarFunction ofDoubleUnary(DoubleUnaryOperator f) {
+		return new ScalarFunction() {
+			@Override
+			void apply(Pointer pCtx, Values args) {
+				if (args.isNull(0)) {
+					sqlite3_result_null(pCtx);
+				} else {
+					sqlite3_result_double(pCtx, f.applyAsDouble(args.getDouble(0)));
+				}
+			}
+		};
+	}
+	static ScalarFunction ofDoubleBinary(DoubleBinaryOperator f) {
+		return new ScalarFunction() {
+			@Override
+			void apply(Pointer pCtx, Values args) {
+				if (args.isNull(0) || args.isNull(1)) {
+					sqlite3_result_null(pCtx);
+				} else {
+					sqlite3_result_double(pCtx, f.applyAsDouble(args.getDouble(0), args.getDouble(1)));
+				}
+			}
+		};
+	}
+	static ScalarFunction ofLong(ToLongFunction<Values> f) {
+		return new ScalarFunction() {
+			@Override
+			void apply(Pointer pCtx, Values args) {
+				sqlite3_result_int64(pCtx, f.applyAsLong(args));
+			}
+		};
+	}
+	static ScalarFunction ofDouble(ToDoubleFunction<Values> f) {
+		return new ScalarFunction() {
+			@Override
+			void apply(Pointer pCtx, Values args) {
+				sqlite3_result_double(pCtx, f.applyAsDouble(args));
+			}
+		};
+	}
+	static ScalarFunction of(Function<Values, ?> f) {
+		return new ScalarFunction() {
+			@Override
+			void apply(Pointer pCtx, Values args) {
+				result(pCtx, f.apply(args));
+			}
+		};
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.sqlite.SQLite.UTF_8;
+
+/**
+ * Per-connection bump allocator for short-lived native memory (SQL text, out-parameters).
+ * Everything allocated is released at once by {@link #reset()},
+ * and the underlying block is freed by {@link #close()} instead of waiting for the GC.
+ * Not thread-safe: callers must hold the arena monitor from the first allocation up to the reset.
+ */
+final class ScratchArena implements AutoCloseable {
+	private static final int ALIGNMENT = 8;
+	// block bigger than this are not kept between two resets
+	private static final long MAX_BLOCK_SIZE = 1 << 20;
+
+	private Memory block;
+	private long offset;
+	// allocations which did not fit in the current block
+	private List<Memory> overflow;
+	// biggest amount of memory needed between two resets
+	private long highWaterMark;
+
+	ScratchArena(long size) {
+		block = new Memory(size);
+	}
+
+	/**
+	 * @param size in bytes
+	 * @return uninitialized memory valid until next reset.
+	 */
+	Pointer allocate(long size) {
+		checkOpen();
+		final long aligned = (size + ALIGNMENT - 1) & -ALIGNMENT;
+		if (offset + aligned <= block.size()) {
+			final Pointer p = block.share(offset, size);
+			offset += aligned;
+			return p;
+		}
+		offset += aligned;
+		final Memory m = new Memory(size);
+		if (overflow == null) {
+			overflow = new ArrayList<>(2);
+		}
+		overflow.add(m);
+		return m;
+	}
+
+	/**
+	 * @return memory for one pointer, initialized to NULL, valid until next reset.
+	 */
+	Pointer allocatePointer() {
+		final Pointer p = allocate(Native.POINTER_SIZE);
+		p.setPointer(0L, null);
+		return p;
+	}
+
+	/**
+	 * @return memory for one int, initialized to 0, valid until next reset.
+	 */
+	Pointer allocateInt() {
+		final Pointer p = allocate(4);
+		p.setInt(0L, 0);
+		return p;
+	}
+
+	/**
+	 * @param s not null
+	 * @return nul-terminated UTF-8 copy of <code>s</code> valid until next reset.
+	 */
+	NativeString string(String s) {
+		final byte[] data = s.getBytes(UTF_8);
+		final Pointer p = allocate(data.length + 1L);
+		p.write(0L, data, 0, data.length);
+		p.setByte(data.length, (byte) 0);
+		return new NativeString(p, data.length);
+	}
+
+	/**
+	 * Release all memory allocated since the previous reset.
+	 */
+	void reset() {
+		if (offset > highWaterMark) {
+			highWaterMark = offset;
+		}
+		offset = 0;
+		if (overflow != null) {
+			for (Memory m : overflow) {
+				m.close();
+			}
+			overflow = null;
+			// grow the block so that next allocations fit
+			if (block != null && highWaterMark > block.size() && highWaterMark <= MAX_BLOCK_SIZE) {
+				block.close();
+				block = new Memory(Long.highestOneBit(highWaterMark - 1) << 1);
+			}
+		}
+	}
+
+	/**
+	 * @return size of the reusable block in bytes
+	 */
+	long capacity() {
+		return block == null ? 0 : block.size();
+	}
+
+	@Override
+	public void close() {
+		if (block == null) {
+			return;
+		}
+		reset();
+		block.close();
+		block = null;
+	}
+
+	private void checkOpen() {
+		if (block == null) {
+			throw new IllegalStateException("arena closed");
+		}
+	}
+
+	static final class NativeString {
+		final Pointer pointer;
+		// number of bytes (not including the nul-terminator)
+		final int length;
+
+		private NativeString(Pointer pointer, int length) {
+			this.pointer = pointer;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import java.util.Arrays;
+
+/**
+ * Java objects referenced from native memory by an <code>int</code> index
+ * (no map keyed by pointer, freed slots are reused).
+ * Not thread-safe: only used by callbacks of one connection.
+ */
+final class SlotTable<T> {
+	private Object[] objects = new Object[16];
+	private int[] free = new int[16];
+	private int freeCount;
+	private int slotCount;
+
+	/**
+	 * @return slot index (>= 0)
+	 */
+	int add(T o) {
+		final int slot;
+		if (freeCount > 0) {
+			slot = free[--freeCount];
+		} else {
+			if (slotCount == objects.length) {
+				objects = Arrays.copyOf(objects, slotCount * 2);
+				free = Arrays.copyOf(free, slotCount * 2);
+			}
+			slot = slotCount++;
+		}
+		objects[slot] = o;
+		return slot;
+	}
+
+	@SuppressWarnings("unchecked")
+	T get(int slot) {
+		return (T) objects[slot];
+	}
+
+	T remove(int slot) {
+		final T o = get(slot);
+		objects[slot] = null;
+		free[freeCount++] = slot;
+		return o;
+	}
+
+	int size() {
+		return slotCount - freeCount;
+	}
+}
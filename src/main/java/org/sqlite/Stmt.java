@@ -10,9 +10,11 @@ package org.sqlite;
 
 import com.sun.jna.Pointer;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
@@ -25,6 +27,8 @@ public class Stmt implements AutoCloseable, Row {
 	// Whole SQL (including tail)...
 	final String sql;
 	private SQLite3Stmt pStmt;
+	// pStmt address (see SQLite.RAW_HANDLES)
+	private long hStmt;
 	private final String tail;
 	// cached parameter count
 	private int paramCount = -1;
@@ -34,13 +38,26 @@ public class Stmt implements AutoCloseable, Row {
 	private int columnCount = -1;
 	private String[] columnNames;
 	private int[] columnAffinities;
+	// cached column index by name (lower case names and looked up names, see getColumnIndex)
+	private Map<String, Integer> columnIndexByName;
+	// SQLITE_STMTSTATUS_REPREPARE when the column metadata were last checked
+	private int reprepareCount;
+	// true when the column metadata have been checked since the first step after reset
+	private boolean columnsChecked;
+	// true when the statement has been stepped since the last reset
+	private boolean stepped;
 	private boolean cacheable;
+	// memory used when released to the cache (see StmtCache)
+	int memUsed;
+	// SQLITE_STMTSTATUS_REPREPARE already counted by the cache statistics (see StmtCache)
+	int reprepares;
 
 	Stmt(Conn c, String sql, SQLite3Stmt pStmt, Pointer tail, boolean cacheable) {
 		assert c != null;
 		this.c = c;
 		this.sql = sql;
 		this.pStmt = pStmt;
+		this.hStmt = handle(pStmt);
 		this.tail = blankToNull(tail.getString(0L, UTF_8_ECONDING));
 		this.cacheable = cacheable;
 	}
@@ -87,7 +104,7 @@ public class Stmt implements AutoCloseable, Row {
 	public int close(boolean force) {
 		if (pStmt == null) return SQLITE_OK;
 		if (!force && cacheable && (tail == null || tail.isEmpty()) && !isBusy()) {
-			if (sqlite3_reset(pStmt) == SQLITE_OK &&
+			if (resetNoCheck() == SQLITE_OK &&
 					sqlite3_clear_bindings(pStmt) == SQLITE_OK &&
 					c.release(this)) {
 				return SQLITE_OK;
@@ -96,6 +113,7 @@ public class Stmt implements AutoCloseable, Row {
 		synchronized (c.lock) {
 			final int res = sqlite3_finalize(pStmt); // must be called only once
 			pStmt = null;
+			hStmt = 0L;
 			return res;
 		}
 	}
@@ -201,13 +219,12 @@ public class Stmt implements AutoCloseable, Row {
 	 * @return true until finished.
 	 */
 	public boolean step(int timeout) throws SQLiteException {
-		c.setQueryTimeout(timeout);
-		final int res = blockingStep(c);
+		final int res = timedStep(timeout);
 		if (res == SQLITE_ROW) {
 			return true;
 		}
 		// Release implicit lock as soon as possible
-		sqlite3_reset(pStmt); // ok if pStmt is null
+		resetNoCheck();
 		if (res == SQLITE_DONE) {
 			return false;
 		}
@@ -218,20 +235,18 @@ public class Stmt implements AutoCloseable, Row {
 	 * @param timeout in seconds
 	 */
 	public int stepNoCheck(int timeout) throws SQLiteException {
-		c.setQueryTimeout(timeout);
-		final int res = blockingStep(c);
+		final int res = timedStep(timeout);
 		if (res == SQLITE_ROW) {
 			return res;
 		}
 		// Release implicit lock as soon as possible
-		sqlite3_reset(pStmt); // ok if pStmt is null
+		resetNoCheck();
 		return res;
 	}
 	public void exec() throws SQLiteException {
-		c.setQueryTimeout(0);
-		final int res = blockingStep(c);
+		final int res = timedStep(0);
 		// Release implicit lock as soon as possible
-		sqlite3_reset(pStmt); // ok if pStmt is null
+		resetNoCheck();
 		if (res == SQLITE_ROW) {
 			throw new StmtException(this, String.format("only non SELECT expected but got '%s'", getSql()), res);
 		}
@@ -240,11 +255,27 @@ public class Stmt implements AutoCloseable, Row {
 		}
 	}
 
+	private int timedStep(int timeout) throws SQLiteException {
+		c.setQueryTimeout(timeout);
+		int res;
+		boolean interrupted;
+		try {
+			res = blockingStep(c);
+		} finally {
+			interrupted = c.clearDeadline();
+		}
+		if (interrupted && res == SQLITE_ROW) { // the interrupt would hit the next step
+			res = ErrCodes.SQLITE_INTERRUPT;
+		}
+		return res;
+	}
+
 	// http://sqlite.org/unlock_notify.html
 	//#if mvn.project.property.sqlite.enable.unlock.notify == "true"
 	private int blockingStep(Conn unused) throws SQLiteException {
+		firstStep();
 		int rc;
-		while (ErrCodes.SQLITE_LOCKED == (rc = sqlite3_step(pStmt)) || ExtErrCodes.SQLITE_LOCKED_SHAREDCACHE == rc) { // ok if pStmt is null => SQLITE_MISUSE
+		while (ErrCodes.SQLITE_LOCKED == (rc = RAW_HANDLES ? sqlite3_step(hStmt) : sqlite3_step(pStmt)) || ExtErrCodes.SQLITE_LOCKED_SHAREDCACHE == rc) { // ok if pStmt is null => SQLITE_MISUSE
 			if (ExtErrCodes.SQLITE_LOCKED_SHAREDCACHE != rc && ExtErrCodes.SQLITE_LOCKED_SHAREDCACHE != c.getExtendedErrcode()) {
 				break;
 			}
@@ -252,18 +283,29 @@ public class Stmt implements AutoCloseable, Row {
 			if (rc != SQLITE_OK) {
 				break;
 			}
-			sqlite3_reset(pStmt); // ok if pStmt is null
+			resetNoCheck();
 		}
 		return rc;
 	}
 	//#else
 	private int blockingStep(Object unused) {
-		return sqlite3_step(pStmt); // ok if pStmt is null => SQLITE_MISUSE
+		firstStep();
+		return RAW_HANDLES ? sqlite3_step(hStmt) : sqlite3_step(pStmt); // ok if pStmt is null => SQLITE_MISUSE
 	}
 	//#endif
+	private void firstStep() {
+		if (!stepped) { // the statement may be re-prepared by this step
+			stepped = true;
+			columnsChecked = false;
+		}
+	}
+	private int resetNoCheck() {
+		stepped = false;
+		return RAW_HANDLES ? sqlite3_reset(hStmt) : sqlite3_reset(pStmt); // ok if pStmt is null
+	}
 
 	public void reset() throws StmtException {
-		check(sqlite3_reset(pStmt), "Error while resetting '%s'"); // ok if pStmt is null
+		check(resetNoCheck(), "Error while resetting '%s'"); // ok if pStmt is null
 	}
 
 	public boolean isBusy() {
@@ -289,6 +331,7 @@ public class Stmt implements AutoCloseable, Row {
 
 	@Override
 	public int getColumnCount() {
+		checkReprepare();
 		if (columnCount == -1) {
 			columnCount = sqlite3_column_count(pStmt); // ok if pStmt is null
 		}
@@ -305,7 +348,7 @@ public class Stmt implements AutoCloseable, Row {
 	@Override
 	public int getColumnType(int iCol) throws StmtException {
 		checkColumnIndex(iCol);
-		return sqlite3_column_type(pStmt, iCol); // ok if pStmt is null
+		return RAW_HANDLES ? sqlite3_column_type(hStmt, iCol) : sqlite3_column_type(pStmt, iCol); // ok if pStmt is null
 	}
 
 	@Override
@@ -317,6 +360,7 @@ public class Stmt implements AutoCloseable, Row {
 
 	@Override
 	public int getColumnAffinity(int iCol) throws StmtException {
+		checkReprepare();
 		checkColumnIndex(iCol);
 		if (null == columnAffinities) {
 			columnAffinities = new int[getColumnCount()];
@@ -331,6 +375,7 @@ public class Stmt implements AutoCloseable, Row {
 	@Override
 	public String getColumnName(int iCol) throws StmtException {
 		checkOpen();
+		checkReprepare();
 		checkColumnIndex(iCol);
 		if (null == columnNames) {
 			columnNames = new String[getColumnCount()];
@@ -340,6 +385,53 @@ public class Stmt implements AutoCloseable, Row {
 		columnNames[iCol] = sqlite3_column_name(pStmt, iCol); // ko if pStmt is null
 		return columnNames[iCol];
 	}
+	/**
+	 * Case-insensitive lookup (the leftmost matching column wins).
+	 * The lookup table is kept while the statement is in the cache,
+	 * until the statement is re-prepared (after a schema change).
+	 * @param name column name
+	 * @return column index (the leftmost column has an index of 0) or -1 if there is no such column.
+	 */
+	public int getColumnIndex(String name) throws StmtException {
+		checkOpen();
+		checkReprepare();
+		if (columnIndexByName == null) {
+			final int columnCount = getColumnCount();
+			columnIndexByName = new HashMap<>(columnCount * 4);
+			for (int iCol = 0; iCol < columnCount; iCol++) {
+				final String columnName = getColumnName(iCol);
+				if (columnName != null) {
+					columnIndexByName.putIfAbsent(columnName.toLowerCase(Locale.ROOT), iCol);
+				}
+			}
+		}
+		Integer index = columnIndexByName.get(name);
+		if (index == null) {
+			index = columnIndexByName.get(name.toLowerCase(Locale.ROOT));
+			if (index == null) {
+				return -1;
+			}
+			columnIndexByName.put(name, index); // next lookup with the same case is a single hash probe
+		}
+		return index;
+	}
+
+	// Column metadata may change when the statement is re-prepared (checked once per execution, after the first step).
+	private void checkReprepare() {
+		if (columnsChecked || pStmt == null) {
+			return;
+		}
+		columnsChecked = true;
+		final int n = sqlite3_stmt_status(pStmt, StmtStatus.SQLITE_STMTSTATUS_REPREPARE.value, false);
+		if (n != reprepareCount) {
+			reprepareCount = n;
+			columnCount = -1;
+			columnNames = null;
+			columnAffinities = null;
+			columnIndexByName = null;
+		}
+	}
+
 	@Override
 	public String getColumnOriginName(int iCol) throws StmtException {
 		checkOpen();
@@ -365,7 +457,7 @@ public class Stmt implements AutoCloseable, Row {
 		if (type == SQLITE_NULL) {
 			return null;
 		}
-		final Pointer p = sqlite3_column_blob(pStmt, iCol); // ok if pStmt is null
+		final Pointer p = columnBlob(iCol);
 		if (p == null) {
 			final int bytes = getColumnBytes(iCol);
 			// The return value from sqlite3_column_blob() for a zero-length BLOB is a NULL pointer.
@@ -382,23 +474,23 @@ public class Stmt implements AutoCloseable, Row {
 	@Override
 	public int getColumnBytes(int iCol) throws StmtException {
 		checkColumnIndex(iCol);
-		return sqlite3_column_bytes(pStmt, iCol); // ok if pStmt is null
+		return RAW_HANDLES ? sqlite3_column_bytes(hStmt, iCol) : sqlite3_column_bytes(pStmt, iCol); // ok if pStmt is null
 	}
 
 	@Override
 	public double getColumnDouble(int iCol) throws StmtException {
 		checkColumnIndex(iCol);
-		return sqlite3_column_double(pStmt, iCol); // ok if pStmt is null
+		return RAW_HANDLES ? sqlite3_column_double(hStmt, iCol) : sqlite3_column_double(pStmt, iCol); // ok if pStmt is null
 	}
 	@Override
 	public int getColumnInt(int iCol) throws StmtException {
 		checkColumnIndex(iCol);
-		return sqlite3_column_int(pStmt, iCol); // ok if pStmt is null
+		return RAW_HANDLES ? sqlite3_column_int(hStmt, iCol) : sqlite3_column_int(pStmt, iCol); // ok if pStmt is null
 	}
 	@Override
 	public long getColumnLong(int iCol) throws StmtException {
 		checkColumnIndex(iCol);
-		return sqlite3_column_int64(pStmt, iCol); // ok if pStmt is null
+		return RAW_HANDLES ? sqlite3_column_int64(hStmt, iCol) : sqlite3_column_int64(pStmt, iCol); // ok if pStmt is null
 	}
 	@Override
 	public String getColumnText(int iCol) throws StmtException {
@@ -406,12 +498,139 @@ public class Stmt implements AutoCloseable, Row {
 		if (type == SQLITE_NULL) {
 			return null;
 		}
-		final String text = sqlite3_column_text(pStmt, iCol);
-		if (text == null) {
+		final Pointer p = columnText(iCol);
+		if (p == null) {
+			throw new StmtException(this, String.format("sqlite3_column_text returns a NULL pointer for a %d type", type),
+					ErrCodes.WRAPPER_SPECIFIC);
+		}
+		return p.getString(0L, UTF_8_ECONDING);
+	}
+
+	/**
+	 * Zero-copy access to a BLOB value.
+	 * The returned buffer is a read-only view over the memory owned by SQLite:
+	 * it is only valid until a type conversion occurs or until {@link #step(int)}, {@link #reset()} or {@link #close()} is called.
+	 * @param iCol The leftmost column is number 0.
+	 * @return BLOB content or <code>null</code> if the value is NULL.
+	 * @see <a href="http://sqlite.org/c3ref/column_blob.html">sqlite3_column_blob</a>
+	 */
+	public ByteBuffer getColumnBlobBuffer(int iCol) throws StmtException {
+		final int type = getColumnType(iCol);
+		if (type == SQLITE_NULL) {
+			return null;
+		}
+		final Pointer p = columnBlob(iCol);
+		final int bytes = getColumnBytes(iCol);
+		if (p == null) {
+			// The return value from sqlite3_column_blob() for a zero-length BLOB is a NULL pointer.
+			if (bytes == 0) {
+				return EMPTY_BUFFER.duplicate();
+			}
+			throw new StmtException(this, String.format("sqlite3_column_blob returns a NULL pointer for a %d-length BLOB", bytes),
+					ErrCodes.WRAPPER_SPECIFIC);
+		}
+		return view(p, bytes);
+	}
+	/**
+	 * Zero-copy access to a TEXT value encoded in UTF-8 (without the zero terminator).
+	 * The returned buffer is a read-only view over the memory owned by SQLite:
+	 * it is only valid until a type conversion occurs or until {@link #step(int)}, {@link #reset()} or {@link #close()} is called.
+	 * @param iCol The leftmost column is number 0.
+	 * @return UTF-8 bytes or <code>null</code> if the value is NULL.
+	 * @see <a href="http://sqlite.org/c3ref/column_blob.html">sqlite3_column_text</a>
+	 */
+	public ByteBuffer getColumnTextBuffer(int iCol) throws StmtException {
+		final int type = getColumnType(iCol);
+		if (type == SQLITE_NULL) {
+			return null;
+		}
+		final Pointer p = columnText(iCol);
+		if (p == null) {
 			throw new StmtException(this, String.format("sqlite3_column_text returns a NULL pointer for a %d type", type),
 					ErrCodes.WRAPPER_SPECIFIC);
 		}
-		return text; // ok if pStmt is null
+		// sqlite3_column_bytes must be called after sqlite3_column_text to get the UTF-8 length.
+		return view(p, getColumnBytes(iCol));
+	}
+	private Pointer columnBlob(int iCol) {
+		if (RAW_HANDLES) {
+			final long p = sqlite3_column_blob(hStmt, iCol); // ok if pStmt is null
+			return p == 0L ? null : new Pointer(p);
+		}
+		return sqlite3_column_blob(pStmt, iCol); // ok if pStmt is null
+	}
+	private Pointer columnText(int iCol) {
+		if (RAW_HANDLES) {
+			final long p = sqlite3_column_text(hStmt, iCol); // ok if pStmt is null
+			return p == 0L ? null : new Pointer(p);
+		}
+		return sqlite3_column_text(pStmt, iCol); // ok if pStmt is null
+	}
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocateDirect(0).asReadOnlyBuffer();
+	private static ByteBuffer view(Pointer p, int bytes) {
+		if (bytes == 0) {
+			return EMPTY_BUFFER.duplicate();
+		}
+		return p.getByteBuffer(0L, bytes).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Steps over at most <code>maxRows</code> rows and copies all their columns into <code>out</code>.
+	 * @param maxRows maximum number of rows fetched
+	 * @param out reusable buffer
+	 * @return the number of rows fetched (less than <code>maxRows</code> when the statement is done)
+	 */
+	public int fetchBatch(int maxRows, ColumnBatch out) throws SQLiteException {
+		return fetchBatch(maxRows, out, false, 0);
+	}
+	/**
+	 * @param maxRows maximum number of rows fetched
+	 * @param out reusable buffer
+	 * @param fromCurrentRow <code>true</code> when the statement has already been stepped to a row which has not been read yet
+	 * @param timeout in seconds
+	 * @return the number of rows fetched (less than <code>maxRows</code> when the statement is done)
+	 */
+	public int fetchBatch(int maxRows, ColumnBatch out, boolean fromCurrentRow, int timeout) throws SQLiteException {
+		if (maxRows <= 0) {
+			throw new StmtException(this, String.format("invalid number of rows: %d", maxRows), ErrCodes.WRAPPER_SPECIFIC);
+		}
+		checkOpen();
+		final int columnCount = getColumnCount();
+		out.clear(columnCount, maxRows);
+		int row = 0;
+		if (fromCurrentRow) {
+			fetchRow(out, row++, columnCount);
+		}
+		while (row < maxRows && step(timeout)) {
+			fetchRow(out, row++, columnCount);
+		}
+		out.setRowCount(row);
+		return row;
+	}
+	private void fetchRow(ColumnBatch out, int row, int columnCount) {
+		for (int iCol = 0; iCol < columnCount; iCol++) {
+			final int type = RAW_HANDLES ? sqlite3_column_type(hStmt, iCol) : sqlite3_column_type(pStmt, iCol);
+			switch (type) {
+				case ColTypes.SQLITE_INTEGER:
+					out.setLong(row, iCol, RAW_HANDLES ? sqlite3_column_int64(hStmt, iCol) : sqlite3_column_int64(pStmt, iCol));
+					break;
+				case ColTypes.SQLITE_FLOAT:
+					out.setDouble(row, iCol, RAW_HANDLES ? sqlite3_column_double(hStmt, iCol) : sqlite3_column_double(pStmt, iCol));
+					break;
+				case ColTypes.SQLITE_TEXT:
+				case ColTypes.SQLITE_BLOB:
+					// sqlite3_column_bytes must be called after sqlite3_column_text/blob
+					final Pointer p = type == ColTypes.SQLITE_TEXT ? columnText(iCol) : columnBlob(iCol);
+					final int n = RAW_HANDLES ? sqlite3_column_bytes(hStmt, iCol) : sqlite3_column_bytes(pStmt, iCol);
+					final byte[] buf = out.reserve(row, iCol, type, n);
+					if (n > 0) {
+						p.read(0L, buf, out.offsets(iCol)[row], n);
+					}
+					break;
+				default:
+					out.setNull(row, iCol);
+			}
+		}
 	}
 
 	public void bind(Object... params) throws StmtException {
@@ -444,6 +663,8 @@ public class Stmt implements AutoCloseable, Row {
 			bindNull(i);
 		} else if (value instanceof String) {
 			bindText(i, (String) value);
+		} else if (value instanceof Utf8Text) {
+			bindText(i, (Utf8Text) value);
 		} else if (value instanceof Integer) {
 			bindInt(i, (Integer) value);
 		} else if (value instanceof Byte) {
@@ -462,6 +683,8 @@ public class Stmt implements AutoCloseable, Row {
 			bindBlob(i, (byte[]) value);
 		} else if (value instanceof ZeroBlob) {
 			bindZeroblob(i, ((ZeroBlob) value).n);
+		} else if (CArray.isArray(value)) {
+			bindArray(i, value);
 		} else {
 			throw new StmtException(this, String.format("unsupported type in bind: %s", value.getClass().getSimpleName()), ErrCodes.WRAPPER_SPECIFIC);
 		}
@@ -514,7 +737,8 @@ public class Stmt implements AutoCloseable, Row {
 			return;
 		}
 		// ok if pStmt is null => SQLITE_MISUSE
-		checkBind(sqlite3_bind_blob(pStmt, i, value, value.length, SQLITE_TRANSIENT), "sqlite3_bind_blob", i);
+		checkBind(RAW_HANDLES ? sqlite3_bind_blob(hStmt, i, value, value.length, SQLITE_TRANSIENT) :
+				sqlite3_bind_blob(pStmt, i, value, value.length, SQLITE_TRANSIENT), "sqlite3_bind_blob", i);
 	}
 	/**
 	 * @param i     The leftmost SQL parameter has an index of 1
@@ -522,7 +746,7 @@ public class Stmt implements AutoCloseable, Row {
 	 */
 	public void bindDouble(int i, double value) throws StmtException {
 		// ok if pStmt is null => SQLITE_MISUSE
-		checkBind(sqlite3_bind_double(pStmt, i, value), "sqlite3_bind_double", i);
+		checkBind(RAW_HANDLES ? sqlite3_bind_double(hStmt, i, value) : sqlite3_bind_double(pStmt, i, value), "sqlite3_bind_double", i);
 	}
 	/**
 	 * @param i     The leftmost SQL parameter has an index of 1
@@ -530,7 +754,7 @@ public class Stmt implements AutoCloseable, Row {
 	 */
 	public void bindInt(int i, int value) throws StmtException {
 		// ok if pStmt is null => SQLITE_MISUSE
-		checkBind(sqlite3_bind_int(pStmt, i, value), "sqlite3_bind_int", i);
+		checkBind(RAW_HANDLES ? sqlite3_bind_int(hStmt, i, value) : sqlite3_bind_int(pStmt, i, value), "sqlite3_bind_int", i);
 	}
 	/**
 	 * @param i     The leftmost SQL parameter has an index of 1
@@ -538,14 +762,14 @@ public class Stmt implements AutoCloseable, Row {
 	 */
 	public void bindLong(int i, long value) throws StmtException {
 		// ok if pStmt is null => SQLITE_MISUSE
-		checkBind(sqlite3_bind_int64(pStmt, i, value), "sqlite3_bind_int64", i);
+		checkBind(RAW_HANDLES ? sqlite3_bind_int64(hStmt, i, value) : sqlite3_bind_int64(pStmt, i, value), "sqlite3_bind_int64", i);
 	}
 	/**
 	 * @param i The leftmost SQL parameter has an index of 1
 	 */
 	public void bindNull(int i) throws StmtException {
 		// ok if pStmt is null => SQLITE_MISUSE
-		checkBind(sqlite3_bind_null(pStmt, i), "sqlite3_bind_null", i);
+		checkBind(RAW_HANDLES ? sqlite3_bind_null(hStmt, i) : sqlite3_bind_null(pStmt, i), "sqlite3_bind_null", i);
 	}
 	/**
 	 * @param i     The leftmost SQL parameter has an index of 1
@@ -557,7 +781,38 @@ public class Stmt implements AutoCloseable, Row {
 			return;
 		}
 		// ok if pStmt is null => SQLITE_MISUSE
-		checkBind(sqlite3_bind_text(pStmt, i, value, -1, SQLITE_TRANSIENT), "sqlite3_bind_text", i);
+		checkBind(RAW_HANDLES ? sqlite3_bind_text(hStmt, i, value, -1, SQLITE_TRANSIENT) :
+				sqlite3_bind_text(pStmt, i, value, -1, SQLITE_TRANSIENT), "sqlite3_bind_text", i);
+	}
+	/**
+	 * @param i     The leftmost SQL parameter has an index of 1
+	 * @param value SQL parameter value encoded in UTF-8
+	 * @param len   number of bytes in value
+	 */
+	public void bindText(int i, byte[] value, int len) throws StmtException {
+		if (value == null) {
+			bindNull(i);
+			return;
+		}
+		if (len < 0 || len > value.length) {
+			throw new StmtException(this, String.format("invalid length %d for param %d of '%s'", len, i, getSql()), ErrCodes.SQLITE_RANGE);
+		}
+		// ok if pStmt is null => SQLITE_MISUSE
+		checkBind(RAW_HANDLES ? sqlite3_bind_text(hStmt, i, value, len, SQLITE_TRANSIENT) :
+				sqlite3_bind_text(pStmt, i, value, len, SQLITE_TRANSIENT), "sqlite3_bind_text", i);
+	}
+	/**
+	 * @param i     The leftmost SQL parameter has an index of 1
+	 * @param value SQL parameter value
+	 */
+	public void bindText(int i, Utf8Text value) throws StmtException {
+		if (value == null) {
+			bindNull(i);
+			return;
+		}
+		// ok if pStmt is null => SQLITE_MISUSE
+		checkBind(RAW_HANDLES ? sqlite3_bind_text(hStmt, i, value.bytes, value.length, SQLITE_TRANSIENT) :
+				sqlite3_bind_text(pStmt, i, value.bytes, value.length, SQLITE_TRANSIENT), "sqlite3_bind_text", i);
 	}
 	/**
 	 * @param i The leftmost SQL parameter has an index of 1
@@ -567,6 +822,32 @@ public class Stmt implements AutoCloseable, Row {
 		// ok if pStmt is null => SQLITE_MISUSE
 		checkBind(sqlite3_bind_zeroblob(pStmt, i, n), "sqlite3_bind_zeroblob", i);
 	}
+	/**
+	 * Bind an array to be used with the <code>carray</code> table-valued function:
+	 * <code>WHERE id IN carray(?)</code> (one statement whatever the number of values).
+	 * An empty array is bound as NULL (no row).
+	 * @param i     The leftmost SQL parameter has an index of 1
+	 * @param array <code>long[]</code>, <code>double[]</code> or <code>String[]</code> (not copied when
+	 *              the carray extension is not built in the library: it must not be modified while bound)
+	 * @throws StmtException if <code>carray</code> resolves to another module than the Java one
+	 *                       (for example a carray extension loaded without <code>sqlite3_carray_bind</code>)
+	 * @see <a href="http://sqlite.org/carray.html">carray</a>
+	 */
+	public void bindArray(int i, Object array) throws StmtException {
+		if (array == null) {
+			bindNull(i);
+			return;
+		} else if (!CArray.isArray(array)) {
+			throw new StmtException(this, String.format("unsupported array type: %s", array.getClass().getSimpleName()), ErrCodes.WRAPPER_SPECIFIC);
+		} else if (CArray.length(array) == 0) {
+			bindNull(i);
+			return;
+		} else if (sqlite3_carray_bind == null && !c.isJavaCArray()) { // would silently match no row
+			throw new StmtException(this, "carray is not the Java module (extension loaded without sqlite3_carray_bind?): arrays cannot be bound", ErrCodes.WRAPPER_SPECIFIC);
+		}
+		// ok if pStmt is null => SQLITE_MISUSE
+		checkBind(c.carray().bind(pStmt, i, array), "sqlite3_bind_pointer", i);
+	}
 
 	private static final boolean[] UNKNOWN = new boolean[3];
 	public boolean[] getMetadata(int iCol) throws StmtException, ConnException {
@@ -0,0 +1,246 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepared statements cache of a connection.
+ * <p>
+ * Several idle handles can be kept for the same SQL text (so that concurrent uses do not re-prepare).
+ * The least recently used handles are finalized when there are more than {@link #getMaxSize()} handles
+ * or when their memory (as reported by {@link StmtStatus#SQLITE_STMTSTATUS_MEMUSED}) exceeds {@link #getMaxMemory()} bytes.
+ * @see Conn#getStmtCache()
+ */
+public final class StmtCache {
+	// idle handles by SQL, in access order
+	private final Map<String, ArrayDeque<Stmt>> stmts = new LinkedHashMap<>(16, 0.75f, true);
+	private int maxSize = 1000;
+	private long maxMemory = 4L << 20;
+	private int maxPerSql = 4;
+	private int size;
+	private long memory;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long reprepares;
+
+	StmtCache() {
+	}
+
+	// To be called in Conn.prepare
+	Stmt find(String sql) {
+		synchronized (this) {
+			if (maxSize <= 0) {
+				return null;
+			}
+			final ArrayDeque<Stmt> idle = stmts.get(sql);
+			if (idle == null) {
+				misses++;
+				return null;
+			}
+			final Stmt stmt = idle.pollLast();
+			if (idle.isEmpty()) {
+				stmts.remove(sql);
+			}
+			size--;
+			memory -= stmt.memUsed;
+			hits++;
+			return stmt;
+		}
+	}
+
+	// To be called in Stmt.close
+	boolean release(Stmt stmt) {
+		final List<Stmt> evicted;
+		synchronized (this) {
+			if (maxSize <= 0) {
+				return false;
+			}
+			final int memUsed;
+			try {
+				memUsed = stmt.status(StmtStatus.SQLITE_STMTSTATUS_MEMUSED, false);
+				// not reset: Stmt compares it to detect a re-prepare
+				final int n = stmt.status(StmtStatus.SQLITE_STMTSTATUS_REPREPARE, false);
+				reprepares += n - stmt.reprepares;
+				stmt.reprepares = n;
+			} catch (StmtException e) {
+				return false;
+			}
+			if (maxMemory > 0 && memUsed > maxMemory) {
+				return false;
+			}
+			ArrayDeque<Stmt> idle = stmts.get(stmt.sql);
+			if (idle == null) {
+				idle = new ArrayDeque<>(2);
+				stmts.put(stmt.sql, idle);
+			} else if (idle.size() >= maxPerSql) {
+				return false;
+			}
+			stmt.memUsed = memUsed;
+			idle.addLast(stmt);
+			size++;
+			memory += memUsed;
+			evicted = evict();
+		}
+		// finalized outside of the cache monitor (Conn.close holds Conn.lock while flushing)
+		for (Stmt s : evicted) {
+			s.close(true);
+		}
+		return true;
+	}
+
+	private List<Stmt> evict() {
+		List<Stmt> evicted = Collections.emptyList();
+		final Iterator<ArrayDeque<Stmt>> it = stmts.values().iterator();
+		while ((size > maxSize || (maxMemory > 0 && memory > maxMemory)) && it.hasNext()) {
+			final ArrayDeque<Stmt> idle = it.next();
+			while (!idle.isEmpty() && (size > maxSize || (maxMemory > 0 && memory > maxMemory))) {
+				final Stmt stmt = idle.pollFirst();
+				size--;
+				memory -= stmt.memUsed;
+				evictions++;
+				if (evicted.isEmpty()) {
+					evicted = new ArrayList<>(2);
+				}
+				evicted.add(stmt);
+			}
+			if (idle.isEmpty()) {
+				it.remove();
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Finalize and free the cached prepared statements
+	 * To be called in Conn.close
+	 */
+	void flush() {
+		final List<Stmt> evicted = new ArrayList<>();
+		synchronized (this) {
+			for (ArrayDeque<Stmt> idle : stmts.values()) {
+				evicted.addAll(idle);
+			}
+			stmts.clear();
+			size = 0;
+			memory = 0;
+		}
+		for (Stmt s : evicted) {
+			s.close(true);
+		}
+	}
+
+	/**
+	 * @return the number of idle prepared statements
+	 */
+	public synchronized int size() {
+		return size;
+	}
+	/**
+	 * @return the memory used by idle prepared statements (in bytes)
+	 */
+	public synchronized long memoryUsed() {
+		return memory;
+	}
+
+	/**
+	 * Cache is turned off when max size is 0
+	 * @return the maximum number of idle prepared statements
+	 */
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+	/**
+	 * Cache is turned off (and flushed) when size &lt;= 0
+	 * @param maxSize the maximum number of idle prepared statements
+	 */
+	public void setMaxSize(int maxSize) {
+		final List<Stmt> evicted;
+		synchronized (this) {
+			this.maxSize = maxSize;
+			evicted = evict();
+		}
+		for (Stmt s : evicted) {
+			s.close(true);
+		}
+	}
+	/**
+	 * @return the maximum memory used by idle prepared statements (in bytes), 0 for no limit.
+	 */
+	public synchronized long getMaxMemory() {
+		return maxMemory;
+	}
+	/**
+	 * @param maxMemory the maximum memory used by idle prepared statements (in bytes), 0 for no limit.
+	 */
+	public void setMaxMemory(long maxMemory) {
+		final List<Stmt> evicted;
+		synchronized (this) {
+			this.maxMemory = maxMemory;
+			evicted = evict();
+		}
+		for (Stmt s : evicted) {
+			s.close(true);
+		}
+	}
+	/**
+	 * @return the maximum number of idle handles for the same SQL text.
+	 */
+	public synchronized int getMaxPerSql() {
+		return maxPerSql;
+	}
+	public synchronized void setMaxPerSql(int maxPerSql) {
+		this.maxPerSql = maxPerSql;
+	}
+
+	/**
+	 * @return number of prepare calls served by the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+	/**
+	 * @return number of cacheable prepare calls not served by the cache
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+	/**
+	 * @return number of idle statements finalized to respect size or memory limits
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+	/**
+	 * @return number of automatic re-prepares (after schema changes) observed on statements returned to the cache
+	 */
+	public synchronized long getReprepares() {
+		return reprepares;
+	}
+	/**
+	 * Reset hit/miss/eviction/reprepare counters.
+	 */
+	public synchronized void resetStats() {
+		hits = misses = evictions = reprepares = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("StmtCache{size=%d, memory=%d, hits=%d, misses=%d, evictions=%d, reprepares=%d}",
+				size, memory, hits, misses, evictions, reprepares);
+	}
+}
@@ -13,7 +13,10 @@ import org.sqlite.SQLite.ProgressCallback;
 /**
  * Query Progress Callback.
  * @see <a href="http://sqlite.org/c3ref/progress_handler.html">sqlite3_progress_handler</a>
+ * @deprecated query timeout is enforced by a watchdog thread calling <code>sqlite3_interrupt</code>
+ * (see {@link Conn#setQueryTimeout(int)}).
  */
+@Deprecated
 public class TimeoutProgressCallback implements ProgressCallback {
 	private long expiration;
 
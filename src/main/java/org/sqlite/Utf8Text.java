@@ -0,0 +1,137 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.sqlite.SQLite.UTF_8;
+
+/**
+ * Text value already encoded in UTF-8.
+ * Binding it skips the per-call String encoding and the strlen done by SQLite.
+ * @see Stmt#bindText(int, Utf8Text)
+ * @see Stmt#bindByIndex(int, Object)
+ */
+public final class Utf8Text implements CharSequence {
+	final byte[] bytes;
+	// number of bytes used (no zero terminator)
+	final int length;
+	private String text;
+
+	/**
+	 * @param text content (not null)
+	 */
+	public Utf8Text(String text) {
+		this.bytes = text.getBytes(UTF_8);
+		this.length = bytes.length;
+		this.text = text;
+	}
+	/**
+	 * @param bytes  UTF-8 encoded content (not copied, must not be modified)
+	 * @param length number of bytes used
+	 */
+	public Utf8Text(byte[] bytes, int length) {
+		if (length < 0 || length > bytes.length) {
+			throw new IllegalArgumentException(String.format("invalid length: %d", length));
+		}
+		this.bytes = bytes;
+		this.length = length;
+	}
+
+	/**
+	 * @return the number of UTF-8 bytes.
+	 */
+	public int byteLength() {
+		return length;
+	}
+
+	@Override
+	public int length() {
+		return toString().length();
+	}
+	@Override
+	public char charAt(int index) {
+		return toString().charAt(index);
+	}
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return toString().subSequence(start, end);
+	}
+	@Override
+	public String toString() {
+		if (text == null) {
+			text = new String(bytes, 0, length, UTF_8);
+		}
+		return text;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof Utf8Text)) return false;
+		final Utf8Text that = (Utf8Text) o;
+		if (length != that.length) return false;
+		for (int i = 0; i < length; i++) {
+			if (bytes[i] != that.bytes[i]) return false;
+		}
+		return true;
+	}
+	@Override
+	public int hashCode() {
+		int h = 1;
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + bytes[i];
+		}
+		return h;
+	}
+
+	/**
+	 * Bounded LRU cache of encoded values for frequently bound strings (ids, status codes, ...).
+	 * Not thread-safe.
+	 */
+	public static class Cache {
+		private final Map<String, Utf8Text> values;
+
+		/**
+		 * @param maxSize maximum number of encoded values kept
+		 */
+		public Cache(final int maxSize) {
+			values = new LinkedHashMap<String, Utf8Text>(Math.min(maxSize, 16), 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Utf8Text> eldest) {
+					return size() > maxSize;
+				}
+			};
+		}
+
+		/**
+		 * @param text content
+		 * @return encoded value or <code>null</code> if text is null
+		 */
+		public Utf8Text get(String text) {
+			if (text == null) {
+				return null;
+			}
+			Utf8Text value = values.get(text);
+			if (value == null) {
+				value = new Utf8Text(text);
+				values.put(text, value);
+			}
+			return value;
+		}
+
+		public int size() {
+			return values.size();
+		}
+		public void clear() {
+			values.clear();
+		}
+	}
+}
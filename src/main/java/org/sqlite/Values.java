@@ -0,0 +1,190 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.sqlite.SQLite.RAW_HANDLES;
+import static org.sqlite.SQLite.sqlite3_value_blob;
+import static org.sqlite.SQLite.sqlite3_value_bytes;
+import static org.sqlite.SQLite.sqlite3_value_double;
+import static org.sqlite.SQLite.sqlite3_value_int;
+import static org.sqlite.SQLite.sqlite3_value_int64;
+import static org.sqlite.SQLite.sqlite3_value_numeric_type;
+import static org.sqlite.SQLite.sqlite3_value_pointer;
+import static org.sqlite.SQLite.sqlite3_value_text;
+import static org.sqlite.SQLite.sqlite3_value_type;
+
+/**
+ * Reusable view over the arguments of a user defined function.
+ * Accessors read the <code>sqlite3_value*</code> directly (nothing is copied up front):
+ * a view (and the buffers it returns) is only valid during the call it is given to and must not escape it.
+ * @see <a href="http://sqlite.org/c3ref/value.html">sqlite3_value</a>
+ */
+public final class Values {
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocateDirect(0).asReadOnlyBuffer();
+
+	// sqlite3_value**
+	private final Pointer argv = new Pointer(0L);
+	// current sqlite3_value*
+	private final Pointer value = new Pointer(0L);
+	// blob or text content
+	private final Pointer data = new Pointer(0L);
+	private long hValue;
+	private int count;
+	// true while a function is using this view (reentrant calls get their own view)
+	boolean inUse;
+
+	Values() {
+	}
+
+	Values reset(int nArg, Pointer args) {
+		Pointer.nativeValue(argv, Pointer.nativeValue(args));
+		count = nArg;
+		return this;
+	}
+
+	private Pointer value(int i) {
+		if (i < 0 || i >= count) {
+			throw new IndexOutOfBoundsException(String.format("argument index %d out of range [0,%d[", i, count));
+		}
+		hValue = Native.POINTER_SIZE == 8 ? argv.getLong(i * 8L) : argv.getInt(i * 4L) & 0xFFFFFFFFL;
+		Pointer.nativeValue(value, hValue);
+		return value;
+	}
+
+	/**
+	 * @return arg count
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @param i 0...
+	 * @return {@link ColTypes}.*
+	 * @see <a href="http://sqlite.org/c3ref/value_blob.html">sqlite3_value_type</a>
+	 */
+	public int getType(int i) {
+		return sqlite3_value_type(value(i));
+	}
+	/**
+	 * @param i 0...
+	 * @return {@link ColTypes}.*
+	 * @see <a href="http://sqlite.org/c3ref/value_blob.html">sqlite3_value_numeric_type</a>
+	 */
+	public int getNumericType(int i) {
+		return sqlite3_value_numeric_type(value(i));
+	}
+	/**
+	 * @param i 0...
+	 */
+	public boolean isNull(int i) {
+		return getType(i) == ColTypes.SQLITE_NULL;
+	}
+	/**
+	 * @param i 0...
+	 * @see <a href="http://sqlite.org/c3ref/value_blob.html">sqlite3_value_int</a>
+	 */
+	public int getInt(int i) {
+		return sqlite3_value_int(value(i));
+	}
+	/**
+	 * @param i 0...
+	 * @see <a href="http://sqlite.org/c3ref/value_blob.html">sqlite3_value_int64</a>
+	 */
+	public long getLong(int i) {
+		return sqlite3_value_int64(value(i));
+	}
+	/**
+	 * @param i 0...
+	 * @see <a href="http://sqlite.org/c3ref/value_blob.html">sqlite3_value_double</a>
+	 */
+	public double getDouble(int i) {
+		return sqlite3_value_double(value(i));
+	}
+	/**
+	 * @param i 0...
+	 * @see <a href="http://sqlite.org/c3ref/value_blob.html">sqlite3_value_text</a>
+	 */
+	public String getText(int i) {
+		return sqlite3_value_text(value(i));
+	}
+	/**
+	 * Zero-copy access to a TEXT argument encoded in UTF-8 (without the zero terminator).
+	 * @param i 0...
+	 * @return read-only view, only valid during the current call, or <code>null</code> if the value is NULL.
+	 * @see <a href="http://sqlite.org/c3ref/value_blob.html">sqlite3_value_text</a>
+	 */
+	public ByteBuffer getTextBuffer(int i) {
+		final Pointer v = value(i);
+		if (sqlite3_value_type(v) == ColTypes.SQLITE_NULL) {
+			return null;
+		}
+		if (!RAW_HANDLES) { // no address without raw handles (a copy is made)
+			return ByteBuffer.wrap(sqlite3_value_text(v).getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+		}
+		// sqlite3_value_bytes must be called after sqlite3_value_text
+		final long p = sqlite3_value_text(hValue);
+		return view(p, sqlite3_value_bytes(hValue));
+	}
+	/**
+	 * Zero-copy access to a BLOB argument.
+	 * @param i 0...
+	 * @return read-only view, only valid during the current call, or <code>null</code> if the value is NULL.
+	 * @see <a href="http://sqlite.org/c3ref/value_blob.html">sqlite3_value_blob</a>
+	 */
+	public ByteBuffer getBlobBuffer(int i) {
+		final Pointer v = value(i);
+		if (sqlite3_value_type(v) == ColTypes.SQLITE_NULL) {
+			return null;
+		}
+		if (!RAW_HANDLES) {
+			final Pointer p = sqlite3_value_blob(v);
+			return view(p == null ? 0L : Pointer.nativeValue(p), sqlite3_value_bytes(v));
+		}
+		final long p = sqlite3_value_blob(hValue);
+		return view(p, sqlite3_value_bytes(hValue));
+	}
+	/**
+	 * @param i 0...
+	 * @return a copy
+	 * @see <a href="http://sqlite.org/c3ref/value_blob.html">sqlite3_value_blob</a>
+	 */
+	public byte[] getBlob(int i) {
+		final ByteBuffer buffer = getBlobBuffer(i);
+		if (buffer == null) {
+			return null;
+		}
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * @param type pointer type (native string)
+	 * @return <code>null</code> if the argument has not been bound with the same pointer type
+	 * @see <a href="http://sqlite.org/bindptr.html">Pointer Passing Interfaces</a>
+	 */
+	Pointer getPointer(int i, Pointer type) {
+		return sqlite3_value_pointer(value(i), type);
+	}
+
+	private ByteBuffer view(long p, int bytes) {
+		if (bytes == 0 || p == 0L) {
+			return EMPTY_BUFFER.duplicate();
+		}
+		Pointer.nativeValue(data, p);
+		return data.getByteBuffer(0L, bytes).asReadOnlyBuffer();
+	}
+}
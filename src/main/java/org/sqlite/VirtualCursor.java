@@ -0,0 +1,48 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+/**
+ * Cursor over a {@link VirtualTable}.
+ * @see <a href="http://sqlite.org/c3ref/vtab_cursor.html">sqlite3_vtab_cursor</a>
+ */
+public interface VirtualCursor {
+	/**
+	 * Start a search (the cursor is positioned on the first row).
+	 * @param idxNum plan chosen by {@link VirtualTable#bestIndex(IndexInfo)}
+	 * @param idxStr plan chosen by {@link VirtualTable#bestIndex(IndexInfo)}
+	 * @param args values of the constraints used by the plan (in <code>argvIndex</code> order), only valid during the call
+	 * @see <a href="http://sqlite.org/vtab.html#the_xfilter_method">xFilter</a>
+	 */
+	void filter(int idxNum, String idxStr, Values args);
+	/**
+	 * @see <a href="http://sqlite.org/vtab.html#the_xnext_method">xNext</a>
+	 */
+	void next();
+	/**
+	 * @return <code>true</code> when the cursor is past the last row
+	 * @see <a href="http://sqlite.org/vtab.html#the_xeof_method">xEof</a>
+	 */
+	boolean eof();
+	/**
+	 * @param result where the value of the column is set (only valid during the call)
+	 * @param i column index (0...)
+	 * @see <a href="http://sqlite.org/vtab.html#the_xcolumn_method">xColumn</a>
+	 */
+	void column(Result result, int i);
+	/**
+	 * @see <a href="http://sqlite.org/vtab.html#the_xrowid_method">xRowid</a>
+	 */
+	long rowid();
+	/**
+	 * @see <a href="http://sqlite.org/vtab.html#the_xclose_method">xClose</a>
+	 */
+	default void close() {
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+/**
+ * Java virtual table (read-only).
+ * @see VirtualTableModule
+ * @see <a href="http://sqlite.org/c3ref/vtab.html">sqlite3_vtab</a>
+ */
+public interface VirtualTable {
+	/**
+	 * @return the <code>CREATE TABLE x(...)</code> statement declaring the columns
+	 * (hidden columns can be used as table-valued function parameters).
+	 * @see <a href="http://sqlite.org/c3ref/declare_vtab.html">sqlite3_declare_vtab</a>
+	 */
+	String getDeclaration();
+	/**
+	 * Choose a plan: constraints (equality, ranges...) and ORDER BY that the cursor can handle
+	 * instead of a full scan.
+	 * @param info constraints of the query and plan to fill
+	 * @see <a href="http://sqlite.org/vtab.html#the_xbestindex_method">xBestIndex</a>
+	 */
+	void bestIndex(IndexInfo info);
+	/**
+	 * @return a new cursor
+	 * @see <a href="http://sqlite.org/vtab.html#the_xopen_method">xOpen</a>
+	 */
+	VirtualCursor open();
+	/**
+	 * @see <a href="http://sqlite.org/vtab.html#the_xdisconnect_method">xDisconnect</a>
+	 */
+	default void disconnect() {
+	}
+}
@@ -0,0 +1,30 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+/**
+ * Java virtual table module: exposes a Java structure to SQL without copying it into a table.
+ * <pre>{@code
+ * conn.createModule("my_map", args -> new VirtualTable() {...});
+ * conn.exec("SELECT * FROM my_map WHERE key = 42"); // eponymous virtual table
+ * conn.exec("CREATE VIRTUAL TABLE temp.t USING my_map(arg1, arg2)");
+ * }</pre>
+ * Runtime exceptions thrown by the module, its tables and cursors are reported as SQL errors.
+ * @see Conn#createModule(String, VirtualTableModule)
+ * @see <a href="http://sqlite.org/vtab.html">The Virtual Table Mechanism Of SQLite</a>
+ */
+@FunctionalInterface
+public interface VirtualTableModule {
+	/**
+	 * @param args module arguments (empty when the module name is used directly as a table name)
+	 * @return a new table
+	 * @see <a href="http://sqlite.org/vtab.html#the_xconnect_method">xConnect</a>
+	 */
+	VirtualTable connect(String[] args);
+}
@@ -0,0 +1,233 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import org.sqlite.SQLite.SQLite3Module;
+import org.sqlite.SQLite.SQLite3VTab;
+import org.sqlite.SQLite.SQLite3VTabCursor;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.sqlite.SQLite.SQLITE_OK;
+import static org.sqlite.SQLite.sqlite3_declare_vtab;
+import static org.sqlite.SQLite.sqlite3_malloc;
+
+/**
+ * <code>sqlite3_module</code> adapter of a {@link VirtualTableModule}.
+ * <p>
+ * Native tables and cursors only store the slot of their Java counterpart,
+ * so that <code>xNext</code>, <code>xEof</code>, <code>xColumn</code> and <code>xRowid</code>
+ * do not instantiate any structure (constraint values and results go through reused {@link Values} and {@link Result} views).
+ * @see <a href="http://sqlite.org/vtab.html">The Virtual Table Mechanism Of SQLite</a>
+ */
+final class VirtualTables {
+	private static final String[] NO_ARGS = new String[0];
+
+	private final VirtualTableModule factory;
+	final SQLite3Module module = new SQLite3Module();
+	private final SlotTable<Table> tables = new SlotTable<>();
+	private final SlotTable<Cursor> cursors = new SlotTable<>();
+	private final Values values = new Values();
+	private final Result result = new Result();
+
+	private static final class Table {
+		private final VirtualTable table;
+		// native memory
+		private final SQLite3VTab vtab;
+
+		private Table(VirtualTable table, SQLite3VTab vtab) {
+			this.table = table;
+			this.vtab = vtab;
+		}
+	}
+	private static final class Cursor {
+		private final VirtualCursor cursor;
+		// native memory
+		private final SQLite3VTabCursor vtabCursor;
+
+		private Cursor(VirtualCursor cursor, SQLite3VTabCursor vtabCursor) {
+			this.cursor = cursor;
+			this.vtabCursor = vtabCursor;
+		}
+	}
+
+	VirtualTables(VirtualTableModule factory) {
+		this.factory = factory;
+		// xCreate == xConnect: the module can also be used as an eponymous virtual table
+		module.xCreate = this::connect;
+		module.xConnect = module.xCreate;
+		module.xBestIndex = this::bestIndex;
+		module.xDisconnect = this::disconnect;
+		module.xDestroy = module.xDisconnect;
+		module.xOpen = this::open;
+		module.xClose = this::close;
+		module.xFilter = this::filter;
+		module.xNext = this::next;
+		module.xEof = this::eof;
+		module.xColumn = this::column;
+		module.xRowid = this::rowid;
+		// SQLite keeps a pointer to the module: callbacks must not be read back
+		module.setAutoRead(false);
+	}
+
+	private int connect(Pointer db, Pointer pAux, int argc, Pointer argv, Pointer ppVTab, Pointer pzErr) {
+		try {
+			// argv[0]: module name, argv[1]: database name, argv[2]: table name
+			final String[] args = argc <= 3 ? NO_ARGS : argv.getStringArray(3L * Native.POINTER_SIZE, argc - 3, StandardCharsets.UTF_8.name());
+			final VirtualTable table = factory.connect(args);
+			final int rc = sqlite3_declare_vtab(db, table.getDeclaration());
+			if (rc != SQLITE_OK) {
+				table.disconnect();
+				return rc;
+			}
+			final SQLite3VTab vtab = new SQLite3VTab();
+			vtab.slot = tables.add(new Table(table, vtab));
+			vtab.write();
+			ppVTab.setPointer(0L, vtab.getPointer());
+			return SQLITE_OK;
+		} catch (RuntimeException e) {
+			pzErr.setPointer(0L, sqlite3String(message(e)));
+			return ErrCodes.SQLITE_ERROR;
+		}
+	}
+
+	private int bestIndex(Pointer pVTab, Pointer pIndexInfo) {
+		try {
+			final IndexInfo info = new IndexInfo(pIndexInfo);
+			table(pVTab).bestIndex(info);
+			return info.write();
+		} catch (RuntimeException e) {
+			return error(pVTab, e);
+		}
+	}
+
+	private int disconnect(Pointer pVTab) {
+		final Table t = tables.remove(pVTab.getInt(SQLite3VTab.SLOT_OFFSET));
+		try {
+			t.table.disconnect();
+		} catch (RuntimeException e) {
+			// pVTab is freed: no error can be reported
+			SQLite.sqlite3_log(ErrCodes.SQLITE_ERROR, message(e));
+		}
+		return SQLITE_OK;
+	}
+
+	private int open(Pointer pVTab, Pointer ppCursor) {
+		try {
+			final VirtualCursor cursor = table(pVTab).open();
+			final SQLite3VTabCursor vtabCursor = new SQLite3VTabCursor();
+			vtabCursor.slot = cursors.add(new Cursor(cursor, vtabCursor));
+			vtabCursor.write();
+			ppCursor.setPointer(0L, vtabCursor.getPointer());
+			return SQLITE_OK;
+		} catch (RuntimeException e) {
+			return error(pVTab, e);
+		}
+	}
+
+	private int close(Pointer pCursor) {
+		final Cursor c = cursors.remove(pCursor.getInt(SQLite3VTabCursor.SLOT_OFFSET));
+		try {
+			c.cursor.close();
+		} catch (RuntimeException e) {
+			SQLite.sqlite3_log(ErrCodes.SQLITE_ERROR, message(e));
+		}
+		return SQLITE_OK;
+	}
+
+	private int filter(Pointer pCursor, int idxNum, Pointer idxStr, int argc, Pointer argv) {
+		final Values v = values.inUse ? new Values() : values;
+		v.inUse = true;
+		try {
+			cursor(pCursor).filter(idxNum, idxStr == null ? null : idxStr.getString(0L, StandardCharsets.UTF_8.name()), v.reset(argc, argv));
+			return SQLITE_OK;
+		} catch (RuntimeException e) {
+			return error(pCursor.getPointer(0L), e);
+		} finally {
+			v.inUse = false;
+		}
+	}
+
+	private int next(Pointer pCursor) {
+		try {
+			cursor(pCursor).next();
+			return SQLITE_OK;
+		} catch (RuntimeException e) {
+			return error(pCursor.getPointer(0L), e);
+		}
+	}
+
+	private int eof(Pointer pCursor) {
+		try {
+			return cursor(pCursor).eof() ? 1 : 0;
+		} catch (RuntimeException e) {
+			SQLite.sqlite3_log(ErrCodes.SQLITE_ERROR, message(e));
+			return 1; // no error can be reported
+		}
+	}
+
+	private int column(Pointer pCursor, Pointer pCtx, int i) {
+		final Result r = result.inUse ? new Result() : result;
+		r.inUse = true;
+		try {
+			cursor(pCursor).column(r.reset(pCtx), i);
+			return SQLITE_OK;
+		} catch (RuntimeException e) {
+			ScalarFunction.resultError(pCtx, e);
+			return ErrCodes.SQLITE_ERROR;
+		} finally {
+			r.inUse = false;
+		}
+	}
+
+	private int rowid(Pointer pCursor, Pointer pRowid) {
+		try {
+			pRowid.setLong(0L, cursor(pCursor).rowid());
+			return SQLITE_OK;
+		} catch (RuntimeException e) {
+			return error(pCursor.getPointer(0L), e);
+		}
+	}
+
+	private VirtualTable table(Pointer pVTab) {
+		return tables.get(pVTab.getInt(SQLite3VTab.SLOT_OFFSET)).table;
+	}
+	private VirtualCursor cursor(Pointer pCursor) {
+		return cursors.get(pCursor.getInt(SQLite3VTabCursor.SLOT_OFFSET)).cursor;
+	}
+
+	// the message is freed by SQLite
+	private static int error(Pointer pVTab, RuntimeException e) {
+		final Pointer zErrMsg = sqlite3String(message(e));
+		if (zErrMsg == null) {
+			return ErrCodes.SQLITE_NOMEM;
+		}
+		pVTab.setPointer(SQLite3VTab.ERR_MSG_OFFSET, zErrMsg);
+		return ErrCodes.SQLITE_ERROR;
+	}
+
+	private static String message(Throwable e) {
+		return String.valueOf(e.getMessage() == null ? e : e.getMessage());
+	}
+
+	/**
+	 * @return a copy allocated with <code>sqlite3_malloc</code> (or <code>null</code>)
+	 */
+	static Pointer sqlite3String(String s) {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		final Pointer p = sqlite3_malloc(bytes.length + 1);
+		if (p != null) {
+			p.write(0L, bytes, 0, bytes.length);
+			p.setByte(bytes.length, (byte) 0);
+		}
+		return p;
+	}
+}
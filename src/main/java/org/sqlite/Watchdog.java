@@ -0,0 +1,81 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Single daemon thread shared by all connections which interrupts the statements whose deadline has expired.
+ * <p>
+ * A step only pays a volatile write to arm and disarm its deadline
+ * (instead of a progress handler upcall every N virtual machine instructions).
+ * Deadlines are checked every {@link #TICK} milliseconds, and only while some connection is watched.
+ * @see <a href="https://www.sqlite.org/c3ref/interrupt.html">sqlite3_interrupt</a>
+ */
+final class Watchdog implements Runnable {
+	// in millis
+	static final long TICK = 50L;
+	// connections which have armed a deadline at least once (weak keys: a forgotten connection can still be finalized)
+	private static final Map<Conn, Boolean> CONNS = new WeakHashMap<>();
+	private static Thread thread;
+
+	private final List<Conn> conns = new ArrayList<>();
+
+	private Watchdog() {
+	}
+
+	static void watch(Conn c) {
+		synchronized (CONNS) {
+			CONNS.put(c, Boolean.TRUE);
+			if (thread == null) {
+				thread = new Thread(new Watchdog(), "sqlite-watchdog");
+				thread.setDaemon(true);
+				thread.start();
+			} else {
+				CONNS.notifyAll();
+			}
+		}
+	}
+
+	static void unwatch(Conn c) {
+		synchronized (CONNS) {
+			CONNS.remove(c);
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				synchronized (CONNS) {
+					while (CONNS.isEmpty()) {
+						CONNS.wait();
+					}
+				}
+				Thread.sleep(TICK);
+				synchronized (CONNS) {
+					conns.addAll(CONNS.keySet());
+				}
+				// Conn.expire locks the connection: not while holding CONNS (Conn.closeNoCheck)
+				final long now = System.nanoTime();
+				for (Conn c : conns) {
+					c.expire(now);
+				}
+				conns.clear();
+			}
+		} catch (InterruptedException e) {
+			synchronized (CONNS) {
+				thread = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import org.sqlite.ColAffinities;
+import org.sqlite.SQLite;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Array of INTEGER, REAL or TEXT values, backed by a <code>long[]</code>, <code>double[]</code> or <code>String[]</code>,
+ * to be bound as a single parameter used with the <code>carray</code> table-valued function:
+ * <code>WHERE id IN carray(?)</code>.
+ * @see org.sqlite.Stmt#bindArray(int, Object)
+ */
+class ArrayImpl implements Array {
+	private final String baseTypeName;
+	private final int baseType;
+	private Object values;
+
+	private ArrayImpl(String baseTypeName, int baseType, Object values) {
+		this.baseTypeName = baseTypeName;
+		this.baseType = baseType;
+		this.values = values;
+	}
+
+	static ArrayImpl of(String typeName, Object[] elements) throws SQLException {
+		final Object values = toValues(typeName, elements);
+		if (values instanceof long[]) {
+			return new ArrayImpl("INTEGER", Types.BIGINT, values);
+		} else if (values instanceof double[]) {
+			return new ArrayImpl("REAL", Types.DOUBLE, values);
+		}
+		return new ArrayImpl("TEXT", Types.VARCHAR, values);
+	}
+
+	/**
+	 * @return <code>long[]</code>, <code>double[]</code> or <code>String[]</code>
+	 */
+	static Object getValues(Array x) throws SQLException {
+		if (x instanceof ArrayImpl) {
+			return ((ArrayImpl) x).checkFree();
+		}
+		final Object a = x.getArray();
+		if (a instanceof long[] || a instanceof double[] || a instanceof String[]) {
+			return a;
+		} else if (a instanceof Object[]) {
+			return toValues(x.getBaseTypeName(), (Object[]) a);
+		}
+		throw Util.error(String.format("unsupported array: %s", a == null ? null : a.getClass().getSimpleName()));
+	}
+
+	// by type affinity
+	private static Object toValues(String typeName, Object[] elements) throws SQLException {
+		switch (SQLite.getAffinity(typeName)) {
+			case ColAffinities.INTEGER:
+				final long[] longs = new long[elements.length];
+				for (int i = 0; i < elements.length; i++) {
+					longs[i] = toNumber(elements[i]).longValue();
+				}
+				return longs;
+			case ColAffinities.REAL:
+				final double[] doubles = new double[elements.length];
+				for (int i = 0; i < elements.length; i++) {
+					doubles[i] = toNumber(elements[i]).doubleValue();
+				}
+				return doubles;
+			case ColAffinities.TEXT:
+				final String[] strings = new String[elements.length];
+				for (int i = 0; i < elements.length; i++) {
+					strings[i] = elements[i] == null ? null : elements[i].toString();
+				}
+				return strings;
+			default:
+				throw Util.error(String.format("unsupported array type: '%s' (INTEGER, REAL or TEXT expected)", typeName));
+		}
+	}
+
+	private static Number toNumber(Object element) throws SQLException {
+		if (element instanceof Number) {
+			return (Number) element;
+		}
+		throw Util.error(String.format("number expected but got: '%s'", element));
+	}
+
+	@Override
+	public String getBaseTypeName() throws SQLException {
+		checkFree();
+		return baseTypeName;
+	}
+
+	@Override
+	public int getBaseType() throws SQLException {
+		checkFree();
+		return baseType;
+	}
+
+	@Override
+	public Object getArray() throws SQLException {
+		final Object a = checkFree();
+		if (a instanceof long[]) {
+			return ((long[]) a).clone();
+		} else if (a instanceof double[]) {
+			return ((double[]) a).clone();
+		}
+		return ((String[]) a).clone();
+	}
+
+	@Override
+	public Object getArray(Map<String, Class<?>> map) throws SQLException {
+		return getArray();
+	}
+
+	@Override
+	public Object getArray(long index, int count) throws SQLException {
+		final Object a = checkFree();
+		final int from = (int) index - 1; // 1-based
+		if (a instanceof long[]) {
+			return Arrays.copyOfRange((long[]) a, from, from + count);
+		} else if (a instanceof double[]) {
+			return Arrays.copyOfRange((double[]) a, from, from + count);
+		}
+		return Arrays.copyOfRange((String[]) a, from, from + count);
+	}
+
+	@Override
+	public Object getArray(long index, int count, Map<String, Class<?>> map) throws SQLException {
+		return getArray(index, count);
+	}
+
+	@Override
+	public ResultSet getResultSet() throws SQLException {
+		throw Util.unsupported("Array.getResultSet");
+	}
+
+	@Override
+	public ResultSet getResultSet(Map<String, Class<?>> map) throws SQLException {
+		throw Util.unsupported("Array.getResultSet");
+	}
+
+	@Override
+	public ResultSet getResultSet(long index, int count) throws SQLException {
+		throw Util.unsupported("Array.getResultSet");
+	}
+
+	@Override
+	public ResultSet getResultSet(long index, int count, Map<String, Class<?>> map) throws SQLException {
+		throw Util.unsupported("Array.getResultSet");
+	}
+
+	@Override
+	public void free() {
+		values = null;
+	}
+
+	private Object checkFree() throws SQLException {
+		if (values == null) {
+			throw Util.error("Array freed");
+		}
+		return values;
+	}
+}
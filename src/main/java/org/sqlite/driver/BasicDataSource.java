@@ -1,5 +1,7 @@
 package org.sqlite.driver;
 
+import org.sqlite.OpenQueryParameter;
+
 import javax.naming.Reference;
 import javax.naming.Referenceable;
 import javax.naming.StringRefAddr;
@@ -15,6 +17,7 @@ import java.util.Properties;
  */
 public class BasicDataSource extends JDBC implements DataSource, Referenceable {
 	private String filename = org.sqlite.Conn.TEMP_FILE;
+	private int maxStatements = -1;
 	private int loginTimeout;
 	private PrintWriter logWriter;
 
@@ -36,9 +39,24 @@ public class BasicDataSource extends JDBC implements DataSource, Referenceable {
 		this.filename = filename;
 	}
 
+	/**
+	 * @return the maximum number of idle prepared statements cached by each connection (-1 for the default)
+	 */
+	public int getMaxStatements() {
+		return maxStatements;
+	}
+	/**
+	 * Sets the size of the prepared statements cache of each connection. If this is changed, it will only affect future calls to getConnection.
+	 * @param maxStatements the maximum number of idle prepared statements cached by each connection, 0 to disable caching, -1 for the default.
+	 * @see org.sqlite.StmtCache#setMaxSize(int)
+	 */
+	public void setMaxStatements(int maxStatements) {
+		this.maxStatements = maxStatements;
+	}
+
 	@Override
 	public Connection getConnection() throws SQLException {
-		return connect(filename.startsWith(PREFIX) ? filename : PREFIX + filename, null);
+		return open(null);
 	}
 	@Override
 	public Connection getConnection(String username, String password) throws SQLException {
@@ -49,7 +67,18 @@ public class BasicDataSource extends JDBC implements DataSource, Referenceable {
 		if (password != null) {
 			info.put("password", password);
 		}
-		return connect(filename.startsWith(PREFIX) ? filename : PREFIX + filename, info);
+		return open(info);
+	}
+
+	// Open a new physical connection
+	Conn open(Properties info) throws SQLException {
+		if (maxStatements >= 0) {
+			if (info == null) {
+				info = new Properties();
+			}
+			info.setProperty(OpenQueryParameter.STMT_CACHE_SIZE.name, String.valueOf(maxStatements));
+		}
+		return (Conn) connect(filename.startsWith(PREFIX) ? filename : PREFIX + filename, info);
 	}
 	@Override
 	public PrintWriter getLogWriter() {
@@ -0,0 +1,111 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import org.sqlite.parser.Parser;
+import org.sqlite.parser.ast.Cmd;
+import org.sqlite.parser.ast.Expr;
+import org.sqlite.parser.ast.Insert;
+import org.sqlite.parser.ast.LiteralExpr;
+import org.sqlite.parser.ast.OneSelect;
+import org.sqlite.parser.ast.ResolveType;
+import org.sqlite.parser.ast.Select;
+import org.sqlite.parser.ast.VariableExpr;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rewriting of a single row <code>INSERT ... VALUES (?, ...)</code> into multi-row
+ * <code>INSERT ... VALUES (?, ...), (?, ...), ...</code> statements.
+ * @see <a href="https://sqlite.org/lang_insert.html">INSERT</a>
+ */
+final class BatchInsert {
+	// upper bound of rows per statement (the VDBE program size grows linearly with the number of rows)
+	static final int MAX_ROWS = 1024;
+
+	private final Insert insert;
+	private final List<Expr> row;
+
+	private BatchInsert(Insert insert, List<Expr> row) {
+		this.insert = insert;
+		this.row = row;
+	}
+
+	/**
+	 * @param sql INSERT statement
+	 * @return <code>null</code> when the statement cannot be rewritten safely:
+	 * not a plain <code>INSERT ... VALUES</code> with one row of anonymous parameters and literals
+	 * (no CTE, upsert, RETURNING or <code>OR ROLLBACK</code>/<code>OR FAIL</code>).
+	 */
+	static BatchInsert of(String sql) {
+		final Cmd cmd;
+		try {
+			cmd = Parser.parse(sql);
+		} catch (SQLException | RuntimeException e) { // syntax not supported by the parser
+			return null;
+		}
+		if (cmd == null || cmd.explain != null || !(cmd.stmt instanceof Insert)) {
+			return null;
+		}
+		final Insert insert = (Insert) cmd.stmt;
+		if (insert.with != null || insert.upsert != null || insert.select == null ||
+				insert.orConflict == ResolveType.Rollback || insert.orConflict == ResolveType.Fail) {
+			return null;
+		}
+		final Select select = insert.select;
+		if (select.with != null || select.limit != null || (select.orderBy != null && !select.orderBy.isEmpty()) ||
+				(select.body.compounds != null && !select.body.compounds.isEmpty())) {
+			return null;
+		}
+		final List<List<Expr>> values = select.body.select.values;
+		if (values == null || values.size() != 1) {
+			return null;
+		}
+		final List<Expr> row = values.get(0);
+		int n = 0;
+		for (Expr expr : row) {
+			if (expr instanceof VariableExpr) {
+				if (!((VariableExpr) expr).variable.isEmpty()) { // numbered or named parameter
+					return null;
+				}
+				n++;
+			} else if (!(expr instanceof LiteralExpr)) {
+				return null;
+			}
+		}
+		if (n == 0) {
+			return null;
+		}
+		return new BatchInsert(insert, row);
+	}
+
+	/**
+	 * @param rows number of rows
+	 * @return INSERT statement with <code>rows</code> rows of values
+	 */
+	String sql(int rows) {
+		final List<List<Expr>> values = Collections.nCopies(rows, row);
+		final Select select = Select.from(new OneSelect(values));
+		return new Insert(null, insert.orConflict, insert.tblName, insert.columns, select, null).toSql();
+	}
+
+	/**
+	 * Only power of two sizes are used so that a few statements are enough for any batch size
+	 * (and are reused from the statement cache).
+	 * @param remaining number of rows to insert
+	 * @param parameterCount number of parameters per row
+	 * @param maxVariableNumber <code>SQLITE_LIMIT_VARIABLE_NUMBER</code>
+	 * @return number of rows of the next statement
+	 */
+	static int chunkSize(int remaining, int parameterCount, int maxVariableNumber) {
+		return Integer.highestOneBit(Math.min(remaining, Math.min(MAX_ROWS, maxVariableNumber / parameterCount)));
+	}
+}
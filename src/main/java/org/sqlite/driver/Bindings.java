@@ -0,0 +1,216 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import org.sqlite.StmtException;
+import org.sqlite.Utf8Text;
+
+import java.util.Arrays;
+
+/**
+ * Parameter values of a prepared statement: the current row and the rows added to the batch.
+ * <p>
+ * Values are stored in typed growable buffers (one type tag and one <code>long</code> per parameter and row,
+ * text and blob references in a lazily allocated array) so that numbers are never boxed
+ * and each row is rebound with the matching <code>sqlite3_bind_*</code> function.
+ */
+final class Bindings {
+	private static final byte UNBOUND = 0;
+	private static final byte NULL = 1;
+	private static final byte INTEGER = 2;
+	private static final byte FLOAT = 3; // raw long bits
+	private static final byte TEXT = 4;
+	private static final byte UTF8 = 5;
+	private static final byte BLOB = 6;
+	private static final byte ZEROBLOB = 7; // length
+	private static final byte ARRAY = 8; // long[], double[] or String[]
+
+	// number of parameters
+	private final int n;
+	// current row
+	private final byte[] types;
+	private final long[] values;
+	private Object[] refs;
+	// batch (row-major)
+	private int rows;
+	private byte[] batchTypes;
+	private long[] batchValues;
+	private Object[] batchRefs;
+
+	Bindings(int n) {
+		this.n = n;
+		types = new byte[n];
+		values = new long[n];
+	}
+
+	void setNull(int i) {
+		set(i, NULL, 0L, null);
+	}
+	void setLong(int i, long value) {
+		set(i, INTEGER, value, null);
+	}
+	void setDouble(int i, double value) {
+		set(i, FLOAT, Double.doubleToRawLongBits(value), null);
+	}
+	void setText(int i, String value) {
+		if (value == null) {
+			setNull(i);
+		} else {
+			set(i, TEXT, 0L, value);
+		}
+	}
+	void setText(int i, Utf8Text value) {
+		if (value == null) {
+			setNull(i);
+		} else {
+			set(i, UTF8, 0L, value);
+		}
+	}
+	void setBlob(int i, byte[] value) {
+		if (value == null) {
+			setNull(i);
+		} else {
+			set(i, BLOB, 0L, value);
+		}
+	}
+	void setZeroBlob(int i, int length) {
+		set(i, ZEROBLOB, length, null);
+	}
+	void setArray(int i, Object value) {
+		if (value == null) {
+			setNull(i);
+		} else {
+			set(i, ARRAY, 0L, value);
+		}
+	}
+	/**
+	 * Mark the parameter as bound without recording its value (streamed blob).
+	 */
+	void markBound(int i) {
+		if (types[i - 1] == UNBOUND) {
+			types[i - 1] = NULL;
+		}
+	}
+
+	private void set(int i, byte type, long value, Object ref) {
+		types[i - 1] = type;
+		values[i - 1] = value;
+		if (ref != null) {
+			if (refs == null) {
+				refs = new Object[n];
+			}
+			refs[i - 1] = ref;
+		} else if (refs != null) {
+			refs[i - 1] = null;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> when a value has been provided for each parameter.
+	 */
+	boolean isComplete() {
+		for (byte type : types) {
+			if (type == UNBOUND) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	void clear() {
+		Arrays.fill(types, UNBOUND);
+		if (refs != null) {
+			Arrays.fill(refs, null);
+		}
+	}
+
+	/**
+	 * Append the current row to the batch.
+	 */
+	void addRow() {
+		if (n == 0) {
+			rows++;
+			return;
+		}
+		final int offset = rows * n;
+		if (batchTypes == null) {
+			batchTypes = new byte[16 * n];
+			batchValues = new long[batchTypes.length];
+		} else if (offset + n > batchTypes.length) {
+			final int capacity = Math.max(offset + n, batchTypes.length + (batchTypes.length >> 1));
+			batchTypes = Arrays.copyOf(batchTypes, capacity);
+			batchValues = Arrays.copyOf(batchValues, capacity);
+			if (batchRefs != null) {
+				batchRefs = Arrays.copyOf(batchRefs, capacity);
+			}
+		}
+		System.arraycopy(types, 0, batchTypes, offset, n);
+		System.arraycopy(values, 0, batchValues, offset, n);
+		if (refs != null) {
+			if (batchRefs == null) {
+				batchRefs = new Object[batchTypes.length];
+			}
+			System.arraycopy(refs, 0, batchRefs, offset, n);
+		}
+		rows++;
+	}
+
+	/**
+	 * @return number of rows in the batch
+	 */
+	int size() {
+		return rows;
+	}
+
+	void clearBatch() {
+		if (batchRefs != null) {
+			Arrays.fill(batchRefs, 0, rows * n, null);
+		}
+		rows = 0;
+	}
+
+	/**
+	 * Bind the parameters of the specified batch row.
+	 * @param first number of parameters before the row ones (multi-row statement)
+	 */
+	void bindRow(org.sqlite.Stmt stmt, int row, int first) throws StmtException {
+		final int offset = row * n;
+		for (int j = 0; j < n; j++) {
+			final long value = batchValues[offset + j];
+			switch (batchTypes[offset + j]) {
+				case NULL:
+					stmt.bindNull(first + j + 1);
+					break;
+				case INTEGER:
+					stmt.bindLong(first + j + 1, value);
+					break;
+				case FLOAT:
+					stmt.bindDouble(first + j + 1, Double.longBitsToDouble(value));
+					break;
+				case TEXT:
+					stmt.bindText(first + j + 1, (String) batchRefs[offset + j]);
+					break;
+				case UTF8:
+					stmt.bindText(first + j + 1, (Utf8Text) batchRefs[offset + j]);
+					break;
+				case BLOB:
+					stmt.bindBlob(first + j + 1, (byte[]) batchRefs[offset + j]);
+					break;
+				case ZEROBLOB:
+					stmt.bindZeroblob(first + j + 1, (int) value);
+					break;
+				case ARRAY:
+					stmt.bindArray(first + j + 1, batchRefs[offset + j]);
+					break;
+				default:
+					throw new AssertionError(batchTypes[offset + j]);
+			}
+		}
+	}
+}
@@ -0,0 +1,27 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import org.sqlite.ColumnBatch;
+
+import java.sql.SQLException;
+
+/**
+ * Columnar access to a ResultSet: <code>rs.unwrap(ColumnBatchReader.class)</code>.
+ */
+public interface ColumnBatchReader {
+	/**
+	 * Moves the cursor forward by at most <code>maxRows</code> rows (as many calls to <code>ResultSet.next</code> would do)
+	 * and copies their values into <code>out</code>.
+	 * @param maxRows maximum number of rows fetched
+	 * @param out reusable buffer
+	 * @return the number of rows fetched, 0 when there is no more row.
+	 */
+	int fetchBatch(int maxRows, ColumnBatch out) throws SQLException;
+}
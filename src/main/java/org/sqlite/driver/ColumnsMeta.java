@@ -0,0 +1,164 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import org.sqlite.Conn;
+import org.sqlite.ConnException;
+import org.sqlite.SQLiteException;
+import org.sqlite.Stmt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable descriptors of the result columns of a statement.
+ * <p>
+ * Descriptors are shared by all connections of the JVM: they are cached by database file,
+ * <code>schema_version</code> and SQL so that a schema change never hits a stale entry.
+ * Statements on memory or temporary databases, on connections with temp objects (which may shadow main ones)
+ * and with columns of attached tables are not cached.
+ * Only a busy statement (stepped and not reset) is looked up: it has been (re)prepared against the schema
+ * of the current read transaction, so its columns match the <code>schema_version</code> read in this transaction
+ * (whereas a statement not yet stepped may have been prepared before a schema change by another connection).
+ * Without <code>SQLITE_ENABLE_COLUMN_METADATA</code>, only column labels are available (and nothing is cached).
+ */
+final class ColumnsMeta {
+	//#if mvn.project.property.sqlite.enable.column.metadata == "true"
+	static final boolean COLUMN_METADATA = true;
+	//#else
+	static final boolean COLUMN_METADATA = false;
+	//#endif
+
+	static final class Column {
+		final String label;
+		final String name;
+		final String table;
+		final String database;
+		final String declType;
+		final int affinity;
+		// not null, primary key, autoincrement (null when sqlite3_table_column_metadata failed)
+		final boolean[] flags;
+
+		private Column(Stmt stmt, int iCol) throws SQLiteException {
+			label = stmt.getColumnName(iCol);
+			if (!COLUMN_METADATA) {
+				name = table = database = declType = null;
+				affinity = -1;
+				flags = null;
+				return;
+			}
+			name = stmt.getColumnOriginName(iCol);
+			table = stmt.getColumnTableName(iCol);
+			database = stmt.getColumnDatabaseName(iCol);
+			declType = stmt.getColumnDeclType(iCol);
+			affinity = stmt.getColumnAffinity(iCol);
+			boolean[] flags;
+			try {
+				flags = stmt.getMetadata(iCol);
+			} catch (ConnException e) { // e.g. table-valued function
+				flags = null;
+			}
+			this.flags = flags;
+		}
+	}
+
+	// the temp database is opened lazily (PRAGMA temp.schema_version would open it)
+	private static final String SCHEMA_VERSION = "SELECT (SELECT count(*) FROM pragma_database_list WHERE name = 'temp'), " +
+			"(SELECT schema_version FROM pragma_schema_version)";
+	private static final int MAX_SIZE = 1024;
+	// in access order
+	private static final Map<Key, ColumnsMeta> CACHE = new LinkedHashMap<Key, ColumnsMeta>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, ColumnsMeta> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	final Column[] columns;
+	private final boolean cacheable;
+
+	private ColumnsMeta(Stmt stmt) throws SQLiteException {
+		columns = new Column[stmt.getColumnCount()];
+		boolean cacheable = true;
+		for (int iCol = 0; iCol < columns.length; iCol++) {
+			columns[iCol] = new Column(stmt, iCol);
+			if (columns[iCol].database != null && !"main".equals(columns[iCol].database)) {
+				cacheable = false;
+			}
+		}
+		this.cacheable = cacheable;
+	}
+
+	static ColumnsMeta of(Conn conn, Stmt stmt) throws SQLiteException {
+		final String filename = conn.getFilename();
+		if (!COLUMN_METADATA || filename == null || filename.isEmpty() // memory or temporary database
+				|| !stmt.isBusy()) { // columns may be stale
+			return new ColumnsMeta(stmt);
+		}
+		final int schemaVersion;
+		try (Stmt s = conn.prepare(SCHEMA_VERSION, true)) {
+			if (!s.step(0) || s.getColumnInt(0) != 0) { // temp objects may shadow main ones
+				return new ColumnsMeta(stmt);
+			}
+			schemaVersion = s.getColumnInt(1);
+		} catch (SQLiteException e) { // e.g. busy
+			return new ColumnsMeta(stmt);
+		}
+		final Key key = new Key(filename, schemaVersion, stmt.getSql());
+		ColumnsMeta meta;
+		synchronized (CACHE) {
+			meta = CACHE.get(key);
+		}
+		if (meta == null) {
+			meta = new ColumnsMeta(stmt);
+			if (meta.cacheable) {
+				synchronized (CACHE) {
+					CACHE.put(key, meta);
+				}
+			}
+		}
+		return meta;
+	}
+
+	// for tests
+	static int size() {
+		synchronized (CACHE) {
+			return CACHE.size();
+		}
+	}
+
+	private static final class Key {
+		private final String filename;
+		private final int schemaVersion;
+		private final String sql;
+
+		private Key(String filename, int schemaVersion, String sql) {
+			this.filename = filename;
+			this.schemaVersion = schemaVersion;
+			this.sql = sql;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			final Key key = (Key) o;
+			return schemaVersion == key.schemaVersion && filename.equals(key.filename) && sql.equals(key.sql);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * filename.hashCode() + schemaVersion) + sql.hashCode();
+		}
+	}
+}
@@ -30,8 +30,10 @@ import java.sql.SQLXML;
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Struct;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.Executor;
 
 class Conn implements Connection {
@@ -44,12 +46,29 @@ class Conn implements Connection {
 	private Properties clientInfo;
 	private int savepointId;
 	private SQLWarning warnings;
-	private int transactionIsolation = TRANSACTION_SERIALIZABLE;
+	int transactionIsolation = TRANSACTION_SERIALIZABLE;
+	// true when batched single row INSERTs are executed as multi-row INSERTs
+	boolean rewriteBatchedInserts;
+	// true when query_only has been changed by setReadOnly
+	boolean queryOnlyChanged;
+	// not null for logical connections handed out by a PooledConnection
+	private final PooledConn pooled;
+	// statements still open on this logical connection (closed when it is given back to the pool)
+	private final Set<Stmt> statements;
+	// marked as closed by abort (the physical connection is closed by the executor)
+	private volatile boolean aborted;
+	// used to abort the connection when its network timeout expires
+	private Executor networkTimeoutExecutor;
 
 	Conn(org.sqlite.Conn c, String[] dateTimeConfig, SQLWarning warnings) {
+		this(c, dateTimeConfig, warnings, null);
+	}
+	Conn(org.sqlite.Conn c, String[] dateTimeConfig, SQLWarning warnings, PooledConn pooled) {
 		this.c = c;
 		this.dateTimeConfig = dateTimeConfig;
 		this.warnings = warnings;
+		this.pooled = pooled;
+		statements = pooled == null ? null : new HashSet<>();
 	}
 
 	org.sqlite.Conn getConn() throws SQLException {
@@ -58,7 +77,7 @@ class Conn implements Connection {
 	}
 
 	private void checkOpen() throws SQLException {
-		if (c == null) {
+		if (c == null || aborted) {
 			throw new SQLException("Connection closed");
 		} else {
 			c.checkOpen();
@@ -128,15 +147,46 @@ class Conn implements Connection {
 	@Override
 	public void close() throws SQLException {
 		if (c != null) {
+			if (pooled != null) {
+				// the physical connection is reset and given back to the pool
+				final org.sqlite.Conn c = this.c;
+				this.c = null;
+				if (clientInfo != null) clientInfo.clear();
+				pooled.recycle(this, c);
+				return;
+			}
 			Guard.closeAll(getGeneratedKeys, c);
 			if (clientInfo != null) clientInfo.clear();
 			c = null;
 		}
 	}
 
+	// Called by the statements created on this connection
+	void opened(Stmt stmt) {
+		if (statements != null) {
+			statements.add(stmt);
+		}
+	}
+	void closed(Stmt stmt) {
+		if (statements != null) {
+			statements.remove(stmt);
+		}
+	}
+	// Called by the pool on recycle: statements leaked by the borrower must not be usable by the next one
+	void closeStatements() throws SQLException {
+		final Stmt[] open = statements.toArray(new Stmt[0]);
+		statements.clear();
+		Guard.closeAll(open);
+	}
+
+	// Called when the physical connection is closed while this logical connection is still open
+	void invalidate() {
+		c = null;
+	}
+
 	@Override
 	public boolean isClosed() {
-		return c == null;
+		return c == null || aborted;
 	}
 
 	@Override
@@ -161,6 +211,7 @@ class Conn implements Connection {
 				throw new ConnException(c, "setReadOnly is called during a transaction", ErrCodes.WRAPPER_SPECIFIC);
 			}
 			c.setQueryOnly(null, readOnly);
+			queryOnlyChanged = true;
 		}
 	}
 
@@ -444,7 +495,7 @@ class Conn implements Connection {
 	@Override
 	public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
 		checkOpen();
-		throw Util.unsupported("Connection.createArrayOf");
+		return ArrayImpl.of(typeName, elements);
 	}
 
 	@Override
@@ -466,18 +517,56 @@ class Conn implements Connection {
 
 	@Override
 	public void abort(Executor executor) throws SQLException {
-		Util.trace("Connection.abort");
-		// TODO
+		if (executor == null) {
+			throw Util.error("null executor");
+		}
+		final org.sqlite.Conn c = this.c;
+		if (c == null || aborted) {
+			return;
+		}
+		aborted = true;
+		try {
+			c.interrupt();
+		} catch (ConnException e) { // already closed
+			Util.trace("Connection.abort");
+		}
+		executor.execute(() -> {
+			try {
+				if (pooled != null) { // the physical connection is closed, not given back to the pool
+					this.c = null;
+					if (clientInfo != null) clientInfo.clear();
+					pooled.abort(this);
+					return;
+				}
+				close();
+			} catch (SQLException e) {
+				Util.trace("Connection.abort");
+			}
+		});
+	}
+
+	// When a statement has been interrupted because of the network timeout, the connection is aborted.
+	void checkNetworkTimeout() throws SQLException {
+		final org.sqlite.Conn c = this.c;
+		if (networkTimeoutExecutor != null && c != null && c.isNetworkTimeoutExpired()) {
+			abort(networkTimeoutExecutor);
+		}
 	}
 
 	@Override
 	public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
-		throw Util.unsupported("Connection.setNetworkTimeout");
+		if (milliseconds < 0) {
+			throw Util.error("network timeout must be >= 0");
+		} else if (executor == null && milliseconds > 0) {
+			throw Util.error("null executor");
+		}
+		getConn().setNetworkTimeout(milliseconds);
+		networkTimeoutExecutor = milliseconds == 0 ? null : executor;
 	}
 
 	@Override
 	public int getNetworkTimeout() throws SQLException {
-		throw Util.unsupported("Connection.getNetworkTimeout");
+		return getConn().getNetworkTimeout();
 	}
 
 	@Override
@@ -0,0 +1,47 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import javax.sql.ConnectionPoolDataSource;
+import javax.sql.PooledConnection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * ConnectionPoolDataSource to be used by an external pool (application server).
+ * Each PooledConnection keeps its physical connection (and its prepared statements cache) open
+ * between two logical connections.
+ * @see PoolingDataSource for a built-in pool
+ */
+public class ConnPoolDataSource extends BasicDataSource implements ConnectionPoolDataSource {
+	@Override
+	public PooledConnection getPooledConnection() throws SQLException {
+		return newPooledConnection(null);
+	}
+	@Override
+	public PooledConnection getPooledConnection(String user, String password) throws SQLException {
+		final Properties info = new Properties();
+		if (user != null) {
+			info.put("user", user);
+		}
+		if (password != null) {
+			info.put("password", password);
+		}
+		return newPooledConnection(info);
+	}
+
+	private PooledConnection newPooledConnection(Properties info) throws SQLException {
+		final Conn physical = open(info);
+		try {
+			return new PooledConn(physical);
+		} catch (SQLException e) {
+			throw Guard.close(physical, e);
+		}
+	}
+}
@@ -8,13 +8,25 @@
  */
 package org.sqlite.driver;
 
+import org.sqlite.Utf8Text;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoField;
+import java.time.temporal.Temporal;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -58,10 +70,9 @@ final class DateUtil {
 	}
 
 	// 1970-01-01 00:00:00 is JD 2440587.5
-	private static long fromJulianDay(double jd) {
-		jd -= 2440587.5;
-		jd *= 86400000.0;
-		return (long) jd;
+	static long fromJulianDay(double jd) {
+		// rounded to the millisecond like SQLite (2440587.5 * 86400000 = 210866760000000)
+		return (long) Math.floor(jd * 86400000.0 + 0.5) - 210866760000000L;
 	}
 
 	// 1970-01-01 00:00:00 is JD 2440587.5
@@ -149,8 +160,35 @@ final class DateUtil {
 	}
 
 	static String formatDate(Date date, String layout, Calendar cal) {
+		final byte[] bytes = format(date, layout, cal);
+		if (bytes != null) {
+			return new String(bytes, StandardCharsets.US_ASCII);
+		}
 		return getDateFormat(layout, cal).format(date);
 	}
+	static Utf8Text formatText(Date date, String layout, Calendar cal) {
+		final byte[] bytes = format(date, layout, cal);
+		if (bytes != null) {
+			return new Utf8Text(bytes, bytes.length);
+		}
+		return new Utf8Text(getDateFormat(layout, cal).format(date));
+	}
+	// null when the layout or the date is not supported by Iso8601
+	private static byte[] format(Date date, String layout, Calendar cal) {
+		final int flags = Iso8601.layout(layout);
+		if (flags < 0) {
+			return null;
+		}
+		return Iso8601.format(date.getTime(), getTimeZone(cal), flags);
+	}
+
+	/**
+	 * @return <code>null</code> if <code>t</code> is not supported.
+	 */
+	static Utf8Text formatText(Temporal t) {
+		final byte[] bytes = Iso8601.format(t);
+		return bytes == null ? null : new Utf8Text(bytes, bytes.length);
+	}
 
 	private static DateFormat getDateFormat(String layout, Calendar cal) {
 		DateFormat df = DATE_FORMATS.get().get(layout);
@@ -159,10 +197,79 @@ final class DateUtil {
 			df.setLenient(false);
 			DATE_FORMATS.get().put(layout, df);
 		}
-		df.setTimeZone(cal == null ? TimeZone.getDefault() : cal.getTimeZone());
+		df.setTimeZone(getTimeZone(cal));
 		return df;
 	}
 
+	private static TimeZone getTimeZone(Calendar cal) {
+		return cal == null ? TimeZone.getDefault() : cal.getTimeZone();
+	}
+
+	// slow path (SimpleDateFormat) only when Iso8601 fails
+	private static String decode(ByteBuffer txt) {
+		return StandardCharsets.UTF_8.decode(txt.duplicate()).toString();
+	}
+
+	static java.sql.Date toDate(ByteBuffer txt, Calendar cal) throws SQLException {
+		final Iso8601 dt = Iso8601.parse(txt);
+		if (dt == null || !dt.isGregorian()) {
+			return toDate(decode(txt), cal);
+		}
+		return new java.sql.Date(dt.toEpochMillis(getTimeZone(cal)));
+	}
+	static Time toTime(ByteBuffer txt, Calendar cal) throws SQLException {
+		final Iso8601 dt = Iso8601.parse(txt);
+		if (dt == null || !dt.isGregorian()) {
+			return toTime(decode(txt), cal);
+		}
+		return new Time(dt.toEpochMillis(getTimeZone(cal)));
+	}
+	static Timestamp toTimestamp(ByteBuffer txt, Calendar cal) throws SQLException {
+		final Iso8601 dt = Iso8601.parse(txt);
+		if (dt == null || !dt.isGregorian()) {
+			return toTimestamp(decode(txt), cal);
+		}
+		final Timestamp ts = new Timestamp(dt.toEpochMillis(getTimeZone(cal)));
+		ts.setNanos(dt.getNano());
+		return ts;
+	}
+
+	/**
+	 * Text without offset is in UTC when converted to {@link Instant}.
+	 * @param type {@link LocalDate}, {@link LocalDateTime}, {@link LocalTime}, {@link OffsetDateTime} or {@link Instant}
+	 */
+	static <T> T toTemporal(ByteBuffer txt, Class<T> type) throws SQLException {
+		if (!LocalDate.class.equals(type) && !LocalDateTime.class.equals(type) && !LocalTime.class.equals(type) &&
+				!OffsetDateTime.class.equals(type) && !Instant.class.equals(type)) {
+			throw new SQLException("Conversion from text to " + type + " is not supported");
+		}
+		final Iso8601 dt = Iso8601.parse(txt);
+		final Object value = dt == null ? null : dt.to(type);
+		if (value != null) {
+			return type.cast(value);
+		}
+		final String s = decode(txt);
+		try {
+			if (LocalDate.class.equals(type)) {
+				return type.cast(LocalDate.parse(s));
+			} else if (LocalDateTime.class.equals(type)) {
+				return type.cast(LocalDateTime.parse(s));
+			} else if (LocalTime.class.equals(type)) {
+				return type.cast(LocalTime.parse(s));
+			} else if (OffsetDateTime.class.equals(type)) {
+				return type.cast(OffsetDateTime.parse(s));
+			}
+			return type.cast(Instant.parse(s));
+		} catch (DateTimeParseException e) {
+			throw new SQLException(String.format("Unsupported timestamp format: '%s'", s), e);
+		}
+	}
+
+	// in UTC
+	static LocalDateTime toLocalDateTime(long unixepoch) {
+		return LocalDateTime.ofEpochSecond(Math.floorDiv(unixepoch, 1000L), (int) Math.floorMod(unixepoch, 1000L) * 1000000, ZoneOffset.UTC);
+	}
+
 	static java.sql.Date toDate(String txt, Calendar cal) throws SQLException {
 		final ParsedDate date = parseDate(txt, cal);
 		return new java.sql.Date(/*normalizeDate(*/date.value.getTime()/*)*/);
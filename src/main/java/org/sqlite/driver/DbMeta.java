@@ -27,12 +27,7 @@ import java.sql.ResultSet;
 import java.sql.RowIdLifetime;
 import java.sql.SQLException;
 import java.sql.Types;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import static org.sqlite.SQLite.escapeIdentifier;
 
@@ -746,7 +741,7 @@ class DbMeta implements DatabaseMetaData {
 			}
 			match = true;
 		}
-		sql.append(") where TABLE_NAME like ").append(quote(tableNamePattern));
+		sql.append(") where TABLE_NAME like ?");
 
 		if (types != null) {
 			sql.append(" and TABLE_TYPE in (");
@@ -762,6 +757,7 @@ class DbMeta implements DatabaseMetaData {
 		sql.append(" order by TABLE_TYPE, TABLE_SCHEM, TABLE_NAME");
 
 		final PreparedStatement stmt = c.prepareStatement(sql.toString());
+		stmt.setString(1, tableNamePattern);
 		stmt.closeOnCompletion();
 		return stmt.executeQuery();
 	}
@@ -801,14 +797,12 @@ class DbMeta implements DatabaseMetaData {
 		checkOpen();
 		final StringBuilder sql = new StringBuilder();
 
-		final List<QualifiedName> tbls = schemaProvider.findTables(schemaPattern, tableNamePattern);
-
 		sql.append("select ").
 				append("null as TABLE_CAT, ").
 				append("db as TABLE_SCHEM, ").
 				append("tbl as TABLE_NAME, ").
 				append("cn as COLUMN_NAME, ").
-				append("ct as DATA_TYPE, ").
+				append(JAVA_TYPE).append(" as DATA_TYPE, ").
 				append("tn as TYPE_NAME, ").
 				append("10 as COLUMN_SIZE, "). // FIXME precision or display size
 				append("null as BUFFER_LENGTH, "). // not used
@@ -830,60 +824,60 @@ class DbMeta implements DatabaseMetaData {
 				append("'' as IS_AUTOINCREMENT, "). // TODO http://sqlite.org/autoinc.html
 				append("'' as IS_GENERATEDCOLUMN from ("); // FIXME
 
-		boolean colFound = false;
-		boolean xInfo = org.sqlite.Conn.libversionNumber() >= 3026000;
-		for (QualifiedName tbl : tbls) {
-			Pragma pragma = new Pragma(new QualifiedName(tbl.dbName, xInfo ? "table_xinfo" : "table_info"), new IdExpr(tbl.name));
-			// Pragma cannot be used as subquery...
-			try (PreparedStatement table_info = c.prepareStatement(pragma.toSql());
-					 ResultSet rs = table_info.executeQuery()) {
-				// 1:cid|2:name|3:type|4:notnull|5:dflt_value|6:pk|7:hidden
-				while (rs.next()) {
-					if (colFound) sql.append(" UNION ALL ");
-					colFound = true;
-
-					final String colType = getSQLiteType(rs.getString(3));
-					final int colJavaType = getJavaType(colType);
-					String hidden = "null";
-					if (xInfo) {
-						final byte b = rs.getByte(7);
-						if (b == 1) {
-							hidden = "'hidden'";
-						} else if (b == 2) {
-							hidden = "'generated virtual'";
-						} else if (b == 3) {
-							hidden = "'generated stored'";
-						}
-					}
-
-					sql.append("SELECT ").
-							append(quote(tbl.dbName)).append(" AS db, ").
-							append(quote(tbl.name)).append(" AS tbl, ").
-							append(rs.getInt(1) + 1).append(" AS ordpos, ").
-							append(rs.getBoolean(4) ? columnNoNulls : columnNullable).append(" AS colnullable, ").
-							append(colJavaType).append(" AS ct, ").
-							append(quote(rs.getString(2))).append(" AS cn, ").
-							append(quote(colType)).append(" AS tn, ").
-							append(quote(rs.getString(5))).append(" AS cdflt, ").
-							append(hidden).append(" AS hidden");
-
-					if (columnNamePattern != null && !"%".equals(columnNamePattern)) {
-						sql.append(" WHERE cn LIKE ").append(quote(columnNamePattern));
-					}
-				}
-			} catch (StmtException e) { // query does not return ResultSet
-				assert e.getErrorCode() == ErrCodes.WRAPPER_SPECIFIC;
-			}
-		}
+		// One statement for all tables (the table-valued pragma is evaluated for each row of the join)
+		final boolean xInfo = org.sqlite.Conn.libversionNumber() >= 3026000;
+		// unary + so that the pragma columns are not reported as origin columns by ResultSetMetaData.getColumnName
+		sql.append("select t.db, +t.tbl as tbl, ").
+				append("p.cid + 1 as ordpos, ").
+				append("(case p.\"notnull\" when 0 then ").append(columnNullable).append(" else ").append(columnNoNulls).append(" end) as colnullable, ").
+				append("+p.name as cn, ").
+				append("upper(p.type) as tn, ").
+				append("+p.dflt_value as cdflt, ").
+				append(xInfo ? "(case p.hidden when 1 then 'hidden' when 2 then 'generated virtual' when 3 then 'generated stored' end)" : "null").
+				append(" as hidden from (");
+		appendTables(sql, schemaProvider.getDbNames(schemaPattern));
+		sql.append(") as t, ").append(xInfo ? "pragma_table_xinfo" : "pragma_table_info").append("(t.tbl, t.db) as p").
+				append(" where ?2 is null or p.name like ?2").
+				append(") order by TABLE_SCHEM, TABLE_NAME, ORDINAL_POSITION");
 
-		sql.append(colFound ? ") order by TABLE_SCHEM, TABLE_NAME, ORDINAL_POSITION" :
-				"SELECT NULL AS db, NULL AS tbl, NULL AS ordpos, NULL AS colnullable, NULL AS ct, "
-						+ "NULL AS cn, NULL AS tn, NULL AS cdflt, NULL AS hidden) limit 0");
 		final PreparedStatement columns = c.prepareStatement(sql.toString());
+		columns.setString(1, tableNamePattern == null || tableNamePattern.isEmpty() ? "%" : tableNamePattern);
+		columns.setString(2, columnNamePattern == null || "%".equals(columnNamePattern) ? null : columnNamePattern);
 		columns.closeOnCompletion();
 		return columns.executeQuery();
 	}
 
+	// Same mapping as getJavaType(String) for the upper-cased declared type 'tn'
+	private static final String JAVA_TYPE = "(case" +
+			" when tn = '' then " + Types.OTHER +
+			" when instr(tn, 'INT') then " + Types.INTEGER +
+			" when instr(tn, 'TEXT') or instr(tn, 'CHAR') or instr(tn, 'CLOB') then " + Types.VARCHAR +
+			" when instr(tn, 'BLOB') then " + Types.OTHER +
+			" when instr(tn, 'REAL') or instr(tn, 'FLOA') or instr(tn, 'DOUB') then " + Types.REAL +
+			" else " + Types.NUMERIC + " end)";
+
+	/**
+	 * Tables and views (db, tbl) of the specified databases whose name matches the pattern bound to <code>?1</code>.
+	 * The generated SQL only depends on the database names so that the statement is reused from the cache.
+	 */
+	private static void appendTables(StringBuilder sql, List<String> dbNames) {
+		if (dbNames.isEmpty()) {
+			sql.append("select null as db, null as tbl where ?1 is null limit 0");
+			return;
+		}
+		boolean first = true;
+		for (String dbName : dbNames) {
+			if (!first) sql.append(" union all ");
+			first = false;
+			final String master = "temp".equalsIgnoreCase(dbName) ? "sqlite_temp_master" : "sqlite_master";
+			sql.append("select ").append(quote(dbName)).append(" as db, name as tbl from \"").
+					append(escapeIdentifier(dbName)).append("\".").append(master).
+					append(" where type in ('table', 'view') and name like ?1");
+			sql.append(" union all select ").append(quote(dbName)).append(", '").append(master).
+					append("' where '").append(master).append("' like ?1");
+		}
+	}
+
 	private static String getSQLiteType(String colType) {
 		return colType == null ? "" : colType.toUpperCase();
 	}
@@ -1042,81 +1036,29 @@ class DbMeta implements DatabaseMetaData {
 	@Override
 	public ResultSet getExportedKeys(String catalog, String schema, String table) throws SQLException {
 		checkOpen();
-		final StringBuilder sql = new StringBuilder();
-
 		schema = schemaProvider.getDbName(schema, table);
-		sql.append("select ").
-				append("null as PKTABLE_CAT, ").
-				append(quote(schema)).append(" as PKTABLE_SCHEM, ").
-				append(quote(table)).append(" as PKTABLE_NAME, ").
-				append("pc as PKCOLUMN_NAME, ").
-				append("null as FKTABLE_CAT, ").
-				append(quote(schema)).append(" as FKTABLE_SCHEM, ").
-				append("ft as FKTABLE_NAME, ").
-				append("fc as FKCOLUMN_NAME, ").
-				append("seq as KEY_SEQ, ").
-				append(importedKeyNoAction).append(" as UPDATE_RULE, "). // FIXME on_update (6) NO ACTION, CASCADE
-				append(importedKeyNoAction).append(" as DELETE_RULE, "). // FIXME on_delete (7) NO ACTION, CASCADE
-				append("fk as FK_NAME, ").
-				append("null as PK_NAME, ").
-				append(importedKeyNotDeferrable).append(" as DEFERRABILITY "). // FIXME
-				append("from (");
-
-		final Collection<String> fkTables = new ArrayList<>();
-		final String s;
-		if ("main".equalsIgnoreCase(schema)) {
-			s = "SELECT name FROM sqlite_master WHERE type = 'table' AND name NOT LIKE ? AND sql LIKE ?";
-		} else if ("temp".equalsIgnoreCase(schema)) {
-			s = "SELECT name FROM sqlite_temp_master WHERE type = 'table' AND name NOT LIKE ? AND sql LIKE ?";
-		} else {
-			s = "SELECT name FROM \"" + escapeIdentifier(schema) + "\".sqlite_master WHERE type = 'table' AND name NOT LIKE ? AND sql LIKE ?";
-		}
-
-		try (PreparedStatement fks = c.prepareStatement(s)) {
-			fks.setString(1, table);
-			fks.setString(2, "%REFERENCES%" + table + "%(%");
-			try (ResultSet rs = fks.executeQuery()){
-				while (rs.next()) {
-					fkTables.add(rs.getString(1));
-				}
-			}
-		}
-
-		int count = 0;
-		if (!fkTables.isEmpty()) {
-			for (String fkTable : fkTables) {
-				// TODO SELECT ?1 || '_' || "table"  || '_' || id AS fk, "to" AS pc, "from" AS fc, seq + 1 AS seq FROM pragma_foreign_key_list(?1) AS fkl WHERE "table" LIKE ?2;
-				Pragma pragma = new Pragma(new QualifiedName(schema, "foreign_key_list"), new IdExpr(fkTable));
-				try (PreparedStatement foreign_key_list = c.prepareStatement(pragma.toSql());
-						 ResultSet rs = foreign_key_list.executeQuery()) {
-					// 1:id|2:seq|3:table|4:from|5:to|6:on_update|7:on_delete|8:match
-					while (rs.next()) {
-						if (!rs.getString(3).equalsIgnoreCase(table)) {
-							continue;
-						}
-						if (count > 0) {
-							sql.append(" UNION ALL ");
-						}
-						sql.append("SELECT ").
-								append(quote(fkTable + '_' + table + '_' + rs.getString(1))).append(" AS fk, "). // to be kept in sync with getForeignKeys
-								append(quote(fkTable)).append(" AS ft, ").
-								append(quote(rs.getString(5))).append(" AS pc, ").
-								append(quote(rs.getString(4))).append(" AS fc, ").
-								append(rs.getShort(2) + 1).append(" AS seq");
-						count++;
-					}
-				} catch (StmtException e) { // query does not return ResultSet
-					assert e.getErrorCode() == ErrCodes.WRAPPER_SPECIFIC;
-				}
-			}
-		}
-
-		if (count == 0) {
-			sql.append("SELECT NULL AS fk, NULL AS ft, NULL AS pc, NULL AS fc, NULL AS seq) limit 0");
-		} else {
-			sql.append(") order by FKTABLE_CAT, FKTABLE_SCHEM, FKTABLE_NAME, KEY_SEQ");
-		}
-		final PreparedStatement eks = c.prepareStatement(sql.toString());
+		final String master = "temp".equalsIgnoreCase(schema) ? "sqlite_temp_master" : "sqlite_master";
+		final String sql = "select " +
+				"null as PKTABLE_CAT, " +
+				"?1 as PKTABLE_SCHEM, " +
+				"?2 as PKTABLE_NAME, " +
+				"+fkl.\"to\" as PKCOLUMN_NAME, " +
+				"null as FKTABLE_CAT, " +
+				"?1 as FKTABLE_SCHEM, " +
+				"+m.name as FKTABLE_NAME, " +
+				"+fkl.\"from\" as FKCOLUMN_NAME, " +
+				"fkl.seq + 1 as KEY_SEQ, " +
+				importedKeyNoAction + " as UPDATE_RULE, " + // FIXME on_update (6) NO ACTION, CASCADE
+				importedKeyNoAction + " as DELETE_RULE, " + // FIXME on_delete (7) NO ACTION, CASCADE
+				"m.name || '_' || ?2 || '_' || fkl.id as FK_NAME, " + // to be kept in sync with getForeignKeys
+				"null as PK_NAME, " +
+				importedKeyNotDeferrable + " as DEFERRABILITY " + // FIXME
+				"from \"" + escapeIdentifier(schema) + "\"." + master + " as m, pragma_foreign_key_list(m.name, ?1) as fkl " +
+				"where m.type = 'table' and m.name not like ?2 and m.sql like '%REFERENCES%' and fkl.\"table\" like ?2 " +
+				"order by FKTABLE_CAT, FKTABLE_SCHEM, FKTABLE_NAME, KEY_SEQ";
+		final PreparedStatement eks = c.prepareStatement(sql);
+		eks.setString(1, schema);
+		eks.setString(2, table);
 		eks.closeOnCompletion();
 		return eks.executeQuery();
 	}
@@ -1168,70 +1110,27 @@ class DbMeta implements DatabaseMetaData {
 	public ResultSet getIndexInfo(String catalog, String schema, String table, boolean unique, boolean approximate) throws SQLException {
 		checkOpen();
 		schema = schemaProvider.getDbName(schema, table);
-		final StringBuilder sql = new StringBuilder();
-		sql.append("select ").
-				append("null as TABLE_CAT, ").
-				append(quote(schema)).append(" as TABLE_SCHEM, ").
-				append(quote(table)).append(" as TABLE_NAME, ").
-				append("nu as NON_UNIQUE, ").
-				append(quote(schema)).append(" as INDEX_QUALIFIER, ").
-				append("idx as INDEX_NAME, ").
-				append(tableIndexOther).append(" as TYPE, ").
-				append("seqno as ORDINAL_POSITION, ").
-				append("cn as COLUMN_NAME, ").
-				append("null as ASC_OR_DESC, ").
-				append("0 as CARDINALITY, ").
-				append("0 as PAGES, ").
-				append("null as FILTER_CONDITION ").
-				append("from (");
-
-		final Map<String, Boolean> indexes = new HashMap<>();
-		Pragma pragma = new Pragma(new QualifiedName(schema, "index_list"), new IdExpr(table));
-		try (PreparedStatement index_list = c.prepareStatement(pragma.toSql());
-				 ResultSet rs = index_list.executeQuery()) {
-			// 1:seq|2:name|3:unique
-			while (rs.next()) {
-				final boolean notuniq = !rs.getBoolean(3);
-				if (unique && notuniq) {
-					continue;
-				}
-				indexes.put(rs.getString(2), notuniq);
-			}
-		} catch (StmtException e) { // query does not return ResultSet
-			assert e.getErrorCode() == ErrCodes.WRAPPER_SPECIFIC;
-		}
-
-		if (indexes.isEmpty()) {
-			sql.append("SELECT NULL AS nu, NULL AS idx, NULL AS seqno, NULL AS cn) limit 0");
-		} else {
-			boolean found = false;
-			for (final Entry<String, Boolean> index : indexes.entrySet()) {
-				Pragma _pragma = new Pragma(new QualifiedName(null, "index_info"), new IdExpr(index.getKey()));
-				try (PreparedStatement index_info = c.prepareStatement(_pragma.toSql());
-						 ResultSet rs = index_info.executeQuery()) {
-					// 1:seqno|2:cid|3:name
-					while (rs.next()) {
-						if (found) {
-							sql.append(" UNION ALL ");
-						}
-						sql.append("SELECT ").
-								append(index.getValue() ? 1 : 0).append(" AS nu, ").
-								append(quote(index.getKey())).append(" AS idx, ").
-								append(rs.getInt(1)).append(" AS seqno, ").
-								append(quote(rs.getString(3))).append(" AS cn");
-						found = true;
-					}
-				//} catch(StmtException e) { // query does not return ResultSet
-				}
-			}
-			if (found) {
-				sql.append(") order by NON_UNIQUE, TYPE, INDEX_NAME, ORDINAL_POSITION");
-			} else {
-				sql.append("SELECT NULL AS nu, NULL AS idx, NULL AS seqno, NULL AS cn) limit 0");
-			}
-		}
-
-		final PreparedStatement idx = c.prepareStatement(sql.toString());
+		final String sql = "select " +
+				"null as TABLE_CAT, " +
+				"?1 as TABLE_SCHEM, " +
+				"?2 as TABLE_NAME, " +
+				"not il.\"unique\" as NON_UNIQUE, " +
+				"?1 as INDEX_QUALIFIER, " +
+				"+il.name as INDEX_NAME, " +
+				tableIndexOther + " as TYPE, " +
+				"ii.seqno + 0 as ORDINAL_POSITION, " +
+				"+ii.name as COLUMN_NAME, " +
+				"null as ASC_OR_DESC, " +
+				"0 as CARDINALITY, " +
+				"0 as PAGES, " +
+				"null as FILTER_CONDITION " +
+				"from pragma_index_list(?2, ?1) as il, pragma_index_info(il.name, ?1) as ii " +
+				"where not ?3 or il.\"unique\" " +
+				"order by NON_UNIQUE, TYPE, INDEX_NAME, ORDINAL_POSITION";
+		final PreparedStatement idx = c.prepareStatement(sql);
+		idx.setString(1, schema);
+		idx.setString(2, table);
+		idx.setBoolean(3, unique);
 		idx.closeOnCompletion();
 		return idx.executeQuery();
 	}
@@ -0,0 +1,383 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.Temporal;
+import java.util.TimeZone;
+
+/**
+ * Hand-rolled ISO-8601 codec for the layouts used by {@link DateUtil}:
+ * <code>HH:MM[:SS[.SSS]]</code>, <code>YYYY-MM-DD</code> and <code>YYYY-MM-DD[T ]HH:MM[:SS[.SSS]][Z|&plusmn;HH:MM]</code>.
+ * It works directly on UTF-8 bytes and on date/time fields (no <code>String</code>, <code>Calendar</code> or <code>DateFormat</code>).
+ * Dates before the Gregorian cutover are left to {@link java.text.SimpleDateFormat} (Julian calendar).
+ * @see <a href="http://sqlite.org/lang_datefunc.html">Date And Time Functions</a>
+ */
+final class Iso8601 {
+	// layout flags
+	static final int DATE = 1;
+	static final int TIME = 2;
+	static final int SECONDS = 4;
+	static final int MILLIS = 8;
+	static final int OFFSET = 16;
+	static final int SPACE = 32;
+	// 3, 6 or 9 fractional digits depending on precision
+	private static final int NANOS = 64;
+
+	private static final long MILLIS_PER_DAY = 86400000L;
+	private static final int FIRST_GREGORIAN_YEAR = 1583;
+
+	// time only values are on 1970-01-01 (like SimpleDateFormat)
+	private int year = 1970;
+	private int month = 1;
+	private int day = 1;
+	private int hour;
+	private int minute;
+	private int second;
+	private int nano;
+	private int offsetSeconds;
+	private boolean hasDate;
+	private boolean hasTime;
+	private boolean hasOffset;
+
+	private Iso8601() {
+	}
+
+	/**
+	 * @param txt UTF-8 bytes (between position and limit)
+	 * @return <code>null</code> when <code>txt</code> does not match one of the supported layouts.
+	 */
+	static Iso8601 parse(ByteBuffer txt) {
+		final Iso8601 dt = new Iso8601();
+		return dt.parse(txt, txt.position(), txt.limit()) ? dt : null;
+	}
+
+	private boolean parse(ByteBuffer b, int p, int end) {
+		if (end - p >= 10 && b.get(p + 4) == '-') { // YYYY-MM-DD
+			year = digits(b, p, 4);
+			month = digits(b, p + 5, 2);
+			day = digits(b, p + 8, 2);
+			if (year < 0 || b.get(p + 7) != '-' || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+				return false;
+			}
+			hasDate = true;
+			p += 10;
+			if (p == end) {
+				return true;
+			}
+			final byte sep = b.get(p++);
+			if (sep != 'T' && sep != ' ') {
+				return false;
+			}
+		}
+		if (end - p < 5 || b.get(p + 2) != ':') { // HH:MM
+			return false;
+		}
+		hour = digits(b, p, 2);
+		minute = digits(b, p + 3, 2);
+		if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+			return false;
+		}
+		hasTime = true;
+		p += 5;
+		if (p < end && b.get(p) == ':') { // :SS
+			second = end - p < 3 ? -1 : digits(b, p + 1, 2);
+			if (second < 0 || second > 59) {
+				return false;
+			}
+			p += 3;
+			if (p < end && b.get(p) == '.') { // .SSS (extra digits are truncated)
+				final int start = ++p;
+				for (int scale = 100000000; p < end && isDigit(b.get(p)); p++, scale /= 10) {
+					nano += (b.get(p) - '0') * scale;
+				}
+				if (p == start) {
+					return false;
+				}
+			}
+		}
+		if (p == end) {
+			return true;
+		}
+		final byte sign = b.get(p);
+		if (sign == 'Z' || sign == 'z') {
+			hasOffset = true;
+			return p + 1 == end;
+		} else if ((sign != '+' && sign != '-') || end - p != 6 || b.get(p + 3) != ':') {
+			return false;
+		}
+		final int hh = digits(b, p + 1, 2);
+		final int mm = digits(b, p + 4, 2);
+		if (hh < 0 || hh > 18 || mm < 0 || mm > 59) {
+			return false;
+		}
+		offsetSeconds = (hh * 3600 + mm * 60) * (sign == '-' ? -1 : 1);
+		hasOffset = true;
+		return true;
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	// -1 if not a number
+	private static int digits(ByteBuffer b, int p, int n) {
+		int value = 0;
+		for (int i = p; i < p + n; i++) {
+			final byte c = b.get(i);
+			if (!isDigit(c)) {
+				return -1;
+			}
+			value = value * 10 + c - '0';
+		}
+		return value;
+	}
+
+	/**
+	 * @return <code>false</code> for dates that {@link java.util.GregorianCalendar} interprets in the Julian calendar.
+	 */
+	boolean isGregorian() {
+		return !hasDate || year >= FIRST_GREGORIAN_YEAR;
+	}
+
+	int getNano() {
+		return nano;
+	}
+
+	/**
+	 * @param tz time zone of the local fields (ignored when an offset was parsed)
+	 */
+	long toEpochMillis(TimeZone tz) {
+		final long local = (epochDay(year, month, day) * 86400L + hour * 3600 + minute * 60 + second) * 1000L + nano / 1000000;
+		if (hasOffset) {
+			return local - offsetSeconds * 1000L;
+		}
+		// first guess with the standard offset, then adjust for daylight saving time
+		final int offset = tz.getOffset(local - tz.getRawOffset());
+		return local - tz.getOffset(local - offset);
+	}
+
+	/**
+	 * Values without offset are considered in UTC (like SQLite date and time functions) when converted to {@link Instant}.
+	 * @return <code>null</code> when the parsed fields do not fit <code>type</code>.
+	 */
+	Object to(Class<?> type) {
+		if (LocalDate.class.equals(type)) {
+			return hasDate ? LocalDate.of(year, month, day) : null;
+		} else if (LocalDateTime.class.equals(type)) {
+			return hasDate && !hasOffset ? LocalDateTime.of(year, month, day, hour, minute, second, nano) : null;
+		} else if (LocalTime.class.equals(type)) {
+			return hasTime && !hasDate && !hasOffset ? LocalTime.of(hour, minute, second, nano) : null;
+		} else if (OffsetDateTime.class.equals(type)) {
+			return hasDate && hasOffset ?
+					OffsetDateTime.of(year, month, day, hour, minute, second, nano, ZoneOffset.ofTotalSeconds(offsetSeconds)) : null;
+		} else if (Instant.class.equals(type)) {
+			return hasDate ? Instant.ofEpochSecond((epochDay(year, month, day) * 86400L + hour * 3600 + minute * 60 + second) - offsetSeconds,
+					nano) : null;
+		}
+		return null;
+	}
+
+	/**
+	 * @return layout flags or -1 if the {@link java.text.SimpleDateFormat} pattern is not supported.
+	 */
+	static int layout(String pattern) {
+		int flags = 0;
+		int p = 0;
+		if (pattern.startsWith(DateUtil.YYYY_MM_DD)) {
+			flags |= DATE;
+			p += DateUtil.YYYY_MM_DD.length();
+			if (p == pattern.length()) {
+				return flags;
+			} else if (pattern.startsWith("'T'", p)) {
+				p += 3;
+			} else if (pattern.startsWith(" ", p)) {
+				flags |= SPACE;
+				p++;
+			} else {
+				return -1;
+			}
+		}
+		if (!pattern.startsWith("HH:mm", p)) {
+			return -1;
+		}
+		flags |= TIME;
+		p += 5;
+		if (pattern.startsWith(":ss", p)) {
+			flags |= SECONDS;
+			p += 3;
+			if (pattern.startsWith(".SSS", p)) {
+				flags |= MILLIS;
+				p += 4;
+			}
+		}
+		if ((flags & DATE) != 0 && pattern.startsWith("XXX", p)) {
+			flags |= OFFSET;
+			p += 3;
+		}
+		return p == pattern.length() ? flags : -1;
+	}
+
+	/**
+	 * @param flags see {@link #layout(String)}
+	 * @return ASCII bytes or <code>null</code> if the date is out of range (see {@link #isGregorian()}).
+	 */
+	static byte[] format(long epochMillis, TimeZone tz, int flags) {
+		final int offset = tz.getOffset(epochMillis);
+		if (offset % 60000 != 0 && (flags & OFFSET) != 0) { // local mean time
+			return null;
+		}
+		final long local = epochMillis + offset;
+		final long epochDay = Math.floorDiv(local, MILLIS_PER_DAY);
+		final int ms = (int) Math.floorMod(local, MILLIS_PER_DAY);
+		final int secondOfDay = ms / 1000;
+		final long ymd = civil(epochDay);
+		final int year = (int) (ymd >> 9);
+		if ((flags & DATE) != 0 && (year < FIRST_GREGORIAN_YEAR || year > 9999)) {
+			return null;
+		}
+		return format(flags, year, (int) (ymd >> 5) & 0xF, (int) ymd & 0x1F, secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60,
+				ms % 1000 * 1000000, offset / 1000);
+	}
+
+	/**
+	 * Full precision (3, 6 or 9 fractional digits) for {@link LocalDate}, {@link LocalDateTime}, {@link LocalTime},
+	 * {@link OffsetDateTime} and {@link Instant} (in UTC).
+	 * @return ASCII bytes or <code>null</code> if <code>t</code> is not supported (or its year is not in [0, 9999]).
+	 */
+	static byte[] format(Temporal t) {
+		if (t instanceof LocalDate) {
+			final LocalDate d = (LocalDate) t;
+			return isFourDigits(d.getYear()) ? format(DATE, d.getYear(), d.getMonthValue(), d.getDayOfMonth(), 0, 0, 0, 0, 0) : null;
+		} else if (t instanceof LocalDateTime) {
+			final LocalDateTime dt = (LocalDateTime) t;
+			return isFourDigits(dt.getYear()) ? format(DATE | TIME | SECONDS | NANOS, dt.getYear(), dt.getMonthValue(), dt.getDayOfMonth(),
+					dt.getHour(), dt.getMinute(), dt.getSecond(), dt.getNano(), 0) : null;
+		} else if (t instanceof LocalTime) {
+			final LocalTime lt = (LocalTime) t;
+			return format(TIME | SECONDS | NANOS, 0, 0, 0, lt.getHour(), lt.getMinute(), lt.getSecond(), lt.getNano(), 0);
+		} else if (t instanceof OffsetDateTime) {
+			final OffsetDateTime dt = (OffsetDateTime) t;
+			final int offset = dt.getOffset().getTotalSeconds();
+			return isFourDigits(dt.getYear()) && offset % 60 == 0 ? format(DATE | TIME | SECONDS | NANOS | OFFSET, dt.getYear(),
+					dt.getMonthValue(), dt.getDayOfMonth(), dt.getHour(), dt.getMinute(), dt.getSecond(), dt.getNano(), offset) : null;
+		} else if (t instanceof Instant) {
+			final Instant i = (Instant) t;
+			final long epochDay = Math.floorDiv(i.getEpochSecond(), 86400L);
+			final int secondOfDay = (int) Math.floorMod(i.getEpochSecond(), 86400L);
+			final long ymd = civil(epochDay);
+			final int year = (int) (ymd >> 9);
+			return isFourDigits(year) ? format(DATE | TIME | SECONDS | NANOS | OFFSET, year, (int) (ymd >> 5) & 0xF, (int) ymd & 0x1F,
+					secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60, i.getNano(), 0) : null;
+		}
+		return null;
+	}
+
+	private static boolean isFourDigits(int year) {
+		return year >= 0 && year <= 9999;
+	}
+
+	private static byte[] format(int flags, int year, int month, int day, int hour, int minute, int second, int nano, int offsetSeconds) {
+		final boolean date = (flags & DATE) != 0;
+		final boolean time = (flags & TIME) != 0;
+		final int fraction = (flags & NANOS) != 0 ? (nano % 1000000 == 0 ? 3 : nano % 1000 == 0 ? 6 : 9) : (flags & MILLIS) != 0 ? 3 : 0;
+		final boolean offset = (flags & OFFSET) != 0;
+		final byte[] buf = new byte[(date ? 10 : 0) + (date && time ? 1 : 0) + (time ? 5 : 0) + ((flags & SECONDS) != 0 ? 3 : 0) +
+				(fraction > 0 ? 1 + fraction : 0) + (offset ? (offsetSeconds == 0 ? 1 : 6) : 0)];
+		int p = 0;
+		if (date) {
+			p = put(buf, p, year, 4);
+			buf[p++] = '-';
+			p = put(buf, p, month, 2);
+			buf[p++] = '-';
+			p = put(buf, p, day, 2);
+			if (time) {
+				buf[p++] = (byte) ((flags & SPACE) != 0 ? ' ' : 'T');
+			}
+		}
+		if (time) {
+			p = put(buf, p, hour, 2);
+			buf[p++] = ':';
+			p = put(buf, p, minute, 2);
+			if ((flags & SECONDS) != 0) {
+				buf[p++] = ':';
+				p = put(buf, p, second, 2);
+			}
+			if (fraction > 0) {
+				buf[p++] = '.';
+				p = put(buf, p, fraction == 3 ? nano / 1000000 : fraction == 6 ? nano / 1000 : nano, fraction);
+			}
+		}
+		if (offset) {
+			if (offsetSeconds == 0) {
+				buf[p] = 'Z';
+			} else {
+				buf[p++] = (byte) (offsetSeconds < 0 ? '-' : '+');
+				final int minutes = Math.abs(offsetSeconds) / 60;
+				p = put(buf, p, minutes / 60, 2);
+				buf[p++] = ':';
+				put(buf, p, minutes % 60, 2);
+			}
+		}
+		return buf;
+	}
+
+	// zero-padded
+	private static int put(byte[] buf, int p, int value, int width) {
+		for (int i = p + width - 1; i >= p; i--) {
+			buf[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		return p + width;
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+			case 2:
+				return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+			case 4:
+			case 6:
+			case 9:
+			case 11:
+				return 30;
+			default:
+				return 31;
+		}
+	}
+
+	// proleptic Gregorian calendar
+	private static long epochDay(int year, int month, int day) {
+		final long y = month <= 2 ? year - 1 : year;
+		final long era = Math.floorDiv(y, 400);
+		final long yoe = y - era * 400;
+		final long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		final long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	// year << 9 | month << 5 | day
+	private static long civil(long epochDay) {
+		final long z = epochDay + 719468;
+		final long era = Math.floorDiv(z, 146097);
+		final long doe = z - era * 146097;
+		final long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		final long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		final long mp = (5 * doy + 2) / 153;
+		final long day = doy - (153 * mp + 2) / 5 + 1;
+		final long month = mp < 10 ? mp + 3 : mp - 9;
+		final long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+		return year << 9 | month << 5 | day;
+	}
+}
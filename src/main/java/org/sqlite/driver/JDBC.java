@@ -8,10 +8,10 @@
  */
 package org.sqlite.driver;
 
-import org.sqlite.ConnException;
 import org.sqlite.ErrCodes;
 import org.sqlite.OpenFlags;
 import org.sqlite.SQLite;
+import org.sqlite.SQLiteException;
 import org.sqlite.parser.ast.LiteralExpr;
 import org.sqlite.parser.ast.Pragma;
 import org.sqlite.parser.ast.QualifiedName;
@@ -23,6 +23,7 @@ import java.sql.DriverPropertyInfo;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLWarning;
+import java.util.Collections;
 import java.util.Properties;
 import java.util.logging.Logger;
 
@@ -49,6 +50,7 @@ public class JDBC implements Driver {
 	public static final String VFS = "vfs";
 	public static final String MODE = "mode";
 	public static final String CACHE = "cache";
+	public static final String REWRITE_BATCHED_INSERTS = "rewrite_batched_inserts";
 
 	@Override
 	public Connection connect(String url, Properties info) throws SQLException {
@@ -67,7 +69,9 @@ public class JDBC implements Driver {
 			conn.closeNoCheck();
 			throw t;
 		}
-		return new Conn(conn, DateUtil.config(info), warnings);
+		final Conn c = new Conn(conn, DateUtil.config(info), warnings);
+		c.rewriteBatchedInserts = info != null && "on".equals(info.getProperty(REWRITE_BATCHED_INSERTS));
+		return c;
 	}
 
 	private static int getOpenFlags(String mode, String cache) {
@@ -131,10 +135,20 @@ public class JDBC implements Driver {
 		final DriverPropertyInfo tsf = new DriverPropertyInfo(DateUtil.TIMESTAMP_FORMAT, info == null ? null : info.getProperty(DateUtil.TIMESTAMP_FORMAT));
 		tsf.description = "Specify the format used to persist timestamp ('" + DateUtil.JULIANDAY + "', '" + DateUtil.UNIXEPOCH + "', 'yyyy-MM-dd HH:mm:ss.SSSXXX', '...').";
 
-		return new DriverPropertyInfo[]{vfs, mode, cache, fks, triggers, ele, encoding, df, tf, tsf}; // TODO locking_mode, recursive_triggers, synchronous
+		final DriverPropertyInfo scs = new DriverPropertyInfo(STMT_CACHE_SIZE.name, info == null ? null : info.getProperty(STMT_CACHE_SIZE.name));
+		scs.description = "Maximum number of idle prepared statements kept in cache (0 to disable the cache).";
+		final DriverPropertyInfo scm = new DriverPropertyInfo(STMT_CACHE_MEMORY.name, info == null ? null : info.getProperty(STMT_CACHE_MEMORY.name));
+		scm.description = "Maximum memory (in bytes) used by idle prepared statements kept in cache (0 for no limit).";
+
+		final DriverPropertyInfo rbi = new DriverPropertyInfo(REWRITE_BATCHED_INSERTS, info == null ? null : info.getProperty(REWRITE_BATCHED_INSERTS));
+		rbi.description = "Execute batched single row INSERTs as multi-row INSERTs (update counts may be SUCCESS_NO_INFO).";
+		rbi.choices = new String[]{"on", "off"};
+		if (rbi.value == null) rbi.value = "off"; // default
+
+		return new DriverPropertyInfo[]{vfs, mode, cache, fks, triggers, ele, encoding, df, tf, tsf, scs, scm, rbi}; // TODO locking_mode, recursive_triggers, synchronous
 	}
 
-	private static SQLWarning setup(org.sqlite.Conn conn, Properties info) throws ConnException {
+	private static SQLWarning setup(org.sqlite.Conn conn, Properties info) throws SQLiteException {
 		if (info == null) {
 			return null;
 		}
@@ -171,6 +185,14 @@ public class JDBC implements Driver {
 		if ("on".equals(info.getProperty(ENABLE_LOAD_EXTENSION.name))) {
 			conn.enableLoadExtension(true);
 		} // disabled by default
+		final String stmtCacheSize = info.getProperty(STMT_CACHE_SIZE.name);
+		if (stmtCacheSize != null) {
+			STMT_CACHE_SIZE.config(Collections.singletonMap(STMT_CACHE_SIZE.name, stmtCacheSize), conn);
+		}
+		final String stmtCacheMemory = info.getProperty(STMT_CACHE_MEMORY.name);
+		if (stmtCacheMemory != null) {
+			STMT_CACHE_MEMORY.config(Collections.singletonMap(STMT_CACHE_MEMORY.name, stmtCacheMemory), conn);
+		}
 		return warnings;
 	}
 	private static SQLWarning addWarning(SQLWarning current, SQLWarning next) {
@@ -0,0 +1,141 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.PooledConnection;
+import javax.sql.StatementEventListener;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Physical connection which hands out logical connections.
+ * Closing a logical connection closes its statements, resets the physical one (rollback, statements reset)
+ * and notifies the listeners, so that the prepared statements and page caches stay warm.
+ * Statement events are not fired.
+ */
+class PooledConn implements PooledConnection {
+	private final Conn physical;
+	private final boolean queryOnly;
+	private final int networkTimeout;
+	private Conn logical;
+	private final List<ConnectionEventListener> listeners = new CopyOnWriteArrayList<>();
+	private final List<StatementEventListener> statementListeners = new CopyOnWriteArrayList<>();
+	// System.nanoTime when this connection was given back (used by the pool)
+	long lastUsed;
+
+	PooledConn(Conn physical) throws SQLException {
+		this.physical = physical;
+		this.queryOnly = physical.getConn().isQueryOnly(null);
+		this.networkTimeout = physical.getConn().getNetworkTimeout();
+	}
+
+	@Override
+	public synchronized Connection getConnection() throws SQLException {
+		final org.sqlite.Conn c = physical.getConn();
+		if (logical != null) { // only one logical connection at a time
+			logical.close();
+		}
+		logical = new Conn(c, physical.dateTimeConfig, null, this);
+		logical.rewriteBatchedInserts = physical.rewriteBatchedInserts;
+		return logical;
+	}
+
+	// Called by the logical connection on close
+	void recycle(Conn handle, org.sqlite.Conn c) throws SQLException {
+		synchronized (this) {
+			if (handle != logical) {
+				return;
+			}
+			logical = null;
+		}
+		try {
+			handle.closeStatements(); // including getGeneratedKeys
+			c.resetStatements();
+			if (!c.getAutoCommit()) {
+				c.fastExec("ROLLBACK");
+			}
+			if (handle.queryOnlyChanged) {
+				c.setQueryOnly(null, queryOnly);
+			}
+			if (handle.transactionIsolation != Connection.TRANSACTION_SERIALIZABLE) {
+				c.setReadUncommitted(null, false);
+			}
+			if (c.getNetworkTimeout() != networkTimeout) {
+				c.setNetworkTimeout(networkTimeout);
+			}
+		} catch (SQLException e) {
+			fireConnectionError(e);
+			throw e;
+		}
+		final ConnectionEvent event = new ConnectionEvent(this);
+		for (ConnectionEventListener listener : listeners) {
+			listener.connectionClosed(event);
+		}
+	}
+
+	// Called by the logical connection on abort: the physical connection is closed and the listeners notified
+	void abort(Conn handle) {
+		synchronized (this) {
+			if (handle != logical) {
+				return;
+			}
+			logical = null;
+		}
+		final SQLException e = Util.error("connection aborted");
+		try {
+			physical.close();
+		} catch (SQLException c) {
+			e.addSuppressed(c);
+		}
+		fireConnectionError(e);
+	}
+
+	private void fireConnectionError(SQLException e) {
+		final ConnectionEvent event = new ConnectionEvent(this, e);
+		for (ConnectionEventListener listener : listeners) {
+			listener.connectionErrorOccurred(event);
+		}
+	}
+
+	@Override
+	public void close() throws SQLException {
+		synchronized (this) {
+			if (logical != null) {
+				logical.invalidate();
+				logical = null;
+			}
+		}
+		physical.close();
+	}
+
+	boolean isClosed() {
+		return physical.isClosed();
+	}
+
+	@Override
+	public void addConnectionEventListener(ConnectionEventListener listener) {
+		listeners.add(listener);
+	}
+	@Override
+	public void removeConnectionEventListener(ConnectionEventListener listener) {
+		listeners.remove(listener);
+	}
+	@Override
+	public void addStatementEventListener(StatementEventListener listener) {
+		statementListeners.add(listener);
+	}
+	@Override
+	public void removeStatementEventListener(StatementEventListener listener) {
+		statementListeners.remove(listener);
+	}
+}
@@ -0,0 +1,365 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataSource which keeps physical connections open (with their prepared statements and page caches)
+ * and hands out logical connections.
+ * <p>
+ * Closing a logical connection rolls back any pending transaction, resets the statements still active,
+ * and gives the physical connection back to the pool.
+ * Idle connections are closed after {@link #getMaxIdleTime()} seconds (but {@link #getMinPoolSize()} are kept).
+ * When {@link #getMaxPoolSize()} connections are in use, {@link #getConnection()} waits up to {@link #getLoginTimeout()} seconds
+ * (indefinitely when 0).
+ */
+public class PoolingDataSource extends BasicDataSource implements AutoCloseable {
+	private int initialPoolSize;
+	private int minPoolSize;
+	private int maxPoolSize = 10;
+	private int maxIdleTime; // seconds, 0 = no limit
+	private int propertyCycle; // seconds between two idle checks
+
+	// most recently used at the end
+	private final ArrayDeque<PooledConn> idle = new ArrayDeque<>();
+	// number of physical connections (idle, in use or being opened)
+	private int total;
+	private boolean initialized;
+	private boolean closed;
+	private long lastIdleCheck;
+
+	private long borrows;
+	private long waits;
+	private long timeouts;
+	private long created;
+	private long destroyed;
+	private long borrowNanos;
+	private long maxBorrowNanos;
+
+	private final ConnectionEventListener listener = new ConnectionEventListener() {
+		@Override
+		public void connectionClosed(ConnectionEvent event) {
+			release((PooledConn) event.getSource());
+		}
+		@Override
+		public void connectionErrorOccurred(ConnectionEvent event) {
+			destroy((PooledConn) event.getSource());
+		}
+	};
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		final long start = System.nanoTime();
+		PooledConn pc = null;
+		final List<PooledConn> expired;
+		synchronized (this) {
+			if (closed) {
+				throw Util.error("pool closed");
+			}
+			if (!initialized) {
+				initialized = true;
+				for (int i = 0; i < initialPoolSize; i++) {
+					total++;
+					idle.add(create());
+				}
+			}
+			boolean waited = false;
+			while (true) {
+				pc = idle.pollLast();
+				if (pc != null) {
+					break;
+				}
+				if (maxPoolSize <= 0 || total < maxPoolSize) {
+					total++;
+					break;
+				}
+				final long timeout = getLoginTimeout() <= 0 ? 0L :
+						TimeUnit.SECONDS.toNanos(getLoginTimeout()) - (System.nanoTime() - start);
+				if (getLoginTimeout() > 0 && timeout <= 0L) {
+					timeouts++;
+					throw new SQLTransientConnectionException(String.format("no connection available after %d s (max pool size: %d)",
+							getLoginTimeout(), maxPoolSize));
+				}
+				waited = true;
+				try {
+					if (timeout == 0L) {
+						wait();
+					} else {
+						TimeUnit.NANOSECONDS.timedWait(this, timeout);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLTransientConnectionException("interrupted while waiting for a connection", null, e);
+				}
+				if (closed) {
+					throw Util.error("pool closed");
+				}
+			}
+			if (waited) {
+				waits++;
+			}
+			expired = expire(System.nanoTime());
+		}
+		if (expired != null) {
+			closeAll(expired);
+		}
+		if (pc == null) {
+			pc = create();
+		}
+		final Connection conn;
+		try {
+			conn = pc.getConnection();
+		} catch (SQLException e) {
+			destroy(pc);
+			throw e;
+		}
+		final long elapsed = System.nanoTime() - start;
+		synchronized (this) {
+			borrows++;
+			borrowNanos += elapsed;
+			if (elapsed > maxBorrowNanos) {
+				maxBorrowNanos = elapsed;
+			}
+		}
+		return conn;
+	}
+
+	/**
+	 * Same as {@link #getConnection()}: user and password are ignored by SQLite.
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return getConnection();
+	}
+
+	// A slot must have been reserved (total incremented)
+	private PooledConn create() throws SQLException {
+		final PooledConn pc;
+		try {
+			final Conn physical = open(null);
+			try {
+				pc = new PooledConn(physical);
+			} catch (SQLException e) {
+				throw Guard.close(physical, e);
+			}
+		} catch (SQLException | RuntimeException e) {
+			synchronized (this) {
+				total--;
+				notifyAll();
+			}
+			throw e;
+		}
+		pc.addConnectionEventListener(listener);
+		synchronized (this) {
+			created++;
+		}
+		return pc;
+	}
+
+	private void release(PooledConn pc) {
+		synchronized (this) {
+			if (!closed && (maxPoolSize <= 0 || total <= maxPoolSize)) {
+				pc.lastUsed = System.nanoTime();
+				idle.addLast(pc);
+				notify();
+				return;
+			}
+		}
+		destroy(pc);
+	}
+
+	private void destroy(PooledConn pc) {
+		synchronized (this) {
+			total--;
+			destroyed++;
+			notify();
+		}
+		close(pc);
+	}
+
+	// Must be called with the monitor held. Returned connections must be closed (outside of the monitor).
+	private List<PooledConn> expire(long now) {
+		if (maxIdleTime <= 0 || idle.isEmpty() || (propertyCycle > 0 && now - lastIdleCheck < TimeUnit.SECONDS.toNanos(propertyCycle))) {
+			return null;
+		}
+		lastIdleCheck = now;
+		final long maxIdleNanos = TimeUnit.SECONDS.toNanos(maxIdleTime);
+		List<PooledConn> expired = null;
+		final Iterator<PooledConn> it = idle.iterator(); // least recently used first
+		while (it.hasNext() && total > minPoolSize) {
+			final PooledConn pc = it.next();
+			if (now - pc.lastUsed < maxIdleNanos) {
+				break;
+			}
+			it.remove();
+			total--;
+			destroyed++;
+			if (expired == null) {
+				expired = new ArrayList<>(2);
+			}
+			expired.add(pc);
+		}
+		return expired;
+	}
+
+	/**
+	 * Close idle connections and refuse new borrows.
+	 * Connections in use are closed when they are given back.
+	 */
+	@Override
+	public void close() {
+		final List<PooledConn> connections;
+		synchronized (this) {
+			closed = true;
+			connections = new ArrayList<>(idle);
+			total -= idle.size();
+			destroyed += idle.size();
+			idle.clear();
+			notifyAll();
+		}
+		closeAll(connections);
+	}
+
+	private static void closeAll(List<PooledConn> connections) {
+		for (PooledConn pc : connections) {
+			close(pc);
+		}
+	}
+	private static void close(PooledConn pc) {
+		try {
+			pc.close();
+		} catch (SQLException e) {
+			Util.trace("PooledConnection.close: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return number of connections opened when the first connection is requested.
+	 */
+	public int getInitialPoolSize() {
+		return initialPoolSize;
+	}
+	public void setInitialPoolSize(int initialPoolSize) {
+		this.initialPoolSize = initialPoolSize;
+	}
+	/**
+	 * @return number of idle connections kept even if they exceed {@link #getMaxIdleTime()}
+	 */
+	public int getMinPoolSize() {
+		return minPoolSize;
+	}
+	public void setMinPoolSize(int minPoolSize) {
+		this.minPoolSize = minPoolSize;
+	}
+	/**
+	 * @return maximum number of physical connections (0 for no limit)
+	 */
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+	public synchronized void setMaxPoolSize(int maxPoolSize) {
+		this.maxPoolSize = maxPoolSize;
+		notifyAll();
+	}
+	/**
+	 * @return number of seconds an idle connection is kept (0 for no limit)
+	 */
+	public int getMaxIdleTime() {
+		return maxIdleTime;
+	}
+	public void setMaxIdleTime(int maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+	/**
+	 * @return minimum number of seconds between two idle connections checks
+	 */
+	public int getPropertyCycle() {
+		return propertyCycle;
+	}
+	public void setPropertyCycle(int propertyCycle) {
+		this.propertyCycle = propertyCycle;
+	}
+
+	/**
+	 * @return number of idle physical connections
+	 */
+	public synchronized int getIdleCount() {
+		return idle.size();
+	}
+	/**
+	 * @return number of physical connections in use
+	 */
+	public synchronized int getActiveCount() {
+		return total - idle.size();
+	}
+	/**
+	 * @return number of successful {@link #getConnection()} calls
+	 */
+	public synchronized long getBorrowCount() {
+		return borrows;
+	}
+	/**
+	 * @return number of borrows which had to wait for a connection to be given back
+	 */
+	public synchronized long getWaitCount() {
+		return waits;
+	}
+	/**
+	 * @return number of borrows which failed because no connection was given back in time
+	 */
+	public synchronized long getTimeoutCount() {
+		return timeouts;
+	}
+	/**
+	 * @return number of physical connections opened
+	 */
+	public synchronized long getCreatedCount() {
+		return created;
+	}
+	/**
+	 * @return number of physical connections closed (idle expiration, errors, pool closed)
+	 */
+	public synchronized long getDestroyedCount() {
+		return destroyed;
+	}
+	/**
+	 * @return mean time spent in {@link #getConnection()} (in nanoseconds)
+	 */
+	public synchronized long getMeanBorrowNanos() {
+		return borrows == 0 ? 0L : borrowNanos / borrows;
+	}
+	/**
+	 * @return longest time spent in {@link #getConnection()} (in nanoseconds)
+	 */
+	public synchronized long getMaxBorrowNanos() {
+		return maxBorrowNanos;
+	}
+	/**
+	 * Reset borrow/wait/timeout/created/destroyed counters.
+	 */
+	public synchronized void resetStats() {
+		borrows = waits = timeouts = created = destroyed = borrowNanos = maxBorrowNanos = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("PoolingDataSource{filename=%s, active=%d, idle=%d, borrows=%d, waits=%d, timeouts=%d, meanBorrowNanos=%d, maxBorrowNanos=%d}",
+				getFilename(), total - idle.size(), idle.size(), borrows, waits, timeouts, getMeanBorrowNanos(), maxBorrowNanos);
+	}
+}
@@ -9,7 +9,9 @@
 package org.sqlite.driver;
 
 import org.sqlite.ErrCodes;
+import org.sqlite.SQLite;
 import org.sqlite.StmtException;
+import org.sqlite.Utf8Text;
 import org.sqlite.ZeroBlob;
 
 import java.io.ByteArrayOutputStream;
@@ -37,11 +39,9 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.LocalDate;
 import java.time.temporal.Temporal;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -90,13 +90,16 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 	private Map<Integer, org.sqlite.Blob> blobByParamIndex = Collections.emptyMap();
 
 	private boolean batching;
-	private Object[] bindings;
-	private boolean[] bound;
+	private Bindings bindings; // current row and batch
 	private boolean boundChecked;
-	private List<Object[]> batch; // list of bindings
+	private final boolean generatedKeys;
+	// multi-row INSERT rewriting (see rewrite_batched_inserts)
+	private BatchInsert batchInsert;
+	private boolean batchInsertChecked;
 
 	PrepStmt(Conn c, org.sqlite.Stmt stmt, Generated autoGeneratedKeys) {
 		super(c, stmt, autoGeneratedKeys);
+		generatedKeys = autoGeneratedKeys != Generated.NO_GENERATED_KEYS;
 	}
 
 	@Override
@@ -268,7 +271,7 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 				final long unixepoch = sqlDate ? DateUtil.normalizeDate(x.getTime(), null) : x.getTime();
 				bindDouble(parameterIndex, DateUtil.toJulianDay(unixepoch));
 			} else {
-				bindText(parameterIndex, DateUtil.formatDate(x, fmt, null));
+				bindText(parameterIndex, DateUtil.formatText(x, fmt, null));
 			}
 		}
 	}
@@ -345,7 +348,7 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 		} finally {
 			blob.close();
 		}
-		bound[parameterIndex - 1] = true;
+		bindings().markBound(parameterIndex);
 	}
 	@Override
 	public void setBinaryStream(String parameterName, InputStream x, int length) throws SQLException {
@@ -356,8 +359,7 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 	public void clearParameters() throws SQLException {
 		getStmt().clearBindings();
 		if (bindings != null) {
-			Arrays.fill(bindings, null);
-			Arrays.fill(bound, false);
+			bindings.clear();
 			boundChecked = false;
 			rowId = null;
 		}
@@ -387,6 +389,8 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 			bindNull(parameterIndex);
 		} else if (x instanceof String) {
 			setString(parameterIndex, (String) x);
+		} else if (x instanceof Utf8Text) {
+			bindText(parameterIndex, (Utf8Text) x);
 		} else if (x instanceof Boolean) {
 			setBoolean(parameterIndex, (Boolean) x);
 		} else if (x instanceof Integer) {
@@ -421,8 +425,15 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 			setClob(parameterIndex, (Clob) x);
 		} else if (x instanceof Array) {
 			setArray(parameterIndex, (Array) x);
+		} else if (x instanceof long[] || x instanceof double[] || x instanceof String[]) {
+			bindArray(parameterIndex, x);
 		} else if (x instanceof Temporal) {
-			setString(parameterIndex, x.toString());
+			final Utf8Text txt = DateUtil.formatText((Temporal) x);
+			if (txt == null) {
+				setString(parameterIndex, x.toString());
+			} else {
+				bindText(parameterIndex, txt);
+			}
 		} else {
 			throw new StmtException(getStmt(), String.format("Unsupported type: %s", x.getClass().getName()), ErrCodes.WRAPPER_SPECIFIC);
 		}
@@ -447,63 +458,221 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 		if (!batching) {
 			batching = true;
 		}
-		if (batch == null) {
-			batch = new ArrayList<>();
-		}
 		if (!boundChecked) {
 			checkParameters(getStmt());
 		}
-		if (bindings == null) { // parameterCount == 0
-			batch.add(null);
-		} else {
-			batch.add(Arrays.copyOf(bindings, bindings.length));
-		}
+		bindings().addRow();
 	}
 
 	@Override
 	public void clearBatch() throws SQLException {
 		checkOpen();
-		if (batch != null) {
-			batch.clear();
+		if (bindings != null) {
+			bindings.clearBatch();
 		}
 		batching = false;
 	}
 
 	@Override
 	public int[] executeBatch() throws SQLException {
+		final int size = bindings == null ? 0 : bindings.size();
+		final int[] changes = new int[size];
+		executeBatch(changes, null);
+		return changes;
+	}
+	//#if mvn.project.property.large.update == "true"
+	@Override
+	public long[] executeLargeBatch() throws SQLException {
+		final int size = bindings == null ? 0 : bindings.size();
+		final long[] changes = new long[size];
+		executeBatch(null, changes);
+		return changes;
+	}
+	//#endif
+
+	// Rows are bound directly from the typed buffers and stepped without any check (done by addBatch).
+	private void executeBatch(int[] changes, long[] largeChanges) throws SQLException {
 		final org.sqlite.Stmt stmt = getStmt();
 		batching = false;
-		if (batch == null) {
-			return new int[0]; // FIXME
+		final int size = changes == null ? largeChanges.length : changes.length;
+		if (size == 0) {
+			return;
 		}
-		final int size = batch.size();
+		final org.sqlite.Conn conn = getConn();
+		final boolean savepoint = beginBatch(conn, stmt);
+		// an error may roll back the whole transaction (e.g. ON CONFLICT ROLLBACK)
+		final boolean transaction = !conn.getAutoCommit();
 		SQLException cause = null;
-		Object[] params;
-		final int[] changes = new int[size];
-		for (int i = 0; i < size; ++i) {
-			try {
-				params = batch.get(i);
-				if (params != null) {
-					for (int j = 0; j < params.length; j++) {
-						stmt.bindByIndex(j + 1, params[j]);
+		try {
+			int i = 0;
+			final BatchInsert insert = size > 1 ? batchInsert() : null;
+			if (insert != null) {
+				final int n = stmt.getBindParameterCount();
+				final int maxVariableNumber = conn.getLimit(SQLite.SQLITE_LIMIT_VARIABLE_NUMBER);
+				int rows;
+				while (!rolledBack(conn, transaction) && size - i > 1 && (rows = BatchInsert.chunkSize(size - i, n, maxVariableNumber)) > 1) {
+					try (org.sqlite.Stmt chunk = conn.prepare(insert.sql(rows), true)) {
+						for (; size - i >= rows && !rolledBack(conn, transaction); i += rows) {
+							final SQLException e = executeChunk(conn, chunk, n, i, rows, changes, largeChanges);
+							if (e != null && rolledBack(conn, transaction)) { // not replayed
+								if (cause != null) {
+									e.setNextException(cause);
+								}
+								cause = e;
+							} else if (e != null) { // replayed row by row to report the failing rows
+								cause = executeRows(stmt, conn, transaction, i, i + rows, changes, largeChanges, cause);
+							}
+						}
 					}
 				}
-				changes[i] = executeUpdate();
+			}
+			cause = executeRows(stmt, conn, transaction, i, size, changes, largeChanges, cause);
+			if (rolledBack(conn, transaction)) { // rows already run are lost and the following ones have not been run
+				if (changes != null) {
+					Arrays.fill(changes, EXECUTE_FAILED);
+				} else {
+					Arrays.fill(largeChanges, EXECUTE_FAILED);
+				}
+			}
+		} catch (Throwable e) {
+			rollbackBatch(conn, savepoint, e);
+			throw e;
+		}
+		cause = endBatch(conn, savepoint, cause);
+		clearBatch();
+		if (cause != null) {
+			if (changes != null) {
+				throw new BatchUpdateException("batch failed", changes, cause);
+			}
+			throw new BatchUpdateException("batch failed", cause.getSQLState(), cause.getErrorCode(), largeChanges, cause);
+		}
+	}
+
+	private SQLException executeRows(org.sqlite.Stmt stmt, org.sqlite.Conn conn, boolean transaction, int from, int to,
+			int[] changes, long[] largeChanges, SQLException cause) throws SQLException {
+		if (rolledBack(conn, transaction)) {
+			return cause;
+		}
+		for (int i = from; i < to; ++i) {
+			try {
+				stmt.reset();
+				bindings.bindRow(stmt, i, 0);
+				step(true);
+				if (changes != null) {
+					changes[i] = conn.getChanges();
+				} else {
+					//#if mvn.project.property.large.update == "true"
+					largeChanges[i] = conn.getChanges64();
+					//#endif
+				}
 			} catch (SQLException e) {
 				if (cause != null) {
 					e.setNextException(cause);
 				}
 				cause = e;
-				changes[i] = EXECUTE_FAILED;
+				if (changes != null) {
+					changes[i] = EXECUTE_FAILED;
+				} else {
+					largeChanges[i] = EXECUTE_FAILED;
+				}
+				if (rolledBack(conn, transaction)) { // following rows would be committed one by one
+					break;
+				}
 			}
 		}
-		clearBatch();
-		if (cause != null) {
-			throw new BatchUpdateException("batch failed", changes, cause);
+		return cause;
+	}
+
+	private static boolean rolledBack(org.sqlite.Conn conn, boolean transaction) throws SQLException {
+		return transaction && conn.getAutoCommit();
+	}
+
+	// Execute <code>rows</code> rows with one multi-row INSERT (inside a savepoint so that a failure leaves no row).
+	// Return the error or null.
+	private SQLException executeChunk(org.sqlite.Conn conn, org.sqlite.Stmt chunk, int n, int from, int rows,
+			int[] changes, long[] largeChanges) throws SQLException {
+		conn.fastExec("SAVEPOINT batch_chunk");
+		try {
+			for (int j = 0; j < rows; j++) {
+				bindings.bindRow(chunk, from + j, j * n);
+			}
+			chunk.exec();
+		} catch (Throwable e) {
+			try {
+				if (!conn.getAutoCommit()) { // the transaction may have been rolled back by the error
+					conn.fastExec("ROLLBACK TO batch_chunk");
+					conn.fastExec("RELEASE batch_chunk");
+				}
+			} catch (SQLException r) {
+				e.addSuppressed(r);
+				throw e;
+			}
+			if (e instanceof SQLException) {
+				return (SQLException) e;
+			}
+			throw e;
 		}
-		return changes;
+		conn.fastExec("RELEASE batch_chunk");
+		// per-row counts are known only when each row has been inserted (not with OR IGNORE/REPLACE)
+		final int count = conn.getChanges() == rows ? 1 : SUCCESS_NO_INFO;
+		if (changes != null) {
+			Arrays.fill(changes, from, from + rows, count);
+		} else {
+			Arrays.fill(largeChanges, from, from + rows, count);
+		}
+		return null;
+	}
+
+	private BatchInsert batchInsert() throws SQLException {
+		if (!batchInsertChecked) {
+			batchInsertChecked = true;
+			if (conn().rewriteBatchedInserts && !generatedKeys) {
+				batchInsert = BatchInsert.of(getStmt().getSql());
+			}
+		}
+		return batchInsert;
+	}
+
+	// In auto-commit mode, the whole batch is run inside an implicit savepoint so that it is committed once
+	// (instead of once per row). Transaction control statements (read-only) are excluded.
+	private static boolean beginBatch(org.sqlite.Conn conn, org.sqlite.Stmt stmt) throws SQLException {
+		if (!conn.getAutoCommit() || stmt.isReadOnly()) {
+			return false;
+		}
+		conn.fastExec("SAVEPOINT batch");
+		return true;
+	}
+	// After an unexpected error (not reported by row), nothing is kept: the connection is back in auto-commit mode.
+	private static void rollbackBatch(org.sqlite.Conn conn, boolean savepoint, Throwable cause) {
+		if (!savepoint) {
+			return;
+		}
+		try {
+			if (!conn.getAutoCommit()) {
+				conn.fastExec("ROLLBACK TO batch");
+				conn.fastExec("RELEASE batch");
+			}
+		} catch (SQLException e) {
+			cause.addSuppressed(e);
+		}
+	}
+	// Rows which succeeded are committed even if some others failed (like without the savepoint).
+	private static SQLException endBatch(org.sqlite.Conn conn, boolean savepoint, SQLException cause) {
+		if (!savepoint) {
+			return cause;
+		}
+		try {
+			if (!conn.getAutoCommit()) { // the transaction may have been rolled back by an error
+				conn.fastExec("RELEASE batch");
+			}
+		} catch (SQLException e) {
+			if (cause != null) {
+				e.setNextException(cause);
+			}
+			return e;
+		}
+		return cause;
 	}
-	// TODO executeLargeBatch
 
 	@Override
 	public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
@@ -543,7 +712,11 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 
 	@Override
 	public void setArray(int parameterIndex, Array x) throws SQLException {
-		throw Util.unsupported("PreparedStatement.setArray");
+		if (x == null) {
+			bindNull(parameterIndex);
+		} else {
+			bindArray(parameterIndex, ArrayImpl.getValues(x));
+		}
 	}
 
 	@Override
@@ -552,7 +725,7 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 		if (stmt.getColumnCount() == 0) {
 			return null;
 		}
-		return new RowsMeta(stmt);
+		return new RowsMeta(getConn(), stmt);
 	}
 
 	@Override
@@ -708,7 +881,7 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 				setString(parameterIndex, DateUtil.formatDate((java.util.Date) x, scaleOrLength, null));
 				return;
 			} else if (x instanceof Temporal) {
-				setString(parameterIndex, x.toString());
+				setObject(parameterIndex, x);
 				return;
 			}
 		} else if (Types.INTEGER == targetSqlType) {
@@ -893,58 +1066,70 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 		if (!batching) {
 			getStmt().bindNull(parameterIndex);
 		}
-		bind(parameterIndex, null);
+		bindings().setNull(parameterIndex);
 	}
 
 	private void bindInt(int parameterIndex, int x) throws SQLException {
 		if (!batching) {
 			getStmt().bindInt(parameterIndex, x);
 		}
-		bind(parameterIndex, x);
+		bindings().setLong(parameterIndex, x);
 	}
 
 	private void bindLong(int parameterIndex, long x) throws SQLException {
 		if (!batching) {
 			getStmt().bindLong(parameterIndex, x);
 		}
-		bind(parameterIndex, x);
+		bindings().setLong(parameterIndex, x);
 	}
 
 	private void bindDouble(int parameterIndex, double x) throws SQLException {
 		if (!batching) {
 			getStmt().bindDouble(parameterIndex, x);
 		}
-		bind(parameterIndex, x);
+		bindings().setDouble(parameterIndex, x);
 	}
 
 	private void bindText(int parameterIndex, String x) throws SQLException {
 		if (!batching) {
 			getStmt().bindText(parameterIndex, x);
 		}
-		bind(parameterIndex, x);
+		bindings().setText(parameterIndex, x);
+	}
+
+	private void bindText(int parameterIndex, Utf8Text x) throws SQLException {
+		if (!batching) {
+			getStmt().bindText(parameterIndex, x);
+		}
+		bindings().setText(parameterIndex, x);
 	}
 
 	private void bindBlob(int parameterIndex, byte[] x) throws SQLException {
 		if (!batching) {
 			getStmt().bindBlob(parameterIndex, x);
 		}
-		bind(parameterIndex, x);
+		bindings().setBlob(parameterIndex, x);
 	}
 
 	private void bindZeroBlob(int parameterIndex, ZeroBlob x) throws SQLException {
 		if (!batching) {
 			getStmt().bindZeroblob(parameterIndex, x.n);
 		}
-		bind(parameterIndex, x);
+		bindings().setZeroBlob(parameterIndex, x.n);
+	}
+
+	private void bindArray(int parameterIndex, Object x) throws SQLException {
+		if (!batching) {
+			getStmt().bindArray(parameterIndex, x);
+		}
+		bindings().setArray(parameterIndex, x);
 	}
 
-	private void bind(int parameterIndex, Object x) throws SQLException {
+	private Bindings bindings() throws SQLException {
 		if (bindings == null) {
-			bindings = new Object[getParameterCount()];
-			bound = new boolean[bindings.length];
+			bindings = new Bindings(getParameterCount());
 		}
-		bindings[parameterIndex - 1] = x;
-		bound[parameterIndex - 1] = true;
+		return bindings;
 	}
 
 	/*
@@ -958,16 +1143,10 @@ class PrepStmt extends Stmt implements ParameterMetaData, SQLitePreparedStatemen
 			boundChecked = true;
 			return;
 		}
-		if (bindings == null) {
+		if (bindings == null || !bindings.isComplete()) {
 			throw new StmtException(stmt, "a value must be provided for each parameter marker in the PreparedStatement object before it can be executed.", ErrCodes.WRAPPER_SPECIFIC);
-		} else {
-			for (boolean b : bound) {
-				if (!b) {
-					throw new StmtException(stmt, "a value must be provided for each parameter marker in the PreparedStatement object before it can be executed.", ErrCodes.WRAPPER_SPECIFIC);
-				}
-			}
-			boundChecked = true;
 		}
+		boundChecked = true;
 	}
 
 	private int getBindParameterIndex(String parameterName) throws SQLException {
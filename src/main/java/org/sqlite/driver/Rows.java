@@ -9,6 +9,7 @@
 package org.sqlite.driver;
 
 import org.sqlite.ColTypes;
+import org.sqlite.ColumnBatch;
 import org.sqlite.ErrCodes;
 import org.sqlite.StmtException;
 
@@ -35,16 +36,15 @@ import java.sql.SQLXML;
 import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.OffsetDateTime;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
 
-class Rows implements ResultSet {
+class Rows implements ResultSet, ColumnBatchReader {
 	private Stmt s;
 	private org.sqlite.Stmt stmt;
 	private RowsMeta meta;
@@ -96,6 +96,35 @@ class Rows implements ResultSet {
 		return hasRow;
 	}
 
+	@Override
+	public int fetchBatch(int maxRows, ColumnBatch out) throws SQLException {
+		final org.sqlite.Stmt stmt = getStmt();
+		wasNull = null;
+		rowId = null;
+		if (row < 0) { // no result or after last
+			out.clear();
+			return 0;
+		}
+		int n = maxRows;
+		final int limit = s.getMaxRows();
+		if (limit != 0) {
+			n = Math.min(n, limit - row);
+			if (n <= 0) {
+				row = -2;
+				stmt.reset();
+				out.clear();
+				return 0;
+			}
+		}
+		final int fetched = stmt.fetchBatch(n, out, row == 0, s.getQueryTimeout());
+		if (fetched < n) {
+			row = -2;
+		} else {
+			row += fetched;
+		}
+		return fetched;
+	}
+
 	private int fixCol(int columnIndex) throws StmtException {
 		if (row < 0) {
 			throw new StmtException(stmt, "No data available", ErrCodes.WRAPPER_SPECIFIC);
@@ -367,7 +396,7 @@ class Rows implements ResultSet {
 	public ResultSetMetaData getMetaData() throws SQLException { // Used by Hibernate
 		checkOpen();
 		if (meta == null) {
-			meta = new RowsMeta(stmt);
+			meta = new RowsMeta(s.getConn(), stmt);
 		}
 		return meta;
 	}
@@ -902,8 +931,7 @@ class Rows implements ResultSet {
 			case ColTypes.SQLITE_NULL:
 				return null;
 			case ColTypes.SQLITE_TEXT: // does not work as expected if column type affinity is TEXT but inserted value was a numeric
-				final String txt = stmt.getColumnText(fixCol(columnIndex));
-				return DateUtil.toDate(txt, cal);
+				return DateUtil.toDate(stmt.getColumnTextBuffer(fixCol(columnIndex)), cal);
 			case ColTypes.SQLITE_INTEGER:
 				final long l = stmt.getColumnLong(fixCol(columnIndex));
 				if (cal == null && DateUtil.EPOCH_DAY.equals(s.conn().dateTimeConfig[DateUtil.DATE_CONFIG])) {
@@ -933,8 +961,7 @@ class Rows implements ResultSet {
 			case ColTypes.SQLITE_NULL:
 				return null;
 			case ColTypes.SQLITE_TEXT: // does not work as expected if column type affinity is TEXT but inserted value was a numeric
-				final String txt = stmt.getColumnText(fixCol(columnIndex));
-				return DateUtil.toTime(txt, cal);
+				return DateUtil.toTime(stmt.getColumnTextBuffer(fixCol(columnIndex)), cal);
 			case ColTypes.SQLITE_INTEGER:
 				final long unixepoch = stmt.getColumnLong(fixCol(columnIndex));
 				return DateUtil.toTime(unixepoch);
@@ -961,8 +988,7 @@ class Rows implements ResultSet {
 			case ColTypes.SQLITE_NULL:
 				return null;
 			case ColTypes.SQLITE_TEXT: // does not work as expected if column type affinity is TEXT but inserted value was a numeric
-				final String txt = stmt.getColumnText(fixCol(columnIndex));
-				return DateUtil.toTimestamp(txt, cal);
+				return DateUtil.toTimestamp(stmt.getColumnTextBuffer(fixCol(columnIndex)), cal);
 			case ColTypes.SQLITE_INTEGER:
 				final long unixepoch = stmt.getColumnLong(fixCol(columnIndex));
 				return DateUtil.toTimestamp(unixepoch);
@@ -1286,8 +1312,7 @@ class Rows implements ResultSet {
 			case ColTypes.SQLITE_NULL:
 				return null;
 			case ColTypes.SQLITE_TEXT:
-				final String txt = stmt.getColumnText(fixCol(columnIndex));
-				return convert(txt, type);
+				return DateUtil.toTemporal(stmt.getColumnTextBuffer(fixCol(columnIndex)), type);
 			case ColTypes.SQLITE_INTEGER:
 				final long l = stmt.getColumnLong(fixCol(columnIndex));
 				return convert(l, type);
@@ -1299,27 +1324,31 @@ class Rows implements ResultSet {
 		}
 	}
 
-	private <T> T convert(String txt, Class<T> type) throws SQLException {
+	// same units as getDate/getTimestamp: epoch day when configured for dates, unix epoch millis otherwise
+	private <T> T convert(long l, Class<T> type) throws SQLException {
 		if (LocalDate.class.equals(type)) {
-			return (T)LocalDate.parse(txt); // TODO wrap DateTimeParseException into SQLException
+			if (DateUtil.EPOCH_DAY.equals(s.conn().dateTimeConfig[DateUtil.DATE_CONFIG])) {
+				return type.cast(LocalDate.ofEpochDay(l));
+			}
+			return type.cast(DateUtil.toLocalDateTime(l).toLocalDate());
+		} else if (Instant.class.equals(type)) {
+			return type.cast(Instant.ofEpochMilli(l));
 		} else if (LocalDateTime.class.equals(type)) {
-			return (T)LocalDateTime.parse(txt);
-		} else if (OffsetDateTime.class.equals(type)) {
-			return (T)OffsetDateTime.parse(txt);
-		} else if (LocalTime.class.equals(type)) {
-			return (T)LocalTime.parse(txt);
+			return type.cast(DateUtil.toLocalDateTime(l));
 		}
-		throw new SQLException("Conversion from text to " + type + " is not supported");
+		throw new SQLException("Conversion from long to " + type + " is not supported");
 	}
 
-	private <T> T convert(long l, Class<T> type) throws SQLException {
+	// julian day
+	private static <T> T convert(double d, Class<T> type) throws SQLException {
+		final long unixepoch = DateUtil.fromJulianDay(d);
 		if (LocalDate.class.equals(type)) {
-			return (T)LocalDate.ofEpochDay(l);
+			return type.cast(DateUtil.toLocalDateTime(unixepoch).toLocalDate());
+		} else if (Instant.class.equals(type)) {
+			return type.cast(Instant.ofEpochMilli(unixepoch));
+		} else if (LocalDateTime.class.equals(type)) {
+			return type.cast(DateUtil.toLocalDateTime(unixepoch));
 		}
-		throw new SQLException("Conversion from long to " + type + " is not supported");
-	}
-
-	private <T> T convert(double d, Class<T> type) throws SQLException {
 		throw new SQLException("Conversion from double to " + type + " is not supported");
 	}
 
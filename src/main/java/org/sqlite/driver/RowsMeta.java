@@ -9,6 +9,7 @@
 package org.sqlite.driver;
 
 import org.sqlite.ColAffinities;
+import org.sqlite.Conn;
 import org.sqlite.ErrCodes;
 import org.sqlite.Stmt;
 import org.sqlite.StmtException;
@@ -17,29 +18,50 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 class RowsMeta implements ResultSetMetaData {
+	private final Conn conn;
 	private final Stmt stmt;
+	private ColumnsMeta meta;
 
-	RowsMeta(Stmt stmt) {
+	RowsMeta(Conn conn, Stmt stmt) {
+		this.conn = conn;
 		this.stmt = stmt;
 	}
 
-	private static int fixCol(int columnIndex) {
-		return columnIndex - 1;
+	private ColumnsMeta.Column column(int column) throws SQLException {
+		if (meta == null) {
+			meta = ColumnsMeta.of(conn, stmt);
+		}
+		if (column < 1 || column > meta.columns.length) {
+			throw new StmtException(stmt, String.format("column index %d out of range [1,%d].", column, meta.columns.length), ErrCodes.SQLITE_RANGE);
+		}
+		return meta.columns[column - 1];
+	}
+	private ColumnsMeta.Column metadata(int column) throws SQLException {
+		final ColumnsMeta.Column c = column(column);
+		if (!ColumnsMeta.COLUMN_METADATA) {
+			throw new UnsupportedOperationException("SQLITE_ENABLE_COLUMN_METADATA not activated");
+		}
+		return c;
+	}
+	// not null, primary key, autoincrement
+	private boolean[] flags(int column) throws SQLException {
+		final boolean[] flags = metadata(column).flags;
+		return flags == null ? stmt.getMetadata(column - 1) : flags; // reports the sqlite3_table_column_metadata error
 	}
 
 	@Override
 	public int getColumnCount() { // Used by Hibernate
-		return stmt.getColumnCount();
+		return meta == null ? stmt.getColumnCount() : meta.columns.length;
 	}
 
 	@Override
 	public boolean isAutoIncrement(int column) throws SQLException {
-		return stmt.getMetadata(fixCol(column))[2];
+		return flags(column)[2];
 	}
 
 	@Override
 	public boolean isCaseSensitive(int column) throws SQLException {
-		switch (stmt.getColumnAffinity(fixCol(column))) {
+		switch (metadata(column).affinity) {
 			case ColAffinities.INTEGER:
 			case ColAffinities.NUMERIC:
 			case ColAffinities.REAL:
@@ -62,12 +84,12 @@ class RowsMeta implements ResultSetMetaData {
 
 	@Override
 	public int isNullable(int column) throws SQLException {
-		return stmt.getMetadata(fixCol(column))[0] ? columnNoNulls : columnNullable;
+		return flags(column)[0] ? columnNoNulls : columnNullable;
 	}
 
 	@Override
 	public boolean isSigned(int column) throws SQLException {
-		switch (stmt.getColumnAffinity(fixCol(column))) {
+		switch (metadata(column).affinity) {
 			case ColAffinities.INTEGER:
 			case ColAffinities.NUMERIC:
 			case ColAffinities.REAL:
@@ -78,7 +100,7 @@ class RowsMeta implements ResultSetMetaData {
 
 	@Override
 	public int getColumnDisplaySize(int column) throws SQLException {
-		switch (stmt.getColumnAffinity(fixCol(column))) {
+		switch (metadata(column).affinity) {
 			case ColAffinities.INTEGER:
 				return 20;
 			case ColAffinities.REAL:
@@ -89,12 +111,12 @@ class RowsMeta implements ResultSetMetaData {
 
 	@Override
 	public String getColumnLabel(int column) throws SQLException {
-		return stmt.getColumnName(fixCol(column));
+		return column(column).label;
 	}
 
 	@Override
 	public String getColumnName(int column) throws SQLException {
-		final String name = stmt.getColumnOriginName(fixCol(column));
+		final String name = metadata(column).name;
 		if (name == null) {
 			return getColumnLabel(column);
 		}
@@ -103,12 +125,12 @@ class RowsMeta implements ResultSetMetaData {
 
 	@Override
 	public String getSchemaName(int column) throws SQLException {
-		return nullToEmpty(stmt.getColumnDatabaseName(fixCol(column)));
+		return nullToEmpty(metadata(column).database);
 	}
 
 	@Override
 	public int getPrecision(int column) throws SQLException {
-		switch (stmt.getColumnAffinity(fixCol(column))) {
+		switch (metadata(column).affinity) {
 			case ColAffinities.INTEGER:
 				return 19;
 			case ColAffinities.NUMERIC:
@@ -120,7 +142,7 @@ class RowsMeta implements ResultSetMetaData {
 
 	@Override
 	public int getScale(int column) throws SQLException {
-		switch (stmt.getColumnAffinity(fixCol(column))) {
+		switch (metadata(column).affinity) {
 			case ColAffinities.INTEGER:
 				return 0;
 			case ColAffinities.NUMERIC:
@@ -132,7 +154,7 @@ class RowsMeta implements ResultSetMetaData {
 
 	@Override
 	public String getTableName(int column) throws SQLException {
-		return nullToEmpty(stmt.getColumnTableName(fixCol(column)));
+		return nullToEmpty(metadata(column).table);
 	}
 
 	@Override
@@ -142,13 +164,13 @@ class RowsMeta implements ResultSetMetaData {
 
 	@Override
 	public int getColumnType(int column) throws SQLException {
-		final int affinity = stmt.getColumnAffinity(fixCol(column));
+		final int affinity = metadata(column).affinity;
 		return DbMeta.getJavaType(affinity);
 	}
 
 	@Override
 	public String getColumnTypeName(int column) throws SQLException {
-		return stmt.getColumnDeclType(fixCol(column));
+		return metadata(column).declType;
 	}
 
 	@Override
@@ -170,7 +192,7 @@ class RowsMeta implements ResultSetMetaData {
 
 	@Override
 	public String getColumnClassName(int column) throws SQLException {
-		final int affinity = stmt.getColumnAffinity(fixCol(column));
+		final int affinity = metadata(column).affinity;
 		switch (affinity) {
 			case ColAffinities.TEXT:
 				return "java.lang.String";
@@ -21,9 +21,7 @@ import java.sql.SQLTimeoutException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import static org.sqlite.driver.Conn.empty;
 import static org.sqlite.driver.Generated.RETURNING;
@@ -37,7 +35,6 @@ class Stmt implements Statement {
 	private Generated generatedKeys;
 
 	// cached columns' index by name
-	private Map<String, Integer> colIndexByName;
 	private boolean isCloseOnCompletion;
 	private int maxRows;
 	private int status = -1; // -1: unknown, 0: not a select, 1: select with row, 2: select without row
@@ -48,6 +45,7 @@ class Stmt implements Statement {
 		this.c = c;
 		generatedKeys = Generated.NO_GENERATED_KEYS;
 		prepared = false;
+		c.opened(this);
 	}
 
 	Stmt(Conn c, org.sqlite.Stmt stmt, Generated generatedKeys) {
@@ -55,6 +53,7 @@ class Stmt implements Statement {
 		this.stmt = stmt;
 		this.generatedKeys = generatedKeys;
 		prepared = true;
+		c.opened(this);
 	}
 
 	org.sqlite.Stmt getStmt() throws SQLException {
@@ -88,33 +87,11 @@ class Stmt implements Statement {
 		if (this == c.getGeneratedKeys) { // We don't know the table's name nor the column's name but there is only one possible.
 			return 1;
 		}
-		final Integer index = findColIndexInCache(col);
-		if (null != index) {
-			return index;
+		final int index = stmt.getColumnIndex(col);
+		if (index < 0) {
+			throw new StmtException(stmt, "no such column: '" + col + "'", ErrCodes.WRAPPER_SPECIFIC);
 		}
-		final int columnCount = stmt.getColumnCount();
-		for (int i = 0; i < columnCount; i++) {
-			if (col.equalsIgnoreCase(stmt.getColumnName(i))) {
-				addColIndexInCache(col, i + 1, columnCount);
-				return i + 1;
-			}
-		}
-		throw new StmtException(stmt, "no such column: '" + col + "'", ErrCodes.WRAPPER_SPECIFIC);
-	}
-
-	private Integer findColIndexInCache(String col) {
-		if (null == colIndexByName) {
-			return null;
-		} else {
-			return colIndexByName.get(col);
-		}
-	}
-
-	private void addColIndexInCache(String col, int index, int columnCount) {
-		if (null == colIndexByName) {
-			colIndexByName = new HashMap<>(columnCount);
-		}
-		colIndexByName.put(col, index);
+		return index + 1;
 	}
 
 	@Override
@@ -154,13 +131,15 @@ class Stmt implements Statement {
 	public void close() throws SQLException {
 		//Util.trace("Statement.close");
 		_close();
-		c = null;
+		if (c != null) {
+			c.closed(this);
+			c = null;
+		}
 	}
 
 	private void _close() throws SQLException {
 		if (stmt != null) {
 			stmt.close();
-			if (colIndexByName != null) colIndexByName.clear();
 			stmt = null;
 			generatedKeys = Generated.NO_GENERATED_KEYS;
 			status = -1;
@@ -256,7 +235,9 @@ class Stmt implements Statement {
 		} else if ((res&0xFF) == ErrCodes.SQLITE_CONSTRAINT) {
 			throw new SQLIntegrityConstraintViolationException(stmt.getErrMsg(), null, res);
 		} else if (res == ErrCodes.SQLITE_INTERRUPT) {
-			throw new SQLTimeoutException(stmt.getErrMsg(), null, res);
+			final SQLTimeoutException e = new SQLTimeoutException(stmt.getErrMsg(), null, res);
+			conn().checkNetworkTimeout();
+			throw e;
 		}
 		throw new StmtException(stmt, String.format("error while stepping '%s'", stmt.getSql()), res);
 	}
@@ -420,7 +401,31 @@ class Stmt implements Statement {
 		}
 		return changes;
 	}
-	// TODO executeLargeBatch
+	//#if mvn.project.property.large.update == "true"
+	@Override
+	public long[] executeLargeBatch() throws SQLException {
+		checkOpen();
+		final int size = batch == null ? 0 : batch.size();
+		SQLException cause = null;
+		final long[] changes = new long[size];
+		for (int i = 0; i < size; ++i) {
+			try {
+				changes[i] = executeLargeUpdate(batch.get(i));
+			} catch (SQLException e) {
+				if (cause != null) {
+					e.setNextException(cause);
+				}
+				cause = e;
+				changes[i] = EXECUTE_FAILED;
+			}
+		}
+		clearBatch();
+		if (cause != null) {
+			throw new BatchUpdateException("batch failed", cause.getSQLState(), cause.getErrorCode(), changes, cause);
+		}
+		return changes;
+	}
+	//#endif
 
 	@Override
 	public Connection getConnection() throws SQLException {
@@ -0,0 +1,316 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import org.sqlite.SQLiteException;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataSource for a database in WAL mode with one dedicated writer connection and a pool of reader connections.
+ * <p>
+ * Readers are opened with <code>SQLITE_OPEN_READONLY</code> and <code>query_only</code> so they never take the write lock.
+ * Writers are queued (in FIFO order) in Java instead of spinning inside the busy handler:
+ * the writer connection is given to one caller at a time and is released when the logical connection is closed.
+ * <ul>
+ *   <li>{@link #getConnection(boolean)} routes by transaction intent,</li>
+ *   <li>{@link #getConnection(String)} routes an auto-commit statement with {@link org.sqlite.Stmt#isReadOnly()},</li>
+ *   <li>{@link #getConnection()} returns the writer.</li>
+ * </ul>
+ * Settings must be changed before the first connection is requested.
+ * @see <a href="https://sqlite.org/wal.html">Write-Ahead Logging</a>
+ */
+public class WalDataSource extends BasicDataSource implements AutoCloseable {
+	private int maxReaders = 4;
+	private int readOnlyCacheSize = 256;
+
+	private final Semaphore writeLock = new Semaphore(1, true);
+	private PooledConn writer;
+	private ReaderPool readers;
+	private boolean closed;
+	// SQL => Stmt.isReadOnly
+	private Map<String, Boolean> readOnlyBySql;
+
+	private long writerBorrows;
+	private long writerWaits;
+	private long writerWaitNanos;
+
+	private final ConnectionEventListener writerListener = new ConnectionEventListener() {
+		@Override
+		public void connectionClosed(ConnectionEvent event) {
+			writeLock.release();
+		}
+		@Override
+		public void connectionErrorOccurred(ConnectionEvent event) {
+			final PooledConn pc = (PooledConn) event.getSource();
+			synchronized (WalDataSource.this) {
+				if (writer == pc) {
+					writer = null;
+				}
+			}
+			try {
+				pc.close();
+			} catch (SQLException e) {
+				Util.trace("PooledConnection.close: " + e.getMessage());
+			}
+			writeLock.release();
+		}
+	};
+
+	/**
+	 * @return the writer connection (waiting for the previous writer to close its connection)
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		return getWriteConnection();
+	}
+	/**
+	 * Same as {@link #getConnection()}: user and password are ignored by SQLite.
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return getConnection();
+	}
+
+	/**
+	 * @param readOnly transaction intent
+	 * @return a reader connection if <code>readOnly</code>, the writer connection otherwise.
+	 */
+	public Connection getConnection(boolean readOnly) throws SQLException {
+		return readOnly ? getReadConnection() : getWriteConnection();
+	}
+
+	/**
+	 * Route a single auto-commit statement:
+	 * a reader connection is returned if the statement does not write to the database, the writer connection otherwise.
+	 * @param sql a single statement
+	 * @return a connection on which <code>sql</code> can be executed
+	 * @see org.sqlite.Stmt#isReadOnly()
+	 */
+	public Connection getConnection(String sql) throws SQLException {
+		final Boolean readOnly;
+		synchronized (this) {
+			readOnly = readOnlyBySql == null ? null : readOnlyBySql.get(sql);
+		}
+		if (readOnly != null) {
+			return getConnection(readOnly);
+		}
+		final Connection reader = getReadConnection();
+		final boolean ro;
+		try (org.sqlite.Stmt stmt = reader.unwrap(org.sqlite.Conn.class).prepare(sql, false)) {
+			ro = stmt.isReadOnly();
+		} catch (SQLException e) {
+			throw Guard.close(reader, e);
+		}
+		synchronized (this) {
+			if (readOnlyCacheSize > 0) {
+				if (readOnlyBySql == null) {
+					final int maxSize = readOnlyCacheSize;
+					readOnlyBySql = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+						@Override
+						protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+							return size() > maxSize;
+						}
+					};
+				}
+				readOnlyBySql.put(sql, ro);
+			}
+		}
+		if (ro) {
+			return reader;
+		}
+		reader.close();
+		return getWriteConnection();
+	}
+
+	/**
+	 * @return a read-only connection from the readers pool.
+	 */
+	public Connection getReadConnection() throws SQLException {
+		final ReaderPool readers;
+		synchronized (this) {
+			checkOpen();
+			if (this.readers == null) {
+				// the writer switches the database to WAL mode before any reader is opened
+				initWriter();
+				this.readers = new ReaderPool();
+				this.readers.setFilename(getFilename());
+				this.readers.setMaxStatements(getMaxStatements());
+				this.readers.setMaxPoolSize(maxReaders);
+			}
+			readers = this.readers;
+		}
+		readers.setLoginTimeout(getLoginTimeout());
+		return readers.getConnection();
+	}
+
+	/**
+	 * @return the writer connection, waiting (up to {@link #getLoginTimeout()} seconds, indefinitely when 0)
+	 * for the previous writer to close it.
+	 */
+	public Connection getWriteConnection() throws SQLException {
+		final long start = System.nanoTime();
+		boolean waited = false;
+		try {
+			if (!writeLock.tryAcquire()) {
+				waited = true;
+				if (getLoginTimeout() <= 0) {
+					writeLock.acquire();
+				} else if (!writeLock.tryAcquire(getLoginTimeout(), TimeUnit.SECONDS)) {
+					throw new SQLTransientConnectionException(String.format("writer connection not available after %d s", getLoginTimeout()));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("interrupted while waiting for the writer connection", null, e);
+		}
+		try {
+			final PooledConn pc;
+			synchronized (this) {
+				checkOpen();
+				pc = initWriter();
+				writerBorrows++;
+				if (waited) {
+					writerWaits++;
+					writerWaitNanos += System.nanoTime() - start;
+				}
+			}
+			return pc.getConnection();
+		} catch (SQLException | RuntimeException e) {
+			writeLock.release();
+			throw e;
+		}
+	}
+
+	// Must be called with the monitor held
+	private PooledConn initWriter() throws SQLException {
+		if (writer == null || writer.isClosed()) {
+			final Conn physical = open(null);
+			try {
+				final org.sqlite.Conn c = physical.getConn();
+				c.fastExec("PRAGMA journal_mode=WAL");
+				writer = new PooledConn(physical);
+			} catch (SQLException e) {
+				throw Guard.close(physical, e);
+			}
+			writer.addConnectionEventListener(writerListener);
+		}
+		return writer;
+	}
+
+	private void checkOpen() throws SQLException {
+		if (closed) {
+			throw Util.error("data source closed");
+		}
+	}
+
+	/**
+	 * Close idle readers and the writer connection.
+	 * Threads waiting for the writer connection fail.
+	 */
+	@Override
+	public void close() throws SQLException {
+		final PooledConn writer;
+		final ReaderPool readers;
+		synchronized (this) {
+			closed = true;
+			writer = this.writer;
+			this.writer = null;
+			readers = this.readers;
+		}
+		try {
+			if (readers != null) {
+				readers.close();
+			}
+			if (writer != null) {
+				writer.close();
+			}
+		} finally {
+			// a writer closed while checked out is not given back: wake the queued writers,
+			// each one fails with "data source closed" and passes the permit on
+			writeLock.release();
+		}
+	}
+
+	/**
+	 * @return maximum number of reader connections
+	 */
+	public int getMaxReaders() {
+		return maxReaders;
+	}
+	public void setMaxReaders(int maxReaders) {
+		this.maxReaders = maxReaders;
+	}
+	/**
+	 * @return maximum number of statements whose read-only status is remembered by {@link #getConnection(String)}
+	 */
+	public int getReadOnlyCacheSize() {
+		return readOnlyCacheSize;
+	}
+	public void setReadOnlyCacheSize(int readOnlyCacheSize) {
+		this.readOnlyCacheSize = readOnlyCacheSize;
+	}
+
+	/**
+	 * @return number of callers waiting for the writer connection
+	 */
+	public int getWriterQueueLength() {
+		return writeLock.getQueueLength();
+	}
+	/**
+	 * @return number of times the writer connection has been given
+	 */
+	public synchronized long getWriterBorrowCount() {
+		return writerBorrows;
+	}
+	/**
+	 * @return number of writers which had to wait for the previous one
+	 */
+	public synchronized long getWriterWaitCount() {
+		return writerWaits;
+	}
+	/**
+	 * @return total time spent by writers waiting for the writer connection (in nanoseconds)
+	 */
+	public synchronized long getWriterWaitNanos() {
+		return writerWaitNanos;
+	}
+	/**
+	 * @return the readers pool (and its statistics), <code>null</code> until the first reader is requested
+	 */
+	public synchronized PoolingDataSource getReaders() {
+		return readers;
+	}
+
+	private static class ReaderPool extends PoolingDataSource {
+		@Override
+		Conn open(Properties info) throws SQLException {
+			if (info == null) {
+				info = new Properties();
+			}
+			info.setProperty(JDBC.MODE, "ro");
+			final Conn physical = super.open(info);
+			try {
+				physical.getConn().setQueryOnly(null, true);
+			} catch (SQLiteException e) {
+				throw Guard.close(physical, e);
+			}
+			return physical;
+		}
+	}
+}
@@ -3,7 +3,9 @@ package org.sqlite.osgi;
 import org.osgi.service.jdbc.DataSourceFactory;
 import org.sqlite.ErrCodes;
 import org.sqlite.driver.BasicDataSource;
+import org.sqlite.driver.ConnPoolDataSource;
 import org.sqlite.driver.JDBC;
+import org.sqlite.driver.PoolingDataSource;
 
 import javax.sql.ConnectionPoolDataSource;
 import javax.sql.DataSource;
@@ -24,15 +26,42 @@ public class OsgiDataSourceFactory implements DataSourceFactory {
 		}
 		// Verify that no unsupported standard options are used
 		rejectUnsupportedOptions(copy);
-		// Standard pool properties in OSGi not applicable here
-		rejectPoolingOptions(copy);
 
-		final BasicDataSource ds = new BasicDataSource();
+		final BasicDataSource ds;
+		if (hasPoolingOptions(copy)) {
+			final PoolingDataSource pds = new PoolingDataSource();
+			setupPool(pds, copy);
+			ds = pds;
+		} else {
+			ds = new BasicDataSource();
+		}
 		setupDataSource(ds, copy);
 		return ds;
 	}
 
-	private void setupDataSource(BasicDataSource ds, Properties p) {
+	private static void setupPool(PoolingDataSource ds, Properties p) throws SQLException {
+		if (p.containsKey(DataSourceFactory.JDBC_INITIAL_POOL_SIZE)) {
+			ds.setInitialPoolSize(intValue(p, DataSourceFactory.JDBC_INITIAL_POOL_SIZE));
+		}
+		if (p.containsKey(DataSourceFactory.JDBC_MIN_POOL_SIZE)) {
+			ds.setMinPoolSize(intValue(p, DataSourceFactory.JDBC_MIN_POOL_SIZE));
+		}
+		if (p.containsKey(DataSourceFactory.JDBC_MAX_POOL_SIZE)) {
+			ds.setMaxPoolSize(intValue(p, DataSourceFactory.JDBC_MAX_POOL_SIZE));
+		}
+		if (p.containsKey(DataSourceFactory.JDBC_MAX_IDLE_TIME)) {
+			ds.setMaxIdleTime(intValue(p, DataSourceFactory.JDBC_MAX_IDLE_TIME));
+		}
+		if (p.containsKey(DataSourceFactory.JDBC_PROPERTY_CYCLE)) {
+			ds.setPropertyCycle(intValue(p, DataSourceFactory.JDBC_PROPERTY_CYCLE));
+		}
+	}
+
+	private static void setupDataSource(BasicDataSource ds, Properties p) throws SQLException {
+		// Prepared statements cache size of each connection
+		if (p.containsKey(DataSourceFactory.JDBC_MAX_STATEMENTS)) {
+			ds.setMaxStatements(intValue(p, DataSourceFactory.JDBC_MAX_STATEMENTS));
+		}
 		// Setting user and password
 		p.remove(DataSourceFactory.JDBC_USER);
 		p.remove(DataSourceFactory.JDBC_PASSWORD);
@@ -47,7 +76,17 @@ public class OsgiDataSourceFactory implements DataSourceFactory {
 
 	@Override
 	public ConnectionPoolDataSource createConnectionPoolDataSource(Properties props) throws SQLException {
-		throw new SQLFeatureNotSupportedException("ConnectionPoolDataSource not implemented");
+		Properties copy = new Properties();
+		if (props != null) {
+			copy.putAll(props);
+		}
+		rejectUnsupportedOptions(copy);
+		// Pool sizes are managed by the caller
+		rejectPoolingOptions(copy);
+
+		final ConnPoolDataSource ds = new ConnPoolDataSource();
+		setupDataSource(ds, copy);
+		return ds;
 	}
 
 	@Override
@@ -71,19 +110,34 @@ public class OsgiDataSourceFactory implements DataSourceFactory {
 			DataSourceFactory.JDBC_NETWORK_PROTOCOL,
 			DataSourceFactory.JDBC_SERVER_NAME,
 			DataSourceFactory.JDBC_PORT_NUMBER)) {
-			throw new SQLFeatureNotSupportedException(String.format("The %s property is not supported by SQLite", key));
+			if (p.containsKey(key)) {
+				throw new SQLFeatureNotSupportedException(String.format("The %s property is not supported by SQLite", key));
+			}
 		}
 	}
-	private static void rejectPoolingOptions(Properties p)
-		throws SQLFeatureNotSupportedException {
-		if (p.containsKey(DataSourceFactory.JDBC_INITIAL_POOL_SIZE) ||
+	private static boolean hasPoolingOptions(Properties p) {
+		return p.containsKey(DataSourceFactory.JDBC_INITIAL_POOL_SIZE) ||
 			p.containsKey(DataSourceFactory.JDBC_MAX_IDLE_TIME) ||
 			p.containsKey(DataSourceFactory.JDBC_MAX_POOL_SIZE) ||
-			p.containsKey(DataSourceFactory.JDBC_MAX_STATEMENTS) ||
 			p.containsKey(DataSourceFactory.JDBC_MIN_POOL_SIZE) ||
-			p.containsKey(DataSourceFactory.JDBC_PROPERTY_CYCLE)) {
+			p.containsKey(DataSourceFactory.JDBC_PROPERTY_CYCLE);
+	}
+	private static void rejectPoolingOptions(Properties p)
+		throws SQLFeatureNotSupportedException {
+		if (hasPoolingOptions(p)) {
 			throw new SQLFeatureNotSupportedException(
-				"Pooling properties are not supported by SQLite");
+				"Pooling properties are not supported by a ConnectionPoolDataSource");
+		}
+	}
+	private static int intValue(Properties p, String key) throws SQLException {
+		final Object value = p.remove(key);
+		if (value instanceof Number) {
+			return ((Number) value).intValue();
+		}
+		try {
+			return Integer.parseInt(String.valueOf(value));
+		} catch (NumberFormatException e) {
+			throw new SQLException(String.format("Invalid %s property: %s", key, value), null, ErrCodes.WRAPPER_SPECIFIC, e);
 		}
 	}
 }
@@ -0,0 +1,95 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncConnTest {
+	private AsyncConn c;
+
+	@Before
+	public void setUp() throws SQLiteException {
+		c = AsyncConn.open(Conn.MEMORY, OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_FULLMUTEX, null);
+	}
+
+	@After
+	public void tearDown() throws SQLiteException {
+		c.close();
+	}
+
+	@Test
+	public void query() throws Exception {
+		c.exec("CREATE TABLE test (id INTEGER PRIMARY KEY, name TEXT)");
+		assertEquals(1L, c.insert("INSERT INTO test (name) VALUES (?)", "one").get().longValue());
+		assertEquals(1, c.execDml("INSERT INTO test (name) VALUES (?)", "two").get().intValue());
+		final List<String> names = c.query("SELECT name FROM test WHERE id >= ? ORDER BY id", new Object[]{1},
+				row -> row.getColumnText(0)).get();
+		assertEquals(Arrays.asList("one", "two"), names);
+	}
+
+	@Test
+	public void confinement() throws Exception {
+		final Thread t1 = c.submit(conn -> Thread.currentThread()).get();
+		final Thread t2 = c.submit(conn -> Thread.currentThread()).get();
+		assertEquals(t1, t2);
+		assertTrue(t1 != Thread.currentThread());
+	}
+
+	@Test
+	public void error() throws Exception {
+		try {
+			c.execDml("INSERT INTO unknown VALUES (1)").get();
+			fail("no such table");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ConnException);
+		}
+	}
+
+	@Test
+	public void cancel() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CompletableFuture<Boolean> infinite = c.submit(conn -> {
+			started.countDown();
+			try (Stmt s = conn.prepare("WITH RECURSIVE cnt(x) AS (SELECT 1 UNION ALL SELECT x+1 FROM cnt) SELECT max(x) FROM cnt", false)) {
+				return s.step(0);
+			}
+		});
+		final CompletableFuture<Integer> queued = c.submit(conn -> 1);
+		final CompletableFuture<Integer> cancelledWhileQueued = c.submit(conn -> {
+			throw new IllegalStateException("must not run");
+		});
+		assertTrue(cancelledWhileQueued.cancel(false));
+		started.await();
+		Thread.sleep(50);
+		assertTrue(infinite.cancel(true));
+		try {
+			infinite.get();
+			fail("cancelled");
+		} catch (CancellationException e) {
+			// expected
+		}
+		// the connection is usable again once the statement has been interrupted
+		assertEquals(1, queued.get(5, TimeUnit.SECONDS).intValue());
+		assertTrue(cancelledWhileQueued.isCancelled());
+	}
+}
@@ -0,0 +1,151 @@
+package org.sqlite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+import static org.junit.Assert.*;
+
+public class BlobTest {
+	// more than one pooled chunk
+	private static final int SIZE = BufferPool.CHUNK_SIZE * 2 + 100;
+
+	private Conn c;
+	private long rowid;
+
+	@Before
+	public void setUp() throws SQLiteException {
+		c = ConnTest.open();
+		c.exec("CREATE TABLE test (data BLOB)");
+		c.exec("INSERT INTO test (data) VALUES (zeroblob(" + SIZE + "))");
+		rowid = c.getLastInsertRowid();
+	}
+
+	@After
+	public void tearDown() throws SQLiteException {
+		c.close();
+	}
+
+	private static byte[] bytes(int n) {
+		final byte[] bytes = new byte[n];
+		for (int i = 0; i < n; i++) {
+			bytes[i] = (byte) i;
+		}
+		return bytes;
+	}
+
+	@Test
+	public void readWriteBuffer() throws SQLiteException {
+		final byte[] expected = bytes(SIZE);
+		try (Blob blob = c.open("main", "test", "data", rowid, true)) {
+			final ByteBuffer heap = ByteBuffer.wrap(expected);
+			assertEquals(SIZE, blob.write(heap));
+			assertEquals(0, heap.position());
+
+			final ByteBuffer direct = ByteBuffer.allocateDirect(SIZE + 10);
+			direct.position(10);
+			assertEquals(SIZE, blob.read(direct));
+			assertEquals(10, direct.position());
+			for (int i = 0; i < SIZE; i++) {
+				assertEquals(expected[i], direct.get(10 + i));
+			}
+
+			blob.setReadOffset(0);
+			final byte[] actual = new byte[SIZE + 3];
+			assertEquals(SIZE, blob.read(ByteBuffer.wrap(actual, 3, SIZE)));
+			for (int i = 0; i < SIZE; i++) {
+				assertEquals(expected[i], actual[3 + i]);
+			}
+		}
+	}
+
+	@Test
+	public void channel() throws IOException, SQLiteException {
+		final Blob blob = c.open("main", "test", "data", rowid, true);
+		try (SeekableByteChannel channel = blob.getChannel()) {
+			assertEquals(SIZE, channel.size());
+			assertEquals(0L, channel.position());
+
+			final ByteBuffer src = ByteBuffer.wrap(bytes(300));
+			channel.position(SIZE - 200);
+			assertEquals(200, channel.write(src));
+			assertEquals(200, src.position());
+			assertEquals(SIZE, channel.position());
+			try {
+				channel.write(src);
+				fail("blob size cannot be changed");
+			} catch (IOException e) {
+				// expected
+			}
+
+			channel.position(SIZE - 250);
+			final ByteBuffer dst = ByteBuffer.allocateDirect(300);
+			assertEquals(250, channel.read(dst));
+			assertEquals(250, dst.position());
+			assertEquals(0, dst.get(49));
+			assertEquals(0, dst.get(50));
+			assertEquals(1, dst.get(51));
+			assertEquals(-1, channel.read(dst));
+
+			assertSame(channel, channel.truncate(SIZE + 1L));
+			try {
+				channel.truncate(1L);
+				fail("blob size cannot be changed");
+			} catch (IOException e) {
+				// expected
+			}
+		}
+		assertTrue(blob.isClosed());
+		try {
+			blob.getChannel().position();
+			fail("closed channel");
+		} catch (ClosedChannelException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void transfer() throws IOException, SQLiteException {
+		final byte[] expected = bytes(SIZE);
+		try (Blob blob = c.open("main", "test", "data", rowid, true)) {
+			blob.setWriteOffset(10);
+			assertEquals(SIZE - 10, blob.transferFrom(Channels.newChannel(new ByteArrayInputStream(expected))));
+			// nothing left to write
+			assertEquals(0L, blob.transferFrom(Channels.newChannel(new ByteArrayInputStream(expected))));
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			blob.setReadOffset(10);
+			assertEquals(SIZE - 10, blob.transferTo(Channels.newChannel(out)));
+			final byte[] actual = out.toByteArray();
+			for (int i = 0; i < SIZE - 10; i++) {
+				assertEquals(expected[i], actual[i]);
+			}
+			assertEquals(0L, blob.transferTo(Channels.newChannel(out)));
+		}
+	}
+
+	@Test
+	public void streams() throws IOException, SQLiteException {
+		try (Blob blob = c.open("main", "test", "data", rowid, true)) {
+			final OutputStream out = blob.getOutputStream();
+			out.write(0xFF);
+			out.write(0x7F);
+			final InputStream in = blob.getInputStream();
+			assertEquals(0xFF, in.read());
+			assertEquals(0x7F, in.read());
+			assertEquals(0, in.read());
+			assertEquals(SIZE - 3, in.skip(SIZE));
+			assertEquals(-1, in.read());
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package org.sqlite;
+
+import org.sqlite.driver.JDBC;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * CSV import: naive JDBC loop (<code>String.split</code>, <code>setString</code>, <code>executeUpdate</code>,
+ * one transaction) versus {@link BulkLoader} (with and without index drop and unsafe pragmas).
+ * Run its main method with the test classpath (optional argument: number of rows).
+ */
+public class BulkLoaderBenchmark {
+	private static final String DDL = "DROP TABLE IF EXISTS test; " +
+			"CREATE TABLE test (id INTEGER PRIMARY KEY, name TEXT, score REAL, tag TEXT); " +
+			"CREATE INDEX test_name ON test (name)";
+
+	public static void main(String[] args) throws Exception {
+		final int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		final File csv = File.createTempFile("bulk", ".csv");
+		final File db = File.createTempFile("bulk", ".db");
+		try {
+			try (Writer w = Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8)) {
+				for (int i = 0; i < n; i++) {
+					w.write(i + ",name" + (i * 7919 % n) + ',' + (i * 0.25) + ",\"tag, " + (i % 100) + "\"\n");
+				}
+			}
+			for (int run = 0; run < 2; run++) {
+				jdbc(csv, db, n);
+				bulk("bulk loader", csv, db, n, false);
+				bulk("bulk loader (drop indexes, unsafe pragmas)", csv, db, n, true);
+			}
+		} finally {
+			csv.delete();
+			db.delete();
+		}
+	}
+
+	private static void jdbc(File csv, File db, int n) throws SQLException, IOException {
+		try (Connection c = DriverManager.getConnection(JDBC.PREFIX + db.getPath())) {
+			c.unwrap(Conn.class).fastExec(DDL);
+			final long start = System.nanoTime();
+			c.setAutoCommit(false);
+			try (BufferedReader r = Files.newBufferedReader(csv.toPath(), StandardCharsets.UTF_8);
+					 PreparedStatement ps = c.prepareStatement("INSERT INTO test VALUES (?, ?, ?, ?)")) {
+				String line;
+				while ((line = r.readLine()) != null) {
+					final String[] fields = line.split(",", 3);
+					ps.setString(1, fields[0]);
+					ps.setString(2, fields[1]);
+					ps.setString(3, fields[2].substring(0, fields[2].indexOf(',')));
+					ps.setString(4, fields[2].substring(fields[2].indexOf(',') + 2, fields[2].length() - 1));
+					ps.executeUpdate();
+				}
+			}
+			c.commit();
+			report("naive JDBC loop", n, System.nanoTime() - start);
+		}
+	}
+
+	private static void bulk(String name, File csv, File db, int n, boolean unsafe) throws SQLiteException, IOException {
+		try (Conn c = Conn.open(db.getPath(), OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_CREATE |
+				OpenFlags.SQLITE_OPEN_FULLMUTEX, null)) {
+			c.fastExec(DDL);
+			final BulkLoader loader = new BulkLoader(c, "test");
+			loader.setCommitInterval(n);
+			loader.setDropIndexes(unsafe);
+			loader.setUnsafePragmas(unsafe);
+			try (FileChannel in = FileChannel.open(csv.toPath(), StandardOpenOption.READ)) {
+				if (loader.loadCsv(in, ',', false) != n) {
+					throw new IllegalStateException();
+				}
+			}
+			report(name, n, loader.getElapsedNanos());
+		}
+	}
+
+	private static void report(String name, int n, long elapsed) {
+		System.out.printf("%-45s %,d rows in %d ms (%.0f rows/s)%n", name, n, elapsed / 1_000_000, n * 1e9 / elapsed);
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkLoaderTest {
+	private Conn c;
+
+	@Before
+	public void setUp() throws SQLiteException {
+		c = Conn.open(Conn.MEMORY, OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_FULLMUTEX, null);
+		c.fastExec("CREATE TABLE test (id INTEGER PRIMARY KEY, name TEXT, score REAL); CREATE INDEX test_name ON test (name)");
+	}
+
+	@After
+	public void tearDown() throws SQLiteException {
+		c.close();
+	}
+
+	@Test
+	public void load() throws SQLiteException {
+		final BulkLoader loader = new BulkLoader(c, "test", "id", "name");
+		loader.setCommitInterval(7);
+		loader.setDropIndexes(true);
+		loader.setUnsafePragmas(true);
+		assertEquals(100, loader.load(IntStream.range(0, 100).boxed(), (insert, i) -> {
+			insert.bindInt(1, i);
+			insert.bindText(2, "name" + i);
+		}));
+		assertEquals(100, loader.getRowCount());
+		assertTrue(loader.getRowsPerSecond() > 0);
+		assertEquals(4950, queryLong("SELECT sum(id) FROM test"));
+		// index rebuilt and pragmas restored
+		assertEquals(1, queryLong("SELECT count(*) FROM sqlite_master WHERE name = 'test_name'"));
+		assertEquals("memory", queryText("PRAGMA journal_mode"));
+		assertTrue(c.getAutoCommit());
+	}
+
+	@Test
+	public void csv() throws Exception {
+		final BulkLoader loader = new BulkLoader(c, "test");
+		final String csv = "\uFEFFid,name,score\r\n" +
+				"1,\"a, \"\"quoted\"\"\nname\",1.5\r\n" +
+				"\r\n" +
+				"2,,\"\"\n" +
+				"3,plain,-2"; // no final line break
+		assertEquals(3, loader.loadCsv(channel(csv), ',', true));
+		assertEquals("a, \"quoted\"\nname", queryText("SELECT name FROM test WHERE id = 1"));
+		assertEquals("real", queryText("SELECT typeof(score) FROM test WHERE id = 1"));
+		assertNull(queryText("SELECT name FROM test WHERE id = 2"));
+		assertEquals("", queryText("SELECT score FROM test WHERE id = 2"));
+		assertEquals(-2, queryLong("SELECT score FROM test WHERE id = 3"));
+	}
+
+	@Test
+	public void singleColumnCsv() throws Exception {
+		c.fastExec("CREATE TABLE single (name TEXT)");
+		final BulkLoader loader = new BulkLoader(c, "single");
+		// empty records are not blank lines
+		assertEquals(5, loader.loadCsv(channel("a\n\nb\r\n\r\n\"\"\n"), ',', false));
+		assertEquals(2, queryLong("SELECT count(*) FROM single WHERE name IS NULL"));
+		assertEquals(1, queryLong("SELECT count(*) FROM single WHERE name = ''"));
+	}
+
+	@Test
+	public void invalidCsv() throws Exception {
+		final BulkLoader loader = new BulkLoader(c, "test");
+		loader.setCommitInterval(2);
+		loader.setDropIndexes(true);
+		try {
+			loader.loadCsv(channel("1;a;0\n2;b;0\n3;c\n"), ';', false);
+			fail("missing field");
+		} catch (ConnException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("line 3"));
+		}
+		assertEquals(2, loader.getRowCount()); // first chunk committed
+		assertEquals(2, queryLong("SELECT count(*) FROM test"));
+		assertEquals(1, queryLong("SELECT count(*) FROM sqlite_master WHERE name = 'test_name'"));
+		assertTrue(c.getAutoCommit());
+	}
+
+	@Test
+	public void keepUniqueIndexes() throws SQLiteException {
+		c.fastExec("CREATE UNIQUE INDEX test_score ON test (score)");
+		final BulkLoader loader = new BulkLoader(c, "test", "id", "score");
+		loader.setDropIndexes(true);
+		try {
+			loader.load(IntStream.range(0, 3).boxed(), (insert, i) -> {
+				insert.bindInt(1, i);
+				insert.bindDouble(2, 1.5);
+			});
+			fail("duplicate score");
+		} catch (StmtException e) {
+			assertEquals(ErrCodes.SQLITE_CONSTRAINT, e.getErrorCode());
+		}
+		assertEquals(0, queryLong("SELECT count(*) FROM test"));
+		assertEquals(2, queryLong("SELECT count(*) FROM sqlite_master WHERE name IN ('test_name', 'test_score')"));
+		assertTrue(c.getAutoCommit());
+	}
+
+	private static ReadableByteChannel channel(String csv) {
+		return Channels.newChannel(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private long queryLong(String sql) throws SQLiteException {
+		try (Stmt s = c.prepare(sql, false)) {
+			assertTrue(s.step(0));
+			return s.getColumnLong(0);
+		}
+	}
+	private String queryText(String sql) throws SQLiteException {
+		try (Stmt s = c.prepare(sql, false)) {
+			assertTrue(s.step(0));
+			return s.getColumnText(0);
+		}
+	}
+}
@@ -11,7 +11,11 @@ import org.sqlite.SQLite.SQLite3Context;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
+import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
@@ -257,6 +261,58 @@ public class ConnTest {
 		}
 	}
 
+	@Test
+	public void createTypedFunctions() throws SQLiteException {
+		try (Conn c = open()) {
+			final int flags = FunctionFlags.SQLITE_UTF8 | FunctionFlags.SQLITE_DETERMINISTIC;
+			c.createLongFunction("inc", flags, x -> x + 1);
+			c.createLongFunction("plus", flags, (x, y) -> x + y);
+			c.createDoubleFunction("half", flags, x -> x / 2);
+			c.createDoubleFunction("hyp", flags, Math::hypot);
+			c.createLongFunction("len", 1, flags, args -> args.getBlobBuffer(0).remaining());
+			c.createDoubleFunction("avg2", -1, flags, args -> (args.getDouble(0) + args.getDouble(args.getCount() - 1)) / 2);
+			c.createFunction("first_byte", 1, flags, args -> {
+				final ByteBuffer text = args.getTextBuffer(0);
+				return text == null ? null : text.hasRemaining() ? (long) text.get(0) : "empty";
+			});
+			c.createFunction("fail", 0, flags, args -> {
+				throw new IllegalStateException("boom");
+			});
+			try (Stmt s = c.prepare("SELECT inc(x), plus(x, 2), half(x), hyp(3, 4), len(x'0102'), avg2(1, 2, 3), first_byte('a'), " +
+					"first_byte(''), first_byte(NULL), inc(NULL) FROM (SELECT 41 AS x UNION ALL SELECT 1)", false)) {
+				assertTrue(s.step(0));
+				assertEquals(42L, s.getColumnLong(0));
+				assertEquals(43L, s.getColumnLong(1));
+				assertEquals(20.5, s.getColumnDouble(2), 0.0);
+				assertEquals(5.0, s.getColumnDouble(3), 0.0);
+				assertEquals(2L, s.getColumnLong(4));
+				assertEquals(2.0, s.getColumnDouble(5), 0.0);
+				assertEquals('a', s.getColumnLong(6));
+				assertEquals("empty", s.getColumnText(7));
+				assertEquals(ColTypes.SQLITE_NULL, s.getColumnType(8));
+				assertEquals(ColTypes.SQLITE_NULL, s.getColumnType(9));
+				assertTrue(s.step(0));
+				assertEquals(2L, s.getColumnLong(0));
+				assertFalse(s.step(0));
+			}
+			try (Stmt s = c.prepare("SELECT fail()", false)) {
+				s.step(0);
+				fail("error expected");
+			} catch (StmtException e) {
+				assertTrue(e.getMessage(), c.getErrMsg().contains("boom"));
+			}
+			// no truncation to long
+			c.createFunction("big", 1, flags, args -> args.getLong(0) == 0 ? new BigDecimal("0.1") : BigInteger.valueOf(Long.MAX_VALUE).shiftLeft((int) args.getLong(0) - 1));
+			try (Stmt s = c.prepare("SELECT big(0), big(1), big(2)", false)) {
+				assertTrue(s.step(0));
+				assertEquals("0.1", s.getColumnText(0));
+				assertEquals(Long.MAX_VALUE, s.getColumnLong(1));
+				assertEquals(ColTypes.SQLITE_INTEGER, s.getColumnType(1));
+				assertEquals(BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1).toString(), s.getColumnText(2));
+			}
+		}
+	}
+
 	@Test
 	public void createAggregateFunction() throws SQLiteException {
 		final Conn c = open();
@@ -305,6 +361,112 @@ public class ConnTest {
 		c.close();
 	}
 
+	@Test
+	public void createWindowFunction() throws SQLiteException {
+		try (Conn c = open()) {
+			final AtomicInteger calls = new AtomicInteger();
+			c.createWindowFunction("moving_sum", 1, FunctionFlags.SQLITE_UTF8 | FunctionFlags.SQLITE_DETERMINISTIC, new AggregateStepCallback() {
+				@Override
+				protected int numberOfBytes() {
+					return 8;
+				}
+				@Override
+				protected void step(SQLite3Context pCtx, Pointer aggrCtx, SQLite3Values args) {
+					calls.incrementAndGet();
+					aggrCtx.setLong(0, aggrCtx.getLong(0) + args.getLong(0));
+				}
+			}, new AggregateFinalCallback() {
+				@Override
+				protected void finalStep(SQLite3Context pCtx, Pointer aggrCtx) {
+					pCtx.setResultLong(aggrCtx == null ? 0L : aggrCtx.getLong(0));
+				}
+			}, new AggregateValueCallback() {
+				@Override
+				protected void value(SQLite3Context pCtx, Pointer aggrCtx) {
+					pCtx.setResultLong(aggrCtx == null ? 0L : aggrCtx.getLong(0));
+				}
+			}, new AggregateInverseCallback() {
+				@Override
+				protected int numberOfBytes() {
+					return 8;
+				}
+				@Override
+				protected void inverse(SQLite3Context pCtx, Pointer aggrCtx, SQLite3Values args) {
+					calls.incrementAndGet();
+					aggrCtx.setLong(0, aggrCtx.getLong(0) - args.getLong(0));
+				}
+			});
+			// average of the last 3 values, as a Java object state
+			c.createWindowFunction("moving_avg", 1, FunctionFlags.SQLITE_UTF8, () -> new double[2], (state, args) -> {
+				state[0] += args.getDouble(0);
+				state[1]++;
+			}, (state, args) -> {
+				state[0] -= args.getDouble(0);
+				state[1]--;
+			}, state -> state[1] == 0 ? null : state[0] / state[1]);
+			final int n = 100;
+			try (Stmt s = c.prepare("WITH RECURSIVE t(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM t WHERE x < " + n + ") " +
+					"SELECT x, moving_sum(x) OVER w, moving_avg(x) OVER w FROM t WINDOW w AS (ORDER BY x ROWS 2 PRECEDING)", false)) {
+				for (int x = 1; x <= n; x++) {
+					assertTrue(s.step(0));
+					assertEquals(x, s.getColumnInt(0));
+					final long sum = x == 1 ? 1 : x == 2 ? 3 : 3L * x - 3;
+					assertEquals(sum, s.getColumnLong(1));
+					assertEquals((double) sum / Math.min(x, 3), s.getColumnDouble(2), 1e-9);
+				}
+				assertFalse(s.step(0));
+			}
+			// each row is added once and removed at most once (no aggregation of the whole frame)
+			assertEquals(2 * n - 3, calls.get());
+			try (Stmt s = c.prepare("SELECT moving_avg(x) FROM (SELECT 1 AS x WHERE 1 <> 1)", false)) {
+				assertTrue(s.step(0));
+				assertEquals(ColTypes.SQLITE_NULL, s.getColumnType(0));
+			}
+			try {
+				c.createWindowFunction("no_inverse", 1, FunctionFlags.SQLITE_UTF8, () -> new double[1], (state, args) -> {
+					state[0] += args.getDouble(0);
+				}, null, state -> state[0]);
+				fail("inverse is required");
+			} catch (NullPointerException e) {
+				assertEquals("inverse", e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void createObjectAggregateFunction() throws SQLiteException {
+		try (Conn c = open()) {
+			// distinct values, sorted and joined
+			c.createAggregateFunction("sorted", TreeSet<String>::new, (set, args) -> {
+				if (!args.isNull(0)) {
+					set.add(args.getText(0));
+				}
+			}, set -> String.join(",", set));
+			c.createAggregateFunction("fail", 1, FunctionFlags.SQLITE_UTF8, Object::new, (state, args) -> {
+				throw new IllegalStateException("boom");
+			}, state -> null);
+			try (Stmt s = c.prepare("SELECT g, sorted(v) FROM (SELECT 1 AS g, 'c' AS v UNION ALL SELECT 1, 'a' UNION ALL SELECT 2, 'b' " +
+					"UNION ALL SELECT 1, 'c' UNION ALL SELECT 2, NULL) GROUP BY g ORDER BY g", false)) {
+				assertTrue(s.step(0));
+				assertEquals("a,c", s.getColumnText(1));
+				assertTrue(s.step(0));
+				assertEquals("b", s.getColumnText(1));
+				assertFalse(s.step(0));
+			}
+			try (Stmt s = c.prepare("SELECT sorted(v), sorted(v || v) FROM (SELECT 'x' AS v WHERE 1 <> 1)", false)) {
+				assertTrue(s.step(0));
+				assertEquals("", s.getColumnText(0));
+				assertEquals("", s.getColumnText(1));
+			}
+			try (Stmt s = c.prepare("SELECT fail(1)", false)) {
+				s.step(0);
+				fail("error expected");
+			} catch (StmtException e) {
+				assertTrue(e.getMessage(), c.getErrMsg().contains("boom"));
+			}
+		}
+	}
+
 	@Test(expected = ConnException.class)
 	public void closedConn() throws SQLiteException {
 		final Conn c = open();
@@ -432,6 +594,133 @@ public class ConnTest {
 		assertEquals(0, res);
 	}
 
+	@Test
+	public void stmtCache() throws SQLiteException {
+		try (Conn c = open()) {
+			final StmtCache cache = c.getStmtCache();
+			cache.resetStats();
+			final Stmt s1 = c.prepare("SELECT 1", true);
+			final Stmt s2 = c.prepare("SELECT 1", true); // concurrent use of the same SQL
+			assertNotSame(s1, s2);
+			assertEquals(2, cache.getMisses());
+			s1.close();
+			s2.close();
+			assertEquals(2, cache.size());
+			assertTrue(cache.memoryUsed() > 0);
+			final Stmt s3 = c.prepare("SELECT 1", true);
+			final Stmt s4 = c.prepare("SELECT 1", true);
+			assertEquals(2, cache.getHits());
+			assertEquals(0, cache.size());
+			s3.close();
+			s4.close();
+
+			// reprepare after a schema change
+			c.fastExec("CREATE TABLE test (x)");
+			try (Stmt s = c.prepare("SELECT x FROM test", true)) {
+				assertFalse(s.step(0));
+			}
+			c.fastExec("ALTER TABLE test ADD COLUMN y");
+			try (Stmt s = c.prepare("SELECT x FROM test", true)) {
+				assertFalse(s.step(0));
+			}
+			assertEquals(1, cache.getReprepares());
+
+			// memory bound
+			cache.setMaxMemory(1);
+			assertEquals(0, cache.size());
+			assertTrue(cache.getEvictions() >= 3);
+			try (Stmt s = c.prepare("SELECT 1", true)) {
+				assertNotNull(s);
+			}
+			assertEquals(0, cache.size());
+
+			c.setMaxCacheSize(0);
+			assertEquals(0, c.getMaxCacheSize());
+		}
+	}
+
+	@Test
+	public void stmtCacheUriParameters() throws SQLiteException {
+		try (Conn c = Conn.open("file::memory:?stmt_cache_size=10&stmt_cache_memory=65536",
+				OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_URI, null)) {
+			assertEquals(10, c.getStmtCache().getMaxSize());
+			assertEquals(65536, c.getStmtCache().getMaxMemory());
+		}
+		try (Conn c = Conn.open("file::memory:?stmt_cache_size=x", OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_URI, null)) {
+			fail("invalid stmt_cache_size expected");
+		} catch (ConnException e) {
+			assertEquals(ErrCodes.WRAPPER_SPECIFIC, e.getErrorCode());
+		}
+	}
+
+	@Test
+	public void queryTimeout() throws SQLiteException {
+		final Conn c = open();
+		try (Stmt s = c.prepare("WITH RECURSIVE cnt(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM cnt) SELECT count(*) FROM cnt", false)) {
+			final long start = System.nanoTime();
+			try {
+				s.step(1);
+				fail("query timeout expected");
+			} catch (StmtException e) {
+				assertEquals(ErrCodes.SQLITE_INTERRUPT, e.getErrorCode());
+			}
+			final long elapsed = (System.nanoTime() - start) / 1000000L;
+			assertTrue(String.valueOf(elapsed), elapsed >= 1000L && elapsed < 1000L + 20 * Watchdog.TICK);
+		}
+		// deadline disarmed after each step
+		try (Stmt s = c.prepare("SELECT 1", false)) {
+			assertTrue(s.step(1));
+			sleep(1000L + 2 * Watchdog.TICK);
+			assertFalse(s.step(1));
+		}
+		c.setNetworkTimeout(100);
+		try (Stmt s = c.prepare("WITH RECURSIVE cnt(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM cnt) SELECT count(*) FROM cnt", false)) {
+			assertFalse(c.isNetworkTimeoutExpired());
+			s.step(0);
+			fail("network timeout expected");
+		} catch (StmtException e) {
+			assertEquals(ErrCodes.SQLITE_INTERRUPT, e.getErrorCode());
+			assertTrue(c.isNetworkTimeoutExpired());
+		}
+		c.setNetworkTimeout(0);
+		try (Stmt s = c.prepare("SELECT 1", false)) {
+			assertTrue(s.step(0));
+			assertFalse(c.isNetworkTimeoutExpired()); // reset by the next step
+		}
+		checkResult(c.closeNoCheck());
+	}
+
+	@Test
+	public void interruptAfterRow() throws SQLiteException {
+		final Conn c = open();
+		// the watchdog expires the deadline once the row has been computed
+		c.createLongFunction("expire", 0, FunctionFlags.SQLITE_UTF8, args -> {
+			c.expire(System.nanoTime() + 3600_000_000_000L);
+			return 1L;
+		});
+		try (Stmt s = c.prepare("SELECT expire() UNION ALL SELECT 2", false)) {
+			s.step(1);
+			fail("query timeout expected");
+		} catch (StmtException e) {
+			assertEquals(ErrCodes.SQLITE_INTERRUPT, e.getErrorCode());
+		}
+		// no pending interrupt
+		try (Stmt s = c.prepare("SELECT 1 UNION ALL SELECT 2", false)) {
+			assertTrue(s.step(0));
+			assertTrue(s.step(0));
+			assertFalse(s.step(0));
+		}
+		checkResult(c.closeNoCheck());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	static Conn open() throws SQLiteException {
 		final Conn conn = Conn.open(Conn.MEMORY, OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_FULLMUTEX, null);
 		conn.setAuhtorizer(new Authorizer() {
@@ -0,0 +1,45 @@
+package org.sqlite;
+
+import org.sqlite.SQLite.SQLite3Context;
+import org.sqlite.SQLite.SQLite3Values;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Scalar function invocation: {@link ScalarCallback} (one <code>SQLite3Values</code> and <code>Pointer[]</code> per call)
+ * versus {@link Conn#createLongFunction(String, int, java.util.function.LongBinaryOperator)} (reused {@link Values} view).
+ * Run its main method with the test classpath (optional argument: number of rows).
+ */
+public class FunctionBenchmark {
+	public static void main(String[] args) throws Exception {
+		final int n = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+		try (Conn c = Conn.open(Conn.MEMORY, OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_FULLMUTEX, null)) {
+			c.createScalarFunction("legacy_add", 2, FunctionFlags.SQLITE_UTF8 | FunctionFlags.SQLITE_DETERMINISTIC, new ScalarCallback() {
+				@Override
+				protected void func(SQLite3Context pCtx, SQLite3Values args) {
+					pCtx.setResultLong(args.getLong(0) + args.getLong(1));
+				}
+			});
+			c.createLongFunction("typed_add", FunctionFlags.SQLITE_UTF8 | FunctionFlags.SQLITE_DETERMINISTIC, (x, y) -> x + y);
+			for (int run = 0; run < 2; run++) {
+				run("ScalarCallback", c, "legacy_add", n);
+				run("createLongFunction", c, "typed_add", n);
+			}
+		}
+	}
+
+	private static void run(String name, Conn c, String function, int n) throws SQLiteException {
+		final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		final long start = System.nanoTime();
+		try (Stmt s = c.prepare("WITH RECURSIVE cnt(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM cnt LIMIT " + n + ") " +
+				"SELECT sum(" + function + "(x, 1)) FROM cnt", false)) {
+			if (!s.step(0)) {
+				throw new IllegalStateException();
+			}
+		}
+		final long elapsed = System.nanoTime() - start;
+		System.out.printf("%-20s %,d calls in %d ms (%.0f bytes/call)%n", name, n, elapsed / 1_000_000,
+				(threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated) / (double) n);
+	}
+}
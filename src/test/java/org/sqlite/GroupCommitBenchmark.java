@@ -0,0 +1,69 @@
+package org.sqlite;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One-row inserts from many threads: one auto-commit transaction per insert (baseline)
+ * versus {@link GroupCommit} (one transaction per batch, with and without linger).
+ * Run its main method with the test classpath (optional arguments: number of threads, inserts per thread).
+ */
+public class GroupCommitBenchmark {
+	public static void main(String[] args) throws Exception {
+		final int nThreads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		final int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		final File file = File.createTempFile("group-commit", ".db");
+		try {
+			run("auto-commit", file, nThreads, perThread, -1);
+			run("group commit", file, nThreads, perThread, 0);
+			run("linger 1 ms", file, nThreads, perThread, 1);
+		} finally {
+			for (String suffix : new String[]{"", "-wal", "-shm"}) {
+				new File(file.getPath() + suffix).delete();
+			}
+		}
+	}
+
+	private static void run(String name, File file, int nThreads, int perThread, int lingerMillis) throws Exception {
+		try (Conn c = Conn.open(file.getPath(), OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_CREATE |
+				OpenFlags.SQLITE_OPEN_FULLMUTEX, null)) {
+			c.setBusyTimeout(10_000);
+			c.fastExec("PRAGMA journal_mode=WAL; PRAGMA synchronous=FULL; " +
+					"DROP TABLE IF EXISTS test; CREATE TABLE test (id INTEGER PRIMARY KEY, data TEXT)");
+			final GroupCommit gc = lingerMillis < 0 ? null : new GroupCommit(c, 256, lingerMillis, TimeUnit.MILLISECONDS);
+			final Thread[] threads = new Thread[nThreads];
+			final long start = System.nanoTime();
+			for (int t = 0; t < nThreads; t++) {
+				threads[t] = new Thread(() -> {
+					try {
+						for (int i = 0; i < perThread; i++) {
+							if (gc != null) {
+								final CompletableFuture<Integer> f = gc.execDml("INSERT INTO test (data) VALUES (?)", "data");
+								f.get(); // each caller waits for its commit
+							} else {
+								synchronized (c) {
+									c.execDml("INSERT INTO test (data) VALUES (?)", true, "data");
+								}
+							}
+						}
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+				});
+				threads[t].start();
+			}
+			for (Thread t : threads) {
+				t.join();
+			}
+			final long elapsed = System.nanoTime() - start;
+			final int n = nThreads * perThread;
+			if (gc != null) {
+				gc.close();
+				System.out.printf("%-13s %,8d inserts %,10.0f inserts/s  (%d transactions)%n", name, n, n * 1e9 / elapsed, gc.getBatchCount());
+			} else {
+				System.out.printf("%-13s %,8d inserts %,10.0f inserts/s  (%d transactions)%n", name, n, n * 1e9 / elapsed, n);
+			}
+		}
+	}
+}
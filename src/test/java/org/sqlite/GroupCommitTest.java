@@ -0,0 +1,161 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GroupCommitTest {
+	private Conn c;
+
+	@Before
+	public void setUp() throws SQLiteException {
+		c = Conn.open(Conn.MEMORY, OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_FULLMUTEX, null);
+		c.fastExec("CREATE TABLE test (id INTEGER PRIMARY KEY, data TEXT)");
+	}
+
+	@After
+	public void tearDown() throws SQLiteException {
+		c.close();
+	}
+
+	@Test
+	public void coalesce() throws Exception {
+		final int n = 100;
+		final List<CompletableFuture<Integer>> futures = new ArrayList<>(n);
+		try (GroupCommit gc = new GroupCommit(c, 32, 50, TimeUnit.MILLISECONDS)) {
+			final Thread[] threads = new Thread[4];
+			for (int t = 0; t < threads.length; t++) {
+				final int offset = t * n / threads.length;
+				threads[t] = new Thread(() -> {
+					for (int i = offset; i < offset + n / threads.length; i++) {
+						final CompletableFuture<Integer> f = gc.execDml("INSERT INTO test (id, data) VALUES (?, ?)", i, "data");
+						synchronized (futures) {
+							futures.add(f);
+						}
+					}
+				});
+				threads[t].start();
+			}
+			for (Thread t : threads) {
+				t.join();
+			}
+			for (CompletableFuture<Integer> f : futures) {
+				assertEquals(1, f.get(5, TimeUnit.SECONDS).intValue());
+			}
+			assertEquals(n, gc.getUnitCount());
+			assertTrue(String.valueOf(gc.getBatchCount()), gc.getBatchCount() < n);
+		}
+		assertTrue(c.getAutoCommit());
+		try (Stmt s = c.prepare("SELECT count(*) FROM test", false)) {
+			assertTrue(s.step(0));
+			assertEquals(n, s.getColumnInt(0));
+		}
+	}
+
+	@Test
+	public void failureIsolation() throws Exception {
+		final CompletableFuture<Integer> ok1, ko, ok2;
+		try (GroupCommit gc = new GroupCommit(c, 10, 100, TimeUnit.MILLISECONDS)) {
+			ok1 = gc.execDml("INSERT INTO test (id, data) VALUES (?, ?)", 1, "one");
+			ko = gc.submit(conn -> {
+				conn.execDml("INSERT INTO test (id, data) VALUES (?, ?)", true, 2, "two");
+				return conn.execDml("INSERT INTO test (id, data) VALUES (?, ?)", true, 1, "duplicate");
+			});
+			ok2 = gc.execDml("INSERT INTO test (id, data) VALUES (?, ?)", 3, "three");
+			assertEquals(1, ok1.get().intValue());
+			assertEquals(1, ok2.get().intValue());
+			try {
+				ko.get();
+				fail("constraint violation expected");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof StmtException);
+			}
+			assertEquals(1, gc.getFailedUnitCount());
+			assertEquals(1, gc.getBatchCount());
+		}
+		try (Stmt s = c.prepare("SELECT group_concat(id) FROM test", false)) {
+			assertTrue(s.step(0));
+			assertEquals("1,3", s.getColumnText(0)); // the unit's first insert has been rolled back
+		}
+	}
+
+	@Test
+	public void close() throws Exception {
+		final GroupCommit gc = new GroupCommit(c, 10, 1, TimeUnit.MINUTES);
+		final CompletableFuture<Integer> f = gc.execDml("INSERT INTO test (id, data) VALUES (?, ?)", 1, "one");
+		gc.close(); // pending units are committed without waiting for the linger
+		assertEquals(1, f.get(1, TimeUnit.SECONDS).intValue());
+		try {
+			gc.submit(conn -> null);
+			fail("closed");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void fatalError() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch queued = new CountDownLatch(1);
+		try (GroupCommit gc = new GroupCommit(c, 2, 0, TimeUnit.MILLISECONDS)) {
+			final CompletableFuture<Integer> first = gc.submit(conn -> { // alone in the first batch
+				started.countDown();
+				try {
+					queued.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return conn.execDml("INSERT INTO test (id, data) VALUES (?, ?)", true, 1, "one");
+			});
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			final CompletableFuture<Integer> ok = gc.execDml("INSERT INTO test (id, data) VALUES (?, ?)", 2, "two");
+			final CompletableFuture<Integer> fatal = gc.submit(conn -> {
+				throw new AssertionError("fatal");
+			});
+			final CompletableFuture<Integer> pending = gc.execDml("INSERT INTO test (id, data) VALUES (?, ?)", 3, "three");
+			queued.countDown();
+			assertEquals(1, first.get(5, TimeUnit.SECONDS).intValue());
+			for (CompletableFuture<Integer> f : Arrays.asList(ok, fatal, pending)) {
+				try {
+					f.get(5, TimeUnit.SECONDS);
+					fail("fatal error expected");
+				} catch (ExecutionException e) {
+					assertTrue(e.getCause() instanceof AssertionError);
+				}
+			}
+			try {
+				gc.submit(conn -> null);
+				fail("closed");
+			} catch (RejectedExecutionException e) {
+				// expected
+			}
+		}
+		// the second batch has been rolled back
+		assertTrue(c.getAutoCommit());
+		try (Stmt s = c.prepare("SELECT group_concat(id) FROM test", false)) {
+			assertTrue(s.step(0));
+			assertEquals("1", s.getColumnText(0));
+		}
+	}
+}
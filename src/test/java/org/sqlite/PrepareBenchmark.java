@@ -0,0 +1,105 @@
+package org.sqlite;
+
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.sqlite.SQLite.*;
+
+/**
+ * Prepare throughput and native footprint: one fresh JNA <code>Memory</code> per SQL text / out-parameter (previous
+ * implementation) versus the per-connection scratch arena used by {@link Conn#prepare(String, boolean)}.
+ * Run its main method with the test classpath (optional argument: number of iterations).
+ */
+public class PrepareBenchmark {
+	private static final int WARMUP = 50_000;
+	private static final int ITERATIONS = 500_000;
+
+	public static void main(String[] args) throws Exception {
+		final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : ITERATIONS;
+		final PointerByReference ppDb = new PointerByReference();
+		if (sqlite3_open_v2(Conn.MEMORY, ppDb, OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_FULLMUTEX, null) != SQLITE_OK) {
+			throw new IllegalStateException("open failed");
+		}
+		final SQLite3 pDb = new SQLite3(ppDb.getValue());
+		try (Conn c = Conn.open(Conn.MEMORY, OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_FULLMUTEX, null)) {
+			c.fastExec(DDL);
+			sqlite3_exec(pDb, DDL, null, null, null);
+			run("memory per prepare", c, pDb, WARMUP);
+			run("scratch arena", c, null, WARMUP);
+			run("memory per prepare", c, pDb, iterations);
+			run("scratch arena", c, null, iterations);
+		} finally {
+			sqlite3_close_v2(pDb);
+		}
+	}
+	private static final String DDL = "CREATE TABLE test (id INTEGER PRIMARY KEY, name TEXT, value REAL)";
+
+	private static void run(String name, Conn c, SQLite3 pDb, int n) throws SQLiteException {
+		System.gc();
+		final long rss = rss();
+		final long gcs = gcCount();
+		final long gcTime = gcTime();
+		final long start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			final String sql = "SELECT id, name, value FROM test WHERE id = " + (i & 1023);
+			if (pDb != null) {
+				legacyPrepare(pDb, sql);
+			} else {
+				c.prepare(sql, false).close();
+			}
+		}
+		final long elapsed = System.nanoTime() - start;
+		System.out.printf("%-20s %,10d prepares %,12.0f ops/s  gc: %d (%d ms)  rss delta: %,d kB%n", name, n,
+				n * 1e9 / elapsed, gcCount() - gcs, gcTime() - gcTime, rss() - rss);
+	}
+
+	// as done before the scratch arena: new native memory for the SQL and each out-parameter
+	private static void legacyPrepare(SQLite3 pDb, String sql) {
+		final Pointer pSql = nativeString(sql);
+		final Memory ppStmt = new Memory(Native.POINTER_SIZE);
+		final Memory ppTail = new Memory(Native.POINTER_SIZE);
+		final int res = sqlite3_prepare_v3(pDb, pSql, -1, 0, ppStmt, ppTail);
+		if (res != SQLITE_OK) {
+			throw new IllegalStateException(sqlite3_errmsg(pDb));
+		}
+		ppTail.getPointer(0L).getString(0L, UTF_8_ECONDING); // as the Stmt constructor does
+		sqlite3_finalize(new SQLite3Stmt(ppStmt.getPointer(0L)));
+	}
+
+	private static long gcCount() {
+		long n = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			n += gc.getCollectionCount();
+		}
+		return n;
+	}
+	private static long gcTime() {
+		long n = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			n += gc.getCollectionTime();
+		}
+		return n;
+	}
+	// resident set size in kB (Linux only, 0 elsewhere)
+	private static long rss() {
+		try {
+			for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8)) {
+				if (line.startsWith("VmRSS:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", ""));
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// not available
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RowPublisherTest {
+	private static final String QUERY = "WITH RECURSIVE cnt(x) AS (SELECT 1 UNION ALL SELECT x+1 FROM cnt LIMIT ?) SELECT x FROM cnt";
+	private Conn c;
+
+	@Before
+	public void setUp() throws SQLiteException {
+		c = Conn.open(Conn.MEMORY, OpenFlags.SQLITE_OPEN_READWRITE | OpenFlags.SQLITE_OPEN_FULLMUTEX, null);
+	}
+
+	@After
+	public void tearDown() throws SQLiteException {
+		c.close();
+	}
+
+	private static class Recorder implements RowPublisher.Subscriber<Integer> {
+		final List<Integer> items = new ArrayList<>();
+		final int chunk;
+		final int cancelAfter;
+		RowPublisher.Subscription subscription;
+		Throwable error;
+		boolean completed;
+		final CountDownLatch terminated = new CountDownLatch(1);
+
+		Recorder(int chunk, int cancelAfter) {
+			this.chunk = chunk;
+			this.cancelAfter = cancelAfter;
+		}
+		@Override
+		public void onSubscribe(RowPublisher.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(chunk);
+		}
+		@Override
+		public void onNext(Integer item) {
+			items.add(item);
+			if (items.size() == cancelAfter) {
+				subscription.cancel();
+				terminated.countDown();
+			} else if (items.size() % chunk == 0) {
+				subscription.request(chunk);
+			}
+		}
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+			terminated.countDown();
+		}
+		@Override
+		public void onComplete() {
+			completed = true;
+			terminated.countDown();
+		}
+	}
+
+	@Test
+	public void complete() throws SQLiteException {
+		final Stmt stmt = c.prepareAndBind(QUERY, true, 10);
+		final Recorder recorder = new Recorder(3, -1);
+		new RowPublisher<>(stmt, row -> row.getColumnInt(0)).subscribe(recorder);
+		assertEquals(10, recorder.items.size());
+		assertEquals(10, recorder.items.get(9).intValue());
+		assertTrue(recorder.completed);
+		assertNull(recorder.error);
+		assertFalse(stmt.isBusy());
+	}
+
+	@Test
+	public void backpressure() throws SQLiteException {
+		final Stmt stmt = c.prepareAndBind(QUERY, true, 10);
+		final RowPublisher.Subscription[] subscription = new RowPublisher.Subscription[1];
+		final List<Integer> items = new ArrayList<>();
+		new RowPublisher<>(stmt, row -> row.getColumnInt(0)).subscribe(new RowPublisher.Subscriber<Integer>() {
+			@Override
+			public void onSubscribe(RowPublisher.Subscription s) {
+				subscription[0] = s;
+			}
+			@Override
+			public void onNext(Integer item) {
+				items.add(item);
+			}
+			@Override
+			public void onError(Throwable throwable) {
+				throw new AssertionError(throwable);
+			}
+			@Override
+			public void onComplete() {
+			}
+		});
+		assertEquals(0, items.size());
+		assertFalse(stmt.isBusy());
+		subscription[0].request(2);
+		assertEquals(2, items.size());
+		assertTrue(stmt.isBusy()); // read transaction still open
+		subscription[0].cancel();
+		assertFalse(stmt.isBusy()); // reset on cancel
+		subscription[0].request(2);
+		assertEquals(2, items.size());
+	}
+
+	@Test
+	public void cancelOnExecutor() throws Exception {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Stmt stmt = c.prepareAndBind(QUERY, true, 1000);
+			final Recorder recorder = new Recorder(4, 6);
+			new RowPublisher<>(stmt, row -> row.getColumnInt(0), executor).subscribe(recorder);
+			assertTrue(recorder.terminated.await(5, TimeUnit.SECONDS));
+			executor.submit(() -> null).get(); // wait for the drain loop
+			assertEquals(6, recorder.items.size());
+			assertFalse(recorder.completed);
+			assertFalse(stmt.isBusy());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void invalidRequest() throws SQLiteException {
+		final Stmt stmt = c.prepareAndBind(QUERY, true, 10);
+		final Recorder recorder = new Recorder(0, -1);
+		new RowPublisher<>(stmt, row -> row.getColumnInt(0)).subscribe(recorder);
+		assertTrue(recorder.error instanceof IllegalArgumentException);
+		assertFalse(stmt.isBusy());
+	}
+}
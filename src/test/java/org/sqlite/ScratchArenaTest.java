@@ -0,0 +1,44 @@
+package org.sqlite;
+
+import com.sun.jna.Pointer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScratchArenaTest {
+	@Test
+	public void bumpAndReset() {
+		try (ScratchArena arena = new ScratchArena(64)) {
+			final Pointer p1 = arena.allocatePointer();
+			final Pointer p2 = arena.allocateInt();
+			assertNotEquals(Pointer.nativeValue(p1), Pointer.nativeValue(p2));
+			assertEquals(0, p2.getInt(0L));
+			arena.reset();
+			assertEquals(Pointer.nativeValue(p1), Pointer.nativeValue(arena.allocatePointer()));
+		}
+	}
+
+	@Test
+	public void overflowAndGrowth() {
+		try (ScratchArena arena = new ScratchArena(16)) {
+			final StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < 100; i++) {
+				sb.append("café ");
+			}
+			final String text = sb.toString();
+			final ScratchArena.NativeString s = arena.string(text);
+			assertEquals(text.getBytes(SQLite.UTF_8).length, s.length);
+			assertEquals(text, s.pointer.getString(0L, SQLite.UTF_8_ECONDING));
+			arena.reset();
+			assertTrue(arena.capacity() > s.length);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void closed() {
+		final ScratchArena arena = new ScratchArena(16);
+		arena.close();
+		arena.close(); // no-op
+		arena.allocatePointer();
+	}
+}
@@ -3,6 +3,7 @@ package org.sqlite;
 import org.junit.Assume;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import static org.junit.Assert.*;
@@ -19,6 +20,79 @@ public class StmtTest {
 		checkResult(c.closeNoCheck());
 	}
 
+	@Test
+	public void bindArray() throws SQLiteException {
+		try (Conn c = ConnTest.open()) {
+			c.exec("CREATE TABLE test(id INTEGER PRIMARY KEY, name TEXT); " +
+					"WITH RECURSIVE t(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM t WHERE x < 100000) INSERT INTO test SELECT x, 'n' || x FROM t");
+			// more values than SQLITE_LIMIT_VARIABLE_NUMBER
+			final long[] ids = new long[50000];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = 2L * i + 1;
+			}
+			for (Object array : new Object[]{new long[]{3, 1, 4}, ids, new long[0], null}) {
+				// same (cached) statement whatever the number of values
+				try (Stmt s = c.prepare("SELECT count(*), sum(id) FROM test WHERE id IN carray(?)", true)) {
+					s.bindByIndex(1, array);
+					assertTrue(s.step(0));
+					final long[] expected = array == null ? new long[0] : (long[]) array;
+					assertEquals(expected.length, s.getColumnLong(0));
+					long sum = 0;
+					for (long id : expected) {
+						sum += id;
+					}
+					assertEquals(sum, s.getColumnLong(1));
+				}
+			}
+			try (Stmt s = c.prepare("SELECT value FROM carray(?)", false)) {
+				s.bindArray(1, new double[]{1.5, -2});
+				assertTrue(s.step(0));
+				assertEquals(1.5, s.getColumnDouble(0), 0.0);
+				assertTrue(s.step(0));
+				assertEquals(-2.0, s.getColumnDouble(0), 0.0);
+				assertFalse(s.step(0));
+				s.reset();
+				s.bindArray(1, new String[]{"n2", null, "é"});
+				assertTrue(s.step(0));
+				assertEquals("n2", s.getColumnText(0));
+				assertTrue(s.step(0));
+				assertEquals(ColTypes.SQLITE_NULL, s.getColumnType(0));
+				assertTrue(s.step(0));
+				assertEquals("é", s.getColumnText(0));
+				assertFalse(s.step(0));
+			}
+			try (Stmt s = c.prepare("SELECT 1", false)) {
+				s.bindArray(1, new long[]{1});
+				fail("error expected");
+			} catch (StmtException e) {
+				assertEquals(ErrCodes.SQLITE_RANGE, e.getErrorCode());
+			}
+			try (Stmt s = c.prepare("SELECT ?", false)) {
+				s.bindArray(1, new int[]{1});
+				fail("error expected");
+			} catch (StmtException e) {
+				assertEquals(ErrCodes.WRAPPER_SPECIFIC, e.getErrorCode());
+			}
+			// arrays are released with their bindings (the cached statement is bound to NULL)
+			assertEquals(0, c.carray().size());
+		}
+	}
+
+	@Test
+	public void foreignCarray() throws SQLiteException {
+		Assume.assumeTrue(SQLite.sqlite3_carray_bind == null);
+		try (Conn c = ConnTest.open()) {
+			// another carray module cannot read the arrays bound by reference
+			c.createModule(CArray.MODULE, new CArray());
+			try (Stmt s = c.prepare("SELECT value FROM carray(?)", false)) {
+				s.bindArray(1, new long[]{1, 2});
+				fail("error expected");
+			} catch (StmtException e) {
+				assertEquals(ErrCodes.WRAPPER_SPECIFIC, e.getErrorCode());
+			}
+		}
+	}
+
 	@Test
 	public void checkBind() throws SQLiteException {
 		final Conn c = ConnTest.open();
@@ -132,6 +206,133 @@ public class StmtTest {
 		}
 	}
 
+	@Test
+	public void rawColumns() throws Exception {
+		try (Conn c = ConnTest.open()) {
+			try (Stmt sel = c.prepare("SELECT ?, x'0102', x'', '', NULL, 123", false)) {
+				final String text = "caf\u00e9 " + new String(Character.toChars(0x1F604));
+				sel.bindText(1, text);
+				assertTrue(sel.step(0));
+				ByteBuffer buf = sel.getColumnTextBuffer(0);
+				assertTrue(buf.isReadOnly());
+				assertEquals(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), buf);
+				assertEquals(ByteBuffer.wrap(new byte[]{1, 2}), sel.getColumnBlobBuffer(1));
+				assertEquals(0, sel.getColumnBlobBuffer(2).remaining());
+				assertEquals(0, sel.getColumnTextBuffer(3).remaining());
+				assertNull(sel.getColumnTextBuffer(4));
+				assertNull(sel.getColumnBlobBuffer(4));
+				assertEquals(ByteBuffer.wrap("123".getBytes(StandardCharsets.UTF_8)), sel.getColumnTextBuffer(5));
+				assertEquals(text, sel.getColumnText(0));
+			}
+		}
+	}
+
+	@Test
+	public void utf8Bind() throws Exception {
+		try (Conn c = ConnTest.open()) {
+			try (Stmt sel = c.prepare("SELECT ?, ?, length(?)", false)) {
+				final byte[] bytes = "caf\u00e9 ok".getBytes(StandardCharsets.UTF_8);
+				sel.bindText(1, bytes, 5); // without " ok"
+				sel.bindByIndex(2, new Utf8Text("tenant"));
+				sel.bindText(3, new Utf8Text(bytes, 0));
+				assertTrue(sel.step(0));
+				assertEquals("caf\u00e9", sel.getColumnText(0));
+				assertEquals("tenant", sel.getColumnText(1));
+				assertEquals(0, sel.getColumnInt(2));
+				try {
+					sel.bindText(1, bytes, bytes.length + 1);
+					fail("invalid length expected");
+				} catch (StmtException e) {
+					assertEquals(ErrCodes.SQLITE_RANGE, e.getErrorCode());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void fetchBatch() throws Exception {
+		try (Conn c = ConnTest.open()) {
+			c.fastExec("CREATE TABLE test (i INTEGER, r REAL, t TEXT, b BLOB)");
+			for (int i = 0; i < 100; i++) {
+				c.execDml("INSERT INTO test VALUES (?, ?, ?, ?)", true, i % 7 == 0 ? null : i, i * 0.5, "t" + i, new byte[i % 3]);
+			}
+			final ColumnBatch batch = new ColumnBatch();
+			try (Stmt s = c.prepare("SELECT i, r, t, b FROM test ORDER BY rowid", false)) {
+				int total = 0;
+				int n;
+				while ((n = s.fetchBatch(64, batch)) > 0) {
+					assertEquals(n, batch.getRowCount());
+					final long[] is = batch.longs(0);
+					final long[] nulls = batch.nulls(0);
+					final double[] rs = batch.doubles(1);
+					final int[] offsets = batch.offsets(3);
+					for (int row = 0; row < n; row++) {
+						final int i = total + row;
+						assertEquals(i % 7 == 0, (nulls[row >>> 6] & (1L << row)) != 0);
+						assertEquals(i % 7 == 0 ? 0 : i, is[row]);
+						assertEquals(i * 0.5, rs[row], 0.0);
+						assertEquals("t" + i, batch.getText(row, 2));
+						assertEquals(i % 3, offsets[row + 1] - offsets[row]);
+						assertEquals(ColTypes.SQLITE_BLOB, batch.getType(row, 3));
+					}
+					total += n;
+					if (n < 64) {
+						break;
+					}
+				}
+				assertEquals(100, total);
+			}
+		}
+	}
+
+	@Test
+	public void columnIndex() throws Exception {
+		try (Conn c = ConnTest.open()) {
+			c.fastExec("CREATE TABLE test (Id INTEGER, name TEXT)");
+			final Stmt s = c.prepare("SELECT *, name AS Name FROM test", true);
+			assertEquals(0, s.getColumnIndex("id"));
+			assertEquals(0, s.getColumnIndex("ID"));
+			assertEquals(1, s.getColumnIndex("NAME")); // leftmost
+			assertEquals(-1, s.getColumnIndex("unknown"));
+			s.close(); // back to the cache
+			c.fastExec("ALTER TABLE test ADD COLUMN extra TEXT");
+			try (Stmt cached = c.prepare("SELECT *, name AS Name FROM test", true)) {
+				assertSame(s, cached);
+				assertFalse(cached.step(0)); // re-prepared
+				assertEquals(4, cached.getColumnCount());
+				assertEquals(2, cached.getColumnIndex("Extra"));
+				assertEquals(1, cached.getColumnIndex("name"));
+			}
+			try (Stmt dup = c.prepare("SELECT Id AS name, name AS Name FROM test", false)) {
+				assertEquals(0, dup.getColumnIndex("Name")); // leftmost, whatever the case
+				assertEquals(0, dup.getColumnIndex("name"));
+			}
+		}
+	}
+
+	@Test
+	public void reprepareWithoutMetadata() throws Exception {
+		try (Conn c = ConnTest.open()) {
+			c.fastExec("CREATE TABLE test (x, y)");
+			final String sql = "SELECT * FROM test";
+			try (Stmt s = c.prepare(sql, true)) {
+				assertEquals(2, s.getColumnCount());
+				assertEquals(-1, s.getColumnIndex("z"));
+				assertFalse(s.step(0));
+			}
+			c.fastExec("ALTER TABLE test ADD COLUMN z");
+			try (Stmt s = c.prepare(sql, true)) {
+				assertFalse(s.step(0)); // re-prepared, no metadata read
+			}
+			try (Stmt s = c.prepare(sql, true)) {
+				assertFalse(s.step(0));
+				assertEquals(3, s.getColumnCount());
+				assertEquals(2, s.getColumnIndex("z"));
+			}
+			assertEquals(1, c.getStmtCache().getReprepares());
+		}
+	}
+
 	@Test
 	public void pragma_func() throws Exception {
 		Assume.assumeTrue(org.sqlite.Conn.libversionNumber() >= 3020000);
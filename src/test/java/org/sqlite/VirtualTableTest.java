@@ -0,0 +1,263 @@
+package org.sqlite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+import static org.sqlite.IndexInfo.*;
+
+public class VirtualTableTest {
+	// idxNum flags
+	private static final int EQ = 1, LOWER = 2, LOWER_INCLUSIVE = 4, UPPER = 8, UPPER_INCLUSIVE = 16, DESC = 32;
+
+	private final TreeMap<Long, String> map = new TreeMap<>();
+	private final List<String[]> args = new ArrayList<>();
+	private int scanned;
+	private int filtered;
+	private int opened;
+	private Conn c;
+
+	@Before
+	public void setUp() throws SQLiteException {
+		for (long k = 1; k <= 1000; k++) {
+			map.put(k, "v" + k);
+		}
+		c = ConnTest.open();
+		c.createModule("sorted_map", args -> {
+			this.args.add(args);
+			return new SortedMapTable();
+		});
+	}
+
+	@After
+	public void tearDown() throws SQLiteException {
+		c.close();
+		assertEquals("cursors not closed", 0, opened);
+	}
+
+	@Test
+	public void equality() throws SQLiteException {
+		try (Stmt s = c.prepare("SELECT v FROM sorted_map WHERE k = ?", false)) {
+			s.bindLong(1, 500);
+			assertTrue(s.step(0));
+			assertEquals("v500", s.getColumnText(0));
+			assertFalse(s.step(0));
+			s.reset();
+			s.bindLong(1, 5000);
+			assertFalse(s.step(0));
+		}
+		assertEquals(1, scanned);
+		assertEquals(2, filtered);
+		assertArrayEquals(new String[0], args.get(0));
+	}
+
+	@Test
+	public void range() throws SQLiteException {
+		try (Stmt s = c.prepare("SELECT k FROM sorted_map WHERE k > 10 AND rowid <= 20", false)) {
+			for (long k = 11; k <= 20; k++) {
+				assertTrue(s.step(0));
+				assertEquals(k, s.getColumnLong(0));
+			}
+			assertFalse(s.step(0));
+		}
+		assertEquals(10, scanned);
+	}
+
+	@Test
+	public void orderBy() throws SQLiteException {
+		try (Stmt s = c.prepare("EXPLAIN QUERY PLAN SELECT k FROM sorted_map WHERE k < 5 ORDER BY k DESC", false)) {
+			while (s.step(0)) {
+				assertFalse(s.getColumnText(3), s.getColumnText(3).contains("ORDER BY"));
+			}
+		}
+		try (Stmt s = c.prepare("SELECT k FROM sorted_map WHERE k < 5 ORDER BY k DESC", false)) {
+			for (long k = 4; k >= 1; k--) {
+				assertTrue(s.step(0));
+				assertEquals(k, s.getColumnLong(0));
+			}
+			assertFalse(s.step(0));
+		}
+		assertEquals(4, scanned);
+	}
+
+	@Test
+	public void join() throws SQLiteException {
+		c.exec("CREATE TABLE keys(x INTEGER); INSERT INTO keys VALUES (3), (1), (2000), (999)");
+		try (Stmt s = c.prepare("SELECT x, v FROM keys JOIN sorted_map ON k = x ORDER BY x", false)) {
+			assertTrue(s.step(0));
+			assertEquals("v1", s.getColumnText(1));
+			assertTrue(s.step(0));
+			assertEquals("v3", s.getColumnText(1));
+			assertTrue(s.step(0));
+			assertEquals("v999", s.getColumnText(1));
+			assertFalse(s.step(0));
+		}
+		// no full scan of the Java map
+		assertEquals(3, scanned);
+	}
+
+	@Test
+	public void createVirtualTable() throws SQLiteException {
+		c.exec("CREATE VIRTUAL TABLE temp.vt USING sorted_map(a, 'b c')");
+		assertArrayEquals(new String[]{"a", "'b c'"}, args.get(args.size() - 1));
+		try (Stmt s = c.prepare("SELECT count(*) FROM vt", false)) {
+			assertTrue(s.step(0));
+			assertEquals(1000L, s.getColumnLong(0));
+		}
+		c.exec("DROP TABLE temp.vt");
+	}
+
+	@Test
+	public void error() throws SQLiteException {
+		try (Stmt s = c.prepare("SELECT fail FROM sorted_map WHERE k = 1", false)) {
+			s.step(0);
+			fail("error expected");
+		} catch (StmtException e) {
+			assertTrue(e.getMessage(), c.getErrMsg().contains("boom"));
+		}
+		try (Stmt s = c.prepare("SELECT k FROM sorted_map WHERE k = 'x'", false)) {
+			s.step(0);
+			fail("error expected");
+		} catch (StmtException e) {
+			assertTrue(e.getMessage(), c.getErrMsg().contains("integer expected"));
+		}
+	}
+
+	private class SortedMapTable implements VirtualTable {
+		@Override
+		public String getDeclaration() {
+			return "CREATE TABLE x(k INTEGER PRIMARY KEY, v TEXT, fail)";
+		}
+
+		@Override
+		public void bestIndex(IndexInfo info) {
+			// one constraint per op: EQ, >, >=, <, <=
+			final int[] ops = {SQLITE_INDEX_CONSTRAINT_EQ, SQLITE_INDEX_CONSTRAINT_GT, SQLITE_INDEX_CONSTRAINT_GE,
+					SQLITE_INDEX_CONSTRAINT_LT, SQLITE_INDEX_CONSTRAINT_LE};
+			final int[] constraints = {-1, -1, -1, -1, -1};
+			for (int i = 0; i < info.getConstraintCount(); i++) {
+				if (!info.isUsable(i) || info.getColumn(i) > 0) { // k or rowid
+					continue;
+				}
+				for (int j = 0; j < ops.length; j++) {
+					if (info.getOp(i) == ops[j] && constraints[j] < 0) {
+						constraints[j] = i;
+					}
+				}
+			}
+			int idxNum = 0;
+			int argvIndex = 0;
+			for (int j = 0; j < ops.length; j++) {
+				// EQ or (one lower bound and one upper bound)
+				if (constraints[j] >= 0 && (j == 0 || (idxNum & EQ) == 0) && (j != 2 && j != 4 || (idxNum & 1 << (j - 1)) == 0)) {
+					info.use(constraints[j], ++argvIndex, true);
+					idxNum |= 1 << j;
+				}
+			}
+			if (info.getOrderByCount() == 1 && info.getOrderByColumn(0) <= 0) {
+				info.setOrderByConsumed(true);
+				if (info.isOrderByDesc(0)) {
+					idxNum |= DESC;
+				}
+			}
+			info.setIdxNum(idxNum);
+			if ((idxNum & EQ) != 0) {
+				info.setUniqueScan(true);
+				info.setEstimatedCost(1);
+				info.setEstimatedRows(1);
+			} else {
+				final int rows = (idxNum & ~DESC) == 0 ? map.size() : map.size() / 4;
+				info.setEstimatedCost(rows);
+				info.setEstimatedRows(rows);
+			}
+		}
+
+		@Override
+		public VirtualCursor open() {
+			opened++;
+			return new SortedMapCursor();
+		}
+	}
+
+	private class SortedMapCursor implements VirtualCursor {
+		private Iterator<Map.Entry<Long, String>> entries;
+		private Map.Entry<Long, String> entry;
+
+		@Override
+		public void filter(int idxNum, String idxStr, Values args) {
+			filtered++;
+			NavigableMap<Long, String> m = map;
+			int arg = 0;
+			if ((idxNum & EQ) != 0) {
+				final long k = key(args, arg);
+				m = m.subMap(k, true, k, true);
+			} else {
+				if ((idxNum & (LOWER | LOWER_INCLUSIVE)) != 0) {
+					m = m.tailMap(key(args, arg++), (idxNum & LOWER_INCLUSIVE) != 0);
+				}
+				if ((idxNum & (UPPER | UPPER_INCLUSIVE)) != 0) {
+					m = m.headMap(key(args, arg), (idxNum & UPPER_INCLUSIVE) != 0);
+				}
+			}
+			if ((idxNum & DESC) != 0) {
+				m = m.descendingMap();
+			}
+			entries = m.entrySet().iterator();
+			next();
+		}
+
+		private long key(Values args, int i) {
+			if (args.getNumericType(i) != ColTypes.SQLITE_INTEGER) {
+				throw new IllegalArgumentException("integer expected");
+			}
+			return args.getLong(i);
+		}
+
+		@Override
+		public void next() {
+			if (entries.hasNext()) {
+				entry = entries.next();
+				scanned++;
+			} else {
+				entry = null;
+			}
+		}
+
+		@Override
+		public boolean eof() {
+			return entry == null;
+		}
+
+		@Override
+		public void column(Result result, int i) {
+			switch (i) {
+				case 0:
+					result.setLong(entry.getKey());
+					break;
+				case 1:
+					result.setText(entry.getValue());
+					break;
+				default:
+					throw new IllegalStateException("boom");
+			}
+		}
+
+		@Override
+		public long rowid() {
+			return entry.getKey();
+		}
+
+		@Override
+		public void close() {
+			opened--;
+		}
+	}
+}
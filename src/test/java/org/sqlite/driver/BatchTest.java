@@ -8,12 +8,17 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.sqlite.SQLite;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.Properties;
 
 public class BatchTest {
 	private Connection conn;
@@ -49,6 +54,227 @@ public class BatchTest {
 		}
 	}
 
+	@Test
+	public void typedValues() throws Exception {
+		try (Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate("create table typed (i integer, r real, t text, b blob, n)");
+		}
+		try (PreparedStatement stmt = conn.prepareStatement("insert into typed values (?, ?, ?, ?, ?)")) {
+			for (int i = 0; i < 100; i++) {
+				stmt.setLong(1, Long.MAX_VALUE - i);
+				stmt.setDouble(2, i / 4.0);
+				stmt.setString(3, "row" + i);
+				stmt.setBytes(4, new byte[]{(byte) i});
+				stmt.setNull(5, Types.NULL);
+				stmt.addBatch();
+			}
+			stmt.setInt(1, -1); // other parameters keep their values
+			stmt.addBatch();
+			final int[] changes = stmt.executeBatch();
+			Assert.assertEquals(101, changes.length);
+			for (int change : changes) {
+				Assert.assertEquals(1, change);
+			}
+		}
+		try (Statement select = conn.createStatement();
+				 ResultSet rs = select.executeQuery("select i, r, t, b, n, typeof(i), typeof(r) from typed order by rowid")) {
+			for (int i = 0; i < 100; i++) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(Long.MAX_VALUE - i, rs.getLong(1));
+				Assert.assertEquals(i / 4.0, rs.getDouble(2), 0.0);
+				Assert.assertEquals("row" + i, rs.getString(3));
+				Assert.assertArrayEquals(new byte[]{(byte) i}, rs.getBytes(4));
+				Assert.assertNull(rs.getObject(5));
+				Assert.assertEquals("integer", rs.getString(6));
+				Assert.assertEquals("real", rs.getString(7));
+			}
+			Assert.assertTrue(rs.next());
+			Assert.assertEquals(-1, rs.getInt(1));
+			Assert.assertEquals("row99", rs.getString(3));
+			Assert.assertFalse(rs.next());
+		}
+	}
+
+	@Test
+	public void failedRow() throws Exception {
+		try (PreparedStatement stmt = conn.prepareStatement("insert into test(id, stuff) values (?, ?)")) {
+			stmt.setInt(1, 1);
+			stmt.setString(2, "one");
+			stmt.addBatch();
+			stmt.addBatch(); // duplicate key
+			stmt.setInt(1, 2);
+			stmt.addBatch();
+			try {
+				stmt.executeBatch();
+				Assert.fail("constraint violation expected");
+			} catch (BatchUpdateException e) {
+				Assert.assertArrayEquals(new int[]{1, Statement.EXECUTE_FAILED, 1}, e.getUpdateCounts());
+			}
+			Assert.assertTrue(conn.getAutoCommit());
+			// implicit savepoint released: successful rows are committed
+			assertRowCount();
+			Assert.assertEquals(0, stmt.executeBatch().length);
+		}
+	}
+
+	@Test
+	public void explicitTransaction() throws Exception {
+		conn.setAutoCommit(false);
+		try (PreparedStatement stmt = conn.prepareStatement("insert into test(id, stuff) values (?, ?)")) {
+			for (int i = 0; i < 2; i++) {
+				stmt.setInt(1, i);
+				stmt.setString(2, "test" + i);
+				stmt.addBatch();
+			}
+			Assert.assertArrayEquals(new int[]{1, 1}, stmt.executeBatch());
+		}
+		conn.rollback();
+		conn.setAutoCommit(true);
+		try (Statement select = conn.createStatement();
+				 ResultSet rs = select.executeQuery("select count(*) from test")) {
+			Assert.assertTrue(rs.next());
+			Assert.assertEquals(0, rs.getInt(1));
+		}
+	}
+
+	@Test
+	public void rolledBackTransaction() throws Exception {
+		final Properties info = new Properties();
+		info.setProperty(JDBC.REWRITE_BATCHED_INSERTS, "on");
+		try (Connection rewrite = DriverManager.getConnection(JDBC.MEMORY, info)) {
+			for (Connection c : new Connection[]{conn, rewrite}) {
+				try (Statement stmt = c.createStatement()) {
+					stmt.executeUpdate("create table rollback_test (id integer unique on conflict rollback)");
+				}
+				try (PreparedStatement stmt = c.prepareStatement("insert into rollback_test (id) values (?)")) {
+					for (int id : new int[]{1, 2, 1, 3}) {
+						stmt.setInt(1, id);
+						stmt.addBatch();
+					}
+					try {
+						stmt.executeBatch();
+						Assert.fail("constraint violation expected");
+					} catch (BatchUpdateException e) {
+						// the first rows have been rolled back with the transaction
+						final int[] failed = {Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED};
+						Assert.assertArrayEquals(failed, e.getUpdateCounts());
+					}
+				}
+				Assert.assertTrue(c.getAutoCommit());
+				Assert.assertEquals(0, count(c, "rollback_test"));
+			}
+		}
+	}
+
+	@Test
+	public void rewriteBatchedInserts() throws Exception {
+		final Properties info = new Properties();
+		info.setProperty(JDBC.REWRITE_BATCHED_INSERTS, "on");
+		try (Connection c = DriverManager.getConnection(JDBC.MEMORY, info)) {
+			try (Statement stmt = c.createStatement()) {
+				stmt.executeUpdate("create table test (id integer primary key, stuff text)");
+			}
+			try (PreparedStatement stmt = c.prepareStatement("insert into test (id, stuff) values (?, ?)")) {
+				final int n = 2500;
+				for (int i = 0; i < n; i++) {
+					stmt.setInt(1, i);
+					stmt.setString(2, "test" + i);
+					stmt.addBatch();
+				}
+				final int[] changes = stmt.executeBatch();
+				Assert.assertEquals(n, changes.length);
+				for (int change : changes) {
+					Assert.assertEquals(1, change);
+				}
+				// one duplicate key: the failing chunk is replayed row by row
+				for (int i = n - 1; i < n + 2; i++) {
+					stmt.setInt(1, i);
+					stmt.setString(2, "test" + i);
+					stmt.addBatch();
+				}
+				try {
+					stmt.executeBatch();
+					Assert.fail("constraint violation expected");
+				} catch (BatchUpdateException e) {
+					Assert.assertArrayEquals(new int[]{Statement.EXECUTE_FAILED, 1, 1}, e.getUpdateCounts());
+				}
+			}
+			try (PreparedStatement stmt = c.prepareStatement("insert or ignore into test (id, stuff) values (?, ?)")) {
+				for (int i = 0; i < 3; i++) {
+					stmt.setInt(1, i * 1000);
+					stmt.setString(2, "ignored");
+					stmt.addBatch();
+				}
+				// two rows in one statement and the last one alone
+				Assert.assertArrayEquals(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, 0}, stmt.executeBatch());
+			}
+			try (Statement select = c.createStatement();
+					 ResultSet rs = select.executeQuery("select count(*), sum(id), max(stuff = 'test' || id) from test")) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(2502, rs.getInt(1));
+				Assert.assertEquals(2501L * 2502 / 2, rs.getLong(2));
+				Assert.assertEquals(1, rs.getInt(3));
+			}
+		}
+	}
+
+	@Test
+	public void rewriteFailure() throws Exception {
+		final Properties info = new Properties();
+		info.setProperty(JDBC.REWRITE_BATCHED_INSERTS, "on");
+		try (Connection c = DriverManager.getConnection(JDBC.MEMORY, info)) {
+			try (Statement stmt = c.createStatement()) {
+				stmt.executeUpdate("create table test (id integer primary key)");
+			}
+			try (PreparedStatement stmt = c.prepareStatement("insert into test (id) values (?)")) {
+				for (int i = 0; i < 10; i++) {
+					stmt.setInt(1, i);
+					stmt.addBatch();
+				}
+				// multi-row INSERT cannot be prepared
+				c.unwrap(org.sqlite.Conn.class).setLimit(SQLite.SQLITE_LIMIT_SQL_LENGTH, 64);
+				try {
+					stmt.executeBatch();
+					Assert.fail("too long SQL expected");
+				} catch (BatchUpdateException e) {
+					Assert.fail("not a row error");
+				} catch (SQLException e) {
+					// expected
+				}
+			}
+			// batch savepoint rolled back
+			Assert.assertTrue(c.getAutoCommit());
+			Assert.assertEquals(0, count(c, "test"));
+		}
+	}
+
+	@Test
+	public void batchInsert() {
+		Assert.assertEquals("INSERT INTO t (a, b) VALUES (?, 1), (?, 1), (?, 1)",
+				BatchInsert.of("insert into t(a, b) values (?, 1)").sql(3));
+		Assert.assertEquals("INSERT OR IGNORE INTO main.t VALUES (?), (?)",
+				BatchInsert.of("INSERT OR IGNORE INTO main.t VALUES (?)").sql(2));
+		Assert.assertNull(BatchInsert.of("insert into t values (?1, ?2)"));
+		Assert.assertNull(BatchInsert.of("insert into t values (:a)"));
+		Assert.assertNull(BatchInsert.of("insert into t values (?), (?)"));
+		Assert.assertNull(BatchInsert.of("insert into t values (abs(?))"));
+		Assert.assertNull(BatchInsert.of("insert or fail into t values (?)"));
+		Assert.assertNull(BatchInsert.of("insert into t select ?"));
+		Assert.assertNull(BatchInsert.of("insert into t values (?) on conflict do nothing"));
+		Assert.assertNull(BatchInsert.of("update t set a = ?"));
+		Assert.assertEquals(1024, BatchInsert.chunkSize(5000, 2, 32766));
+		Assert.assertEquals(8, BatchInsert.chunkSize(15, 2, 32766));
+		Assert.assertEquals(512, BatchInsert.chunkSize(5000, 40, 32766));
+	}
+
+	private static int count(Connection c, String table) throws Exception {
+		try (Statement select = c.createStatement();
+				 ResultSet rs = select.executeQuery("select count(*) from " + table)) {
+			Assert.assertTrue(rs.next());
+			return rs.getInt(1);
+		}
+	}
+
 	private void assertRowCount() throws Exception {
 		try (Statement select = conn.createStatement()) {
 			select.execute("select count(*) from test");
@@ -215,6 +215,35 @@ public class DBMetaDataTest {
 		}
 	}
 
+	@Test
+	public void manyTables() throws SQLException {
+		final int n = 600; // more than SQLITE_MAX_COMPOUND_SELECT
+		stat.executeUpdate("create table parent (id integer primary key)");
+		for (int i = 0; i < n; i++) {
+			stat.executeUpdate("create table many" + i + " (id integer primary key, pid integer references parent(id))");
+			stat.executeUpdate("create index many" + i + "_pid on many" + i + " (pid)");
+		}
+		assertEquals(2 * n, count(meta.getColumns(null, null, "many%", null)));
+		assertEquals(n, count(meta.getColumns(null, null, "many%", "pid")));
+		assertEquals(n, count(meta.getExportedKeys(null, null, "parent")));
+		assertEquals(1, count(meta.getIndexInfo(null, null, "many0", false, false)));
+		// schema change
+		stat.executeUpdate("alter table many0 add column name text");
+		assertEquals(2 * n + 1, count(meta.getColumns(null, null, "many%", null)));
+		stat.executeUpdate("create unique index many0_name on many0 (name)");
+		assertEquals(1, count(meta.getIndexInfo(null, null, "many0", true, false)));
+	}
+
+	private static int count(ResultSet rs) throws SQLException {
+		int count = 0;
+		try (ResultSet ignored = rs) {
+			while (rs.next()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
 	@Test
 	public void getGeneratedColumns() throws SQLException {
 		stat.executeUpdate("CREATE TABLE t1(\n" +
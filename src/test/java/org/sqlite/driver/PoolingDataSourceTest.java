@@ -0,0 +1,288 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.service.jdbc.DataSourceFactory;
+import org.sqlite.osgi.OsgiDataSourceFactory;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.ConnectionPoolDataSource;
+import javax.sql.DataSource;
+import javax.sql.PooledConnection;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PoolingDataSourceTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private PoolingDataSource ds;
+
+	@Before
+	public void setUp() throws Exception {
+		ds = new PoolingDataSource();
+		ds.setFilename(folder.newFile("pool.db").getPath());
+		try (Connection c = ds.getConnection(); Statement s = c.createStatement()) {
+			s.executeUpdate("CREATE TABLE test (data TEXT)");
+		}
+		ds.resetStats();
+	}
+
+	@After
+	public void tearDown() {
+		ds.close();
+	}
+
+	@Test
+	public void reuse() throws SQLException {
+		final org.sqlite.Conn physical;
+		try (Connection c = ds.getConnection()) {
+			physical = c.unwrap(org.sqlite.Conn.class);
+			assertEquals(1, ds.getActiveCount());
+			assertEquals(0, ds.getIdleCount());
+		}
+		assertEquals(0, ds.getActiveCount());
+		assertEquals(1, ds.getIdleCount());
+		try (Connection c = ds.getConnection()) {
+			assertSame(physical, c.unwrap(org.sqlite.Conn.class));
+		}
+		assertEquals(2, ds.getBorrowCount());
+		assertEquals(0, ds.getCreatedCount());
+		assertTrue(ds.getMaxBorrowNanos() >= ds.getMeanBorrowNanos());
+	}
+
+	@Test
+	public void resetOnClose() throws SQLException {
+		final Connection c = ds.getConnection();
+		c.setAutoCommit(false);
+		try (Statement s = c.createStatement()) {
+			s.executeUpdate("INSERT INTO test VALUES ('uncommitted')");
+			final ResultSet rs = s.executeQuery("SELECT 1 UNION ALL SELECT 2");
+			assertTrue(rs.next()); // statement left busy
+		}
+		c.close();
+		assertTrue(c.isClosed());
+		try {
+			c.createStatement();
+			fail("closed logical connection");
+		} catch (SQLException e) {
+			// expected
+		}
+
+		try (Connection c2 = ds.getConnection(); Statement s = c2.createStatement()) {
+			assertTrue(c2.getAutoCommit());
+			try (ResultSet rs = s.executeQuery("SELECT count(*) FROM test")) {
+				assertTrue(rs.next());
+				assertEquals(0, rs.getInt(1));
+			}
+		}
+		assertEquals(1, ds.getIdleCount());
+	}
+
+	@Test
+	public void closeStatements() throws SQLException {
+		final Connection c = ds.getConnection();
+		final org.sqlite.Conn physical = c.unwrap(org.sqlite.Conn.class);
+		final PreparedStatement leaked = c.prepareStatement("INSERT INTO test VALUES (?)");
+		final Statement s = c.createStatement();
+		c.close();
+		assertTrue(leaked.isClosed());
+		assertTrue(s.isClosed());
+
+		try (Connection c2 = ds.getConnection()) {
+			assertSame(physical, c2.unwrap(org.sqlite.Conn.class));
+			try {
+				leaked.setString(1, "borrower A");
+				leaked.executeUpdate();
+				fail("statement of a connection given back to the pool");
+			} catch (SQLException e) {
+				// expected
+			}
+			try (Statement s2 = c2.createStatement(); ResultSet rs = s2.executeQuery("SELECT count(*) FROM test")) {
+				assertTrue(rs.next());
+				assertEquals(0, rs.getInt(1));
+			}
+		}
+	}
+
+	@Test
+	public void resetReadOnly() throws SQLException {
+		try (Connection c = ds.getConnection()) {
+			c.setReadOnly(true);
+			assertTrue(c.isReadOnly());
+		}
+		try (Connection c = ds.getConnection()) {
+			assertFalse(c.isReadOnly());
+		}
+	}
+
+	@Test
+	public void resetNetworkTimeout() throws SQLException {
+		try (Connection c = ds.getConnection()) {
+			c.setNetworkTimeout(Runnable::run, 1000);
+		}
+		try (Connection c = ds.getConnection()) {
+			assertEquals(0, c.getNetworkTimeout());
+		}
+	}
+
+	@Test
+	public void abort() throws SQLException {
+		final Connection c = ds.getConnection();
+		final org.sqlite.Conn physical = c.unwrap(org.sqlite.Conn.class);
+		c.abort(Runnable::run);
+		assertTrue(c.isClosed());
+		// not given back to the pool
+		assertTrue(physical.isClosed());
+		assertEquals(0, ds.getActiveCount());
+		assertEquals(0, ds.getIdleCount());
+		assertEquals(1, ds.getDestroyedCount());
+		try (Connection c2 = ds.getConnection()) {
+			assertNotSame(physical, c2.unwrap(org.sqlite.Conn.class));
+		}
+	}
+
+	@Test
+	public void maxPoolSize() throws SQLException {
+		ds.setMaxPoolSize(1);
+		ds.setLoginTimeout(1);
+		try (Connection c = ds.getConnection()) {
+			try {
+				ds.getConnection();
+				fail("pool exhausted");
+			} catch (SQLTransientConnectionException e) {
+				// expected
+			}
+			assertEquals(1, ds.getTimeoutCount());
+		}
+		try (Connection c = ds.getConnection()) {
+			assertFalse(c.isClosed());
+		}
+	}
+
+	@Test
+	public void waitForRelease() throws Exception {
+		ds.setMaxPoolSize(1);
+		final Connection c = ds.getConnection();
+		final Thread t = new Thread(() -> {
+			try {
+				Thread.sleep(100);
+				c.close();
+			} catch (Exception e) {
+				throw new AssertionError(e);
+			}
+		});
+		t.start();
+		try (Connection c2 = ds.getConnection()) {
+			assertTrue(c.isClosed());
+			assertFalse(c2.isClosed());
+		}
+		t.join();
+		assertEquals(1, ds.getWaitCount());
+	}
+
+	@Test
+	public void maxIdleTime() throws Exception {
+		ds.setMaxIdleTime(1);
+		final Connection c1 = ds.getConnection();
+		final Connection c2 = ds.getConnection();
+		final org.sqlite.Conn physical = c2.unwrap(org.sqlite.Conn.class);
+		c1.close();
+		Thread.sleep(1100);
+		c2.close();
+		assertEquals(2, ds.getIdleCount());
+		try (Connection c = ds.getConnection()) {
+			// most recently used connection is reused, the expired one is closed
+			assertSame(physical, c.unwrap(org.sqlite.Conn.class));
+		}
+		assertEquals(1, ds.getIdleCount());
+		assertEquals(1, ds.getDestroyedCount());
+	}
+
+	@Test
+	public void connectionPoolDataSource() throws SQLException {
+		final ConnPoolDataSource cpds = new ConnPoolDataSource();
+		cpds.setFilename(ds.getFilename());
+		final PooledConnection pc = cpds.getPooledConnection();
+		final AtomicInteger closed = new AtomicInteger();
+		pc.addConnectionEventListener(new ConnectionEventListener() {
+			@Override
+			public void connectionClosed(ConnectionEvent event) {
+				assertSame(pc, event.getSource());
+				closed.incrementAndGet();
+			}
+			@Override
+			public void connectionErrorOccurred(ConnectionEvent event) {
+				fail(event.getSQLException().getMessage());
+			}
+		});
+		final Connection c1 = pc.getConnection();
+		final org.sqlite.Conn physical = c1.unwrap(org.sqlite.Conn.class);
+		c1.close();
+		c1.close();
+		assertEquals(1, closed.get());
+		final Connection c2 = pc.getConnection();
+		assertNotSame(c1, c2);
+		assertSame(physical, c2.unwrap(org.sqlite.Conn.class));
+		pc.close();
+		assertTrue(c2.isClosed());
+		assertTrue(physical.isClosed());
+		assertEquals(1, closed.get());
+	}
+
+	@Test
+	public void osgiPoolingOptions() throws SQLException {
+		final OsgiDataSourceFactory factory = new OsgiDataSourceFactory();
+		final Properties props = new Properties();
+		props.setProperty(DataSourceFactory.JDBC_URL, ds.getFilename());
+		props.setProperty(DataSourceFactory.JDBC_MAX_POOL_SIZE, "2");
+		props.setProperty(DataSourceFactory.JDBC_MIN_POOL_SIZE, "1");
+		props.setProperty(DataSourceFactory.JDBC_MAX_IDLE_TIME, "60");
+		props.setProperty(DataSourceFactory.JDBC_MAX_STATEMENTS, "0");
+		final DataSource dataSource = factory.createDataSource(props);
+		assertTrue(dataSource instanceof PoolingDataSource);
+		try (PoolingDataSource pds = (PoolingDataSource) dataSource) {
+			assertEquals(2, pds.getMaxPoolSize());
+			assertEquals(1, pds.getMinPoolSize());
+			assertEquals(60, pds.getMaxIdleTime());
+			try (Connection c = pds.getConnection()) {
+				assertEquals(0, c.unwrap(org.sqlite.Conn.class).getMaxCacheSize());
+			}
+		}
+
+		props.remove(DataSourceFactory.JDBC_MAX_POOL_SIZE);
+		props.remove(DataSourceFactory.JDBC_MIN_POOL_SIZE);
+		props.remove(DataSourceFactory.JDBC_MAX_IDLE_TIME);
+		final ConnectionPoolDataSource cpds = factory.createConnectionPoolDataSource(props);
+		final PooledConnection pc = cpds.getPooledConnection();
+		try (Connection c = pc.getConnection()) {
+			assertEquals(0, c.unwrap(org.sqlite.Conn.class).getMaxCacheSize());
+		} finally {
+			pc.close();
+		}
+	}
+}
@@ -31,10 +31,12 @@ import org.junit.Before;
 import org.junit.Test;
 
 import org.sqlite.ErrCodes;
+import org.sqlite.Utf8Text;
 
 import java.io.ByteArrayInputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.DriverManager;
@@ -46,12 +48,17 @@ import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Calendar;
 import java.util.Properties;
 import java.util.StringTokenizer;
+import java.util.TimeZone;
 
 import static org.junit.Assert.*;
 
@@ -170,6 +177,23 @@ public class PrepStmtTest {
 		}
 	}
 
+	@Test
+	public void utf8TextRS() throws SQLException {
+		final Utf8Text.Cache cache = new Utf8Text.Cache(2);
+		try (PreparedStatement prep = conn.prepareStatement("select ?, typeof(?);")) {
+			for (String name : new String[]{"Gandhi", "caf\u00e9", "Gandhi"}) {
+				prep.setObject(1, cache.get(name));
+				prep.setObject(2, cache.get(name));
+				try (ResultSet rs = prep.executeQuery()) {
+					assertTrue(rs.next());
+					assertEquals(name, rs.getString(1));
+					assertEquals("text", rs.getString(2));
+				}
+			}
+		}
+		assertEquals(2, cache.size());
+	}
+
 	@Test
 	public void finalizePrep() throws SQLException {
 		conn.prepareStatement("select null;");
@@ -560,6 +584,29 @@ public class PrepStmtTest {
 		}
 	}
 
+	@Test
+	public void epochDay() throws SQLException {
+		close();
+		final Properties info = new Properties();
+		info.put(DateUtil.DATE_FORMAT, DateUtil.EPOCH_DAY);
+		conn = DriverManager.getConnection(JDBC.TEMP_FILE, info);
+		stat = conn.createStatement();
+
+		final LocalDate d1 = LocalDate.of(2016, 2, 29);
+		stat.execute("create table t (c1);");
+		try (PreparedStatement prep = conn.prepareStatement("insert into t values(?);")) {
+			prep.setDate(1, Date.valueOf(d1));
+			prep.executeUpdate();
+		}
+
+		try (ResultSet rs = stat.executeQuery("select c1 from t;")) {
+			assertTrue(rs.next());
+			assertEquals(d1.toEpochDay(), rs.getLong(1));
+			assertEquals(Date.valueOf(d1), rs.getDate(1));
+			assertEquals(d1, rs.getObject(1, LocalDate.class));
+		}
+	}
+
 	@Test
 	public void date2() throws SQLException {
 		Date d1 = new Date(1092941466000L);
@@ -820,6 +867,119 @@ public class PrepStmtTest {
 			check(stmt, LocalDateTime.class, LocalDateTime.now());
 			check(stmt, OffsetDateTime.class, OffsetDateTime.now());
 			check(stmt, LocalTime.class, LocalTime.now());
+			check(stmt, Instant.class, Instant.now());
+			check(stmt, LocalDateTime.class, LocalDateTime.of(2016, 2, 29, 23, 59, 59, 123000000));
+			check(stmt, OffsetDateTime.class, OffsetDateTime.of(1969, 12, 31, 0, 0, 0, 0, ZoneOffset.ofHours(-5)));
+			check(stmt, LocalDate.class, LocalDate.of(10000, 1, 1)); // toString
+		}
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT ?, datetime(?);")) {
+			// fixed layouts, understood by SQLite date and time functions
+			stmt.setObject(1, LocalDateTime.of(2016, 1, 1, 10, 0));
+			stmt.setObject(2, Instant.ofEpochSecond(1451642400L));
+			try (ResultSet rs = stmt.executeQuery()) {
+				assertTrue(rs.next());
+				assertEquals("2016-01-01T10:00:00.000", rs.getString(1));
+				assertEquals("2016-01-01 10:00:00", rs.getString(2));
+				assertEquals(Instant.ofEpochSecond(1451642400L), rs.getObject(2, Instant.class));
+				assertEquals(LocalDate.of(2016, 1, 1), rs.getObject(2, LocalDate.class));
+			}
+		}
+		try (ResultSet rs = stat.executeQuery("SELECT 1451642400000, julianday('2016-01-01 10:00:00'), '2016-13-01', '10:00'")) {
+			assertTrue(rs.next());
+			assertEquals(Instant.ofEpochSecond(1451642400L), rs.getObject(1, Instant.class));
+			assertEquals(LocalDateTime.of(2016, 1, 1, 10, 0), rs.getObject(1, LocalDateTime.class));
+			assertEquals(LocalDate.of(2016, 1, 1), rs.getObject(1, LocalDate.class)); // unix epoch millis, not epoch day
+			assertEquals(LocalDateTime.of(2016, 1, 1, 10, 0), rs.getObject(2, LocalDateTime.class));
+			try {
+				rs.getObject(3, LocalDate.class);
+				fail("invalid month");
+			} catch (SQLException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("2016-13-01"));
+			}
+			assertEquals(LocalTime.of(10, 0), rs.getObject(4, LocalTime.class));
+		}
+	}
+
+	@Test
+	public void array() throws SQLException {
+		stat.executeUpdate("CREATE TABLE t(id INTEGER PRIMARY KEY, name TEXT)");
+		stat.executeUpdate("INSERT INTO t VALUES (1, 'a'), (2, 'b'), (3, 'c'), (4, 'd')");
+		final Array ids = conn.createArrayOf("INTEGER", new Object[]{3, 1L, (short) 9});
+		assertEquals(Types.BIGINT, ids.getBaseType());
+		assertArrayEquals(new long[]{1, 9}, (long[]) ids.getArray(2, 2));
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT group_concat(name) FROM (SELECT name FROM t WHERE id IN carray(?) ORDER BY id)")) {
+			stmt.setArray(1, ids);
+			try (ResultSet rs = stmt.executeQuery()) {
+				assertTrue(rs.next());
+				assertEquals("a,c", rs.getString(1));
+			}
+			stmt.setObject(1, new long[]{2, 4});
+			try (ResultSet rs = stmt.executeQuery()) {
+				assertTrue(rs.next());
+				assertEquals("b,d", rs.getString(1));
+			}
+		}
+		try (PreparedStatement stmt = conn.prepareStatement("SELECT count(*) FROM t WHERE name IN carray(?)")) {
+			stmt.setArray(1, conn.createArrayOf("VARCHAR", new String[]{"a", "z", "d"}));
+			try (ResultSet rs = stmt.executeQuery()) {
+				assertTrue(rs.next());
+				assertEquals(2, rs.getInt(1));
+			}
+		}
+		try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM t WHERE id IN carray(?)")) {
+			stmt.setObject(1, new long[]{1, 2});
+			stmt.addBatch();
+			stmt.setArray(1, conn.createArrayOf("INT", new Object[]{4}));
+			stmt.addBatch();
+			assertArrayEquals(new int[]{2, 1}, stmt.executeBatch());
+		}
+		try (ResultSet rs = stat.executeQuery("SELECT group_concat(name) FROM t")) {
+			assertTrue(rs.next());
+			assertEquals("c", rs.getString(1));
+		}
+		try {
+			conn.createArrayOf("BLOB", new Object[0]);
+			fail("unsupported type");
+		} catch (SQLException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("BLOB"));
+		}
+		try {
+			conn.createArrayOf("INTEGER", new Object[]{"1"});
+			fail("number expected");
+		} catch (SQLException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("number expected"));
+		}
+	}
+
+	@Test
+	public void timestampLayouts() throws Exception {
+		final String[][] layouts = {
+				{"HH:mm", "10:42"}, {"HH:mm:ss", "10:42:05"}, {"HH:mm:ss.SSS", "10:42:05.123"}, {"yyyy-MM-dd", "2014-09-23"},
+				{"yyyy-MM-dd'T'HH:mm", "2014-09-23T10:42"}, {"yyyy-MM-dd HH:mm:ss", "2014-09-23 10:42:05"},
+				{"yyyy-MM-dd'T'HH:mm:ss.SSS", "2014-03-30T02:30:05.123"}, {"yyyy-MM-dd'T'HH:mm:ss.SSSXXX", "2014-10-26T02:30:05.123+02:00"},
+				{"yyyy-MM-dd HH:mm:ss.SSSXXX", "2014-09-23 10:42:05.123Z"}, {"yyyy-MM-dd", "1500-02-29"}, // Julian calendar
+		};
+		for (String tz : new String[]{"UTC", "Europe/Paris", "America/St_Johns"}) {
+			final Calendar cal = Calendar.getInstance(TimeZone.getTimeZone(tz));
+			try (PreparedStatement stmt = conn.prepareStatement("SELECT ?")) {
+				for (String[] layout : layouts) {
+					final SimpleDateFormat df = new SimpleDateFormat(layout[0]);
+					df.setTimeZone(cal.getTimeZone());
+					final long expected = df.parse(layout[1]).getTime();
+					stmt.setString(1, layout[1]);
+					try (ResultSet rs = stmt.executeQuery()) {
+						assertTrue(rs.next());
+						assertEquals(tz + ' ' + layout[1], expected, rs.getTimestamp(1, cal).getTime());
+					}
+					assertEquals(df.format(new java.util.Date(expected)), DateUtil.formatDate(new java.util.Date(expected), layout[0], cal));
+				}
+			}
+		}
+		try (ResultSet rs = stat.executeQuery("SELECT '2014-09-23 10:42:05.123456789Z'")) {
+			assertTrue(rs.next());
+			final Timestamp ts = rs.getTimestamp(1);
+			assertEquals(1411468925123L, ts.getTime());
+			assertEquals(123456789, ts.getNanos());
 		}
 	}
 
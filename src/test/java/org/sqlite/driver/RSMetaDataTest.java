@@ -30,8 +30,10 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -194,5 +196,64 @@ public class RSMetaDataTest {
 		assertEquals(0, meta.getScale(2));
 		assertEquals(0, meta.getScale(3));
 	}
+
+	@Test
+	public void sharedAcrossConnections() throws Exception {
+		final File db = File.createTempFile("meta", ".db");
+		try (Connection c1 = DriverManager.getConnection(JDBC.PREFIX + db.getPath());
+				 Connection c2 = DriverManager.getConnection(JDBC.PREFIX + db.getPath());
+				 Statement s1 = c1.createStatement(); Statement s2 = c2.createStatement()) {
+			s1.executeUpdate("create table test (id integer primary key autoincrement, name text not null)");
+			// only busy statements are cached
+			s1.executeUpdate("insert into test (name) values ('a')");
+			final String sql = "select * from test";
+			final int size = ColumnsMeta.size();
+			try (ResultSet rs = s1.executeQuery(sql)) {
+				final ResultSetMetaData m1 = rs.getMetaData();
+				assertEquals(2, m1.getColumnCount());
+				assertEquals(ResultSetMetaData.columnNoNulls, m1.isNullable(2));
+			}
+			assertEquals(size + 1, ColumnsMeta.size());
+			try (ResultSet rs = s2.executeQuery(sql)) {
+				assertTrue(rs.getMetaData().isAutoIncrement(1));
+			}
+			assertEquals(size + 1, ColumnsMeta.size()); // shared
+			// schema change
+			s2.executeUpdate("alter table test add column score real");
+			try (ResultSet rs = s1.executeQuery(sql)) {
+				final ResultSetMetaData m1 = rs.getMetaData();
+				assertEquals(3, m1.getColumnCount());
+				assertEquals(Types.REAL, m1.getColumnType(3));
+			}
+			assertEquals(size + 2, ColumnsMeta.size());
+			// statement prepared before a schema change by another connection
+			try (PreparedStatement ps = c1.prepareStatement(sql)) {
+				s2.executeUpdate("alter table test add column c");
+				final ResultSetMetaData m1 = ps.getMetaData();
+				assertEquals(ResultSetMetaData.columnNoNulls, m1.isNullable(2)); // not re-prepared yet
+				assertEquals(3, m1.getColumnCount());
+				assertEquals(size + 2, ColumnsMeta.size()); // not cached
+				try (ResultSet rs = s2.executeQuery(sql)) {
+					final ResultSetMetaData m2 = rs.getMetaData();
+					assertEquals("c", m2.getColumnLabel(4));
+					assertEquals(4, m2.getColumnCount());
+				}
+				try (ResultSet rs = ps.executeQuery()) {
+					assertEquals("c", rs.getMetaData().getColumnLabel(4));
+				}
+				assertEquals(size + 3, ColumnsMeta.size());
+			}
+			// temp table shadowing the main one
+			s2.executeUpdate("create temp table test (x)");
+			try (ResultSet rs = s2.executeQuery(sql)) {
+				final ResultSetMetaData m2 = rs.getMetaData();
+				assertEquals(1, m2.getColumnCount());
+				assertEquals("temp", m2.getSchemaName(1));
+			}
+			assertEquals(size + 3, ColumnsMeta.size());
+		} finally {
+			assertTrue(db.delete());
+		}
+	}
 	//#endif
 }
@@ -7,6 +7,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import org.sqlite.ColumnBatch;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
@@ -15,6 +17,7 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class ResultSetTest {
@@ -153,4 +156,27 @@ public class ResultSetTest {
 			assertEquals(expected, resultSet.getTimestamp(1));
 		}
 	}
+
+	@Test
+	public void testFetchBatch() throws SQLException {
+		stat.setMaxRows(5);
+		try (ResultSet resultSet = stat.executeQuery("WITH RECURSIVE t(x) AS (SELECT 1 UNION ALL SELECT x+1 FROM t LIMIT 10) " +
+				"SELECT x, x / 2.0, CASE WHEN x % 2 = 0 THEN NULL ELSE 'r' || x END FROM t")) {
+			assertTrue(resultSet.isWrapperFor(ColumnBatchReader.class));
+			final ColumnBatchReader reader = resultSet.unwrap(ColumnBatchReader.class);
+			assertTrue(resultSet.next());
+			assertEquals(1, resultSet.getInt(1));
+			final ColumnBatch batch = new ColumnBatch();
+			assertEquals(3, reader.fetchBatch(3, batch));
+			assertEquals(3, batch.getColumnCount());
+			assertEquals(2, batch.longs(0)[0]);
+			assertEquals(1.5, batch.doubles(1)[1], 0.0);
+			assertTrue(batch.isNull(0, 2));
+			assertEquals("r3", batch.getText(1, 2));
+			assertEquals(1, reader.fetchBatch(3, batch)); // max rows
+			assertEquals(5, batch.getLong(0, 0));
+			assertEquals(0, reader.fetchBatch(3, batch));
+			assertFalse(resultSet.next());
+		}
+	}
 }
@@ -42,12 +42,15 @@ import java.sql.SQLClientInfoException;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTimeoutException;
 import java.sql.SQLWarning;
 import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
@@ -502,14 +505,38 @@ public class SqliteConnectionTest extends SqliteTestHelper {
 		assertNotNull(conn.createSQLXML());
 	}
 
-	@Test(expected = SQLFeatureNotSupportedException.class)
+	@Test
 	public void testSetNetworkTimeout() throws Exception {
 		conn.setNetworkTimeout(null, 0);
+		final List<Runnable> commands = new ArrayList<>();
+		conn.setNetworkTimeout(commands::add, 100);
+		try (Statement stmt = conn.createStatement()) {
+			stmt.executeQuery("WITH RECURSIVE cnt(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM cnt) SELECT count(*) FROM cnt");
+			fail("network timeout expected");
+		} catch (SQLTimeoutException e) {
+			assertTrue(conn.isClosed());
+		}
+		assertEquals(1, commands.size());
+		commands.get(0).run(); // physical close
+		assertTrue(conn.isClosed());
 	}
 
-	@Test(expected = SQLFeatureNotSupportedException.class)
+	@Test
 	public void testGetNetworkTimeout() throws Exception {
-		conn.getNetworkTimeout();
+		assertEquals(0, conn.getNetworkTimeout());
+		conn.setNetworkTimeout(Runnable::run, 1000);
+		assertEquals(1000, conn.getNetworkTimeout());
+	}
+
+	@Test
+	public void testAbortIdle() throws Exception {
+		final List<Runnable> commands = new ArrayList<>();
+		conn.abort(commands::add);
+		assertTrue(conn.isClosed());
+		conn.abort(commands::add); // no-op
+		assertEquals(1, commands.size());
+		commands.get(0).run();
+		assertTrue(conn.isClosed());
 	}
 
 	@Test
@@ -126,7 +126,19 @@ public class SqliteDriverTest {
 
 	@Test
 	public void testProperties() throws Exception {
-		assertEquals(10, driver.getPropertyInfo("jdbc:sqlite::memory:", new Properties()).length);
+		assertEquals(13, driver.getPropertyInfo("jdbc:sqlite::memory:", new Properties()).length);
 		//assertArrayEquals(new DriverPropertyInfo[10], driver.getPropertyInfo("jdbc:sqlite::memory:", new Properties()));
 	}
+
+	@Test
+	public void testStmtCacheProperties() throws Exception {
+		final Properties info = new Properties();
+		info.setProperty("stmt_cache_size", "250");
+		info.setProperty("stmt_cache_memory", "0");
+		try (Connection conn = driver.connect(JDBC.MEMORY, info)) {
+			final org.sqlite.StmtCache cache = conn.unwrap(org.sqlite.Conn.class).getStmtCache();
+			assertEquals(250, cache.getMaxSize());
+			assertEquals(0, cache.getMaxMemory());
+		}
+	}
 }
@@ -0,0 +1,170 @@
+/*
+ * The author disclaims copyright to this source code.  In place of
+ * a legal notice, here is a blessing:
+ *
+ *    May you do good and not evil.
+ *    May you find forgiveness for yourself and forgive others.
+ *    May you share freely, never taking more than you give.
+ */
+package org.sqlite.driver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WalDataSourceTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private WalDataSource ds;
+
+	@Before
+	public void setUp() throws Exception {
+		ds = new WalDataSource();
+		ds.setFilename(folder.newFile("wal.db").getPath());
+		ds.setMaxReaders(2);
+		try (Connection c = ds.getConnection(); Statement s = c.createStatement()) {
+			s.executeUpdate("CREATE TABLE test (data INTEGER)");
+			try (ResultSet rs = s.executeQuery("PRAGMA journal_mode")) {
+				assertTrue(rs.next());
+				assertEquals("wal", rs.getString(1));
+			}
+		}
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		ds.close();
+	}
+
+	@Test
+	public void route() throws SQLException {
+		final org.sqlite.Conn writer;
+		try (Connection c = ds.getConnection("INSERT INTO test VALUES (1)")) {
+			writer = c.unwrap(org.sqlite.Conn.class);
+			try (Statement s = c.createStatement()) {
+				assertEquals(1, s.executeUpdate("INSERT INTO test VALUES (1)"));
+			}
+		}
+		try (Connection c = ds.getConnection("SELECT count(*) FROM test")) {
+			assertNotSame(writer, c.unwrap(org.sqlite.Conn.class));
+			assertTrue(c.isReadOnly());
+			try (Statement s = c.createStatement()) {
+				try (ResultSet rs = s.executeQuery("SELECT count(*) FROM test")) {
+					assertTrue(rs.next());
+					assertEquals(1, rs.getInt(1));
+				}
+				try {
+					s.executeUpdate("INSERT INTO test VALUES (2)");
+					fail("reader connection");
+				} catch (SQLException e) {
+					// expected
+				}
+			}
+		}
+		// cached routing
+		try (Connection c = ds.getConnection("INSERT INTO test VALUES (1)")) {
+			assertSame(writer, c.unwrap(org.sqlite.Conn.class));
+		}
+		assertEquals(3, ds.getWriterBorrowCount());
+		assertEquals(1, ds.getReaders().getIdleCount());
+	}
+
+	@Test
+	public void readWhileWriting() throws SQLException {
+		try (Connection w = ds.getConnection(false); Connection r = ds.getConnection(true);
+				 Statement ws = w.createStatement(); Statement rs = r.createStatement()) {
+			w.setAutoCommit(false);
+			ws.executeUpdate("INSERT INTO test VALUES (1)");
+			try (ResultSet res = rs.executeQuery("SELECT count(*) FROM test")) {
+				assertTrue(res.next());
+				assertEquals(0, res.getInt(1));
+			}
+			w.commit();
+			try (ResultSet res = rs.executeQuery("SELECT count(*) FROM test")) {
+				assertTrue(res.next());
+				assertEquals(1, res.getInt(1));
+			}
+		}
+	}
+
+	@Test
+	public void writersQueue() throws Exception {
+		final int nThreads = 4;
+		final CountDownLatch done = new CountDownLatch(nThreads);
+		final Connection first = ds.getWriteConnection();
+		final Thread[] threads = new Thread[nThreads];
+		for (int i = 0; i < nThreads; i++) {
+			threads[i] = new Thread(() -> {
+				try (Connection c = ds.getWriteConnection(); Statement s = c.createStatement()) {
+					c.setAutoCommit(false);
+					s.executeUpdate("INSERT INTO test VALUES (1)");
+					c.commit();
+					c.setAutoCommit(true);
+				} catch (SQLException e) {
+					throw new AssertionError(e);
+				} finally {
+					done.countDown();
+				}
+			});
+			threads[i].start();
+		}
+		while (ds.getWriterQueueLength() < nThreads) {
+			Thread.sleep(10);
+		}
+		first.close();
+		done.await();
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertEquals(nThreads, ds.getWriterWaitCount());
+		try (Connection c = ds.getReadConnection(); Statement s = c.createStatement();
+				 ResultSet rs = s.executeQuery("SELECT count(*) FROM test")) {
+			assertTrue(rs.next());
+			assertEquals(nThreads, rs.getInt(1));
+		}
+	}
+
+	@Test
+	public void closeWhileWriting() throws Exception {
+		final int nThreads = 2;
+		final Connection first = ds.getWriteConnection();
+		final SQLException[] errors = new SQLException[nThreads];
+		final Thread[] threads = new Thread[nThreads];
+		for (int i = 0; i < nThreads; i++) {
+			final int t = i;
+			threads[i] = new Thread(() -> {
+				try (Connection c = ds.getWriteConnection()) {
+					fail("data source closed");
+				} catch (SQLException e) {
+					errors[t] = e;
+				}
+			});
+			threads[i].start();
+		}
+		while (ds.getWriterQueueLength() < nThreads) {
+			Thread.sleep(10);
+		}
+		ds.close();
+		assertTrue(first.isClosed());
+		for (int i = 0; i < nThreads; i++) {
+			threads[i].join(5000);
+			assertFalse(threads[i].isAlive());
+			assertEquals("data source closed", errors[i].getMessage());
+		}
+	}
+}